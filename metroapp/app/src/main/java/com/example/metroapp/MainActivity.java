@@ -5,11 +5,9 @@ import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.location.Location;
-import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.View;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.Toast;
@@ -23,21 +21,29 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.daimajia.androidanimations.library.Techniques;
 import com.daimajia.androidanimations.library.YoYo;
-import com.example.metroapp.data.StationData;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.Metrics;
 import com.example.metroapp.services.PreferencesManager;
+import com.example.metroapp.services.RouteService;
+import com.example.metroapp.services.StartupGraph;
+import com.example.metroapp.services.StationSearchIndex;
 import com.google.android.material.button.MaterialButton;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 
 import mumayank.com.airlocationlibrary.AirLocation;
 
 public class MainActivity extends AppCompatActivity implements AirLocation.Callback {
-    private List<String> stations;
+    private StationGraph graph;
     private AutoCompleteTextView startSpinner, endSpinner;
     private Button languageToggleButton;
-    private PreferencesManager preferencesManager;
+    private StartupGraph startup;
+    // Set when Calculate is tapped before the stations have loaded; the route opens once they have
+    private boolean routePending;
 
 
     @Override
@@ -45,10 +51,11 @@ public class MainActivity extends AppCompatActivity implements AirLocation.Callb
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
 
-        // Initialize preferences manager
-        preferencesManager = new PreferencesManager(this);
-        String currentLang = preferencesManager.getLanguage();
-        setLocale(currentLang);
+        // Start-up components run in the background from MetroApplication; a recreated activity
+        // finds them ready. Only the language has to be known before the layout is inflated, and
+        // it is read on its own so the first frame does not wait for the saved route logs.
+        startup = MetroApplication.getStartup(this);
+        setLocale(PreferencesManager.getLanguage(this));
 
         setContentView(R.layout.activity_main);
 
@@ -74,6 +81,9 @@ public class MainActivity extends AppCompatActivity implements AirLocation.Callb
             Intent intent = new Intent(MainActivity.this, NearestStationActivity.class);
             startActivity(intent);
         });
+
+        // Routing tables and the spatial index are only warmed up once the first frame is out
+        getWindow().getDecorView().post(startup::startDeferred);
     }
 
     @Override
@@ -82,38 +92,66 @@ public class MainActivity extends AppCompatActivity implements AirLocation.Callb
     }
 
     private void setupStations() {
-        // Use centralized station data
-        stations = StationData.getAllStationNames();
+        startup.whenReady(MetroApplication.NETWORK, new RouteService.Callback<StationGraph>() {
+            @Override
+            public void onResult(StationGraph result) {
+                graph = result;
+                if (routePending) {
+                    routePending = false;
+                    calc(null);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                onResult(StationGraph.getDefault());
+            }
+        });
     }
-    private void setupAutoCompleteTextViews() {
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_dropdown_item_1line, stations);
-        startSpinner.setAdapter(adapter);
-        endSpinner.setAdapter(adapter);
 
+    private void setupAutoCompleteTextViews() {
         startSpinner.setThreshold(1);
         endSpinner.setThreshold(1);
+
+        // Each field gets its own adapter: they filter independently as the user types
+        startup.whenReady(MetroApplication.SEARCH_INDEX, new RouteService.Callback<StationSearchIndex>() {
+            @Override
+            public void onResult(StationSearchIndex searchIndex) {
+                startSpinner.setAdapter(new StationSearchAdapter(MainActivity.this, searchIndex));
+                endSpinner.setAdapter(new StationSearchAdapter(MainActivity.this, searchIndex));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                onResult(StationSearchIndex.getDefault());
+            }
+        });
     }
 
     private void toggleLanguage() {
-        String currentLang = preferencesManager.getLanguage();
+        String currentLang = PreferencesManager.getLanguage(this);
         String newLang = currentLang.equals("en") ? "ar" : "en";
         setLocale(newLang);
-        preferencesManager.setLanguage(newLang);
+        PreferencesManager.setLanguage(this, newLang);
         updateLanguageButtonText();
         recreate();
     }
 
     private void setLocale(String languageCode) {
         Locale locale = new Locale(languageCode);
-        Locale.setDefault(locale);
         Resources resources = getResources();
         Configuration config = resources.getConfiguration();
+        // Recreating after a language switch finds the locale already applied
+        if (locale.equals(Locale.getDefault()) && locale.equals(config.locale)) {
+            return;
+        }
+        Locale.setDefault(locale);
         config.setLocale(locale);
         resources.updateConfiguration(config, resources.getDisplayMetrics());
     }
 
     private void updateLanguageButtonText() {
-        String currentLang = preferencesManager.getLanguage();
+        String currentLang = PreferencesManager.getLanguage(this);
         languageToggleButton.setText(currentLang.equals("en") ? "AR" : "EN");
     }
 
@@ -132,13 +170,30 @@ public class MainActivity extends AppCompatActivity implements AirLocation.Callb
             return;
         }
 
-        if (!stations.contains(currentStation) || !stations.contains(arrivalStation)) {
+        if (graph == null) {
+            // Still loading; only possible in the first moments after a cold start
+            routePending = true;
+            Toast.makeText(this, R.string.loading_stations, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (graph.indexOf(currentStation) < 0 || graph.indexOf(arrivalStation) < 0) {
             Toast.makeText(this, R.string.invalid_station, Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // Save to recent searches
-        preferencesManager.addRecentSearch(currentStation, arrivalStation);
+        // Save to recent searches once the route logs are open; the route does not wait for them
+        startup.whenReady(MetroApplication.PREFERENCES, new RouteService.Callback<PreferencesManager>() {
+            @Override
+            public void onResult(PreferencesManager preferences) {
+                preferences.addRecentSearch(currentStation, arrivalStation);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                // Not worth failing the search over
+            }
+        });
 
         Intent intent = new Intent(this, showActivity.class);
         intent.putExtra("start", currentStation);
@@ -154,8 +209,9 @@ public class MainActivity extends AppCompatActivity implements AirLocation.Callb
             YoYo.with(Techniques.Shake).duration(700).repeat(3).playOn(startSpinner);
             return;
         }
-        Intent a = new Intent(Intent.ACTION_VIEW, Uri.parse("geo:0,0?q=" + selectedStation + " metro station egypt"));
-        startActivity(a);
+        Intent intent = new Intent(this, NetworkMapActivity.class);
+        intent.putExtra(NetworkMapActivity.EXTRA_STATION, selectedStation);
+        startActivity(intent);
     }
 
 
@@ -186,6 +242,24 @@ public class MainActivity extends AppCompatActivity implements AirLocation.Callb
         endSpinner.clearFocus();
     }
 
+    /**
+     * Adds the metrics to "adb shell dumpsys activity com.example.metroapp/.MainActivity"
+     * and also writes them to files/metrics.txt and logcat
+     */
+    @Override
+    public void dump(@NonNull String prefix, FileDescriptor fd, @NonNull PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Metrics:");
+        try {
+            Metrics.getDefault().dump(writer);
+        } catch (IOException e) {
+            writer.println(e);
+        }
+        // dumpsys calls in on a binder thread, so the file write stays off the UI thread
+        MetroApplication.dumpMetrics(this, true);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -0,0 +1,125 @@
+package com.example.metroapp;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.FareEngine;
+import com.example.metroapp.services.Metrics;
+import com.example.metroapp.services.NetworkLoader;
+import com.example.metroapp.services.PreferencesManager;
+import com.example.metroapp.services.RouteCalculator;
+import com.example.metroapp.services.StartupGraph;
+import com.example.metroapp.services.StationSearchIndex;
+import com.example.metroapp.services.StationSpatialIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application entry point; owns the start-up graph so its results outlive any activity
+ */
+public class MetroApplication extends Application {
+
+    public static final String NETWORK = "network";
+    public static final String FARES = "fares";
+    public static final String PREFERENCES = "preferences";
+    public static final String SEARCH_INDEX = "searchIndex";
+    public static final String ROUTING = "routing";
+    public static final String SPATIAL_INDEX = "spatialIndex";
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private static final String METRICS_FILE = "metrics.txt";
+    private static final String METRICS_TAG = "MetroMetrics";
+
+    private StartupGraph startup;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        final Context app = this;
+
+        // Threads only live through start-up; cold start is when the spare cores are idle
+        int threads = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new StartupThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        startup = new StartupGraph(executor, mainHandler::post)
+                // A downloaded snapshot must be installed before anything builds the default graph
+                .add(NETWORK, () -> {
+                    NetworkLoader.installDefault(app);
+                    return StationGraph.getDefault();
+                })
+                .add(FARES, () -> FareEngine.install(app))
+                .add(PREFERENCES, () -> new PreferencesManager(app))
+                .add(SEARCH_INDEX, StationSearchIndex::getDefault, NETWORK)
+                // Not needed for the first frame; started once it is drawn
+                .addDeferred(ROUTING, () -> {
+                    RouteCalculator.warmUp();
+                    return true;
+                }, NETWORK, FARES)
+                .addDeferred(SPATIAL_INDEX, StationSpatialIndex::getDefault, NETWORK);
+        startup.start();
+    }
+
+    public static StartupGraph getStartup(Context context) {
+        return ((MetroApplication) context.getApplicationContext()).startup;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Leaving the app keeps the latest numbers in files/metrics.txt, e.g. for adb pull
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            new Thread(() -> dumpMetrics(this, false), "metrics-dump").start();
+        }
+    }
+
+    /**
+     * Write every metric to files/metrics.txt and, if asked, to logcat; does disk I/O
+     */
+    public static void dumpMetrics(Context context, boolean toLog) {
+        Metrics metrics = Metrics.getDefault();
+        try {
+            metrics.dump(new File(context.getFilesDir(), METRICS_FILE));
+        } catch (IOException e) {
+            Log.w(METRICS_TAG, "Could not write " + METRICS_FILE, e);
+        }
+        if (toLog) {
+            StringWriter text = new StringWriter();
+            try {
+                metrics.dump(text);
+            } catch (IOException e) {
+                return;
+            }
+            for (String line : text.toString().split("\n")) {
+                Log.i(METRICS_TAG, line);
+            }
+        }
+    }
+
+    private static final class StartupThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "startup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            // Below the UI thread so start-up work never delays the first frame
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
@@ -17,7 +17,9 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import com.example.metroapp.data.StationData;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.Metrics;
+import com.example.metroapp.services.StationSpatialIndex;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 
@@ -25,6 +27,12 @@ import java.io.IOException;
 import java.util.List;
 
 public class NearestStationActivity extends AppCompatActivity {
+
+    private static final Metrics.Histogram NEAREST_TIME = Metrics.getDefault().histogram("nearest.query");
+    private static final Metrics.Histogram GEOCODE_TIME = Metrics.getDefault().histogram("nearest.geocode");
+    private static final Metrics.Histogram LOCATION_TIME = Metrics.getDefault().histogram("location.lastKnown");
+    private static final Metrics.Counter GEOCODE_MISSES = Metrics.getDefault().counter("nearest.geocodeMisses");
+
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1;
     private EditText nearestStationEditText;
     private EditText destinationEditText;
@@ -66,8 +74,11 @@ public class NearestStationActivity extends AppCompatActivity {
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             return;
         }
+        // From the request to the callback, i.e. how long the user waits for a fix
+        final long requested = System.nanoTime();
         fusedLocationClient.getLastLocation()
                 .addOnSuccessListener(this, location -> {
+                    LOCATION_TIME.recordSince(requested);
                     if (location != null) {
                         findNearestStation(location);
                     } else {
@@ -77,24 +88,16 @@ public class NearestStationActivity extends AppCompatActivity {
     }
 
     private void findNearestStation(Location currentLocation) {
-        Station nearestStation = null;
-        float minDistance = Float.MAX_VALUE;
-
-        for (Station station : StationData.ALL_STATIONS_WITH_COORDINATES) {
-            float[] results = new float[1];
-            Location.distanceBetween(currentLocation.getLatitude(), currentLocation.getLongitude(),
-                                         station.getLatitude(), station.getLongitude(), results);
-            float distance = results[0];
-
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearestStation = station;
-            }
-        }
-
-        if (nearestStation != null) {
+        long start = System.nanoTime();
+        StationSpatialIndex index = StationSpatialIndex.getDefault();
+        int nearest = index.nearest(currentLocation.getLatitude(), currentLocation.getLongitude());
+        NEAREST_TIME.recordSince(start);
+
+        if (nearest != StationSpatialIndex.NONE) {
+            double distance = index.distanceMeters(nearest,
+                    currentLocation.getLatitude(), currentLocation.getLongitude());
             String result = String.format("📍 %s\n📏 %.2f km away",
-                                          nearestStation.getName(), minDistance / 1000);
+                                          StationGraph.getDefault().getName(nearest), distance / 1000);
             nearestStationEditText.setText(result);
         } else {
             nearestStationEditText.setText("No station found");
@@ -110,34 +113,27 @@ public class NearestStationActivity extends AppCompatActivity {
 
         Geocoder geocoder = new Geocoder(this);
         try {
+            long start = System.nanoTime();
             List<Address> addressList = geocoder.getFromLocationName(destination, 1);
+            GEOCODE_TIME.recordSince(start);
             if (addressList == null || addressList.isEmpty()) {
+                GEOCODE_MISSES.increment();
                 Toast.makeText(this, "Could not find location", Toast.LENGTH_SHORT).show();
                 return;
             }
 
-            Location destinationLocation = new Location("");
-            destinationLocation.setLatitude(addressList.get(0).getLatitude());
-            destinationLocation.setLongitude(addressList.get(0).getLongitude());
-
-            Station nearestStation = null;
-            float minDistance = Float.MAX_VALUE;
+            double latitude = addressList.get(0).getLatitude();
+            double longitude = addressList.get(0).getLongitude();
 
-            for (Station station : StationData.ALL_STATIONS_WITH_COORDINATES) {
-                Location stationLocation = new Location("");
-                stationLocation.setLatitude(station.getLatitude());
-                stationLocation.setLongitude(station.getLongitude());
-
-                float distance = destinationLocation.distanceTo(stationLocation);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestStation = station;
-                }
-            }
+            start = System.nanoTime();
+            StationSpatialIndex index = StationSpatialIndex.getDefault();
+            int nearest = index.nearest(latitude, longitude);
+            NEAREST_TIME.recordSince(start);
 
-            if (nearestStation != null) {
+            if (nearest != StationSpatialIndex.NONE) {
+                double distance = index.distanceMeters(nearest, latitude, longitude);
                 String result = String.format("📍 Nearest to %s:\n🚉 %s\n📏 %.2f km away",
-                                              destination, nearestStation.getName(), minDistance / 1000);
+                                              destination, StationGraph.getDefault().getName(nearest), distance / 1000);
                 nearestToDestinationResultTextView.setText(result);
                 nearestToDestinationResultTextView.setVisibility(View.VISIBLE);
             }
@@ -0,0 +1,99 @@
+package com.example.metroapp;
+
+import android.graphics.Paint;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.NetworkMapGeometry;
+import com.example.metroapp.services.RouteService;
+import com.example.metroapp.services.StartupGraph;
+
+/**
+ * Offline map of the whole network; opened from the main screen, centred on the chosen station
+ */
+public class NetworkMapActivity extends AppCompatActivity {
+
+    public static final String EXTRA_STATION = "station";
+
+    private NetworkMapView mapView;
+    private TextView stationInfo;
+    private View progress;
+    private RouteService.RouteRequest request;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_network_map);
+
+        mapView = findViewById(R.id.networkMap);
+        stationInfo = findViewById(R.id.mapStationInfo);
+        progress = findViewById(R.id.mapProgress);
+
+        final String stationName = getIntent().getStringExtra(EXTRA_STATION);
+        // Label widths depend on the view's text size, so measure with a copy of its paint
+        final Paint labelPaint = new Paint(mapView.getLabelPaint());
+        final float labelHeight = labelPaint.descent() - labelPaint.ascent();
+        final StartupGraph startup = MetroApplication.getStartup(this);
+        request = RouteService.getInstance().submit(() -> {
+            StationGraph graph;
+            try {
+                graph = startup.await(MetroApplication.NETWORK);
+            } catch (IllegalStateException e) {
+                graph = StationGraph.getDefault();
+            }
+            float[] widths = new float[graph.getStationCount()];
+            for (int station = 0; station < widths.length; station++) {
+                widths[station] = labelPaint.measureText(graph.getName(station));
+            }
+            return new MapData(graph, new NetworkMapGeometry(graph, widths, labelHeight));
+        }, new RouteService.Callback<MapData>() {
+            @Override
+            public void onResult(MapData result) {
+                progress.setVisibility(View.GONE);
+                mapView.setGeometry(result.geometry, result.graph);
+                mapView.setOnStationClickListener(station -> showStation(result.graph, station));
+                int station = stationName != null ? result.graph.indexOf(stationName) : -1;
+                if (station >= 0) {
+                    mapView.focus(station);
+                    showStation(result.graph, station);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                progress.setVisibility(View.GONE);
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (request != null) {
+            request.cancel();
+        }
+        super.onDestroy();
+    }
+
+    private void showStation(StationGraph graph, int station) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < graph.getStationLineCount(station); i++) {
+            if (i > 0) lines.append(", ");
+            lines.append("Line ").append(graph.getLineNumber(graph.getStationLine(station, i)));
+        }
+        stationInfo.setText(getString(R.string.network_map_station, graph.getName(station), lines));
+    }
+
+    private static final class MapData {
+        final StationGraph graph;
+        final NetworkMapGeometry geometry;
+
+        MapData(StationGraph graph, NetworkMapGeometry geometry) {
+            this.graph = graph;
+            this.geometry = geometry;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.metroapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.NetworkMapGeometry;
+
+/**
+ * Pannable, zoomable map of the whole network, drawn offline from NetworkMapGeometry
+ * Lines and dots are drawn in map meters through the view matrix, so panning and zooming only
+ * change the matrix; labels are mapped to screen space so text keeps its size. Nothing is
+ * allocated while drawing.
+ */
+public class NetworkMapView extends View {
+
+    /**
+     * Closest zoom, in map meters per pixel
+     */
+    private static final float MIN_METERS_PER_PIXEL = 0.5f;
+    private static final float DOUBLE_TAP_ZOOM = 2.5f;
+    private static final float TAP_RADIUS_DP = 24f;
+
+    public interface OnStationClickListener {
+        void onStationClick(int station);
+    }
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint selectedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint haloPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float density;
+
+    private final Matrix matrix = new Matrix();
+    private final Matrix inverse = new Matrix();
+    private final float[] matrixValues = new float[9];
+    private final float[] touch = new float[2];
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    private NetworkMapGeometry geometry;
+    private int[] lineColors;
+    private float[] labelPoints = new float[0];
+    private String[] names = new String[0];
+    private int selected = NetworkMapGeometry.NONE;
+    private int pendingFocus = NetworkMapGeometry.NONE;
+    private OnStationClickListener listener;
+
+    public NetworkMapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        dotPaint.setStrokeCap(Paint.Cap.ROUND);
+        dotPaint.setColor(0xFFFFFFFF);
+        selectedPaint.setStyle(Paint.Style.STROKE);
+        selectedPaint.setColor(0xFF1976D2);
+        labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12,
+                getResources().getDisplayMetrics()));
+        labelPaint.setColor(0xFF212121);
+        // White outline so labels stay readable where they cross a line
+        haloPaint.set(labelPaint);
+        haloPaint.setStyle(Paint.Style.STROKE);
+        haloPaint.setStrokeWidth(3 * density);
+        haloPaint.setColor(0xFFFFFFFF);
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                matrix.postTranslate(-distanceX, -distanceY);
+                clampTranslation();
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapConfirmed(MotionEvent e) {
+                return selectAt(e.getX(), e.getY());
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                zoomBy(DOUBLE_TAP_ZOOM, e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Paint used for station names; measure label widths with a copy of it
+     */
+    public Paint getLabelPaint() {
+        return labelPaint;
+    }
+
+    public void setOnStationClickListener(OnStationClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Show a network; the names and line colours come from the graph the geometry was built from
+     */
+    public void setGeometry(NetworkMapGeometry geometry, StationGraph graph) {
+        this.geometry = geometry;
+        lineColors = new int[graph.getLineCount()];
+        for (int line = 0; line < lineColors.length; line++) {
+            lineColors[line] = graph.getLineColor(line);
+        }
+        names = new String[graph.getStationCount()];
+        for (int station = 0; station < names.length; station++) {
+            names[station] = graph.getName(station);
+        }
+        labelPoints = new float[names.length * 2];
+        if (getWidth() > 0) {
+            fitToBounds();
+            focusPending();
+        }
+        invalidate();
+    }
+
+    /**
+     * Select a station and centre the map on it, zooming in if the whole network is showing
+     */
+    public void focus(int station) {
+        selected = station;
+        if (geometry == null || getWidth() == 0) {
+            pendingFocus = station;
+            return;
+        }
+        float x = geometry.getX(station);
+        float y = geometry.getY(station);
+        // Close enough for most of the surrounding labels
+        float scale = Math.max(getScale(), 1f / geometry.getMetersPerPixel(geometry.getLevelCount() - 2));
+        matrix.setScale(scale, scale);
+        matrix.postTranslate(getWidth() / 2f - x * scale, getHeight() / 2f - y * scale);
+        clampTranslation();
+        invalidate();
+    }
+
+    public int getSelectedStation() {
+        return selected;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (geometry == null) {
+            return;
+        }
+        fitToBounds();
+        focusPending();
+    }
+
+    private void focusPending() {
+        if (pendingFocus != NetworkMapGeometry.NONE) {
+            int station = pendingFocus;
+            pendingFocus = NetworkMapGeometry.NONE;
+            focus(station);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (geometry == null) {
+            return false;
+        }
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        if (geometry == null) {
+            return;
+        }
+        float scale = getScale();
+        int level = geometry.levelFor(1f / scale);
+
+        canvas.save();
+        canvas.concat(matrix);
+        // Stroke widths are in map meters under the matrix; divide by the scale to keep them in dp
+        linePaint.setStrokeWidth(5 * density / scale);
+        for (int line = 0; line < lineColors.length; line++) {
+            linePaint.setColor(lineColors[line]);
+            canvas.drawLines(geometry.getLineSegments(level, line), linePaint);
+        }
+        dotPaint.setStrokeWidth(4 * density / scale);
+        canvas.drawPoints(geometry.getStationPoints(level), dotPaint);
+        if (selected != NetworkMapGeometry.NONE) {
+            selectedPaint.setStrokeWidth(3 * density / scale);
+            canvas.drawCircle(geometry.getX(selected), geometry.getY(selected), 8 * density / scale, selectedPaint);
+        }
+        canvas.restore();
+
+        int[] labels = geometry.getLabels(level);
+        for (int i = 0; i < labels.length; i++) {
+            labelPoints[i * 2] = geometry.getX(labels[i]);
+            labelPoints[i * 2 + 1] = geometry.getY(labels[i]);
+        }
+        matrix.mapPoints(labelPoints, 0, labelPoints, 0, labels.length);
+        float offset = NetworkMapGeometry.LABEL_OFFSET_PX;
+        float baseline = -(labelPaint.ascent() + labelPaint.descent()) / 2;
+        for (int i = 0; i < labels.length; i++) {
+            float x = labelPoints[i * 2] + offset;
+            float y = labelPoints[i * 2 + 1] + baseline;
+            if (x > getWidth() || y < 0 || y - labelPaint.getTextSize() > getHeight()) {
+                continue;
+            }
+            String name = names[labels[i]];
+            canvas.drawText(name, x, y, haloPaint);
+            canvas.drawText(name, x, y, labelPaint);
+        }
+    }
+
+    private boolean selectAt(float screenX, float screenY) {
+        touch[0] = screenX;
+        touch[1] = screenY;
+        matrix.invert(inverse);
+        inverse.mapPoints(touch);
+        int station = geometry.hitTest(touch[0], touch[1], TAP_RADIUS_DP * density / getScale());
+        if (station == NetworkMapGeometry.NONE) {
+            return false;
+        }
+        selected = station;
+        invalidate();
+        if (listener != null) {
+            listener.onStationClick(station);
+        }
+        return true;
+    }
+
+    private void zoomBy(float factor, float focusX, float focusY) {
+        float scale = getScale();
+        float target = Math.max(getFitScale(), Math.min(scale * factor, 1f / MIN_METERS_PER_PIXEL));
+        matrix.postScale(target / scale, target / scale, focusX, focusY);
+        clampTranslation();
+        invalidate();
+    }
+
+    private void fitToBounds() {
+        float scale = getFitScale();
+        float centerX = (geometry.getMinX() + geometry.getMaxX()) / 2;
+        float centerY = (geometry.getMinY() + geometry.getMaxY()) / 2;
+        matrix.setScale(scale, scale);
+        matrix.postTranslate(getWidth() / 2f - centerX * scale, getHeight() / 2f - centerY * scale);
+    }
+
+    /**
+     * Scale at which the whole network fits, with a margin for the outermost labels
+     */
+    private float getFitScale() {
+        float margin = 48 * density;
+        float width = Math.max(1f, geometry.getMaxX() - geometry.getMinX());
+        float height = Math.max(1f, geometry.getMaxY() - geometry.getMinY());
+        return Math.min((getWidth() - 2 * margin) / width, (getHeight() - 2 * margin) / height);
+    }
+
+    private float getScale() {
+        matrix.getValues(matrixValues);
+        return matrixValues[Matrix.MSCALE_X];
+    }
+
+    /**
+     * Keep some of the network on screen however far the user drags
+     */
+    private void clampTranslation() {
+        matrix.getValues(matrixValues);
+        float scale = matrixValues[Matrix.MSCALE_X];
+        float left = geometry.getMinX() * scale + matrixValues[Matrix.MTRANS_X];
+        float right = geometry.getMaxX() * scale + matrixValues[Matrix.MTRANS_X];
+        float top = geometry.getMinY() * scale + matrixValues[Matrix.MTRANS_Y];
+        float bottom = geometry.getMaxY() * scale + matrixValues[Matrix.MTRANS_Y];
+        float dx = 0;
+        float dy = 0;
+        float halfWidth = getWidth() / 2f;
+        float halfHeight = getHeight() / 2f;
+        if (left > halfWidth) dx = halfWidth - left;
+        else if (right < halfWidth) dx = halfWidth - right;
+        if (top > halfHeight) dy = halfHeight - top;
+        else if (bottom < halfHeight) dy = halfHeight - bottom;
+        matrix.postTranslate(dx, dy);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.metroapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * One station's slice of the vertical line diagram
+ * Draws the line coming in from above, the line leaving below (each in its line colour, or
+ * nothing at the ends of the route) and the station dot, with a halo for the passenger's position.
+ */
+public class RouteDiagramView extends View {
+
+    public static final int NO_LINE = 0;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint haloPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float density;
+
+    private int colorAbove = NO_LINE;
+    private int colorBelow = NO_LINE;
+    private boolean major;
+    private boolean current;
+
+    public RouteDiagramView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        linePaint.setStrokeWidth(6 * density);
+        dotPaint.setStyle(Paint.Style.FILL);
+        haloPaint.setStyle(Paint.Style.STROKE);
+        haloPaint.setStrokeWidth(3 * density);
+        haloPaint.setColor(0xFF1976D2);
+    }
+
+    /**
+     * Set the line colours around this station; major stops (ends and transfers) get a larger dot
+     */
+    public void setStation(int colorAbove, int colorBelow, boolean major) {
+        this.colorAbove = colorAbove;
+        this.colorBelow = colorBelow;
+        this.major = major;
+        invalidate();
+    }
+
+    public void setCurrent(boolean current) {
+        if (this.current != current) {
+            this.current = current;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float x = getWidth() / 2f;
+        float y = getHeight() / 2f;
+        if (colorAbove != NO_LINE) {
+            linePaint.setColor(colorAbove);
+            canvas.drawLine(x, 0, x, y, linePaint);
+        }
+        if (colorBelow != NO_LINE) {
+            linePaint.setColor(colorBelow);
+            canvas.drawLine(x, y, x, getHeight(), linePaint);
+        }
+
+        float radius = (major ? 8 : 5) * density;
+        dotPaint.setColor(colorBelow != NO_LINE ? colorBelow : colorAbove);
+        canvas.drawCircle(x, y, radius, dotPaint);
+        if (major) {
+            // Hollow centre marks where the passenger gets on, changes or gets off
+            dotPaint.setColor(0xFFFFFFFF);
+            canvas.drawCircle(x, y, radius / 2, dotPaint);
+        }
+        if (current) {
+            canvas.drawCircle(x, y, radius + 5 * density, haloPaint);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.metroapp;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.metroapp.data.MetroLine;
+import com.example.metroapp.data.RouteSnapshot;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.utils.UIUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recycled rows of the route's line diagram, one per station
+ * Rows are built off the main thread with their names already measured, so binding a row is
+ * cheap; moving the passenger's position rebinds just the two rows whose highlight changes.
+ */
+public class RouteStationAdapter extends RecyclerView.Adapter<RouteStationAdapter.Holder> {
+
+    public static final int NO_POSITION = -1;
+
+    private static final Object PAYLOAD_CURRENT = new Object();
+    private static final int UNKNOWN_LINE_COLOR = Color.GRAY;
+
+    private final List<Row> rows;
+    private int current = NO_POSITION;
+
+    public RouteStationAdapter(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Build the rows for a route; call from a background thread
+     * The params must be those of the row's name TextView, e.g. from TextViewCompat.getTextMetricsParams.
+     */
+    public static List<Row> buildRows(RouteSnapshot route, StationGraph graph, PrecomputedTextCompat.Params params) {
+        List<String> stations = route.getStations();
+        int n = stations.size();
+        // Colour of the line ridden between station i and i + 1
+        int[] hopColors = new int[Math.max(0, n - 1)];
+        for (int i = 0; i + 1 < n; i++) {
+            int line = graph.findCommonLine(graph.indexOf(stations.get(i)), graph.indexOf(stations.get(i + 1)));
+            MetroLine metroLine = line >= 0 ? graph.getMetroLine(line) : null;
+            hopColors[i] = metroLine != null ? UIUtils.getLineColor(metroLine) : UNKNOWN_LINE_COLOR;
+        }
+
+        List<Row> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String name = stations.get(i);
+            String note;
+            if (i == 0) {
+                note = "Start";
+            } else if (i == n - 1) {
+                note = "Destination";
+            } else if (route.getTransferStations().contains(name)) {
+                note = "Transfer";
+            } else {
+                note = "";
+            }
+            rows.add(new Row(PrecomputedTextCompat.create(name, params), note,
+                    i > 0 ? hopColors[i - 1] : RouteDiagramView.NO_LINE,
+                    i < n - 1 ? hopColors[i] : RouteDiagramView.NO_LINE));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Highlight the station the passenger has reached, or NO_POSITION for none
+     */
+    public void setCurrentPosition(int position) {
+        if (position == current) {
+            return;
+        }
+        int previous = current;
+        current = position;
+        if (previous != NO_POSITION) {
+            notifyItemChanged(previous, PAYLOAD_CURRENT);
+        }
+        if (position != NO_POSITION) {
+            notifyItemChanged(position, PAYLOAD_CURRENT);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_route_station, parent, false);
+        return new Holder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        Row row = rows.get(position);
+        TextViewCompat.setPrecomputedText(holder.name, row.name);
+        holder.note.setText(row.note);
+        holder.note.setVisibility(row.note.isEmpty() ? View.GONE : View.VISIBLE);
+        holder.diagram.setStation(row.colorAbove, row.colorBelow, !row.note.isEmpty());
+        holder.diagram.setCurrent(position == current);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_CURRENT) {
+            // Only the highlight moved; the measured text stays as it is
+            holder.diagram.setCurrent(position == current);
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    /**
+     * One station row, immutable once built
+     */
+    public static final class Row {
+        final PrecomputedTextCompat name;
+        final String note;
+        final int colorAbove;
+        final int colorBelow;
+
+        Row(PrecomputedTextCompat name, String note, int colorAbove, int colorBelow) {
+            this.name = name;
+            this.note = note;
+            this.colorAbove = colorAbove;
+            this.colorBelow = colorBelow;
+        }
+    }
+
+    static final class Holder extends RecyclerView.ViewHolder {
+        final RouteDiagramView diagram;
+        final AppCompatTextView name;
+        final TextView note;
+
+        Holder(View view) {
+            super(view);
+            diagram = view.findViewById(R.id.routeDiagram);
+            name = view.findViewById(R.id.stationName);
+            note = view.findViewById(R.id.stationNote);
+        }
+    }
+}
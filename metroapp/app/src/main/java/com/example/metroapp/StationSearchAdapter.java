@@ -0,0 +1,60 @@
+package com.example.metroapp;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import com.example.metroapp.services.StationSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Autocomplete adapter backed by StationSearchIndex
+ * Filtering runs on the Filter worker thread; suggestions are canonical station names,
+ * so whatever the user picks passes the station validation in MainActivity
+ */
+public class StationSearchAdapter extends ArrayAdapter<String> {
+    private final StationSearchIndex index;
+    private final Filter filter = new StationFilter();
+
+    public StationSearchAdapter(@NonNull Context context, StationSearchIndex index) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<String>());
+        this.index = index;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private class StationFilter extends Filter {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            // Called on a background thread
+            List<String> matches = index.search(constraint, StationSearchIndex.DEFAULT_LIMIT);
+            FilterResults results = new FilterResults();
+            results.values = matches;
+            results.count = matches.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            if (results.values != null) {
+                addAll((List<String>) results.values);
+            }
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    }
+}
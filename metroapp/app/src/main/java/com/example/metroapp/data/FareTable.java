@@ -0,0 +1,360 @@
+package com.example.metroapp.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One version of the fare rules, in effect from its date until the next version starts
+ * A journey is priced by counting the stations travelled, or the zones passed through when the
+ * version assigns zones, against the fare tiers. Riding through a surcharged segment adds its
+ * surcharge once, and a concession takes a percentage off the total. Fares are whole EGP.
+ *
+ * Versions are read from a JSON file, so a fare change ships as data:
+ *
+ *   {"versions": [{"id": "2024-08", "effectiveFrom": "2024-08-01", "unit": "stations",
+ *                  "tiers": [{"upTo": 9, "fare": 8}, {"upTo": 16, "fare": 10}, {"fare": 15}],
+ *                  "zones": {"Helwan": 3}, "defaultZone": 1,
+ *                  "segments": [{"line": 3, "from": "Attaba", "to": "Kit Kat", "surcharge": 2}],
+ *                  "concessions": [{"id": "senior", "name": "Senior (60+)", "percentOff": 50}]}]}
+ */
+public final class FareTable {
+
+    public static final String UNIT_STATIONS = "stations";
+    public static final String UNIT_ZONES = "zones";
+    // Routers track the segments a journey has ridden as bits of a long
+    public static final int MAX_SEGMENTS = 64;
+
+    private final String id;
+    private final int effectiveFrom;
+    private final boolean zoneBased;
+    private final int[] tierLimits;
+    private final int[] tierFares;
+    private final Map<String, Integer> zones;
+    private final int defaultZone;
+    private final List<Segment> segments;
+    private final List<Concession> concessions;
+
+    private FareTable(String id, int effectiveFrom, boolean zoneBased, int[] tierLimits, int[] tierFares,
+                      Map<String, Integer> zones, int defaultZone, List<Segment> segments,
+                      List<Concession> concessions) {
+        this.id = id;
+        this.effectiveFrom = effectiveFrom;
+        this.zoneBased = zoneBased;
+        this.tierLimits = tierLimits;
+        this.tierFares = tierFares;
+        this.zones = zones;
+        this.defaultZone = defaultZone;
+        this.segments = segments;
+        this.concessions = concessions;
+    }
+
+    /**
+     * Cairo Metro station-count tiers (2024), used when no fare file has been installed
+     */
+    public static FareTable builtIn() {
+        return new FareTable("builtin-2024", 0, false, new int[]{9, 16, Integer.MAX_VALUE},
+                new int[]{8, 10, 15}, Collections.<String, Integer>emptyMap(), 0,
+                Collections.<Segment>emptyList(), Collections.<Concession>emptyList());
+    }
+
+    /**
+     * Read and validate every version in a fare file, ordered by effective date
+     */
+    public static List<FareTable> parse(Reader reader) throws IOException {
+        FileJson file;
+        try {
+            file = new Gson().fromJson(reader, FileJson.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed fare file: " + e.getMessage(), e);
+        }
+        if (file == null || file.versions == null || file.versions.isEmpty()) {
+            throw new IOException("Fare file has no versions");
+        }
+
+        List<FareTable> tables = new ArrayList<>(file.versions.size());
+        for (VersionJson version : file.versions) {
+            tables.add(fromJson(version));
+        }
+        Collections.sort(tables, new Comparator<FareTable>() {
+            @Override
+            public int compare(FareTable a, FareTable b) {
+                return Integer.compare(a.effectiveFrom, b.effectiveFrom);
+            }
+        });
+        for (int i = 1; i < tables.size(); i++) {
+            if (tables.get(i).effectiveFrom == tables.get(i - 1).effectiveFrom) {
+                throw new IOException("Fare versions " + tables.get(i - 1).id + " and " + tables.get(i).id
+                        + " start on the same date");
+            }
+        }
+        return Collections.unmodifiableList(tables);
+    }
+
+    /**
+     * Parse an ISO yyyy-MM-dd date into a comparable yyyyMMdd number
+     */
+    public static int parseDate(String date) throws IOException {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            throw new IOException("Not a yyyy-MM-dd date: " + date);
+        }
+        try {
+            int year = Integer.parseInt(date.substring(0, 4));
+            int month = Integer.parseInt(date.substring(5, 7));
+            int day = Integer.parseInt(date.substring(8, 10));
+            if (month < 1 || month > 12 || day < 1 || day > 31) {
+                throw new IOException("Not a yyyy-MM-dd date: " + date);
+            }
+            return year * 10000 + month * 100 + day;
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a yyyy-MM-dd date: " + date);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * First day the version applies, as yyyyMMdd
+     */
+    public int getEffectiveFrom() {
+        return effectiveFrom;
+    }
+
+    /**
+     * True if the tiers count zones passed through rather than stations travelled
+     */
+    public boolean isZoneBased() {
+        return zoneBased;
+    }
+
+    /**
+     * Fare for a number of stations or zones, before surcharges and concessions
+     */
+    public int getTierFare(int units) {
+        int tier = 0;
+        while (units > tierLimits[tier]) {
+            tier++;
+        }
+        return tierFares[tier];
+    }
+
+    /**
+     * Zone of a station by name; stations the version does not list are in the default zone
+     */
+    public int getZone(String station) {
+        Integer zone = zones.get(station);
+        return zone != null ? zone : defaultZone;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public List<Concession> getConcessions() {
+        return concessions;
+    }
+
+    /**
+     * Look up a concession category by id, or null if this version does not offer it
+     */
+    public Concession getConcession(String concessionId) {
+        for (Concession concession : concessions) {
+            if (concession.id.equals(concessionId)) {
+                return concession;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stretch of a line between two stations; riding any part of it costs a surcharge
+     */
+    public static final class Segment {
+        private final int line;
+        private final String from;
+        private final String to;
+        private final int surcharge;
+
+        Segment(int line, String from, String to, int surcharge) {
+            this.line = line;
+            this.from = from;
+            this.to = to;
+            this.surcharge = surcharge;
+        }
+
+        /**
+         * Public line number, e.g. 3 for Line 3
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public int getSurcharge() {
+            return surcharge;
+        }
+    }
+
+    /**
+     * Discounted passenger category, e.g. seniors
+     */
+    public static final class Concession {
+        private final String id;
+        private final String name;
+        private final int percentOff;
+
+        Concession(String id, String name, int percentOff) {
+            this.id = id;
+            this.name = name;
+            this.percentOff = percentOff;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPercentOff() {
+            return percentOff;
+        }
+
+        /**
+         * Discounted fare, rounded to the nearest pound
+         */
+        public int apply(int fare) {
+            return (fare * (100 - percentOff) + 50) / 100;
+        }
+    }
+
+    private static FareTable fromJson(VersionJson json) throws IOException {
+        if (json.id == null || json.id.isEmpty()) {
+            throw new IOException("Fare version without an id");
+        }
+        String where = "Fare version " + json.id + ": ";
+        int effectiveFrom = parseDate(json.effectiveFrom);
+
+        boolean zoneBased;
+        if (json.unit == null || UNIT_STATIONS.equals(json.unit)) {
+            zoneBased = false;
+        } else if (UNIT_ZONES.equals(json.unit)) {
+            zoneBased = true;
+        } else {
+            throw new IOException(where + "unknown unit " + json.unit);
+        }
+
+        if (json.tiers == null || json.tiers.isEmpty()) {
+            throw new IOException(where + "no fare tiers");
+        }
+        int[] limits = new int[json.tiers.size()];
+        int[] fares = new int[json.tiers.size()];
+        for (int i = 0; i < limits.length; i++) {
+            TierJson tier = json.tiers.get(i);
+            boolean last = i == limits.length - 1;
+            if (tier.upTo == null && !last) {
+                throw new IOException(where + "only the last tier may be open-ended");
+            }
+            limits[i] = tier.upTo != null ? tier.upTo : Integer.MAX_VALUE;
+            if (i > 0 && limits[i] <= limits[i - 1]) {
+                throw new IOException(where + "tiers not ascending at " + i);
+            }
+            if (tier.fare == null || tier.fare < 0) {
+                throw new IOException(where + "tier " + i + " has no fare");
+            }
+            fares[i] = tier.fare;
+            // Going further never costs less, which lets routers discard a longer, slower journey
+            if (i > 0 && fares[i] < fares[i - 1]) {
+                throw new IOException(where + "tier " + i + " is cheaper than tier " + (i - 1));
+            }
+        }
+        // Every journey must fall into some tier
+        limits[limits.length - 1] = Integer.MAX_VALUE;
+
+        Map<String, Integer> zones = json.zones != null ?
+                new HashMap<>(json.zones) : Collections.<String, Integer>emptyMap();
+        if (zoneBased && zones.isEmpty()) {
+            throw new IOException(where + "zone fares without zones");
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        if (json.segments != null) {
+            if (json.segments.size() > MAX_SEGMENTS) {
+                throw new IOException(where + "more than " + MAX_SEGMENTS + " segments");
+            }
+            for (SegmentJson segment : json.segments) {
+                if (segment.from == null || segment.to == null || segment.surcharge < 0) {
+                    throw new IOException(where + "incomplete segment on line " + segment.line);
+                }
+                segments.add(new Segment(segment.line, segment.from, segment.to, segment.surcharge));
+            }
+        }
+
+        List<Concession> concessions = new ArrayList<>();
+        if (json.concessions != null) {
+            for (ConcessionJson concession : json.concessions) {
+                if (concession.id == null || concession.percentOff < 0 || concession.percentOff > 100) {
+                    throw new IOException(where + "invalid concession " + concession.id);
+                }
+                concessions.add(new Concession(concession.id,
+                        concession.name != null ? concession.name : concession.id, concession.percentOff));
+            }
+        }
+
+        return new FareTable(json.id, effectiveFrom, zoneBased, limits, fares, zones,
+                json.defaultZone != null ? json.defaultZone : 0,
+                Collections.unmodifiableList(segments), Collections.unmodifiableList(concessions));
+    }
+
+    // Shapes of the JSON file, filled in by Gson
+    private static final class FileJson {
+        List<VersionJson> versions;
+    }
+
+    private static final class VersionJson {
+        String id;
+        String effectiveFrom;
+        String unit;
+        List<TierJson> tiers;
+        Map<String, Integer> zones;
+        Integer defaultZone;
+        List<SegmentJson> segments;
+        List<ConcessionJson> concessions;
+    }
+
+    private static final class TierJson {
+        Integer upTo;
+        Integer fare;
+    }
+
+    private static final class SegmentJson {
+        int line;
+        String from;
+        String to;
+        int surcharge;
+    }
+
+    private static final class ConcessionJson {
+        String id;
+        String name;
+        int percentOff;
+    }
+}
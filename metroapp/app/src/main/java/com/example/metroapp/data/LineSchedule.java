@@ -0,0 +1,99 @@
+package com.example.metroapp.data;
+
+/**
+ * Service hours and headways of one metro line
+ * Times are minutes after midnight of the service day; trains after midnight run past 1440
+ */
+public final class LineSchedule {
+
+    private final int firstDeparture;
+    private final int lastDeparture;
+    private final int[] bandStarts;
+    private final int[] headways;
+
+    /**
+     * @param firstDeparture first departure from either terminal
+     * @param lastDeparture  last departure from either terminal, may be past midnight
+     * @param bandStarts     ascending start of each headway band; the first must be <= firstDeparture
+     * @param headways       minutes between trains in each band
+     */
+    public LineSchedule(int firstDeparture, int lastDeparture, int[] bandStarts, int[] headways) {
+        if (lastDeparture < firstDeparture) {
+            throw new IllegalArgumentException("lastDeparture before firstDeparture");
+        }
+        if (bandStarts.length == 0 || bandStarts.length != headways.length) {
+            throw new IllegalArgumentException("bandStarts and headways differ in length");
+        }
+        if (bandStarts[0] > firstDeparture) {
+            throw new IllegalArgumentException("No headway band covers the first departure");
+        }
+        for (int i = 0; i < headways.length; i++) {
+            if (headways[i] <= 0) {
+                throw new IllegalArgumentException("headway <= 0 in band " + i);
+            }
+            if (i > 0 && bandStarts[i] <= bandStarts[i - 1]) {
+                throw new IllegalArgumentException("bandStarts not ascending at " + i);
+            }
+        }
+        this.firstDeparture = firstDeparture;
+        this.lastDeparture = lastDeparture;
+        this.bandStarts = bandStarts.clone();
+        this.headways = headways.clone();
+    }
+
+    /**
+     * Default timetable for a line, based on the operator's published frequencies
+     * Peaks are 07:00-10:00 and 15:00-19:00; service runs 05:00 to 00:30. Lines the app has no
+     * MetroLine for (null), e.g. imported or synthetic ones, get Line 2's frequencies
+     */
+    public static LineSchedule forLine(MetroLine line) {
+        int[] bands = {at(5, 0), at(7, 0), at(10, 0), at(15, 0), at(19, 0)};
+        if (line == null) {
+            line = MetroLine.LINE_2;
+        }
+        switch (line) {
+            case LINE_1:
+                return new LineSchedule(at(5, 0), at(24, 30), bands, new int[]{6, 3, 5, 3, 6});
+            case LINE_2:
+                return new LineSchedule(at(5, 0), at(24, 30), bands, new int[]{6, 4, 6, 4, 7});
+            case LINE_3:
+                return new LineSchedule(at(5, 30), at(24, 30), bands, new int[]{8, 5, 8, 5, 10});
+            default:
+                throw new IllegalArgumentException("No schedule for " + line);
+        }
+    }
+
+    public int getFirstDeparture() {
+        return firstDeparture;
+    }
+
+    public int getLastDeparture() {
+        return lastDeparture;
+    }
+
+    /**
+     * Minutes between trains at the given time of the service day
+     */
+    public int getHeadway(int minute) {
+        int band = 0;
+        while (band + 1 < bandStarts.length && bandStarts[band + 1] <= minute) {
+            band++;
+        }
+        return headways[band];
+    }
+
+    /**
+     * Number of departures from each terminal over the whole service day
+     */
+    public int getTripCount() {
+        int count = 0;
+        for (int t = firstDeparture; t <= lastDeparture; t += getHeadway(t)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int at(int hours, int minutes) {
+        return hours * 60 + minutes;
+    }
+}
@@ -1,8 +1,5 @@
 package com.example.metroapp.data;
 
-import androidx.annotation.ColorRes;
-import com.example.metroapp.R;
-
 public enum MetroLine {
     LINE_1("Line 1", "#E91E63", 1),
     LINE_2("Line 2", "#FFC107", 2),
@@ -29,5 +26,16 @@ public enum MetroLine {
     public int getLineNumber() {
         return lineNumber;
     }
-}
 
+    /**
+     * Get the line with a public line number, or null if there is none
+     */
+    public static MetroLine fromNumber(int lineNumber) {
+        for (MetroLine line : values()) {
+            if (line.lineNumber == lineNumber) {
+                return line;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.metroapp.data;
+
+/**
+ * Source of network data for StationGraph: stations, coordinates and line sequences
+ * Implemented by the built-in StationData tables, binary NetworkSnapshot files and SyntheticNetwork
+ */
+public interface MetroNetwork {
+
+    int getStationCount();
+
+    String getStationName(int station);
+
+    double getLatitude(int station);
+
+    double getLongitude(int station);
+
+    boolean isInterchange(int station);
+
+    int getLineCount();
+
+    /**
+     * Public line number, e.g. 1 for MetroLine.LINE_1
+     */
+    int getLineNumber(int line);
+
+    /**
+     * Line color as ARGB
+     */
+    int getLineColor(int line);
+
+    int getLineLength(int line);
+
+    /**
+     * Station id at a position along the line, from the first terminal
+     */
+    int getLineStation(int line, int position);
+}
@@ -0,0 +1,301 @@
+package com.example.metroapp.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only network loaded from a binary snapshot file
+ *
+ * The file is used in place: accessors read straight from the buffer (memory-mapped for large
+ * files) and station names are decoded only when asked for, so opening a snapshot costs a
+ * header check and a CRC pass, not a parse. Layout, all big-endian:
+ *
+ *   header    magic "CMNS", u16 version, u16 flags, i32 stationCount, i32 lineCount,
+ *             i32 sequenceLength, i32 stringBytes, i32 crc32 of everything after the header
+ *   stations  stationCount x (i32 nameOffset, u16 nameLength, u16 flags, i32 latE7, i32 lonE7)
+ *   lines     lineCount x (i32 lineNumber, i32 colorArgb, i32 sequenceStart, i32 length)
+ *   sequence  sequenceLength x i32 station id, every line's stations back to back
+ *   strings   UTF-8 station names
+ *
+ * Coordinates are fixed point in 1e-7 degrees (about 1 cm).
+ */
+public final class NetworkSnapshot implements MetroNetwork {
+
+    public static final int MAGIC = 0x434D4E53; // "CMNS"
+    public static final int VERSION = 1;
+
+    /**
+     * Files up to this size are read into the heap; setting up a mapping costs more than copying them
+     */
+    public static final int MAP_THRESHOLD_BYTES = 64 * 1024;
+
+    static final int HEADER_BYTES = 28;
+    static final int STATION_BYTES = 16;
+    static final int LINE_BYTES = 16;
+    static final int FLAG_INTERCHANGE = 1;
+
+    private static final double E7 = 1e7;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int stationCount;
+    private final int lineCount;
+    private final int stationsOffset;
+    private final int linesOffset;
+    private final int sequenceOffset;
+    private final int stringsOffset;
+
+    private NetworkSnapshot(ByteBuffer buffer, int stationCount, int lineCount, int sequenceLength) {
+        this.buffer = buffer;
+        this.stationCount = stationCount;
+        this.lineCount = lineCount;
+        this.stationsOffset = HEADER_BYTES;
+        this.linesOffset = stationsOffset + stationCount * STATION_BYTES;
+        this.sequenceOffset = linesOffset + lineCount * LINE_BYTES;
+        this.stringsOffset = sequenceOffset + sequenceLength * 4;
+    }
+
+    /**
+     * Open a snapshot file, memory-mapping it when it is large enough for that to pay off
+     */
+    public static NetworkSnapshot open(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            if (file.length() <= MAP_THRESHOLD_BYTES) {
+                return read(in);
+            }
+            FileChannel channel = in.getChannel();
+            // The mapping stays valid after the channel is closed
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read a snapshot from a stream into a heap buffer
+     */
+    public static NetworkSnapshot read(InputStream in) throws IOException {
+        byte[] bytes = new byte[4096];
+        int length = 0;
+        int count;
+        while ((count = in.read(bytes, length, bytes.length - length)) > 0) {
+            length += count;
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+        }
+        return wrap(ByteBuffer.wrap(bytes, 0, length));
+    }
+
+    /**
+     * Use a buffer holding a snapshot from its position to its limit, without copying it
+     * Throws IOException if the header, checksum or any table is invalid
+     */
+    public static NetworkSnapshot wrap(ByteBuffer source) throws IOException {
+        ByteBuffer buffer = source.slice().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a network snapshot");
+        }
+        int version = buffer.getShort(4) & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported network snapshot version " + version);
+        }
+        int stationCount = buffer.getInt(8);
+        int lineCount = buffer.getInt(12);
+        int sequenceLength = buffer.getInt(16);
+        int stringBytes = buffer.getInt(20);
+        if (stationCount < 0 || lineCount < 0 || sequenceLength < 0 || stringBytes < 0) {
+            throw new IOException("Corrupt network snapshot: negative table size");
+        }
+        long expected = HEADER_BYTES + (long) stationCount * STATION_BYTES + (long) lineCount * LINE_BYTES
+                + (long) sequenceLength * 4 + stringBytes;
+        if (expected != buffer.remaining()) {
+            throw new IOException("Corrupt network snapshot: expected " + expected + " bytes, found "
+                    + buffer.remaining());
+        }
+        if (checksum(buffer, HEADER_BYTES, buffer.remaining()) != buffer.getInt(24)) {
+            throw new IOException("Corrupt network snapshot: checksum mismatch");
+        }
+
+        NetworkSnapshot snapshot = new NetworkSnapshot(buffer, stationCount, lineCount, sequenceLength);
+        snapshot.validate(sequenceLength, stringBytes);
+        return snapshot;
+    }
+
+    /**
+     * Bounds-check every table so accessors can trust the file
+     */
+    private void validate(int sequenceLength, int stringBytes) throws IOException {
+        for (int i = 0; i < stationCount; i++) {
+            int base = stationsOffset + i * STATION_BYTES;
+            int nameOffset = buffer.getInt(base);
+            int nameLength = buffer.getShort(base + 4) & 0xFFFF;
+            if (nameOffset < 0 || (long) nameOffset + nameLength > stringBytes) {
+                throw new IOException("Corrupt network snapshot: station " + i + " name out of range");
+            }
+        }
+        for (int line = 0; line < lineCount; line++) {
+            int start = getSequenceStart(line);
+            int length = getLineLength(line);
+            if (start < 0 || length < 2 || (long) start + length > sequenceLength) {
+                throw new IOException("Corrupt network snapshot: line " + line + " out of range");
+            }
+            for (int pos = 0; pos < length; pos++) {
+                int station = getLineStation(line, pos);
+                if (station < 0 || station >= stationCount) {
+                    throw new IOException("Corrupt network snapshot: unknown station on line " + line);
+                }
+            }
+        }
+    }
+
+    // Stations
+
+    @Override
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    @Override
+    public String getStationName(int station) {
+        int base = stationsOffset + station * STATION_BYTES;
+        int offset = buffer.getInt(base);
+        int length = buffer.getShort(base + 4) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        // Bulk get on a duplicate: absolute bulk reads need API 35, and the shared buffer's position must not move
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringsOffset + offset);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Override
+    public double getLatitude(int station) {
+        return buffer.getInt(stationsOffset + station * STATION_BYTES + 8) / E7;
+    }
+
+    @Override
+    public double getLongitude(int station) {
+        return buffer.getInt(stationsOffset + station * STATION_BYTES + 12) / E7;
+    }
+
+    @Override
+    public boolean isInterchange(int station) {
+        return (buffer.getShort(stationsOffset + station * STATION_BYTES + 6) & FLAG_INTERCHANGE) != 0;
+    }
+
+    // Lines
+
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public int getLineNumber(int line) {
+        return buffer.getInt(linesOffset + line * LINE_BYTES);
+    }
+
+    @Override
+    public int getLineColor(int line) {
+        return buffer.getInt(linesOffset + line * LINE_BYTES + 4);
+    }
+
+    @Override
+    public int getLineLength(int line) {
+        return buffer.getInt(linesOffset + line * LINE_BYTES + 12);
+    }
+
+    @Override
+    public int getLineStation(int line, int position) {
+        return buffer.getInt(sequenceOffset + (getSequenceStart(line) + position) * 4);
+    }
+
+    private int getSequenceStart(int line) {
+        return buffer.getInt(linesOffset + line * LINE_BYTES + 8);
+    }
+
+    // Writing
+
+    /**
+     * Serialize any network in snapshot format
+     */
+    public static byte[] toBytes(MetroNetwork network) {
+        int n = network.getStationCount();
+        int lines = network.getLineCount();
+
+        byte[][] names = new byte[n][];
+        int stringBytes = 0;
+        for (int i = 0; i < n; i++) {
+            names[i] = network.getStationName(i).getBytes(UTF_8);
+            if (names[i].length > 0xFFFF) {
+                throw new IllegalArgumentException("Station name too long: " + network.getStationName(i));
+            }
+            stringBytes += names[i].length;
+        }
+        int sequenceLength = 0;
+        for (int line = 0; line < lines; line++) {
+            sequenceLength += network.getLineLength(line);
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + n * STATION_BYTES + lines * LINE_BYTES
+                + sequenceLength * 4 + stringBytes);
+        out.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0);
+        out.putInt(n).putInt(lines).putInt(sequenceLength).putInt(stringBytes).putInt(0);
+
+        int nameOffset = 0;
+        for (int i = 0; i < n; i++) {
+            out.putInt(nameOffset);
+            out.putShort((short) names[i].length);
+            out.putShort((short) (network.isInterchange(i) ? FLAG_INTERCHANGE : 0));
+            out.putInt((int) Math.round(network.getLatitude(i) * E7));
+            out.putInt((int) Math.round(network.getLongitude(i) * E7));
+            nameOffset += names[i].length;
+        }
+        int sequenceStart = 0;
+        for (int line = 0; line < lines; line++) {
+            out.putInt(network.getLineNumber(line));
+            out.putInt(network.getLineColor(line));
+            out.putInt(sequenceStart);
+            out.putInt(network.getLineLength(line));
+            sequenceStart += network.getLineLength(line);
+        }
+        for (int line = 0; line < lines; line++) {
+            for (int pos = 0; pos < network.getLineLength(line); pos++) {
+                out.putInt(network.getLineStation(line, pos));
+            }
+        }
+        for (byte[] name : names) {
+            out.put(name);
+        }
+
+        out.putInt(24, checksum(out, HEADER_BYTES, out.capacity()));
+        return out.array();
+    }
+
+    public static void write(MetroNetwork network, OutputStream out) throws IOException {
+        out.write(toBytes(network));
+        out.flush();
+    }
+
+    static int checksum(ByteBuffer buffer, int from, int to) {
+        // CRC32.update(ByteBuffer) needs API 26, so copy through a small array
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[4096];
+        ByteBuffer view = buffer.duplicate();
+        view.position(from);
+        while (view.position() < to) {
+            int length = Math.min(chunk.length, to - view.position());
+            view.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+}
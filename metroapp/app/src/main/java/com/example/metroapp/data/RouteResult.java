@@ -10,6 +10,7 @@ import java.util.List;
 public class RouteResult {
     private List<String> stations;
     private String transferStation;
+    private List<String> transferStations;
     private String direction;
     private int stationCount;
     private int estimatedMinutes;
@@ -21,6 +22,7 @@ public class RouteResult {
     public RouteResult() {
         this.stations = new ArrayList<>();
         this.transferStation = "";
+        this.transferStations = Collections.emptyList();
         this.direction = "";
         this.hasTransfer = false;
     }
@@ -33,7 +35,6 @@ public class RouteResult {
         this.stations = stations;
         this.stationCount = Math.max(0, stations.size() - 1);
         this.estimatedMinutes = this.stationCount * 2; // 2 minutes per station average
-        this.ticketPrice = calculateTicketPrice(this.stationCount);
     }
 
     public String getTransferStation() {
@@ -43,6 +44,25 @@ public class RouteResult {
     public void setTransferStation(String transferStation) {
         this.transferStation = transferStation;
         this.hasTransfer = transferStation != null && !transferStation.isEmpty();
+        this.transferStations = hasTransfer ?
+                Collections.singletonList(transferStation) : Collections.<String>emptyList();
+    }
+
+    /**
+     * All interchange stations in travel order (empty for a direct route)
+     */
+    public List<String> getTransferStations() {
+        return transferStations;
+    }
+
+    public void setTransferStations(List<String> transferStations) {
+        this.transferStations = Collections.unmodifiableList(transferStations);
+        this.transferStation = transferStations.isEmpty() ? "" : transferStations.get(0);
+        this.hasTransfer = !transferStations.isEmpty();
+    }
+
+    public int getTransferCount() {
+        return transferStations.size();
     }
 
     public String getDirection() {
@@ -61,10 +81,21 @@ public class RouteResult {
         return estimatedMinutes;
     }
 
+    /**
+     * Override the per-station estimate, e.g. with a timetable answer that includes waits
+     */
+    public void setEstimatedMinutes(int estimatedMinutes) {
+        this.estimatedMinutes = estimatedMinutes;
+    }
+
     public int getTicketPrice() {
         return ticketPrice;
     }
 
+    public void setTicketPrice(int ticketPrice) {
+        this.ticketPrice = ticketPrice;
+    }
+
     public MetroLine getStartLine() {
         return startLine;
     }
@@ -95,15 +126,6 @@ public class RouteResult {
         }
     }
 
-    /**
-     * Calculate ticket price based on Cairo Metro pricing tiers (2024)
-     */
-    private int calculateTicketPrice(int stations) {
-        if (stations <= 9) return 8;      // Up to 9 stations: 8 EGP
-        if (stations <= 16) return 10;    // 10-16 stations: 10 EGP
-        return 15;                         // 17+ stations: 15 EGP
-    }
-
     public boolean isValid() {
         return stations != null && stations.size() >= 2;
     }
@@ -0,0 +1,96 @@
+package com.example.metroapp.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of a RouteResult
+ * Safe to share between activities and threads, e.g. through RouteCache
+ */
+public final class RouteSnapshot {
+    private final List<String> stations;
+    private final List<String> transferStations;
+    private final String direction;
+    private final int stationCount;
+    private final int estimatedMinutes;
+    private final int ticketPrice;
+    private final MetroLine startLine;
+    private final MetroLine endLine;
+
+    private RouteSnapshot(RouteResult route) {
+        this.stations = Collections.unmodifiableList(new ArrayList<>(route.getStations()));
+        this.transferStations = Collections.unmodifiableList(new ArrayList<>(route.getTransferStations()));
+        this.direction = route.getDirection();
+        this.stationCount = route.getStationCount();
+        this.estimatedMinutes = route.getEstimatedMinutes();
+        this.ticketPrice = route.getTicketPrice();
+        this.startLine = route.getStartLine();
+        this.endLine = route.getEndLine();
+    }
+
+    /**
+     * Take a snapshot of the route's current state
+     */
+    public static RouteSnapshot of(RouteResult route) {
+        return new RouteSnapshot(route);
+    }
+
+    public List<String> getStations() {
+        return stations;
+    }
+
+    public String getTransferStation() {
+        return transferStations.isEmpty() ? "" : transferStations.get(0);
+    }
+
+    public List<String> getTransferStations() {
+        return transferStations;
+    }
+
+    public int getTransferCount() {
+        return transferStations.size();
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public int getEstimatedMinutes() {
+        return estimatedMinutes;
+    }
+
+    public int getTicketPrice() {
+        return ticketPrice;
+    }
+
+    public MetroLine getStartLine() {
+        return startLine;
+    }
+
+    public MetroLine getEndLine() {
+        return endLine;
+    }
+
+    public boolean hasTransfer() {
+        return !transferStations.isEmpty();
+    }
+
+    public String getFormattedTime() {
+        int hours = estimatedMinutes / 60;
+        int mins = estimatedMinutes % 60;
+        if (hours > 0) {
+            return hours + " hr " + mins + " min";
+        } else {
+            return mins + " min";
+        }
+    }
+
+    public boolean isValid() {
+        return stations.size() >= 2;
+    }
+}
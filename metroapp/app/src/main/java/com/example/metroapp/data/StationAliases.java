@@ -0,0 +1,129 @@
+package com.example.metroapp.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Alternative names for each station, used by station search
+ * First entry of each row is the canonical name from StationData, followed by the
+ * Arabic name and any legacy spelling from older app versions
+ */
+public class StationAliases {
+
+    private static final String[][] ALIAS_ROWS = {
+            // Line 1
+            {"Helwan", "حلوان"},
+            {"Ain Helwan", "عين حلوان"},
+            {"Helwan University", "جامعة حلوان"},
+            {"Wadi Hof", "وادي حوف"},
+            {"Hadayek Helwan", "حدائق حلوان"},
+            {"El Maasara", "المعصرة"},
+            {"Tora El Asmant", "طرة الأسمنت"},
+            {"Kozzika", "كوتسيكا"},
+            {"Tora El Balad", "طرة البلد"},
+            {"Sakanat El Maadi", "ثكنات المعادي"},
+            {"Maadi", "المعادي"},
+            {"Hadayek El Maadi", "حدائق المعادي"},
+            {"Dar El Salam", "دار السلام"},
+            {"El Zahraa", "الزهراء"},
+            {"Mar Girgis", "مار جرجس"},
+            {"El Malek El Saleh", "الملك الصالح"},
+            {"Al-Sayeda Zeinab", "السيدة زينب"},
+            {"Saad Zaghloul", "سعد زغلول"},
+            {"Sadat", "السادات"},
+            {"Nasser", "جمال عبد الناصر"},
+            {"Orabi", "أحمد عرابي", "Ahmed Orabi"},
+            {"Shohadaa", "الشهداء"},
+            {"Ghamra", "غمرة"},
+            {"El Demerdash", "الدمرداش"},
+            {"Manshiet El Sadr", "منشية الصدر"},
+            {"Kobri El Qobba", "كوبري القبة"},
+            {"Hammamat El Qobba", "حمامات القبة"},
+            {"Saray El Qobba", "سراي القبة", "Saraya El-Qobba"},
+            {"Hadayeq El Zaitoun", "حدائق الزيتون"},
+            {"Helmyet El Zaitoun", "حلمية الزيتون", "Helmyet elzayton"},
+            {"El Matareyya", "المطرية", "El-Matarreyya"},
+            {"Ain Shams", "عين شمس"},
+            {"Ezbet El Nakhl", "عزبة النخل", "Ezbet Nakhl"},
+            {"El Marg", "المرج"},
+            {"New El Marg", "المرج الجديدة"},
+            // Line 2
+            {"El Mounib", "المنيب"},
+            {"Sakiat Mekky", "ساقية مكي"},
+            {"Omm El Misryeen", "أم المصريين"},
+            {"Giza", "الجيزة"},
+            {"Faisal", "فيصل"},
+            {"Cairo University", "جامعة القاهرة"},
+            {"El Bohoth", "البحوث"},
+            {"Dokki", "الدقي"},
+            {"Opera", "الأوبرا"},
+            {"Mohamed Naguib", "محمد نجيب"},
+            {"Attaba", "العتبة"},
+            {"Masaraa", "مسرة", "Massara"},
+            {"Rod El Farag", "روض الفرج"},
+            {"St. Teresa", "سانت تريزا"},
+            {"Khalafawy", "الخلفاوي"},
+            {"Mezallat", "المظلات"},
+            {"Kolleyyet El Zeraa", "كلية الزراعة"},
+            {"Shubra El Kheima", "شبرا الخيمة"},
+            // Line 3
+            {"Adly Mansour", "عدلي منصور"},
+            {"El Haykestep", "الهايكستب", "El Haykesteb"},
+            {"Omar Ibn El Khattab", "عمر بن الخطاب", "Omar Ebm El-Khatab"},
+            {"Qobaa", "قباء", "Quba"},
+            {"Hesham Barakat", "هشام بركات"},
+            {"El Nozha", "النزهة"},
+            {"Nadi El Shams", "نادي الشمس", "El Shams Club"},
+            {"Alf Maskan", "ألف مسكن"},
+            {"Heliopolis Square", "هليوبوليس", "Heliopolis"},
+            {"Haroun", "هارون"},
+            {"Al-Ahram", "الأهرام"},
+            {"Koleyet El Banat", "كلية البنات"},
+            {"Stadium", "الاستاد", "Cairo Stadium"},
+            {"Fair Zone", "أرض المعارض"},
+            {"Abbassia", "العباسية"},
+            {"Abdou Pasha", "عبده باشا"},
+            {"El Geish", "الجيش"},
+            {"Bab El Shaaria", "باب الشعرية"},
+            {"Maspero", "ماسبيرو"},
+            {"Zamalek", "صفاء حجازي", "safaa hegazy"},
+            {"Kit Kat", "كيت كات"},
+            {"Sudan", "السودان"},
+            {"Imbaba", "إمبابة"},
+            {"El Bohy", "البوهي"},
+            {"El Qawmia", "القومية"},
+            {"Ring Road", "الطريق الدائري"},
+            {"Rod El Farag Corridor", "محور روض الفرج"}
+    };
+
+    private static final Map<String, List<String>> ALIASES = new HashMap<>();
+
+    static {
+        for (String[] row : ALIAS_ROWS) {
+            ALIASES.put(row[0], Collections.unmodifiableList(Arrays.asList(row).subList(1, row.length)));
+        }
+    }
+
+    /**
+     * Get alternative names for a station (empty if none are known)
+     */
+    public static List<String> getAliases(String stationName) {
+        List<String> aliases = ALIASES.get(stationName);
+        return aliases != null ? aliases : Collections.<String>emptyList();
+    }
+
+    /**
+     * Get the Arabic name for a station, or null if none is known
+     */
+    public static String getArabicName(String stationName) {
+        for (String alias : getAliases(stationName)) {
+            if (!alias.isEmpty() && Character.UnicodeBlock.of(alias.charAt(0)) == Character.UnicodeBlock.ARABIC) {
+                return alias;
+            }
+        }
+        return null;
+    }
+}
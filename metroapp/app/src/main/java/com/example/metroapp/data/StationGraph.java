@@ -0,0 +1,347 @@
+package com.example.metroapp.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact integer-indexed view of the metro network
+ * Stations are interned to int ids and track adjacency is stored in CSR layout. Every line
+ * lists its station ids in order, and every station lists its lines with its position on each,
+ * also in CSR layout, so routing never touches station names
+ */
+public final class StationGraph {
+
+    public static final int NO_POSITION = -1;
+
+    private static volatile StationGraph defaultGraph;
+
+    private final String[] names;
+    private final Map<String, Integer> index;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final MetroLine[] lines;
+    private final int[] lineNumbers;
+    private final int[] lineColors;
+    private final int[][] lineStations;
+    private final int[] stationLineOffsets; // CSR: lines serving each station
+    private final int[] stationLines;
+    private final int[] stationLinePositions; // position of the station on each of its lines
+    private final int[] adjacencyOffsets;   // CSR: neighbouring stations along any line
+    private final int[] adjacencyTargets;
+    private final int[] adjacencyLines;
+    private final int[] interchanges;
+
+    private StationGraph(MetroNetwork network) {
+        int n = network.getStationCount();
+        this.names = new String[n];
+        this.index = new HashMap<>(n * 2);
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = network.getStationName(i);
+            index.put(names[i], i);
+            latitudes[i] = network.getLatitude(i);
+            longitudes[i] = network.getLongitude(i);
+        }
+
+        int lineCount = network.getLineCount();
+        this.lines = new MetroLine[lineCount];
+        this.lineNumbers = new int[lineCount];
+        this.lineColors = new int[lineCount];
+        this.lineStations = new int[lineCount][];
+
+        int[] lineDegree = new int[n];
+        int[] adjacencyDegree = new int[n];
+        // Last line seen at each station; positions on a line must be unambiguous
+        int[] lastLine = new int[n];
+        Arrays.fill(lastLine, -1);
+        for (int line = 0; line < lineCount; line++) {
+            lineNumbers[line] = network.getLineNumber(line);
+            lineColors[line] = network.getLineColor(line);
+            lines[line] = MetroLine.fromNumber(lineNumbers[line]);
+            int[] ids = new int[network.getLineLength(line)];
+            for (int pos = 0; pos < ids.length; pos++) {
+                int id = network.getLineStation(line, pos);
+                if (id < 0 || id >= n) {
+                    throw new IllegalArgumentException("Unknown station id on line " + line + ": " + id);
+                }
+                if (lastLine[id] == line) {
+                    throw new IllegalArgumentException("Line " + line + " visits station " + id + " twice");
+                }
+                lastLine[id] = line;
+                ids[pos] = id;
+                lineDegree[id]++;
+                if (pos > 0) {
+                    adjacencyDegree[id]++;
+                    adjacencyDegree[ids[pos - 1]]++;
+                }
+            }
+            lineStations[line] = ids;
+        }
+
+        this.stationLineOffsets = prefixSums(lineDegree);
+        this.stationLines = new int[stationLineOffsets[n]];
+        this.stationLinePositions = new int[stationLineOffsets[n]];
+        int[] fill = Arrays.copyOf(stationLineOffsets, n);
+        for (int line = 0; line < lineCount; line++) {
+            int[] ids = lineStations[line];
+            for (int pos = 0; pos < ids.length; pos++) {
+                stationLinePositions[fill[ids[pos]]] = pos;
+                stationLines[fill[ids[pos]]++] = line;
+            }
+        }
+
+        this.adjacencyOffsets = prefixSums(adjacencyDegree);
+        this.adjacencyTargets = new int[adjacencyOffsets[n]];
+        this.adjacencyLines = new int[adjacencyOffsets[n]];
+        fill = Arrays.copyOf(adjacencyOffsets, n);
+        for (int line = 0; line < lineCount; line++) {
+            int[] ids = lineStations[line];
+            for (int pos = 1; pos < ids.length; pos++) {
+                int a = ids[pos - 1];
+                int b = ids[pos];
+                adjacencyTargets[fill[a]] = b;
+                adjacencyLines[fill[a]++] = line;
+                adjacencyTargets[fill[b]] = a;
+                adjacencyLines[fill[b]++] = line;
+            }
+        }
+
+        List<Integer> interchangeIds = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (network.isInterchange(i)) {
+                interchangeIds.add(i);
+            }
+        }
+        this.interchanges = new int[interchangeIds.size()];
+        for (int i = 0; i < interchanges.length; i++) {
+            interchanges[i] = interchangeIds.get(i);
+        }
+    }
+
+    /**
+     * Wrap the tables compiled in by the build; nothing is derived at runtime
+     */
+    private StationGraph(GeneratedNetwork network) {
+        this.names = GeneratedNetwork.NAMES;
+        this.index = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+        this.latitudes = GeneratedNetwork.LATITUDES;
+        this.longitudes = GeneratedNetwork.LONGITUDES;
+        this.lineNumbers = GeneratedNetwork.LINE_NUMBERS;
+        this.lineColors = GeneratedNetwork.LINE_COLORS;
+        this.lines = new MetroLine[lineNumbers.length];
+        for (int line = 0; line < lines.length; line++) {
+            lines[line] = MetroLine.fromNumber(lineNumbers[line]);
+        }
+        this.lineStations = GeneratedNetwork.LINE_STATIONS;
+        this.stationLineOffsets = GeneratedNetwork.STATION_LINE_OFFSETS;
+        this.stationLines = GeneratedNetwork.STATION_LINES;
+        this.stationLinePositions = GeneratedNetwork.STATION_LINE_POSITIONS;
+        this.adjacencyOffsets = GeneratedNetwork.ADJACENCY_OFFSETS;
+        this.adjacencyTargets = GeneratedNetwork.ADJACENCY_TARGETS;
+        this.adjacencyLines = GeneratedNetwork.ADJACENCY_LINES;
+        this.interchanges = GeneratedNetwork.INTERCHANGES;
+    }
+
+    /**
+     * Build a graph over any network source, e.g. a NetworkSnapshot
+     */
+    public static StationGraph fromNetwork(MetroNetwork network) {
+        if (network instanceof GeneratedNetwork) {
+            return new StationGraph((GeneratedNetwork) network);
+        }
+        return new StationGraph(network);
+    }
+
+    private static int[] prefixSums(int[] counts) {
+        int[] offsets = new int[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+        return offsets;
+    }
+
+    /**
+     * Get the default graph: the installed one, or else the network compiled into the app
+     */
+    public static StationGraph getDefault() {
+        StationGraph graph = defaultGraph;
+        if (graph == null) {
+            synchronized (StationGraph.class) {
+                graph = defaultGraph;
+                if (graph == null) {
+                    graph = new StationGraph(GeneratedNetwork.INSTANCE);
+                    defaultGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Install the graph returned by getDefault(), e.g. one loaded from a network snapshot
+     * Routers and indexes capture the default on first use, so this must run before them;
+     * returns false and changes nothing if a default is already in place
+     */
+    public static boolean setDefault(StationGraph graph) {
+        synchronized (StationGraph.class) {
+            if (defaultGraph != null) {
+                return false;
+            }
+            defaultGraph = graph;
+            return true;
+        }
+    }
+
+    // Stations
+
+    public int getStationCount() {
+        return names.length;
+    }
+
+    /**
+     * Get station id for a name, or -1 if the station is unknown
+     */
+    public int indexOf(String stationName) {
+        if (stationName == null) return -1;
+        Integer id = index.get(stationName);
+        return id != null ? id : -1;
+    }
+
+    public String getName(int station) {
+        return names[station];
+    }
+
+    public double getLatitude(int station) {
+        return latitudes[station];
+    }
+
+    public double getLongitude(int station) {
+        return longitudes[station];
+    }
+
+    /**
+     * Materialize station names for a path of station ids
+     */
+    public List<String> getNames(int[] path, int length) {
+        String[] result = new String[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = names[path[i]];
+        }
+        return Arrays.asList(result);
+    }
+
+    // Lines
+
+    public int getLineCount() {
+        return lineStations.length;
+    }
+
+    /**
+     * MetroLine for a line index, or null for a line the app does not know yet
+     */
+    public MetroLine getMetroLine(int line) {
+        return lines[line];
+    }
+
+    /**
+     * Public line number, also for lines without a MetroLine
+     */
+    public int getLineNumber(int line) {
+        return lineNumbers[line];
+    }
+
+    /**
+     * Line color as ARGB, as given by the network source
+     */
+    public int getLineColor(int line) {
+        return lineColors[line];
+    }
+
+    public int getLineLength(int line) {
+        return lineStations[line].length;
+    }
+
+    public int getStationAt(int line, int position) {
+        return lineStations[line][position];
+    }
+
+    /**
+     * Get position of a station on a line, or NO_POSITION if the line does not serve it
+     */
+    public int getPosition(int line, int station) {
+        // Stations are served by a handful of lines at most, so a scan beats a lines x stations table
+        for (int i = stationLineOffsets[station]; i < stationLineOffsets[station + 1]; i++) {
+            if (stationLines[i] == line) {
+                return stationLinePositions[i];
+            }
+        }
+        return NO_POSITION;
+    }
+
+    /**
+     * Get first line serving both stations, or -1 if none does
+     */
+    public int findCommonLine(int a, int b) {
+        // A station's lines are listed in ascending order
+        for (int i = stationLineOffsets[a]; i < stationLineOffsets[a + 1]; i++) {
+            if (getPosition(stationLines[i], b) != NO_POSITION) {
+                return stationLines[i];
+            }
+        }
+        return -1;
+    }
+
+    public int getStationLineCount(int station) {
+        return stationLineOffsets[station + 1] - stationLineOffsets[station];
+    }
+
+    public int getStationLine(int station, int i) {
+        return stationLines[stationLineOffsets[station] + i];
+    }
+
+    /**
+     * Position of a station on its i-th line, i.e. getPosition(getStationLine(station, i), station)
+     */
+    public int getStationLinePosition(int station, int i) {
+        return stationLinePositions[stationLineOffsets[station] + i];
+    }
+
+    // Adjacency (CSR)
+
+    public int getAdjacencyStart(int station) {
+        return adjacencyOffsets[station];
+    }
+
+    public int getAdjacencyEnd(int station) {
+        return adjacencyOffsets[station + 1];
+    }
+
+    public int getAdjacentStation(int edge) {
+        return adjacencyTargets[edge];
+    }
+
+    public int getAdjacentLine(int edge) {
+        return adjacencyLines[edge];
+    }
+
+    // Interchanges
+
+    public int getInterchangeCount() {
+        return interchanges.length;
+    }
+
+    public int getInterchange(int i) {
+        return interchanges[i];
+    }
+
+    public boolean isInterchange(int station) {
+        return getStationLineCount(station) > 1;
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.metroapp.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeded synthetic metro network for scaling tests, e.g. 100 times the size of the real one
+ *
+ * Lines are grown one at a time across a round city centred on Cairo whose area grows with the
+ * station count, so station density stays at Cairo's. Each new line starts at an existing station,
+ * which keeps the network connected, picked near a random point in the city so the network spreads
+ * out rather than piling up in the middle. From there it runs out in both directions with stops
+ * about STATION_SPACING_METERS apart and a slowly wandering heading until it reaches its length or
+ * the edge of the city. A stop that lands within SNAP_RADIUS_METERS of another line's station
+ * becomes an interchange there; a line that would meet two stations in a row, and so run alongside
+ * another line, ends instead. This gives about 5% interchanges at Cairo's size and 10 to 20% at
+ * 10 to 1000 times that, in line with large real networks.
+ *
+ * Lines are numbered from 1 and stations are named "Synthetic 1", "Synthetic 2", ... The same seed
+ * and size give the same network on every JVM.
+ */
+public final class SyntheticNetwork implements MetroNetwork {
+
+    public static final double CENTER_LATITUDE = 30.0444;
+    public static final double CENTER_LONGITUDE = 31.2357;
+    public static final double STATION_SPACING_METERS = 1200;
+
+    static final double SNAP_RADIUS_METERS = 450;
+    // The real network has about 80 stations within 20 km of Sadat, on lines of 20 to 35 stops
+    static final double BASE_RADIUS_METERS = 20000;
+    static final int BASE_STATION_COUNT = 80;
+    static final int MEAN_LINE_LENGTH = 27;
+    static final int MAX_LINES_PER_STATION = 4;
+    private static final int ANCHOR_CANDIDATES = 8;
+    private static final double MAX_TURN_RADIANS = Math.toRadians(12);
+    private static final double METERS_PER_DEGREE = 111195;
+    // Give up if this many lines in a row add no station, rather than loop forever
+    private static final int MAX_FRUITLESS_LINES = 1000;
+
+    private final String[] names;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final boolean[] interchange;
+    private final int[][] lineStations;
+    private final int[] lineColors;
+
+    private SyntheticNetwork(String[] names, double[] latitudes, double[] longitudes, int[][] lineStations) {
+        this.names = names;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.lineStations = lineStations;
+        this.interchange = new boolean[names.length];
+        int[] lineCounts = new int[names.length];
+        for (int[] line : lineStations) {
+            for (int station : line) {
+                lineCounts[station]++;
+            }
+        }
+        for (int station = 0; station < names.length; station++) {
+            interchange[station] = lineCounts[station] > 1;
+        }
+        this.lineColors = new int[lineStations.length];
+        for (int line = 0; line < lineColors.length; line++) {
+            // Golden-angle hues keep neighbouring line numbers apart
+            lineColors[line] = hsvToArgb((line * 137.508f) % 360f, 0.75f, 0.85f);
+        }
+    }
+
+    /**
+     * Network the size of the built-in one times factor, e.g. 10, 100 or 1000
+     */
+    public static SyntheticNetwork scaled(long seed, int factor) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("factor < 1: " + factor);
+        }
+        return generate(seed, GeneratedNetwork.INSTANCE.getStationCount() * factor);
+    }
+
+    /**
+     * Network with exactly stationCount stations
+     */
+    public static SyntheticNetwork generate(long seed, int stationCount) {
+        if (stationCount < 2) {
+            throw new IllegalArgumentException("stationCount < 2: " + stationCount);
+        }
+        return new Builder(seed, stationCount).build();
+    }
+
+    @Override
+    public int getStationCount() {
+        return names.length;
+    }
+
+    @Override
+    public String getStationName(int station) {
+        return names[station];
+    }
+
+    @Override
+    public double getLatitude(int station) {
+        return latitudes[station];
+    }
+
+    @Override
+    public double getLongitude(int station) {
+        return longitudes[station];
+    }
+
+    @Override
+    public boolean isInterchange(int station) {
+        return interchange[station];
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineStations.length;
+    }
+
+    @Override
+    public int getLineNumber(int line) {
+        return line + 1;
+    }
+
+    @Override
+    public int getLineColor(int line) {
+        return lineColors[line];
+    }
+
+    @Override
+    public int getLineLength(int line) {
+        return lineStations[line].length;
+    }
+
+    @Override
+    public int getLineStation(int line, int position) {
+        return lineStations[line][position];
+    }
+
+    private static int hsvToArgb(float hue, float saturation, float value) {
+        float c = value * saturation;
+        float x = c * (1 - Math.abs((hue / 60f) % 2 - 1));
+        float m = value - c;
+        float r, g, b;
+        if (hue < 60) { r = c; g = x; b = 0; }
+        else if (hue < 120) { r = x; g = c; b = 0; }
+        else if (hue < 180) { r = 0; g = c; b = x; }
+        else if (hue < 240) { r = 0; g = x; b = c; }
+        else if (hue < 300) { r = x; g = 0; b = c; }
+        else { r = c; g = 0; b = x; }
+        return 0xFF000000 | Math.round((r + m) * 255) << 16 | Math.round((g + m) * 255) << 8 | Math.round((b + m) * 255);
+    }
+
+    /**
+     * Grows the lines in a local plane in meters, x east and y north of the centre
+     * StrictMath keeps the trigonometry, and so the network, identical across JVMs
+     */
+    private static final class Builder {
+        private final Random random;
+        private final int target;
+        private final double radius;
+        private final double[] xs;
+        private final double[] ys;
+        private final int[] lineCounts;
+        private final Map<Long, List<Integer>> grid = new HashMap<>();
+        private final List<int[]> lines = new ArrayList<>();
+        private int count;
+
+        // Line being grown, to avoid visiting a station twice
+        private final Set<Integer> onLine = new HashSet<>();
+
+        Builder(long seed, int target) {
+            this.random = new Random(seed);
+            this.target = target;
+            this.radius = BASE_RADIUS_METERS * StrictMath.sqrt(Math.max(1.0, target / (double) BASE_STATION_COUNT));
+            this.xs = new double[target];
+            this.ys = new double[target];
+            this.lineCounts = new int[target];
+        }
+
+        SyntheticNetwork build() {
+            addStation(0, 0);
+            int fruitless = 0;
+            while (count < target || lineCounts[0] == 0) {
+                int before = count;
+                growLine();
+                fruitless = count > before ? 0 : fruitless + 1;
+                if (fruitless > MAX_FRUITLESS_LINES) {
+                    throw new IllegalStateException("Network saturated at " + count + " of " + target + " stations");
+                }
+            }
+
+            String[] names = new String[count];
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            double metersPerDegreeLongitude = METERS_PER_DEGREE * StrictMath.cos(StrictMath.toRadians(CENTER_LATITUDE));
+            for (int station = 0; station < count; station++) {
+                names[station] = "Synthetic " + (station + 1);
+                latitudes[station] = CENTER_LATITUDE + ys[station] / METERS_PER_DEGREE;
+                longitudes[station] = CENTER_LONGITUDE + xs[station] / metersPerDegreeLongitude;
+            }
+            return new SyntheticNetwork(names, latitudes, longitudes, lines.toArray(new int[0][]));
+        }
+
+        private void growLine() {
+            int anchor = pickAnchor();
+            if (anchor < 0) {
+                return;
+            }
+            int length = MEAN_LINE_LENGTH / 2 + random.nextInt(MEAN_LINE_LENGTH);
+            int ahead = 1 + random.nextInt(length);
+            double heading = random.nextDouble() * 2 * Math.PI;
+
+            onLine.clear();
+            onLine.add(anchor);
+            int[] forward = extend(anchor, heading, ahead);
+            int[] backward = extend(anchor, heading + Math.PI, length - ahead);
+            if (forward.length + backward.length == 0) {
+                return;
+            }
+
+            int[] line = new int[backward.length + 1 + forward.length];
+            for (int i = 0; i < backward.length; i++) {
+                line[i] = backward[backward.length - 1 - i];
+            }
+            line[backward.length] = anchor;
+            System.arraycopy(forward, 0, line, backward.length + 1, forward.length);
+            for (int station : line) {
+                lineCounts[station]++;
+            }
+            lines.add(line);
+        }
+
+        /**
+         * Of a few random stations with room for another line, the one nearest a random point in
+         * the city, so the network spreads outwards instead of piling up where it started
+         */
+        private int pickAnchor() {
+            double distance = radius * StrictMath.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double x = distance * StrictMath.cos(angle);
+            double y = distance * StrictMath.sin(angle);
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int tries = 0; tries < ANCHOR_CANDIDATES; tries++) {
+                int station = random.nextInt(count);
+                if (lineCounts[station] >= MAX_LINES_PER_STATION) continue;
+                double dx = xs[station] - x;
+                double dy = ys[station] - y;
+                if (dx * dx + dy * dy < bestDistance) {
+                    best = station;
+                    bestDistance = dx * dx + dy * dy;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Up to stops new stops from a station outwards; snaps onto other lines' stations nearby
+         */
+        private int[] extend(int from, double heading, int stops) {
+            int[] path = new int[stops];
+            int length = 0;
+            boolean snapped = true;
+            double x = xs[from];
+            double y = ys[from];
+            while (length < stops) {
+                heading += (random.nextDouble() * 2 - 1) * MAX_TURN_RADIANS;
+                double step = STATION_SPACING_METERS * (0.8 + random.nextDouble() * 0.4);
+                x += step * StrictMath.cos(heading);
+                y += step * StrictMath.sin(heading);
+                if (x * x + y * y > radius * radius) {
+                    break;
+                }
+
+                int station = nearby(x, y);
+                if (station >= 0) {
+                    if (onLine.contains(station) || snapped) {
+                        // Would loop back onto itself, or run alongside another line
+                        break;
+                    }
+                    if (lineCounts[station] >= MAX_LINES_PER_STATION) {
+                        station = -1;
+                    } else {
+                        // Carry on from the interchange so the line runs through it
+                        x = xs[station];
+                        y = ys[station];
+                    }
+                }
+                if (station < 0) {
+                    if (count == target) {
+                        break;
+                    }
+                    station = addStation(x, y);
+                    snapped = false;
+                } else {
+                    snapped = true;
+                }
+                onLine.add(station);
+                path[length++] = station;
+            }
+            return Arrays.copyOf(path, length);
+        }
+
+        private int addStation(double x, double y) {
+            int station = count++;
+            xs[station] = x;
+            ys[station] = y;
+            long key = cell(x, y);
+            List<Integer> stations = grid.get(key);
+            if (stations == null) {
+                stations = new ArrayList<>(2);
+                grid.put(key, stations);
+            }
+            stations.add(station);
+            return station;
+        }
+
+        /**
+         * Nearest station within the snap radius, or -1
+         */
+        private int nearby(double x, double y) {
+            int cx = (int) Math.floor(x / SNAP_RADIUS_METERS);
+            int cy = (int) Math.floor(y / SNAP_RADIUS_METERS);
+            int best = -1;
+            double bestDistance = SNAP_RADIUS_METERS * SNAP_RADIUS_METERS;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    List<Integer> stations = grid.get(key(cx + dx, cy + dy));
+                    if (stations == null) continue;
+                    for (int station : stations) {
+                        double ex = xs[station] - x;
+                        double ey = ys[station] - y;
+                        double distance = ex * ex + ey * ey;
+                        if (distance <= bestDistance) {
+                            best = station;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        private static long cell(double x, double y) {
+            return key((int) Math.floor(x / SNAP_RADIUS_METERS), (int) Math.floor(y / SNAP_RADIUS_METERS));
+        }
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xffffffffL);
+        }
+    }
+}
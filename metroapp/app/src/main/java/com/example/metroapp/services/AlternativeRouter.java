@@ -0,0 +1,499 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Finds the k best distinct routes between two stations, e.g. changing at Sadat versus at Shohadaa
+ *
+ * Yen's k-shortest loopless paths, run on a graph of (station, line) states: riding to the next
+ * station costs MINUTES_PER_STATION and changing lines costs TRANSFER_MINUTES, the same model as
+ * RaptorRouter, so the first route is the fastest one. Routes that ride exactly the same stations
+ * are one route. Routes that go back to a line they already left are dropped: they only swap a
+ * stretch of track for a parallel one, e.g. Line 2 to Line 1 at Shohadaa and back at Sadat. So
+ * are routes with too many transfers, and routes much slower than the fastest are never offered.
+ *
+ * Work is bounded whatever the network size: at most MAX_SPUR_SEARCHES shortest-path searches
+ * per query, each over a few states per station with reused per-thread arrays, and the search
+ * stops early once every remaining candidate is too slow.
+ */
+public final class AlternativeRouter {
+
+    /**
+     * Shortest-path searches allowed per query; k = 5 on a long route needs far fewer
+     */
+    static final int MAX_SPUR_SEARCHES = 400;
+
+    /**
+     * Alternatives may be this much slower than the fastest route: half its time, at least this many minutes
+     */
+    static final int MIN_SLACK_MINUTES = 10;
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+
+    private static volatile AlternativeRouter defaultRouter;
+
+    private final StationGraph graph;
+    private final int[] stateOffsets;   // States of station s are stateOffsets[s] .. stateOffsets[s + 1] - 1
+    private final int[] stateStation;
+    private final int[] stateLine;
+    private final int source;           // Virtual state before boarding, with a free edge to every origin state
+    private final ThreadLocal<Workspace> workspaces;
+
+    public AlternativeRouter(StationGraph graph) {
+        this.graph = graph;
+        int n = graph.getStationCount();
+        stateOffsets = new int[n + 1];
+        for (int station = 0; station < n; station++) {
+            stateOffsets[station + 1] = stateOffsets[station] + graph.getStationLineCount(station);
+        }
+        source = stateOffsets[n];
+        stateStation = new int[source + 1];
+        stateLine = new int[source + 1];
+        for (int station = 0; station < n; station++) {
+            for (int i = 0; i < graph.getStationLineCount(station); i++) {
+                stateStation[stateOffsets[station] + i] = station;
+                stateLine[stateOffsets[station] + i] = graph.getStationLine(station, i);
+            }
+        }
+        stateStation[source] = NONE;
+        stateLine[source] = NONE;
+        this.workspaces = new ThreadLocal<Workspace>() {
+            @Override
+            protected Workspace initialValue() {
+                return new Workspace(source + 1);
+            }
+        };
+    }
+
+    /**
+     * Get the router for the default StationGraph
+     */
+    public static AlternativeRouter getDefault() {
+        AlternativeRouter router = defaultRouter;
+        if (router == null) {
+            synchronized (AlternativeRouter.class) {
+                router = defaultRouter;
+                if (router == null) {
+                    router = new AlternativeRouter(StationGraph.getDefault());
+                    defaultRouter = router;
+                }
+            }
+        }
+        return router;
+    }
+
+    public StationGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Up to k distinct journeys, fastest first; empty if the destination is unreachable
+     */
+    public List<Journey> route(int origin, int destination, int k) {
+        return route(origin, destination, k, RouteOptions.DEFAULT_MAX_TRANSFERS);
+    }
+
+    /**
+     * Up to k distinct journeys with at most maxTransfers changes each, fastest first
+     */
+    public List<Journey> route(int origin, int destination, int k, int maxTransfers) {
+        List<Journey> journeys = new ArrayList<>(k);
+        if (origin == destination || k <= 0) {
+            return journeys;
+        }
+
+        Workspace ws = workspaces.get();
+        ws.clearBlocks();
+        Path best = shortest(ws, source, origin, destination, false);
+        if (best == null) {
+            return journeys;
+        }
+        int maxMinutes = best.cost + Math.max(MIN_SLACK_MINUTES, best.cost / 2);
+
+        List<Path> accepted = new ArrayList<>();
+        PriorityQueue<Path> candidates = new PriorityQueue<>();
+        Set<Path> seen = new HashSet<>();
+        seen.add(best);
+        int searches = 0;
+        Path next = best;
+        while (next != null) {
+            accepted.add(next);
+            if (next.transfers <= maxTransfers) {
+                Journey journey = toJourney(next);
+                if (!ridesLineTwice(journey) && !ridesSameStations(journeys, journey)) {
+                    journeys.add(journey);
+                    if (journeys.size() == k) {
+                        break;
+                    }
+                }
+            }
+
+            // Deviate from every state of the last accepted path except the destination
+            for (int i = 0; i < next.states.length - 1 && searches < MAX_SPUR_SEARCHES; i++) {
+                int spur = next.states[i];
+                ws.clearBlocks();
+                // Edges already taken from this root by an accepted path
+                for (Path path : accepted) {
+                    if (path.states.length > i + 1 && path.sharesRoot(next, i)) {
+                        ws.blockEdge(path.states[i + 1]);
+                    }
+                }
+                // The root's stations, so the path stays loopless in stations and not only in states
+                for (int j = 0; j < i; j++) {
+                    int station = stateStation[next.states[j]];
+                    if (station != NONE && station != stateStation[spur]) {
+                        blockStation(ws, station);
+                    }
+                }
+                // Having just changed lines here, changing again would only be a detour
+                boolean changedHere = i > 0 && stateStation[next.states[i - 1]] == stateStation[spur];
+
+                searches++;
+                Path spurPath = shortest(ws, spur, origin, destination, changedHere);
+                if (spurPath == null) {
+                    continue;
+                }
+                Path candidate = next.join(i, spurPath, stateStation);
+                if (candidate.cost <= maxMinutes && candidate.isLoopless(stateStation) && seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            next = candidates.poll();
+        }
+        return journeys;
+    }
+
+    /**
+     * Dijkstra from a state to any state of the destination, honouring the workspace's blocks
+     */
+    private Path shortest(Workspace ws, int from, int origin, int destination, boolean noTransferAtStart) {
+        int[] dist = ws.dist;
+        int[] prev = ws.prev;
+        Arrays.fill(dist, INF);
+        dist[from] = 0;
+        prev[from] = NONE;
+        ws.heapSize = 0;
+        ws.push(0, from);
+
+        while (ws.heapSize > 0) {
+            long top = ws.pop();
+            int d = (int) (top >>> 32);
+            int state = (int) top;
+            if (d > dist[state]) {
+                continue;
+            }
+            int station = stateStation[state];
+            if (station == destination) {
+                return Path.trace(prev, state, dist, stateStation);
+            }
+
+            if (state == source) {
+                for (int s = stateOffsets[origin]; s < stateOffsets[origin + 1]; s++) {
+                    relax(ws, from, state, s, d);
+                }
+                continue;
+            }
+            int line = stateLine[state];
+            for (int e = graph.getAdjacencyStart(station); e < graph.getAdjacencyEnd(station); e++) {
+                if (graph.getAdjacentLine(e) == line) {
+                    int target = stateOf(graph.getAdjacentStation(e), line);
+                    relax(ws, from, state, target, d + RaptorRouter.MINUTES_PER_STATION);
+                }
+            }
+            // Passengers board the right line at the origin rather than change there
+            if (station != origin && !(state == from && noTransferAtStart)) {
+                for (int s = stateOffsets[station]; s < stateOffsets[station + 1]; s++) {
+                    if (s != state) {
+                        relax(ws, from, state, s, d + RaptorRouter.TRANSFER_MINUTES);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void relax(Workspace ws, int from, int state, int target, int cost) {
+        if (ws.blocked[target] || (state == from && ws.isEdgeBlocked(target))) {
+            return;
+        }
+        if (cost < ws.dist[target]) {
+            ws.dist[target] = cost;
+            ws.prev[target] = state;
+            ws.push(cost, target);
+        }
+    }
+
+    private int stateOf(int station, int line) {
+        for (int s = stateOffsets[station]; s < stateOffsets[station + 1]; s++) {
+            if (stateLine[s] == line) {
+                return s;
+            }
+        }
+        throw new IllegalStateException("Line " + line + " does not serve station " + station);
+    }
+
+    private void blockStation(Workspace ws, int station) {
+        for (int s = stateOffsets[station]; s < stateOffsets[station + 1]; s++) {
+            ws.block(s);
+        }
+    }
+
+    private Journey toJourney(Path path) {
+        int[] stations = new int[path.states.length];
+        int length = 0;
+        List<Integer> legLines = new ArrayList<>();
+        List<Integer> transfers = new ArrayList<>();
+        for (int state : path.states) {
+            int station = stateStation[state];
+            if (station == NONE) {
+                continue;
+            }
+            if (length > 0 && stations[length - 1] == station) {
+                transfers.add(station);
+            } else {
+                stations[length++] = station;
+            }
+            if (legLines.isEmpty() || legLines.get(legLines.size() - 1) != stateLine[state]) {
+                legLines.add(stateLine[state]);
+            }
+        }
+        stations = Arrays.copyOf(stations, length);
+
+        int lastLine = legLines.get(legLines.size() - 1);
+        boolean forward = graph.getPosition(lastLine, stations[length - 1])
+                > graph.getPosition(lastLine, stations[length - 2]);
+        int directionStation = graph.getStationAt(lastLine, forward ? graph.getLineLength(lastLine) - 1 : 0);
+        return new Journey(stations, toArray(legLines), toArray(transfers), directionStation, path.cost,
+                FareEngine.forGraph(graph).getPathFare(stations, length));
+    }
+
+    private static boolean ridesLineTwice(Journey journey) {
+        for (int leg = 1; leg < journey.getLegCount(); leg++) {
+            for (int earlier = 0; earlier < leg; earlier++) {
+                if (journey.getLegLine(earlier) == journey.getLegLine(leg)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean ridesSameStations(List<Journey> journeys, Journey journey) {
+        for (Journey other : journeys) {
+            if (other.getStationCount() != journey.getStationCount()) {
+                continue;
+            }
+            boolean same = true;
+            for (int i = 0; i <= journey.getStationCount() && same; i++) {
+                same = other.getStation(i) == journey.getStation(i);
+            }
+            if (same) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * A path of states from the virtual source with the cost to reach each of them
+     */
+    private static final class Path implements Comparable<Path> {
+        final int[] states;
+        final int[] costs;
+        final int cost;
+        final int transfers;
+
+        Path(int[] states, int[] costs, int[] stateStation) {
+            this.states = states;
+            this.costs = costs;
+            this.cost = costs[costs.length - 1];
+            int count = 0;
+            for (int i = 1; i < states.length; i++) {
+                if (stateStation[states[i]] == stateStation[states[i - 1]]) {
+                    count++;
+                }
+            }
+            this.transfers = count;
+        }
+
+        static Path trace(int[] prev, int end, int[] dist, int[] stateStation) {
+            int length = 0;
+            for (int s = end; s != NONE; s = prev[s]) {
+                length++;
+            }
+            int[] states = new int[length];
+            int[] costs = new int[length];
+            for (int s = end, i = length - 1; s != NONE; s = prev[s], i--) {
+                states[i] = s;
+                costs[i] = dist[s];
+            }
+            return new Path(states, costs, stateStation);
+        }
+
+        /**
+         * This path's first i + 1 states followed by a spur path that starts at state i
+         */
+        Path join(int i, Path spur, int[] stateStation) {
+            int length = i + spur.states.length;
+            int[] joined = Arrays.copyOf(states, length);
+            int[] joinedCosts = Arrays.copyOf(costs, length);
+            for (int j = 1; j < spur.states.length; j++) {
+                joined[i + j] = spur.states[j];
+                joinedCosts[i + j] = costs[i] + spur.costs[j];
+            }
+            return new Path(joined, joinedCosts, stateStation);
+        }
+
+        boolean sharesRoot(Path other, int i) {
+            for (int j = 0; j <= i; j++) {
+                if (states[j] != other.states[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * True unless a station is left and then visited again
+         */
+        boolean isLoopless(int[] stateStation) {
+            Set<Integer> left = new HashSet<>();
+            for (int i = 1; i < states.length; i++) {
+                int station = stateStation[states[i]];
+                if (station != stateStation[states[i - 1]] && !left.add(station)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            if (cost != other.cost) {
+                return Integer.compare(cost, other.cost);
+            }
+            if (transfers != other.transfers) {
+                return Integer.compare(transfers, other.transfers);
+            }
+            return Integer.compare(states.length, other.states.length);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Path && Arrays.equals(states, ((Path) obj).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(states);
+        }
+    }
+
+    /**
+     * Per-thread search arrays, reused across queries
+     */
+    private static final class Workspace {
+        final int[] dist;
+        final int[] prev;
+        final boolean[] blocked;
+        final int[] blockedList;
+        int blockedCount;
+        int[] blockedEdges = new int[8];    // Targets of edges out of the spur state that are blocked
+        int blockedEdgeCount;
+        long[] heap = new long[64];         // (cost << 32) | state
+        int heapSize;
+
+        Workspace(int states) {
+            dist = new int[states];
+            prev = new int[states];
+            blocked = new boolean[states];
+            blockedList = new int[states];
+        }
+
+        void clearBlocks() {
+            for (int i = 0; i < blockedCount; i++) {
+                blocked[blockedList[i]] = false;
+            }
+            blockedCount = 0;
+            blockedEdgeCount = 0;
+        }
+
+        void block(int state) {
+            if (!blocked[state]) {
+                blocked[state] = true;
+                blockedList[blockedCount++] = state;
+            }
+        }
+
+        void blockEdge(int target) {
+            if (blockedEdgeCount == blockedEdges.length) {
+                blockedEdges = Arrays.copyOf(blockedEdges, blockedEdgeCount * 2);
+            }
+            blockedEdges[blockedEdgeCount++] = target;
+        }
+
+        boolean isEdgeBlocked(int target) {
+            for (int i = 0; i < blockedEdgeCount; i++) {
+                if (blockedEdges[i] == target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void push(int cost, int state) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heapSize * 2);
+            }
+            long entry = ((long) cost << 32) | state;
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= entry) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
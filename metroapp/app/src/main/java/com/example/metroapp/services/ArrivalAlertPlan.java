@@ -0,0 +1,165 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.MetroLine;
+import com.example.metroapp.data.StationGraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where to alert the passenger along a route, as circles around station coordinates
+ * Every station where the passenger leaves a train, each transfer and the destination, gets a
+ * fence on the station itself and, when the passenger is riding through it, one on the stop
+ * before ("get off at the next stop").
+ * Kept free of Android types so the plan can be checked without a device.
+ */
+public final class ArrivalAlertPlan {
+
+    /**
+     * Radius of each fence; wide because fixes underground are coarse
+     */
+    public static final float RADIUS_METERS = 300;
+
+    public enum Kind {
+        TRANSFER_NEXT,
+        TRANSFER,
+        ARRIVAL_NEXT,
+        ARRIVAL
+    }
+
+    private final List<Fence> fences;
+
+    private ArrivalAlertPlan(List<Fence> fences) {
+        this.fences = Collections.unmodifiableList(fences);
+    }
+
+    /**
+     * Plan the fences for a route given as station names in travel order
+     */
+    public static ArrivalAlertPlan forRoute(StationGraph graph, List<String> route, List<String> transferStations) {
+        List<Fence> fences = new ArrayList<>();
+        int last = route.size() - 1;
+        int fenced = 0;
+        for (int i = 1; i <= last; i++) {
+            boolean arrival = i == last;
+            if (!arrival && !transferStations.contains(route.get(i))) {
+                continue;
+            }
+            int station = graph.indexOf(route.get(i));
+            if (station < 0) {
+                throw new IllegalArgumentException("Unknown station " + route.get(i));
+            }
+            String detail = arrival ? "" : describeNextLeg(graph, station, graph.indexOf(route.get(i + 1)));
+            // The stop before is only worth a fence if the passenger is already riding by then,
+            // not boarding there or busy changing trains
+            if (i - 1 > fenced) {
+                int previous = graph.indexOf(route.get(i - 1));
+                fences.add(new Fence(arrival ? Kind.ARRIVAL_NEXT : Kind.TRANSFER_NEXT, i - 1, previous,
+                        graph, route.get(i), detail));
+            }
+            fences.add(new Fence(arrival ? Kind.ARRIVAL : Kind.TRANSFER, i, station, graph, route.get(i), detail));
+            fenced = i;
+        }
+        return new ArrivalAlertPlan(fences);
+    }
+
+    public List<Fence> getFences() {
+        return fences;
+    }
+
+    /**
+     * Find a fence by its request id, or null if this plan does not have it
+     */
+    public Fence find(String requestId) {
+        for (Fence fence : fences) {
+            if (fence.requestId.equals(requestId)) {
+                return fence;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Line and direction of the leg that starts at a transfer, e.g. "Line 3 towards Adly Mansour"
+     */
+    private static String describeNextLeg(StationGraph graph, int transfer, int next) {
+        int line = graph.findCommonLine(transfer, next);
+        if (line < 0) {
+            return "";
+        }
+        boolean forward = graph.getPosition(line, next) > graph.getPosition(line, transfer);
+        int terminal = graph.getStationAt(line, forward ? graph.getLineLength(line) - 1 : 0);
+        MetroLine metroLine = graph.getMetroLine(line);
+        String name = metroLine != null ? metroLine.getDisplayName() : "the next line";
+        return name + " towards " + graph.getName(terminal);
+    }
+
+    /**
+     * One circular fence and the alert it raises
+     */
+    public static final class Fence {
+        private final String requestId;
+        private final Kind kind;
+        private final double latitude;
+        private final double longitude;
+        private final String title;
+        private final String text;
+
+        Fence(Kind kind, int routeIndex, int station, StationGraph graph, String target, String nextLeg) {
+            this.requestId = "metro-alert-" + routeIndex + "-" + kind.name();
+            this.kind = kind;
+            this.latitude = graph.getLatitude(station);
+            this.longitude = graph.getLongitude(station);
+            switch (kind) {
+                case TRANSFER_NEXT:
+                    title = "Change at the next stop";
+                    text = "Get off at " + target + " for " + nextLeg;
+                    break;
+                case TRANSFER:
+                    title = "Change here: " + target;
+                    text = "Take " + nextLeg;
+                    break;
+                case ARRIVAL_NEXT:
+                    title = "Get off at the next stop";
+                    text = target + " is your destination";
+                    break;
+                default:
+                    title = "You have arrived";
+                    text = "Get off here: " + target;
+                    break;
+            }
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * True for the fence that ends the journey; alerts can be disarmed once it fires
+         */
+        public boolean isFinal() {
+            return kind == Kind.ARRIVAL;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.metroapp.services;
+
+import android.annotation.SuppressLint;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.work.ForegroundInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.metroapp.R;
+
+/**
+ * Posts the notification for one triggered alert fence, and disarms the route on arrival
+ */
+public class ArrivalAlertWorker extends Worker {
+
+    static final String KEY_ROUTE_ID = "route_id";
+    static final String KEY_REQUEST_ID = "request_id";
+
+    private static final String CHANNEL_ID = "arrival_alerts";
+    private static final int FOREGROUND_ID = 1;
+
+    public ArrivalAlertWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @SuppressLint("MissingPermission")
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        ArrivalAlertPlan plan = ArrivalAlerts.loadPlan(context);
+        String routeId = getInputData().getString(KEY_ROUTE_ID);
+        String requestId = getInputData().getString(KEY_REQUEST_ID);
+        ArrivalAlertPlan.Fence fence = plan != null && requestId != null ? plan.find(requestId) : null;
+        // Alerts disarmed or replaced by another route since the fence fired, or already posted
+        if (fence == null || !ArrivalAlerts.claimAlert(context, routeId, requestId)) {
+            return Result.success();
+        }
+
+        createChannel(context);
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (manager.areNotificationsEnabled()) {
+            manager.notify(requestId.hashCode(), new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_distance)
+                    .setContentTitle(fence.getTitle())
+                    .setContentText(fence.getText())
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setCategory(NotificationCompat.CATEGORY_NAVIGATION)
+                    .setAutoCancel(true)
+                    .build());
+        }
+        if (fence.isFinal()) {
+            ArrivalAlerts.disarm(context);
+        }
+        return Result.success();
+    }
+
+    /**
+     * Before Android 12 expedited work runs as a foreground service, which needs its own notification
+     */
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        Context context = getApplicationContext();
+        createChannel(context);
+        return new ForegroundInfo(FOREGROUND_ID, new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_distance)
+                .setContentTitle("Checking your route")
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build());
+    }
+
+    private static void createChannel(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Arrival alerts",
+                NotificationManager.IMPORTANCE_HIGH);
+        channel.setDescription("Get off and transfer reminders for the tracked route");
+        context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+}
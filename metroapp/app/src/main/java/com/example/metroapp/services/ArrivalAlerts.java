@@ -0,0 +1,164 @@
+package com.example.metroapp.services;
+
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.metroapp.data.RouteSnapshot;
+import com.example.metroapp.data.StationGraph;
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofencingClient;
+import com.google.android.gms.location.GeofencingRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Arms OS geofences for the transfer and arrival alerts of one route
+ * The OS watches the fences and wakes GeofenceReceiver, which hands the alert to WorkManager,
+ * so nothing of the app has to keep running or polling location during the trip. The route is
+ * kept in preferences so the worker can rebuild the plan after the process has died, together
+ * with a fresh id per arming and the fences already alerted, so each alert is posted once.
+ */
+public final class ArrivalAlerts {
+
+    private static final String TAG = "ArrivalAlerts";
+    private static final String PREFS_NAME = "ArrivalAlerts";
+    private static final String KEY_ROUTE_ID = "routeId";
+    private static final String KEY_ALERTED = "alerted";
+    private static final String KEY_STATIONS = "stations";
+    private static final String KEY_TRANSFERS = "transfers";
+
+    // Fences outlive a slow trip but not a forgotten one
+    private static final long MIN_EXPIRY_MILLIS = 2 * 60 * 60 * 1000L;
+
+    private ArrivalAlerts() {
+    }
+
+    /**
+     * Replace any armed alerts with the fences of this route
+     * Needs fine and, from Android 10, background location permission. If the OS refuses the
+     * fences (e.g. location turned off) the route is forgotten; the returned task reports it.
+     */
+    @SuppressLint("MissingPermission")
+    public static Task<Void> arm(Context context, RouteSnapshot route) {
+        Context app = context.getApplicationContext();
+        ArrivalAlertPlan plan = ArrivalAlertPlan.forRoute(StationGraph.getDefault(), route.getStations(),
+                route.getTransferStations());
+        Gson gson = new Gson();
+        String routeId = UUID.randomUUID().toString();
+        prefs(app).edit()
+                .putString(KEY_ROUTE_ID, routeId)
+                .remove(KEY_ALERTED)
+                .putString(KEY_STATIONS, gson.toJson(route.getStations()))
+                .putString(KEY_TRANSFERS, gson.toJson(route.getTransferStations()))
+                .apply();
+
+        long expiry = Math.max(MIN_EXPIRY_MILLIS, 3L * route.getEstimatedMinutes() * 60_000L);
+        List<Geofence> geofences = new ArrayList<>();
+        for (ArrivalAlertPlan.Fence fence : plan.getFences()) {
+            geofences.add(new Geofence.Builder()
+                    .setRequestId(fence.getRequestId())
+                    .setCircularRegion(fence.getLatitude(), fence.getLongitude(), ArrivalAlertPlan.RADIUS_METERS)
+                    .setExpirationDuration(expiry)
+                    .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER)
+                    .build());
+        }
+        GeofencingRequest request = new GeofencingRequest.Builder()
+                .setInitialTrigger(0)   // The origin's own fences must not fire on arming
+                .addGeofences(geofences)
+                .build();
+
+        GeofencingClient client = LocationServices.getGeofencingClient(app);
+        PendingIntent intent = pendingIntent(app);
+        client.removeGeofences(intent);
+        return client.addGeofences(request, intent).addOnFailureListener(e -> {
+            Log.w(TAG, "Could not add geofences", e);
+            forget(app, routeId);
+        });
+    }
+
+    /**
+     * Remove the fences and forget the route
+     */
+    public static void disarm(Context context) {
+        Context app = context.getApplicationContext();
+        LocationServices.getGeofencingClient(app).removeGeofences(pendingIntent(app));
+        prefs(app).edit().clear().apply();
+    }
+
+    /**
+     * Id of the armed route, or null if no alerts are armed
+     */
+    static String getRouteId(Context context) {
+        return prefs(context.getApplicationContext()).getString(KEY_ROUTE_ID, null);
+    }
+
+    /**
+     * Record that the fence's alert is being posted; false if the route is no longer armed or
+     * the alert was already posted, e.g. because the fence fired again after the work had run
+     */
+    static synchronized boolean claimAlert(Context context, String routeId, String requestId) {
+        SharedPreferences prefs = prefs(context.getApplicationContext());
+        if (routeId == null || !routeId.equals(prefs.getString(KEY_ROUTE_ID, null))) {
+            return false;
+        }
+        Set<String> alerted = new HashSet<>(prefs.getStringSet(KEY_ALERTED, new HashSet<String>()));
+        if (!alerted.add(requestId)) {
+            return false;
+        }
+        // Workers run on a background thread, and two of them must not both see the fence unclaimed
+        return prefs.edit().putStringSet(KEY_ALERTED, alerted).commit();
+    }
+
+    /**
+     * Plan of the armed route, or null if no alerts are armed
+     */
+    static ArrivalAlertPlan loadPlan(Context context) {
+        SharedPreferences prefs = prefs(context.getApplicationContext());
+        String stations = prefs.getString(KEY_STATIONS, null);
+        String transfers = prefs.getString(KEY_TRANSFERS, null);
+        if (stations == null || transfers == null) {
+            return null;
+        }
+        Gson gson = new Gson();
+        List<String> route = gson.fromJson(stations, new TypeToken<List<String>>() {}.getType());
+        List<String> transferStations = gson.fromJson(transfers, new TypeToken<List<String>>() {}.getType());
+        return ArrivalAlertPlan.forRoute(StationGraph.getDefault(), route, transferStations);
+    }
+
+    /**
+     * Forget the route if it is still the armed one; a newer arming keeps its own
+     */
+    private static synchronized void forget(Context context, String routeId) {
+        SharedPreferences prefs = prefs(context);
+        if (routeId.equals(prefs.getString(KEY_ROUTE_ID, null))) {
+            prefs.edit().clear().apply();
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static PendingIntent pendingIntent(Context context) {
+        Intent intent = new Intent(context, GeofenceReceiver.class);
+        // Location services fill in the triggering fences, so the intent has to stay mutable
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            flags |= PendingIntent.FLAG_MUTABLE;
+        }
+        return PendingIntent.getBroadcast(context, 0, intent, flags);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch route calculation for fare and route sheets
+ * Splits the work across a fork/join pool; results always come back in input order
+ */
+public class BatchRouteCalculator {
+
+    // Queries per leaf task; one query is a few hundred ns, so smaller leaves cost more in scheduling
+    private static final int LEAF_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Create a calculator with its own pool of the given size
+     */
+    public BatchRouteCalculator(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+    }
+
+    /**
+     * Create a calculator running on an existing pool, e.g. ForkJoinPool.commonPool()
+     */
+    public BatchRouteCalculator(ForkJoinPool pool) {
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Calculate routes for each (start, end) pair; result i belongs to pair i
+     */
+    public List<RouteResult> calculateRoutes(Collection<StationPair> pairs, RouteOptions options) {
+        StationPair[] input = pairs.toArray(new StationPair[0]);
+        RouteResult[] results = new RouteResult[input.length];
+        pool.invoke(new PairTask(input, results, options, 0, input.length));
+        return Arrays.asList(results);
+    }
+
+    public List<RouteResult> calculateRoutes(Collection<StationPair> pairs) {
+        return calculateRoutes(pairs, RouteOptions.DEFAULT);
+    }
+
+    /**
+     * Calculate every origin x destination route
+     * Row i holds the routes from origin i, column j the routes to destination j
+     */
+    public List<List<RouteResult>> calculateMatrix(List<String> origins, List<String> destinations,
+                                                   RouteOptions options) {
+        String[] from = origins.toArray(new String[0]);
+        String[] to = destinations.toArray(new String[0]);
+        RouteResult[] cells = new RouteResult[from.length * to.length];
+        pool.invoke(new MatrixTask(from, to, cells, options, 0, cells.length));
+
+        List<List<RouteResult>> rows = new ArrayList<>(from.length);
+        for (int i = 0; i < from.length; i++) {
+            rows.add(Arrays.asList(cells).subList(i * to.length, (i + 1) * to.length));
+        }
+        return rows;
+    }
+
+    public List<List<RouteResult>> calculateMatrix(List<String> origins, List<String> destinations) {
+        return calculateMatrix(origins, destinations, RouteOptions.DEFAULT);
+    }
+
+    /**
+     * Release the pool if this calculator created it
+     */
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Origin / destination pair for batch queries
+     */
+    public static final class StationPair {
+        private final String startStation;
+        private final String endStation;
+
+        public StationPair(String startStation, String endStation) {
+            this.startStation = startStation;
+            this.endStation = endStation;
+        }
+
+        public String getStartStation() {
+            return startStation;
+        }
+
+        public String getEndStation() {
+            return endStation;
+        }
+    }
+
+    private static final class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final StationPair[] pairs;
+        private final RouteResult[] results;
+        private final RouteOptions options;
+        private final int from;
+        private final int to;
+
+        PairTask(StationPair[] pairs, RouteResult[] results, RouteOptions options, int from, int to) {
+            this.pairs = pairs;
+            this.results = results;
+            this.options = options;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    results[i] = RouteCalculator.calculateRoute(
+                            pairs[i].getStartStation(), pairs[i].getEndStation(), options);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PairTask(pairs, results, options, from, mid),
+                      new PairTask(pairs, results, options, mid, to));
+        }
+    }
+
+    private static final class MatrixTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] origins;
+        private final String[] destinations;
+        private final RouteResult[] cells;
+        private final RouteOptions options;
+        private final int from;
+        private final int to;
+
+        MatrixTask(String[] origins, String[] destinations, RouteResult[] cells, RouteOptions options,
+                   int from, int to) {
+            this.origins = origins;
+            this.destinations = destinations;
+            this.cells = cells;
+            this.options = options;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                int columns = destinations.length;
+                for (int i = from; i < to; i++) {
+                    cells[i] = RouteCalculator.calculateRoute(
+                            origins[i / columns], destinations[i % columns], options);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MatrixTask(origins, destinations, cells, options, from, mid),
+                      new MatrixTask(origins, destinations, cells, options, mid, to));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+
+import java.util.Arrays;
+
+/**
+ * Time-dependent routing over a Timetable (Connection Scan)
+ * Connections are scanned once in departure order from the requested time, so the answer is
+ * the earliest arrival with real waits for the first train and at every transfer.
+ */
+public final class ConnectionScanRouter {
+
+    /**
+     * Times before this belong to the previous service day (trains run past midnight)
+     */
+    public static final int SERVICE_DAY_START = 3 * 60;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+
+    private static volatile ConnectionScanRouter defaultRouter;
+
+    private final Timetable timetable;
+    private final ThreadLocal<Workspace> workspaces;
+
+    public ConnectionScanRouter(Timetable timetable) {
+        this.timetable = timetable;
+        this.workspaces = new ThreadLocal<Workspace>() {
+            @Override
+            protected Workspace initialValue() {
+                return new Workspace(ConnectionScanRouter.this.timetable);
+            }
+        };
+    }
+
+    /**
+     * Get the router for the default Timetable
+     */
+    public static ConnectionScanRouter getDefault() {
+        ConnectionScanRouter router = defaultRouter;
+        if (router == null) {
+            synchronized (ConnectionScanRouter.class) {
+                router = defaultRouter;
+                if (router == null) {
+                    router = new ConnectionScanRouter(Timetable.getDefault());
+                    defaultRouter = router;
+                }
+            }
+        }
+        return router;
+    }
+
+    public Timetable getTimetable() {
+        return timetable;
+    }
+
+    /**
+     * Earliest-arrival journey leaving the origin at or after the given minute of the day
+     * Returns null if the destination cannot be reached before the end of service
+     */
+    public Journey route(int origin, int destination, int departureMinute) {
+        if (origin == destination) {
+            return null;
+        }
+        int departure = departureMinute < SERVICE_DAY_START ? departureMinute + MINUTES_PER_DAY : departureMinute;
+
+        Workspace ws = workspaces.get();
+        ws.reset();
+        int[] arrival = ws.arrival;
+        int[] tripBoard = ws.tripBoard;
+        arrival[origin] = departure;
+
+        int count = timetable.getConnectionCount();
+        for (int c = timetable.firstDepartingAt(departure); c < count; c++) {
+            int time = timetable.getDepartureTime(c);
+            // Nothing departing later can arrive earlier
+            if (time >= arrival[destination]) break;
+
+            int trip = timetable.getTrip(c);
+            if (tripBoard[trip] == NONE) {
+                int from = timetable.getDepartureStation(c);
+                if (arrival[from] == INF) continue;
+                int ready = from == origin ? arrival[from] : arrival[from] + RaptorRouter.TRANSFER_MINUTES;
+                if (ready > time) continue;
+                tripBoard[trip] = c;
+                ws.boardedTrips[ws.boardedCount++] = trip;
+            }
+
+            int to = timetable.getArrivalStation(c);
+            if (timetable.getArrivalTime(c) < arrival[to]) {
+                arrival[to] = timetable.getArrivalTime(c);
+                ws.legBoard[to] = tripBoard[trip];
+                ws.legAlight[to] = c;
+            }
+        }
+
+        if (arrival[destination] == INF) {
+            return null;
+        }
+        return buildJourney(ws, origin, destination, departure);
+    }
+
+    private Journey buildJourney(Workspace ws, int origin, int destination, int departure) {
+        StationGraph graph = timetable.getGraph();
+
+        // Walk legs back from the destination; legs are stored last first
+        int legs = 0;
+        int hops = 0;
+        for (int station = destination; station != origin; ) {
+            int board = ws.legBoard[station];
+            ws.legBoards[legs] = board;
+            ws.legAlights[legs] = ws.legAlight[station];
+            hops += stopsBetween(board, ws.legAlight[station]);
+            legs++;
+            station = timetable.getDepartureStation(board);
+        }
+
+        int[] path = new int[hops + 1];
+        int[] legLines = new int[legs];
+        int[] transfers = new int[legs - 1];
+        int length = 0;
+        int directionStation = NONE;
+        for (int leg = legs - 1; leg >= 0; leg--) {
+            int board = ws.legBoards[leg];
+            int alight = ws.legAlights[leg];
+            int pattern = timetable.getTripPattern(timetable.getTrip(board));
+            int line = pattern >> 1;
+            boolean reverse = (pattern & 1) == 1;
+            int from = graph.getPosition(line, timetable.getDepartureStation(board));
+            int to = graph.getPosition(line, timetable.getArrivalStation(alight));
+            int step = reverse ? -1 : 1;
+            for (int pos = (length == 0 ? from : from + step); ; pos += step) {
+                path[length++] = graph.getStationAt(line, pos);
+                if (pos == to) break;
+            }
+            legLines[legs - 1 - leg] = line;
+            if (leg > 0) {
+                transfers[legs - 1 - leg] = timetable.getArrivalStation(alight);
+            }
+            directionStation = graph.getStationAt(line, reverse ? 0 : graph.getLineLength(line) - 1);
+        }
+
+        int firstDeparture = timetable.getDepartureTime(ws.legBoards[legs - 1]);
+        int arrivalTime = ws.arrival[destination];
+        return new Journey(path, legLines, transfers, directionStation, arrivalTime - departure,
+                FareEngine.forGraph(graph).getPathFare(path, path.length), firstDeparture, arrivalTime);
+    }
+
+    private int stopsBetween(int board, int alight) {
+        return (timetable.getArrivalTime(alight) - timetable.getDepartureTime(board)) / RaptorRouter.MINUTES_PER_STATION;
+    }
+
+    /**
+     * Per-thread labels, reused across queries; only boarded trips are cleared between queries
+     */
+    private static final class Workspace {
+        final int[] arrival;
+        final int[] legBoard;         // Connection where the trip reaching the station was boarded
+        final int[] legAlight;        // Connection that reached the station
+        final int[] tripBoard;
+        final int[] boardedTrips;
+        int boardedCount;
+        final int[] legBoards;
+        final int[] legAlights;
+
+        Workspace(Timetable timetable) {
+            int n = timetable.getGraph().getStationCount();
+            int trips = timetable.getTripCount();
+            this.arrival = new int[n];
+            this.legBoard = new int[n];
+            this.legAlight = new int[n];
+            this.tripBoard = new int[trips];
+            this.boardedTrips = new int[trips];
+            this.legBoards = new int[n];
+            this.legAlights = new int[n];
+            Arrays.fill(tripBoard, NONE);
+        }
+
+        void reset() {
+            Arrays.fill(arrival, INF);
+            for (int i = 0; i < boardedCount; i++) {
+                tripBoard[boardedTrips[i]] = NONE;
+            }
+            boardedCount = 0;
+        }
+    }
+}
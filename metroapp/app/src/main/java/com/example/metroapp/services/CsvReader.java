@@ -0,0 +1,222 @@
+package com.example.metroapp.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming RFC 4180 CSV reader with a header row, as used by GTFS
+ * Only the current record is held in memory. Fields are kept as character ranges and only
+ * turned into Strings when asked for, so skipping or comparing a column does not allocate.
+ */
+final class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // Current record: unquoted field contents back to back
+    private char[] record = new char[256];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private long recordNumber;
+
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    CsvReader(Reader in) throws IOException {
+        this.in = in;
+        if (next()) {
+            for (int i = 0; i < fieldCount; i++) {
+                String name = get(i).trim();
+                // Many feeds are written with a UTF-8 byte order mark
+                if (i == 0 && !name.isEmpty() && name.charAt(0) == '\uFEFF') {
+                    name = name.substring(1);
+                }
+                columns.put(name, i);
+            }
+        }
+        recordNumber = 0;
+    }
+
+    /**
+     * Index of a header column, or -1 if the file does not have it
+     */
+    int column(String name) {
+        Integer index = columns.get(name);
+        return index != null ? index : -1;
+    }
+
+    int requireColumn(String name) throws IOException {
+        int index = column(name);
+        if (index < 0) {
+            throw new IOException("Missing column " + name);
+        }
+        return index;
+    }
+
+    /**
+     * One-based number of the current data record, for error messages
+     */
+    long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Advance to the next non-empty record; returns false at end of input
+     */
+    boolean next() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            if (readRecord()) {
+                recordNumber++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Field as a String; missing trailing fields read as ""
+     */
+    String get(int column) {
+        if (column < 0 || column >= fieldCount) return "";
+        return new String(record, starts[column], ends[column] - starts[column]);
+    }
+
+    boolean isEmpty(int column) {
+        return column < 0 || column >= fieldCount || starts[column] == ends[column];
+    }
+
+    /**
+     * Compare a field with a value without allocating
+     */
+    boolean fieldEquals(int column, String value) {
+        if (value == null || column < 0 || column >= fieldCount) return false;
+        int start = starts[column];
+        int length = ends[column] - start;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (record[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Field as a non-negative decimal integer, or defaultValue if it is empty
+     */
+    int getInt(int column, int defaultValue) throws IOException {
+        if (isEmpty(column)) return defaultValue;
+        int value = 0;
+        for (int i = starts[column]; i < ends[column]; i++) {
+            char c = record[i];
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - 9) / 10) {
+                throw new IOException("Record " + recordNumber + ": not an integer: " + get(column));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    double getDouble(int column, double defaultValue) throws IOException {
+        if (isEmpty(column)) return defaultValue;
+        try {
+            return Double.parseDouble(get(column));
+        } catch (NumberFormatException e) {
+            throw new IOException("Record " + recordNumber + ": not a number: " + get(column));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Parse one record starting at the current position; returns false for a blank line
+     */
+    private boolean readRecord() throws IOException {
+        fieldCount = 0;
+        int length = 0;
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int fieldStart = 0;
+
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position++];
+            if (inQuotes) {
+                if (c == '"') {
+                    if (position == limit && !fill()) {
+                        inQuotes = false;
+                        continue;
+                    }
+                    if (buffer[position] == '"') {
+                        position++;
+                    } else {
+                        inQuotes = false;
+                        continue;
+                    }
+                }
+            } else if (c == ',') {
+                addField(fieldStart, length);
+                fieldStart = length;
+                quoted = false;
+                continue;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && (position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                if (fieldCount == 0 && length == 0 && !quoted) {
+                    return false;
+                }
+                break;
+            } else if (c == '"' && length == fieldStart && !quoted) {
+                quoted = true;
+                inQuotes = true;
+                continue;
+            }
+            if (length == record.length) {
+                char[] grown = new char[record.length * 2];
+                System.arraycopy(record, 0, grown, 0, length);
+                record = grown;
+            }
+            record[length++] = c;
+        }
+        addField(fieldStart, length);
+        return true;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            int[] grownStarts = new int[starts.length * 2];
+            int[] grownEnds = new int[ends.length * 2];
+            System.arraycopy(starts, 0, grownStarts, 0, fieldCount);
+            System.arraycopy(ends, 0, grownEnds, 0, fieldCount);
+            starts = grownStarts;
+            ends = grownEnds;
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private boolean fill() throws IOException {
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+}
@@ -0,0 +1,421 @@
+package com.example.metroapp.services;
+
+import android.content.Context;
+
+import com.example.metroapp.data.FareTable;
+import com.example.metroapp.data.MetroLine;
+import com.example.metroapp.data.StationGraph;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Prices journeys with the fare table version in effect on a given day
+ * Each version is compiled against the StationGraph once (zones and segments by station id),
+ * and keeps a station-to-station fare matrix whose rows are allocated on an origin's first price
+ * and whose pairs are priced from the default route on first use, so a repeated ticket price is
+ * an array lookup and pricing never routes to stations nobody asked about. Fare tables are data: a fares.json downloaded into
+ * the app's files directory wins over the one bundled in assets, and the built-in 2024 tiers
+ * apply until either is installed.
+ */
+public final class FareEngine {
+
+    public static final String FARES_NAME = "fares.json";
+
+    /**
+     * Fare of a station pair with no route between them
+     */
+    public static final int NO_FARE = -1;
+
+    // Matrix entry of a pair that has not been priced yet
+    private static final int UNPRICED = Integer.MIN_VALUE;
+
+    private static final TimeZone CAIRO = TimeZone.getTimeZone("Africa/Cairo");
+
+    private static volatile List<FareTable> installedTables;
+    private static volatile FareEngine defaultEngine;
+    private static volatile FareEngine otherEngine;
+    private static volatile Day today;
+
+    private final StationGraph graph;
+    private final List<FareTable> tables;
+    private final Version[] versions;
+    private volatile RaptorRouter router;
+
+    public FareEngine(StationGraph graph, List<FareTable> tables) {
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("No fare tables");
+        }
+        this.graph = graph;
+        this.tables = tables;
+        this.versions = new Version[tables.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = new Version(graph, tables.get(i));
+        }
+    }
+
+    /**
+     * Get the engine for the default StationGraph and the installed fare tables
+     */
+    public static FareEngine getDefault() {
+        FareEngine engine = defaultEngine;
+        if (engine == null) {
+            synchronized (FareEngine.class) {
+                engine = defaultEngine;
+                if (engine == null) {
+                    engine = new FareEngine(StationGraph.getDefault(), getInstalledTables());
+                    defaultEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Get an engine for any graph; the default graph shares the default engine
+     */
+    public static FareEngine forGraph(StationGraph graph) {
+        FareEngine engine = getDefault();
+        if (engine.graph == graph) {
+            return engine;
+        }
+        // Other graphs are rare (imports, tests), so only the last one is kept
+        engine = otherEngine;
+        List<FareTable> tables = getInstalledTables();
+        if (engine == null || engine.graph != graph || engine.tables != tables) {
+            engine = new FareEngine(graph, tables);
+            otherEngine = engine;
+        }
+        return engine;
+    }
+
+    /**
+     * Fare versions used by new engines: the installed ones, else the built-in tiers
+     */
+    public static List<FareTable> getInstalledTables() {
+        List<FareTable> tables = installedTables;
+        if (tables == null) {
+            synchronized (FareEngine.class) {
+                tables = installedTables;
+                if (tables == null) {
+                    tables = Collections.singletonList(FareTable.builtIn());
+                    installedTables = tables;
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Replace the fare versions; engines created from now on use them
+     */
+    public static synchronized void setInstalledTables(List<FareTable> tables) {
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("No fare tables");
+        }
+        installedTables = tables;
+        defaultEngine = null;
+        otherEngine = null;
+    }
+
+    /**
+     * Install the newest valid fare file: the downloaded one if present, else the bundled asset
+     * Keeps the current tables if neither can be read. Returns true if a file was installed.
+     */
+    public static boolean install(Context context) {
+        Context app = context.getApplicationContext();
+        File downloaded = new File(app.getFilesDir(), FARES_NAME);
+        if (downloaded.isFile()) {
+            try (InputStream in = new FileInputStream(downloaded)) {
+                setInstalledTables(read(in));
+                return true;
+            } catch (IOException e) {
+                // A bad download must not break pricing; the bundled file still works
+            }
+        }
+        try (InputStream in = app.getAssets().open(FARES_NAME)) {
+            setInstalledTables(read(in));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public StationGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Version in effect on a yyyyMMdd date; dates before the first version use the first one
+     */
+    public FareTable getTable(int date) {
+        return tables.get(versionIndex(date));
+    }
+
+    public FareTable getCurrentTable() {
+        return getTable(today());
+    }
+
+    /**
+     * Full fare between two station ids today, or NO_FARE if there is no route
+     */
+    public int getFare(int from, int to) {
+        return versions[versionIndex(today())].getFare(this, from, to);
+    }
+
+    /**
+     * Fare between two station ids for a concession category (null for full fare) on a yyyyMMdd date
+     */
+    public int getFare(int from, int to, String concessionId, int date) {
+        Version version = versions[versionIndex(date)];
+        int fare = version.getFare(this, from, to);
+        if (concessionId == null || fare == NO_FARE) {
+            return fare;
+        }
+        FareTable.Concession concession = version.table.getConcession(concessionId);
+        if (concession == null) {
+            throw new IllegalArgumentException("Fare version " + version.table.getId()
+                    + " has no concession " + concessionId);
+        }
+        return concession.apply(fare);
+    }
+
+    /**
+     * Full fare of one particular path today, used to compare alternative journeys
+     */
+    public int getPathFare(int[] path, int length) {
+        return versions[versionIndex(today())].getPathFare(graph, path, length);
+    }
+
+    /**
+     * Today's date in Cairo as yyyyMMdd
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        Day day = today;
+        if (day == null || now < day.start || now >= day.end) {
+            day = new Day(now);
+            today = day;
+        }
+        return day.date;
+    }
+
+    /**
+     * Version in effect today, for searches that price journeys stop by stop
+     */
+    Version getCurrentVersion() {
+        return versions[versionIndex(today())];
+    }
+
+    static List<FareTable> read(InputStream in) throws IOException {
+        Reader reader = new InputStreamReader(in, "UTF-8");
+        return FareTable.parse(reader);
+    }
+
+    private int versionIndex(int date) {
+        int index = 0;
+        while (index + 1 < versions.length && versions[index + 1].table.getEffectiveFrom() <= date) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Default route between two stations, the route every version prices a station pair by
+     */
+    private Journey defaultJourney(int from, int to) {
+        RaptorRouter defaultRouter = RaptorRouter.getDefault();
+        if (defaultRouter.getGraph() == graph) {
+            return RouteTable.getInstance().getJourney(from, to);
+        }
+        RaptorRouter own = router;
+        if (own == null) {
+            own = new RaptorRouter(graph);
+            router = own;
+        }
+        return own.route(from, to, RouteOptions.DEFAULT);
+    }
+
+    /**
+     * One fare table compiled against a graph, with its lazily filled fare matrix
+     * A path's fare is fare(units, segments) over the units and surcharged segments of its hops,
+     * and never goes down as hops are added, so routers can price a journey as they extend it.
+     */
+    static final class Version {
+        final FareTable table;
+        final int[] zones;
+        final int[] segmentLines;
+        final int[] segmentLow;
+        final int[] segmentHigh;
+        final int[] segmentSurcharges;
+        final AtomicReferenceArray<int[]> rows;
+
+        Version(StationGraph graph, FareTable table) {
+            this.table = table;
+            int n = graph.getStationCount();
+            this.rows = new AtomicReferenceArray<>(n);
+
+            if (table.isZoneBased()) {
+                zones = new int[n];
+                for (int station = 0; station < n; station++) {
+                    zones[station] = table.getZone(graph.getName(station));
+                }
+            } else {
+                zones = null;
+            }
+
+            // Segments on lines or stations this graph does not have simply never apply
+            List<int[]> resolved = new ArrayList<>();
+            for (FareTable.Segment segment : table.getSegments()) {
+                int from = graph.indexOf(segment.getFrom());
+                int to = graph.indexOf(segment.getTo());
+                for (int line = 0; line < graph.getLineCount(); line++) {
+                    MetroLine metroLine = graph.getMetroLine(line);
+                    if (from < 0 || to < 0 || metroLine == null || metroLine.getLineNumber() != segment.getLine()) {
+                        continue;
+                    }
+                    int a = graph.getPosition(line, from);
+                    int b = graph.getPosition(line, to);
+                    if (a != StationGraph.NO_POSITION && b != StationGraph.NO_POSITION) {
+                        resolved.add(new int[]{line, Math.min(a, b), Math.max(a, b), segment.getSurcharge()});
+                    }
+                }
+            }
+            if (resolved.size() > FareTable.MAX_SEGMENTS) {
+                throw new IllegalArgumentException("Fare version " + table.getId() + " has more than "
+                        + FareTable.MAX_SEGMENTS + " surcharged segments on this graph");
+            }
+            segmentLines = new int[resolved.size()];
+            segmentLow = new int[resolved.size()];
+            segmentHigh = new int[resolved.size()];
+            segmentSurcharges = new int[resolved.size()];
+            for (int i = 0; i < resolved.size(); i++) {
+                segmentLines[i] = resolved.get(i)[0];
+                segmentLow[i] = resolved.get(i)[1];
+                segmentHigh[i] = resolved.get(i)[2];
+                segmentSurcharges[i] = resolved.get(i)[3];
+            }
+        }
+
+        int getFare(FareEngine engine, int from, int to) {
+            int[] row = rows.get(from);
+            if (row == null) {
+                int[] empty = new int[rows.length()];
+                Arrays.fill(empty, UNPRICED);
+                rows.compareAndSet(from, null, empty);
+                row = rows.get(from);
+            }
+            int fare = row[to];
+            if (fare == UNPRICED) {
+                // Racing threads at worst price the same pair twice
+                fare = priceDefault(engine, from, to);
+                row[to] = fare;
+            }
+            return fare;
+        }
+
+        private int priceDefault(FareEngine engine, int from, int to) {
+            if (from == to) {
+                return 0;
+            }
+            Journey journey = engine.defaultJourney(from, to);
+            if (journey == null) {
+                return NO_FARE;
+            }
+            int[] path = new int[journey.getStationCount() + 1];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = journey.getStation(i);
+            }
+            return getPathFare(engine.graph, path, path.length);
+        }
+
+        int getPathFare(StationGraph graph, int[] path, int length) {
+            int units = startUnits();
+            long segments = 0;
+            for (int i = 1; i < length; i++) {
+                units += hopUnits(path[i - 1], path[i]);
+                segments |= hopSegments(graph, path[i - 1], path[i]);
+            }
+            return fare(units, segments);
+        }
+
+        /**
+         * Units of a journey that has not left its first station yet
+         */
+        int startUnits() {
+            return zones != null ? 1 : 0;
+        }
+
+        /**
+         * Units added by riding from station a to the next station b
+         */
+        int hopUnits(int a, int b) {
+            if (zones != null) {
+                return zones[a] != zones[b] ? 1 : 0;
+            }
+            return 1;
+        }
+
+        /**
+         * Surcharged segments the hop from a to b rides, one bit per segment
+         */
+        long hopSegments(StationGraph graph, int a, int b) {
+            long segments = 0;
+            for (int s = 0; s < segmentLines.length; s++) {
+                int line = segmentLines[s];
+                int p = graph.getPosition(line, a);
+                int q = graph.getPosition(line, b);
+                if (p != StationGraph.NO_POSITION && q != StationGraph.NO_POSITION && Math.abs(p - q) == 1
+                        && Math.min(p, q) >= segmentLow[s] && Math.max(p, q) <= segmentHigh[s]) {
+                    segments |= 1L << s;
+                }
+            }
+            return segments;
+        }
+
+        /**
+         * Tier fare for the units plus each surcharged segment ridden, charged once
+         */
+        int fare(int units, long segments) {
+            int fare = table.getTierFare(units);
+            for (int s = 0; s < segmentSurcharges.length; s++) {
+                if ((segments & 1L << s) != 0) fare += segmentSurcharges[s];
+            }
+            return fare;
+        }
+    }
+
+    /**
+     * Calendar day in Cairo, cached so pricing does not build a Calendar per query
+     */
+    private static final class Day {
+        final int date;
+        final long start;
+        final long end;
+
+        Day(long now) {
+            Calendar calendar = Calendar.getInstance(CAIRO);
+            calendar.setTimeInMillis(now);
+            date = calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100
+                    + calendar.get(Calendar.DAY_OF_MONTH);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            start = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            end = calendar.getTimeInMillis();
+        }
+    }
+}
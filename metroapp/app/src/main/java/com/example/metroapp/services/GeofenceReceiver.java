@@ -0,0 +1,50 @@
+package com.example.metroapp.services;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.WorkManager;
+
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofencingEvent;
+
+/**
+ * Woken by the OS when the passenger enters an alert fence
+ * A receiver only has a few seconds, so the alert itself is left to ArrivalAlertWorker.
+ */
+public class GeofenceReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        GeofencingEvent event = GeofencingEvent.fromIntent(intent);
+        if (event == null || event.hasError()
+                || event.getGeofenceTransition() != Geofence.GEOFENCE_TRANSITION_ENTER) {
+            return;
+        }
+
+        // Fence ids repeat from route to route, so work is named after the armed route as well
+        String routeId = ArrivalAlerts.getRouteId(context);
+        if (routeId == null) {
+            return;
+        }
+        WorkManager workManager = WorkManager.getInstance(context);
+        for (Geofence geofence : event.getTriggeringGeofences()) {
+            String requestId = geofence.getRequestId();
+            OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(ArrivalAlertWorker.class)
+                    .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+                    .setInputData(new Data.Builder()
+                            .putString(ArrivalAlertWorker.KEY_ROUTE_ID, routeId)
+                            .putString(ArrivalAlertWorker.KEY_REQUEST_ID, requestId)
+                            .build())
+                    .build();
+            // KEEP only merges a second firing while the first is still pending; once the work
+            // has run, ArrivalAlerts remembers the alert so the worker does not post it again
+            workManager.enqueueUniqueWork(routeId + "/" + requestId, ExistingWorkPolicy.KEEP, work);
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.MetroNetwork;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds a MetroNetwork from a GTFS feed (a directory or .zip with stops.txt, routes.txt,
+ * trips.txt and stop_times.txt)
+ *
+ * stop_times.txt, by far the largest file, is streamed one row at a time: rows are grouped
+ * into trips on the fly and each finished trip only updates the longest stop pattern seen for
+ * its route, so memory grows with the number of stops and trips, never with the number of
+ * rows. Stop ids are interned to ints up front, platforms and boarding areas collapse into
+ * their parent station, and every route becomes one line along its longest pattern; a pattern
+ * that comes back to a station, e.g. a loop, is split into several lines there. Line numbers are
+ * the digits of route_short_name; routes without digits, or whose digits an earlier route took,
+ * get the lowest free numbers, so every line number is unique.
+ * The result feeds StationGraph.fromNetwork() or NetworkSnapshot.write() like any network.
+ */
+public final class GtfsImporter {
+
+    /**
+     * GTFS route_type of subway and metro lines
+     */
+    public static final int ROUTE_TYPE_SUBWAY = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_LINE_COLOR = 0xFF9E9E9E;
+    private static final int NONE = -1;
+
+    private final int[] routeTypes;
+
+    // Stops, indexed by interned stop id
+    private final Map<String, Integer> stopIds = new HashMap<>();
+    private final List<String> stopNames = new ArrayList<>();
+    private final List<String> stopKeys = new ArrayList<>();
+    private double[] stopLatitudes = new double[64];
+    private double[] stopLongitudes = new double[64];
+    private int[] stationOfStop;
+
+    // Routes kept by the route type filter
+    private final Map<String, Integer> routeIds = new HashMap<>();
+    private final List<String> routeShortNames = new ArrayList<>();
+    private final List<Integer> routeColors = new ArrayList<>();
+    private final List<int[]> routePatterns = new ArrayList<>();
+
+    // Trips of kept routes
+    private final Map<String, Integer> tripIds = new HashMap<>();
+    private int[] tripRoutes = new int[1024];
+    private boolean[] tripReversed = new boolean[1024];
+
+    private GtfsImporter(int[] routeTypes) {
+        this.routeTypes = routeTypes.clone();
+    }
+
+    /**
+     * Import a feed from a directory or a .zip file
+     *
+     * @param routeTypes route_type values to import, e.g. ROUTE_TYPE_SUBWAY; none imports every route
+     */
+    public static MetroNetwork importFeed(File feed, int... routeTypes) throws IOException {
+        GtfsImporter importer = new GtfsImporter(routeTypes);
+        if (feed.isDirectory()) {
+            return importer.importFrom(new DirectorySource(feed));
+        }
+        try (ZipFile zip = new ZipFile(feed)) {
+            return importer.importFrom(new ZipSource(zip));
+        }
+    }
+
+    private MetroNetwork importFrom(Source source) throws IOException {
+        readStops(source);
+        readRoutes(source);
+        readTrips(source);
+        readStopTimes(source);
+        return buildNetwork();
+    }
+
+    // stops.txt
+
+    private void readStops(Source source) throws IOException {
+        List<String> parents = new ArrayList<>();
+        List<Integer> locationTypes = new ArrayList<>();
+        try (CsvReader csv = source.open("stops.txt")) {
+            int idColumn = csv.requireColumn("stop_id");
+            int nameColumn = csv.requireColumn("stop_name");
+            int latColumn = csv.requireColumn("stop_lat");
+            int lonColumn = csv.requireColumn("stop_lon");
+            int typeColumn = csv.column("location_type");
+            int parentColumn = csv.column("parent_station");
+            while (csv.next()) {
+                String id = csv.get(idColumn);
+                int stop = stopNames.size();
+                if (stopIds.put(id, stop) != null) {
+                    throw new IOException("stops.txt: duplicate stop_id " + id);
+                }
+                if (stop == stopLatitudes.length) {
+                    stopLatitudes = Arrays.copyOf(stopLatitudes, stop * 2);
+                    stopLongitudes = Arrays.copyOf(stopLongitudes, stop * 2);
+                }
+                stopKeys.add(id);
+                stopNames.add(csv.get(nameColumn).trim());
+                stopLatitudes[stop] = csv.getDouble(latColumn, Double.NaN);
+                stopLongitudes[stop] = csv.getDouble(lonColumn, Double.NaN);
+                locationTypes.add(csv.getInt(typeColumn, 0));
+                parents.add(csv.isEmpty(parentColumn) ? null : csv.get(parentColumn));
+            }
+        }
+
+        // Follow parent_station up to the station: boarding area -> platform -> station
+        int count = stopNames.size();
+        stationOfStop = new int[count];
+        for (int stop = 0; stop < count; stop++) {
+            int station = stop;
+            for (int depth = 0; depth < 3 && locationTypes.get(station) != 1; depth++) {
+                String parent = parents.get(station);
+                Integer parentStop = parent != null ? stopIds.get(parent) : null;
+                if (parentStop == null) break;
+                station = parentStop;
+            }
+            stationOfStop[stop] = station;
+        }
+    }
+
+    // routes.txt
+
+    private void readRoutes(Source source) throws IOException {
+        try (CsvReader csv = source.open("routes.txt")) {
+            int idColumn = csv.requireColumn("route_id");
+            int typeColumn = csv.requireColumn("route_type");
+            int shortNameColumn = csv.column("route_short_name");
+            int longNameColumn = csv.column("route_long_name");
+            int colorColumn = csv.column("route_color");
+            while (csv.next()) {
+                if (!acceptsRouteType(csv.getInt(typeColumn, NONE))) continue;
+                routeIds.put(csv.get(idColumn), routeShortNames.size());
+                routeShortNames.add(csv.isEmpty(shortNameColumn) ? csv.get(longNameColumn) : csv.get(shortNameColumn));
+                routeColors.add(parseColor(csv.get(colorColumn)));
+                routePatterns.add(null);
+            }
+        }
+    }
+
+    private boolean acceptsRouteType(int routeType) {
+        if (routeTypes.length == 0) return true;
+        for (int type : routeTypes) {
+            if (type == routeType) return true;
+        }
+        return false;
+    }
+
+    // trips.txt
+
+    private void readTrips(Source source) throws IOException {
+        try (CsvReader csv = source.open("trips.txt")) {
+            int routeColumn = csv.requireColumn("route_id");
+            int tripColumn = csv.requireColumn("trip_id");
+            int directionColumn = csv.column("direction_id");
+            while (csv.next()) {
+                Integer route = routeIds.get(csv.get(routeColumn));
+                if (route == null) continue;
+                int trip = tripIds.size();
+                if (tripIds.put(csv.get(tripColumn), trip) != null) {
+                    throw new IOException("trips.txt: duplicate trip_id " + csv.get(tripColumn));
+                }
+                if (trip == tripRoutes.length) {
+                    tripRoutes = Arrays.copyOf(tripRoutes, trip * 2);
+                    tripReversed = Arrays.copyOf(tripReversed, trip * 2);
+                }
+                tripRoutes[trip] = route;
+                // Store every pattern in direction 0 order
+                tripReversed[trip] = csv.getInt(directionColumn, 0) == 1;
+            }
+        }
+    }
+
+    // stop_times.txt
+
+    private void readStopTimes(Source source) throws IOException {
+        BitSet finished = new BitSet(tripIds.size());
+        int[] sequences = new int[64];
+        int[] stations = new int[64];
+        int length = 0;
+        String currentTrip = null;
+        int trip = NONE;
+
+        try (CsvReader csv = source.open("stop_times.txt")) {
+            int tripColumn = csv.requireColumn("trip_id");
+            int stopColumn = csv.requireColumn("stop_id");
+            int sequenceColumn = csv.requireColumn("stop_sequence");
+            while (csv.next()) {
+                // Rows of one trip are contiguous in practice; compare in place to find the boundary
+                if (!csv.fieldEquals(tripColumn, currentTrip)) {
+                    if (trip != NONE) {
+                        finishTrip(trip, sequences, stations, length);
+                        finished.set(trip);
+                    }
+                    currentTrip = csv.get(tripColumn);
+                    Integer id = tripIds.get(currentTrip);
+                    trip = id != null ? id : NONE;
+                    length = 0;
+                    if (trip != NONE && finished.get(trip)) {
+                        throw new IOException("stop_times.txt: rows of trip " + currentTrip
+                                + " are not contiguous (record " + csv.getRecordNumber() + ")");
+                    }
+                }
+                if (trip == NONE) continue; // A route filtered out by type
+
+                Integer stop = stopIds.get(csv.get(stopColumn));
+                if (stop == null) {
+                    throw new IOException("stop_times.txt: unknown stop_id " + csv.get(stopColumn)
+                            + " (record " + csv.getRecordNumber() + ")");
+                }
+                if (length == sequences.length) {
+                    sequences = Arrays.copyOf(sequences, length * 2);
+                    stations = Arrays.copyOf(stations, length * 2);
+                }
+                sequences[length] = csv.getInt(sequenceColumn, length);
+                stations[length] = stationOfStop[stop];
+                length++;
+            }
+        }
+        if (trip != NONE) {
+            finishTrip(trip, sequences, stations, length);
+        }
+    }
+
+    private void finishTrip(int trip, int[] sequences, int[] stations, int length) {
+        // Feeds are almost always sorted by stop_sequence already, so insertion sort is linear
+        for (int i = 1; i < length; i++) {
+            int sequence = sequences[i];
+            int station = stations[i];
+            int j = i - 1;
+            while (j >= 0 && sequences[j] > sequence) {
+                sequences[j + 1] = sequences[j];
+                stations[j + 1] = stations[j];
+                j--;
+            }
+            sequences[j + 1] = sequence;
+            stations[j + 1] = station;
+        }
+
+        // Consecutive stops at one station (e.g. arrival and departure platforms) are one call
+        int calls = 0;
+        for (int i = 0; i < length; i++) {
+            if (calls == 0 || stations[calls - 1] != stations[i]) {
+                stations[calls++] = stations[i];
+            }
+        }
+
+        int route = tripRoutes[trip];
+        int[] best = routePatterns.get(route);
+        if (calls >= 2 && (best == null || calls > best.length)) {
+            int[] pattern = Arrays.copyOf(stations, calls);
+            if (tripReversed[trip]) {
+                for (int i = 0, j = calls - 1; i < j; i++, j--) {
+                    int swap = pattern[i];
+                    pattern[i] = pattern[j];
+                    pattern[j] = swap;
+                }
+            }
+            routePatterns.set(route, pattern);
+        }
+    }
+
+    // Result
+
+    private MetroNetwork buildNetwork() throws IOException {
+        // Keep the stations some line serves, numbered in name order like the built-in network
+        int[] newId = new int[stopNames.size()];
+        Arrays.fill(newId, NONE);
+        List<Integer> used = new ArrayList<>();
+        for (int[] pattern : routePatterns) {
+            if (pattern == null) continue;
+            for (int station : pattern) {
+                if (newId[station] == NONE) {
+                    newId[station] = 0;
+                    used.add(station);
+                }
+            }
+        }
+        if (used.isEmpty()) {
+            throw new IOException("Feed has no trips on the selected route types");
+        }
+        Integer[] order = used.toArray(new Integer[0]);
+        Arrays.sort(order, (a, b) -> {
+            int byName = stopNames.get(a).compareTo(stopNames.get(b));
+            return byName != 0 ? byName : stopKeys.get(a).compareTo(stopKeys.get(b));
+        });
+
+        int n = order.length;
+        String[] names = new String[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            int stop = order[i];
+            if (Double.isNaN(stopLatitudes[stop]) || Double.isNaN(stopLongitudes[stop])) {
+                throw new IOException("stops.txt: station " + stopKeys.get(stop) + " has no coordinates");
+            }
+            newId[stop] = i;
+            names[i] = stopNames.get(stop);
+            latitudes[i] = stopLatitudes[stop];
+            longitudes[i] = stopLongitudes[stop];
+        }
+        // Names double as lookup keys, so distinct stations must not share one
+        for (int i = 1; i < n; i++) {
+            if (stopNames.get(order[i]).equals(stopNames.get(order[i - 1]))) {
+                names[i - 1] = stopNames.get(order[i - 1]) + " (" + stopKeys.get(order[i - 1]) + ")";
+                names[i] = stopNames.get(order[i]) + " (" + stopKeys.get(order[i]) + ")";
+            }
+        }
+
+        // Short name digits where they are unique, e.g. 1 for "M1"; the rest get the lowest free numbers
+        int[] routeNumbers = new int[routePatterns.size()];
+        Set<Integer> taken = new HashSet<>();
+        for (int route = 0; route < routePatterns.size(); route++) {
+            if (routePatterns.get(route) == null) continue;
+            int number = parseLineNumber(routeShortNames.get(route));
+            routeNumbers[route] = number > 0 && taken.add(number) ? number : NONE;
+        }
+        int nextFree = 1;
+
+        List<int[]> lines = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        for (int route = 0; route < routePatterns.size(); route++) {
+            int[] pattern = routePatterns.get(route);
+            if (pattern == null) continue;
+            int[] sequence = new int[pattern.length];
+            for (int pos = 0; pos < pattern.length; pos++) {
+                sequence[pos] = newId[pattern[pos]];
+            }
+            // Loops and lassos visit a station twice, which a line cannot: split them where they close
+            for (int[] segment : splitAtRepeats(sequence)) {
+                int number = routeNumbers[route];
+                routeNumbers[route] = NONE;
+                if (number == NONE) {
+                    while (taken.contains(nextFree)) nextFree++;
+                    number = nextFree;
+                    taken.add(number);
+                }
+                lines.add(segment);
+                numbers.add(number);
+                colors.add(routeColors.get(route));
+            }
+        }
+        return new ImportedNetwork(names, latitudes, longitudes, lines, numbers, colors);
+    }
+
+    /**
+     * Cut a stop sequence into runs without repeated stations, each starting where the last ended
+     * e.g. A B C D A becomes A B C D and D A
+     */
+    static List<int[]> splitAtRepeats(int[] sequence) {
+        List<int[]> segments = new ArrayList<>(1);
+        Set<Integer> seen = new HashSet<>();
+        int start = 0;
+        for (int pos = 0; pos < sequence.length; pos++) {
+            if (!seen.add(sequence[pos])) {
+                segments.add(Arrays.copyOfRange(sequence, start, pos));
+                start = pos - 1;
+                seen.clear();
+                seen.add(sequence[start]);
+                seen.add(sequence[pos]);
+            }
+        }
+        segments.add(Arrays.copyOfRange(sequence, start, sequence.length));
+        return segments;
+    }
+
+    /**
+     * First run of digits in the short name, e.g. 1 for "M1", or 0 when there is none
+     */
+    private static int parseLineNumber(String shortName) {
+        int number = 0;
+        boolean digits = false;
+        for (int i = 0; i < shortName.length() && number < 100000; i++) {
+            char c = shortName.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                digits = true;
+            } else if (digits) {
+                break;
+            }
+        }
+        return number;
+    }
+
+    private static int parseColor(String hex) {
+        if (hex.length() != 6) return DEFAULT_LINE_COLOR;
+        try {
+            return 0xFF000000 | Integer.parseInt(hex, 16);
+        } catch (NumberFormatException e) {
+            return DEFAULT_LINE_COLOR;
+        }
+    }
+
+    // Feed sources
+
+    private interface Source {
+        CsvReader open(String name) throws IOException;
+    }
+
+    private static final class DirectorySource implements Source {
+        private final File directory;
+
+        DirectorySource(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public CsvReader open(String name) throws IOException {
+            return reader(new FileInputStream(new File(directory, name)));
+        }
+    }
+
+    private static final class ZipSource implements Source {
+        private final ZipFile zip;
+
+        ZipSource(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        public CsvReader open(String name) throws IOException {
+            ZipEntry entry = zip.getEntry(name);
+            if (entry == null) {
+                throw new IOException("Feed has no " + name);
+            }
+            return reader(zip.getInputStream(entry));
+        }
+    }
+
+    private static CsvReader reader(InputStream in) throws IOException {
+        try {
+            return new CsvReader(new InputStreamReader(new BufferedInputStream(in, 1 << 16), UTF_8));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Imported stations and lines; ids follow station names
+     */
+    private static final class ImportedNetwork implements MetroNetwork {
+        private final String[] names;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int[][] lineStations;
+        private final int[] lineNumbers;
+        private final int[] lineColors;
+        private final boolean[] interchange;
+
+        ImportedNetwork(String[] names, double[] latitudes, double[] longitudes,
+                        List<int[]> lines, List<Integer> numbers, List<Integer> colors) {
+            this.names = names;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.lineStations = lines.toArray(new int[0][]);
+            this.lineNumbers = new int[lineStations.length];
+            this.lineColors = new int[lineStations.length];
+            int[] lineCount = new int[names.length];
+            for (int line = 0; line < lineStations.length; line++) {
+                lineNumbers[line] = numbers.get(line);
+                lineColors[line] = colors.get(line);
+                for (int station : lineStations[line]) {
+                    lineCount[station]++;
+                }
+            }
+            this.interchange = new boolean[names.length];
+            for (int i = 0; i < names.length; i++) {
+                interchange[i] = lineCount[i] > 1;
+            }
+        }
+
+        @Override
+        public int getStationCount() {
+            return names.length;
+        }
+
+        @Override
+        public String getStationName(int station) {
+            return names[station];
+        }
+
+        @Override
+        public double getLatitude(int station) {
+            return latitudes[station];
+        }
+
+        @Override
+        public double getLongitude(int station) {
+            return longitudes[station];
+        }
+
+        @Override
+        public boolean isInterchange(int station) {
+            return interchange[station];
+        }
+
+        @Override
+        public int getLineCount() {
+            return lineStations.length;
+        }
+
+        @Override
+        public int getLineNumber(int line) {
+            return lineNumbers[line];
+        }
+
+        @Override
+        public int getLineColor(int line) {
+            return lineColors[line];
+        }
+
+        @Override
+        public int getLineLength(int line) {
+            return lineStations[line].length;
+        }
+
+        @Override
+        public int getLineStation(int line, int position) {
+            return lineStations[line][position];
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One journey found by the routing engine, expressed in StationGraph ids
+ * Names are only looked up when the journey is turned into a RouteResult
+ */
+public final class Journey {
+
+    /**
+     * Departure and arrival time of journeys found without a timetable
+     */
+    public static final int NO_TIME = -1;
+
+    private final int[] stations;
+    private final int[] legLines;
+    private final int[] transferStations;
+    private final int directionStation;
+    private final int minutes;
+    private final int fare;
+    private final int departureTime;
+    private final int arrivalTime;
+
+    Journey(int[] stations, int[] legLines, int[] transferStations, int directionStation, int minutes, int fare) {
+        this(stations, legLines, transferStations, directionStation, minutes, fare, NO_TIME, NO_TIME);
+    }
+
+    Journey(int[] stations, int[] legLines, int[] transferStations, int directionStation, int minutes, int fare,
+            int departureTime, int arrivalTime) {
+        this.stations = stations;
+        this.legLines = legLines;
+        this.transferStations = transferStations;
+        this.directionStation = directionStation;
+        this.minutes = minutes;
+        this.fare = fare;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+    }
+
+    public int getStationCount() {
+        return stations.length - 1;
+    }
+
+    public int getStation(int i) {
+        return stations[i];
+    }
+
+    public int getLegCount() {
+        return legLines.length;
+    }
+
+    public int getLegLine(int leg) {
+        return legLines[leg];
+    }
+
+    public int getTransferCount() {
+        return transferStations.length;
+    }
+
+    public int getTransferStation(int i) {
+        return transferStations[i];
+    }
+
+    /**
+     * Terminal station in the direction of travel on the final leg
+     */
+    public int getDirectionStation() {
+        return directionStation;
+    }
+
+    /**
+     * Travel time including transfer penalties, or for timetable journeys the time from the
+     * requested departure to arrival, waits included
+     */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Fare of this exact path, for comparing alternatives; the ticket price is per station pair
+     */
+    public int getFare() {
+        return fare;
+    }
+
+    /**
+     * Minute of the service day the first train leaves, or NO_TIME
+     */
+    public int getDepartureTime() {
+        return departureTime;
+    }
+
+    /**
+     * Minute of the service day the last train arrives, or NO_TIME
+     */
+    public int getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public boolean isTimed() {
+        return arrivalTime != NO_TIME;
+    }
+
+    /**
+     * Materialize station names for display
+     */
+    public RouteResult toRouteResult(StationGraph graph) {
+        RouteResult result = new RouteResult();
+        result.setStations(graph.getNames(stations, stations.length));
+        List<String> transfers = new ArrayList<>(transferStations.length);
+        for (int station : transferStations) {
+            transfers.add(graph.getName(station));
+        }
+        result.setTransferStations(transfers);
+        result.setDirection(graph.getName(directionStation));
+        result.setStartLine(graph.getMetroLine(legLines[0]));
+        result.setEndLine(graph.getMetroLine(legLines[legLines.length - 1]));
+        // The ticket is priced by station pair, whichever way the passenger rides
+        result.setTicketPrice(FareEngine.forGraph(graph).getFare(stations[0], stations[stations.length - 1]));
+        if (isTimed()) {
+            result.setEstimatedMinutes(minutes);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.utils.GeoUtils;
+
+import java.util.List;
+
+/**
+ * Follows a passenger along one route from a stream of location fixes
+ *
+ * The next few stations of the route are checked against each fix first, and the rest of the route
+ * only when none of those is near, so a fix costs at most one distance computation per remaining
+ * station whatever the network size; progress only moves forward. A station counts as reached
+ * after CONFIRM_FIXES consecutive fixes inside its enter radius, and the train counts as departed
+ * only once it is beyond the larger exit radius, so GPS jitter on a platform cannot flip progress
+ * back and forth. Stations passed underground without a fix, however many, are skipped over when a
+ * later one is confirmed.
+ *
+ * After every fix the tracker also suggests how the next fixes should be sampled: precise and
+ * frequent only when approaching a station, coarse and sparse in between or while standing still.
+ */
+public final class JourneyTracker {
+
+    public enum Accuracy {
+        HIGH,
+        BALANCED,
+        LOW_POWER
+    }
+
+    static final double ENTER_RADIUS_METERS = 150;
+    static final double EXIT_RADIUS_METERS = 300;
+    static final double APPROACH_METERS = 600;
+    static final double MAX_ACCURACY_METERS = 1000;
+    static final int CONFIRM_FIXES = 2;
+    static final int LOOKAHEAD = 3;
+
+    static final long MIN_INTERVAL_MILLIS = 5_000;
+    static final long MAX_INTERVAL_MILLIS = 60_000;
+    static final long STANDING_INTERVAL_MILLIS = 30_000;
+    static final double STANDING_SPEED = 1.0;        // m/s
+
+    private final int[] stations;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] transfersAfter;              // Transfers still ahead once index i is reached
+
+    private int reached;
+    private boolean atStation = true;
+    private int candidate = -1;
+    private int candidateFixes;
+
+    private double speed = Double.NaN;
+    private double lastLatitude;
+    private double lastLongitude;
+    private long lastTime = -1;
+    private double distanceToNext = Double.NaN;
+
+    private long intervalMillis = MIN_INTERVAL_MILLIS;
+    private Accuracy accuracy = Accuracy.HIGH;
+
+    /**
+     * Track a route given as station names in travel order, with its transfer stations
+     */
+    public JourneyTracker(StationGraph graph, List<String> route, List<String> transferStations) {
+        if (route.size() < 2) {
+            throw new IllegalArgumentException("Route has fewer than 2 stations");
+        }
+        int n = route.size();
+        stations = new int[n];
+        latitudes = new double[n];
+        longitudes = new double[n];
+        transfersAfter = new int[n];
+        for (int i = 0; i < n; i++) {
+            int id = graph.indexOf(route.get(i));
+            if (id < 0) {
+                throw new IllegalArgumentException("Unknown station " + route.get(i));
+            }
+            stations[i] = id;
+            latitudes[i] = graph.getLatitude(id);
+            longitudes[i] = graph.getLongitude(id);
+        }
+        // Count transfers from the end; on reaching a transfer station the change is still ahead
+        int ahead = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            if (i > 0 && i < n - 1 && transferStations.contains(route.get(i))) {
+                ahead++;
+            }
+            transfersAfter[i] = ahead;
+        }
+    }
+
+    /**
+     * Feed one location fix; speed in m/s or NaN if unknown, accuracy in meters
+     * Returns true if the reached station changed.
+     */
+    public boolean onLocation(double latitude, double longitude, float accuracyMeters, double speedMps,
+                              long timeMillis) {
+        if (isFinished() || accuracyMeters > MAX_ACCURACY_METERS) {
+            return false;
+        }
+        updateSpeed(latitude, longitude, speedMps, timeMillis);
+
+        boolean changed = false;
+        double enterRadius = Math.max(ENTER_RADIUS_METERS, accuracyMeters);
+        int last = Math.min(stations.length - 1, reached + LOOKAHEAD);
+        int closest = -1;
+        double closestDistance = Double.MAX_VALUE;
+        for (int i = reached + 1; i <= last; i++) {
+            double d = GeoUtils.distanceMeters(latitude, longitude, latitudes[i], longitudes[i]);
+            if (d < closestDistance) {
+                closest = i;
+                closestDistance = d;
+            }
+        }
+        if (closestDistance > enterRadius) {
+            // Surfacing after a long stretch underground can put the passenger past the look-ahead
+            for (int i = last + 1; i < stations.length; i++) {
+                double d = GeoUtils.distanceMeters(latitude, longitude, latitudes[i], longitudes[i]);
+                if (d < closestDistance) {
+                    closest = i;
+                    closestDistance = d;
+                }
+            }
+        }
+
+        if (closest >= 0 && closestDistance <= enterRadius) {
+            candidateFixes = closest == candidate ? candidateFixes + 1 : 1;
+            candidate = closest;
+            if (candidateFixes >= CONFIRM_FIXES) {
+                reached = closest;
+                atStation = true;
+                candidate = -1;
+                candidateFixes = 0;
+                changed = true;
+            }
+        } else {
+            candidate = -1;
+            candidateFixes = 0;
+        }
+
+        if (atStation && !changed) {
+            double fromReached = GeoUtils.distanceMeters(latitude, longitude, latitudes[reached], longitudes[reached]);
+            if (fromReached > EXIT_RADIUS_METERS + accuracyMeters) {
+                atStation = false;
+            }
+        }
+
+        distanceToNext = isFinished() ? 0 : GeoUtils.distanceMeters(latitude, longitude,
+                latitudes[reached + 1], longitudes[reached + 1]);
+        plan();
+        return changed;
+    }
+
+    /**
+     * Index in the route of the last station reached; 0 is the origin
+     */
+    public int getReachedIndex() {
+        return reached;
+    }
+
+    public int getReachedStation() {
+        return stations[reached];
+    }
+
+    /**
+     * True while the passenger is still within the exit radius of the reached station
+     */
+    public boolean isAtStation() {
+        return atStation;
+    }
+
+    public boolean isFinished() {
+        return reached == stations.length - 1;
+    }
+
+    public int getRemainingStations() {
+        return stations.length - 1 - reached;
+    }
+
+    public int getRemainingTransfers() {
+        return transfersAfter[reached];
+    }
+
+    public int getRemainingMinutes() {
+        return getRemainingStations() * RaptorRouter.MINUTES_PER_STATION
+                + getRemainingTransfers() * RaptorRouter.TRANSFER_MINUTES;
+    }
+
+    /**
+     * Suggested time until the next fix, or 0 once the journey is finished and updates can stop
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public Accuracy getAccuracy() {
+        return accuracy;
+    }
+
+    private void updateSpeed(double latitude, double longitude, double speedMps, long timeMillis) {
+        double measured = speedMps;
+        if (Double.isNaN(measured) && lastTime >= 0 && timeMillis > lastTime) {
+            measured = GeoUtils.distanceMeters(lastLatitude, lastLongitude, latitude, longitude)
+                    * 1000.0 / (timeMillis - lastTime);
+        }
+        if (!Double.isNaN(measured)) {
+            // Smooth out single bad fixes; trains accelerate slowly compared to the sampling rate
+            speed = Double.isNaN(speed) ? measured : 0.5 * speed + 0.5 * measured;
+        }
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastTime = timeMillis;
+    }
+
+    private void plan() {
+        if (isFinished()) {
+            intervalMillis = 0;
+            accuracy = Accuracy.LOW_POWER;
+        } else if (distanceToNext <= APPROACH_METERS || candidate >= 0) {
+            // Confirming a station needs a few precise fixes in a row
+            intervalMillis = MIN_INTERVAL_MILLIS;
+            accuracy = Accuracy.HIGH;
+        } else if (Double.isNaN(speed) || speed < STANDING_SPEED) {
+            intervalMillis = STANDING_INTERVAL_MILLIS;
+            accuracy = Accuracy.LOW_POWER;
+        } else {
+            // Wake up about when the train gets close to the next station
+            long eta = (long) ((distanceToNext - APPROACH_METERS) / speed * 1000);
+            intervalMillis = quantize(Math.max(MIN_INTERVAL_MILLIS, Math.min(MAX_INTERVAL_MILLIS, eta / 2)));
+            accuracy = Accuracy.BALANCED;
+        }
+    }
+
+    /**
+     * Round down to whole 5 s steps so small speed changes do not re-register location updates
+     */
+    private static long quantize(long millis) {
+        return millis / MIN_INTERVAL_MILLIS * MIN_INTERVAL_MILLIS;
+    }
+}
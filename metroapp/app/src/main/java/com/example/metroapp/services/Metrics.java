@@ -0,0 +1,385 @@
+package com.example.metroapp.services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and latency histograms for the engine's hot paths
+ *
+ * Instruments are created once by name, typically into static final fields, and recording into
+ * them is a few atomic adds: no locks and no allocation. Histograms use fixed log-scale buckets
+ * over nanoseconds (four per power of two), so percentiles are exact to within one bucket, about
+ * 20%, down to the table lookups that take a fraction of a microsecond. Each histogram spreads
+ * its cells over stripes picked by thread, so threads recording at once rarely share a cache
+ * line, and a histogram on a path that is cheaper than the two clock reads can time only one
+ * call in every few. Nothing leaves the device; dumps go to a writer, a local file or logcat.
+ */
+public final class Metrics {
+
+    private static volatile Metrics defaultMetrics;
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Get the app-wide registry
+     */
+    public static Metrics getDefault() {
+        Metrics metrics = defaultMetrics;
+        if (metrics == null) {
+            synchronized (Metrics.class) {
+                metrics = defaultMetrics;
+                if (metrics == null) {
+                    metrics = new Metrics();
+                    defaultMetrics = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Get or create the counter with this name
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter(name);
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Get or create the latency histogram with this name
+     */
+    public Histogram histogram(String name) {
+        return histogram(name, 1);
+    }
+
+    /**
+     * Get or create a histogram that times one call in sampleEvery, rounded up to a power of two
+     * Time calls through startSample() and recordSince(); the first creation sets the rate.
+     */
+    public Histogram histogram(String name, int sampleEvery) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(name, sampleEvery);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Zero every instrument, e.g. before measuring one scenario
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Write every instrument as one line each, sorted by name
+     */
+    public void dump(Writer out) throws IOException {
+        for (Counter counter : new TreeMap<>(counters).values()) {
+            out.write(counter.toString());
+            out.write('\n');
+        }
+        for (Histogram histogram : new TreeMap<>(histograms).values()) {
+            out.write(histogram.toString());
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Replace the file with a dump of every instrument
+     */
+    public void dump(File file) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write("# metrics at " + System.currentTimeMillis() + "\n");
+            dump(out);
+        }
+    }
+
+    /**
+     * Current values by instrument name; counters map to their count, histograms to their summary
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new TreeMap<>();
+        for (Counter counter : counters.values()) {
+            snapshot.put(counter.name, Long.toString(counter.get()));
+        }
+        for (Histogram histogram : histograms.values()) {
+            snapshot.put(histogram.name, histogram.toString());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Monotonic count of events
+     */
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            count.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            count.addAndGet(delta);
+        }
+
+        public long get() {
+            return count.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        void reset() {
+            count.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return name + " count=" + count.get();
+        }
+    }
+
+    /**
+     * Latency distribution over fixed buckets; record() takes nanoseconds, e.g. from System.nanoTime()
+     */
+    public static final class Histogram {
+        /**
+         * Start reading of a call that is not being timed; recordSince() ignores it
+         */
+        public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+        // Values below LINEAR get a bucket each, then SUB_BUCKETS per power of two up to MAX_EXPONENT
+        private static final int LINEAR = 8;
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 46;       // 2^46 ns, about 19 hours
+        static final int BUCKETS = LINEAR + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+        // Per stripe: the buckets, then the sum, the max and the sampling tick, then a cache line of padding
+        private static final int STRIPES = 8;
+        private static final int SUM = BUCKETS;
+        private static final int MAX = BUCKETS + 1;
+        private static final int TICK = BUCKETS + 2;
+        private static final int STRIDE = BUCKETS + 3 + 8;
+
+        private final String name;
+        private final int sampleEvery;
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIDE);
+
+        Histogram(String name, int sampleEvery) {
+            if (sampleEvery < 1) {
+                throw new IllegalArgumentException("sampleEvery < 1: " + sampleEvery);
+            }
+            int rounded = 1;
+            while (rounded < sampleEvery) {
+                rounded <<= 1;
+            }
+            this.name = name;
+            this.sampleEvery = rounded;
+        }
+
+        /**
+         * Record one duration in nanoseconds; negative durations count as zero
+         */
+        public void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            int base = stripe() * STRIDE;
+            cells.incrementAndGet(base + bucketOf(nanos));
+            cells.addAndGet(base + SUM, nanos);
+            long max = cells.get(base + MAX);
+            while (nanos > max && !cells.compareAndSet(base + MAX, max, nanos)) {
+                max = cells.get(base + MAX);
+            }
+        }
+
+        /**
+         * Record the time since a System.nanoTime() reading or a startSample() result
+         */
+        public void recordSince(long startNanos) {
+            if (startNanos != NOT_SAMPLED) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * System.nanoTime() if this call is to be timed, else NOT_SAMPLED without reading the clock
+         */
+        public long startSample() {
+            if (sampleEvery > 1) {
+                // A plain per-stripe tick; a lost update only shifts which call gets timed
+                int index = stripe() * STRIDE + TICK;
+                long tick = cells.get(index);
+                cells.lazySet(index, tick + 1);
+                if ((tick & (sampleEvery - 1)) != 0) {
+                    return NOT_SAMPLED;
+                }
+            }
+            return System.nanoTime();
+        }
+
+        public int getSampleEvery() {
+            return sampleEvery;
+        }
+
+        /**
+         * Number of durations recorded; with sampling, about one in getSampleEvery() calls
+         */
+        public long getCount() {
+            long count = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    count += cells.get(stripe * STRIDE + i);
+                }
+            }
+            return count;
+        }
+
+        public long getMaxNanos() {
+            long max = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                max = Math.max(max, cells.get(stripe * STRIDE + MAX));
+            }
+            return max;
+        }
+
+        public long getMeanNanos() {
+            long sum = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                sum += cells.get(stripe * STRIDE + SUM);
+            }
+            long n = getCount();
+            return n == 0 ? 0 : sum / n;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile (0..1), capped at the largest value seen
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += cells.get(stripe * STRIDE + i);
+                }
+            }
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long max = getMaxNanos();
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getMaxMicros() {
+            return getMaxNanos() / 1000;
+        }
+
+        public long getMeanMicros() {
+            return getMeanNanos() / 1000;
+        }
+
+        public long getPercentileMicros(double quantile) {
+            return getPercentileNanos(quantile) / 1000;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        void reset() {
+            for (int i = 0; i < cells.length(); i++) {
+                cells.set(i, 0);
+            }
+        }
+
+        private static int stripe() {
+            // Thread.getId() is deprecated on JDK 19+ and threadId() is missing on Android
+            int hash = System.identityHashCode(Thread.currentThread());
+            return (hash ^ hash >>> 16) & (STRIPES - 1);
+        }
+
+        static int bucketOf(long nanos) {
+            if (nanos < LINEAR) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            if (exponent >= MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR + (exponent - 3) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * Largest value, in nanoseconds, that falls into a bucket
+         */
+        static long upperBound(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket;
+            }
+            int exponent = 3 + (bucket - LINEAR) / SUB_BUCKETS;
+            int sub = (bucket - LINEAR) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        @Override
+        public String toString() {
+            String summary = String.format(Locale.US, "%s count=%d mean=%s p50=%s p95=%s p99=%s max=%s",
+                    name, getCount(), format(getMeanNanos()), format(getPercentileNanos(0.50)),
+                    format(getPercentileNanos(0.95)), format(getPercentileNanos(0.99)), format(getMaxNanos()));
+            return sampleEvery > 1 ? summary + " sampled=1/" + sampleEvery : summary;
+        }
+
+        /**
+         * Whole microseconds, or nanoseconds below one microsecond
+         */
+        private static String format(long nanos) {
+            return nanos < 1000 ? nanos + "ns" : nanos / 1000 + "us";
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.metroapp.services;
+
+import android.content.Context;
+
+import com.example.metroapp.data.NetworkSnapshot;
+import com.example.metroapp.data.StationGraph;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Loads a downloaded metro network snapshot in place of the built-in tables
+ * Network changes can ship as a data file in the app's files directory; large snapshots are
+ * memory-mapped and neither is parsed. Without one the app keeps the network compiled in from
+ * network.json, whose graph wraps the generated arrays, so start-up does no network work at all.
+ */
+public final class NetworkLoader {
+
+    public static final String SNAPSHOT_NAME = "network.bin";
+
+    private NetworkLoader() {
+    }
+
+    /**
+     * Open the downloaded snapshot, or return null if there is none
+     */
+    public static NetworkSnapshot loadSnapshot(Context context) throws IOException {
+        File downloaded = new File(context.getFilesDir(), SNAPSHOT_NAME);
+        return downloaded.isFile() ? NetworkSnapshot.open(downloaded) : null;
+    }
+
+    /**
+     * Make the downloaded network the app-wide StationGraph
+     * Keeps the network compiled into the app if there is no snapshot or it cannot be read, since
+     * a bad download must not break the app; does nothing if the default graph is already in use.
+     * Returns true if the snapshot was installed.
+     */
+    public static boolean installDefault(Context context) {
+        NetworkSnapshot snapshot;
+        try {
+            snapshot = loadSnapshot(context.getApplicationContext());
+        } catch (IOException e) {
+            return false;
+        }
+        return snapshot != null && StationGraph.setDefault(StationGraph.fromNetwork(snapshot));
+    }
+}
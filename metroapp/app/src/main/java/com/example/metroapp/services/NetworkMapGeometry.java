@@ -0,0 +1,439 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed drawing data for the offline network map
+ *
+ * Station coordinates are projected once onto a local plane in meters, x east and y south, so a
+ * canvas matrix is all a view needs to pan and zoom. Everything a frame draws is prepared here
+ * per level of detail, coarsest first:
+ * - line geometry as segment buffers ready for Canvas.drawLines, simplified (Douglas-Peucker) to
+ *   well under a pixel at that level
+ * - station dots as point buffers; the coarsest level only has interchanges and terminals
+ * - the stations whose labels fit without overlapping, placed in priority order; every label of a
+ *   level is kept at finer levels, so zooming in never hides a label
+ * Taps are resolved through a StationSpatialIndex over the same coordinates.
+ */
+public final class NetworkMapGeometry {
+
+    public static final int NONE = -1;
+
+    /**
+     * Scale each level is prepared for, coarsest first; a level is used down to the next one's scale
+     */
+    static final float[] LEVEL_METERS_PER_PIXEL = {60f, 20f, 8f, 3f};
+
+    /**
+     * Gap between a station dot and its label, pixels
+     */
+    public static final float LABEL_OFFSET_PX = 8f;
+
+    // Space kept free around each label, pixels
+    static final float LABEL_PADDING_PX = 4f;
+
+    private final int stationCount;
+    private final double originLatitude;
+    private final double originLongitude;
+    private final double metersPerDegreeLatitude;
+    private final double metersPerDegreeLongitude;
+
+    private final float[] stationXY;              // x, y per station id
+    private final float[][][] lineSegments;       // [level][line] -> x0, y0, x1, y1, ...
+    private final float[][] stationPoints;        // [level] -> x, y per drawn dot
+    private final int[][] labels;                 // [level] -> station ids in drawing order
+    private final float minX;
+    private final float minY;
+    private final float maxX;
+    private final float maxY;
+    private final StationSpatialIndex index;
+
+    /**
+     * Build the map for a graph; does all the work up front, so call from a background thread
+     *
+     * @param labelWidths width in pixels of each station's label, by station id
+     * @param labelHeight height in pixels of one line of label text
+     */
+    public NetworkMapGeometry(StationGraph graph, float[] labelWidths, float labelHeight) {
+        int n = graph.getStationCount();
+        if (labelWidths.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " label widths, got " + labelWidths.length);
+        }
+        stationCount = n;
+
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        double latitudeSum = 0;
+        double longitudeSum = 0;
+        for (int station = 0; station < n; station++) {
+            latitudes[station] = graph.getLatitude(station);
+            longitudes[station] = graph.getLongitude(station);
+            latitudeSum += latitudes[station];
+            longitudeSum += longitudes[station];
+        }
+        originLatitude = n > 0 ? latitudeSum / n : 0;
+        originLongitude = n > 0 ? longitudeSum / n : 0;
+        metersPerDegreeLatitude = Math.toRadians(1) * GeoUtils.EARTH_RADIUS_METERS;
+        metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(originLatitude));
+        index = new StationSpatialIndex(latitudes, longitudes);
+
+        stationXY = new float[n * 2];
+        float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE, x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+        for (int station = 0; station < n; station++) {
+            float x = toX(longitudes[station]);
+            float y = toY(latitudes[station]);
+            stationXY[station * 2] = x;
+            stationXY[station * 2 + 1] = y;
+            x0 = Math.min(x0, x);
+            y0 = Math.min(y0, y);
+            x1 = Math.max(x1, x);
+            y1 = Math.max(y1, y);
+        }
+        minX = n > 0 ? x0 : 0;
+        minY = n > 0 ? y0 : 0;
+        maxX = n > 0 ? x1 : 0;
+        maxY = n > 0 ? y1 : 0;
+
+        int levels = LEVEL_METERS_PER_PIXEL.length;
+        lineSegments = new float[levels][][];
+        stationPoints = new float[levels][];
+        labels = new int[levels][];
+        int[] priority = labelPriority(graph);
+        int[] previous = new int[0];
+        for (int level = 0; level < levels; level++) {
+            float metersPerPixel = LEVEL_METERS_PER_PIXEL[level];
+            lineSegments[level] = buildSegments(graph, metersPerPixel / 2);
+            stationPoints[level] = buildPoints(graph, level == 0);
+            labels[level] = placeLabels(graph, level == 0, priority, previous, labelWidths, labelHeight,
+                    metersPerPixel);
+            previous = labels[level];
+        }
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public int getLevelCount() {
+        return LEVEL_METERS_PER_PIXEL.length;
+    }
+
+    /**
+     * Scale a level is prepared for, in map meters per pixel
+     */
+    public float getMetersPerPixel(int level) {
+        return LEVEL_METERS_PER_PIXEL[level];
+    }
+
+    /**
+     * Level of detail to draw at a scale
+     */
+    public int levelFor(float metersPerPixel) {
+        int level = 0;
+        while (level + 1 < LEVEL_METERS_PER_PIXEL.length && metersPerPixel <= LEVEL_METERS_PER_PIXEL[level + 1]) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Segments of one line at a level, as x0, y0, x1, y1 pairs for Canvas.drawLines
+     */
+    public float[] getLineSegments(int level, int line) {
+        return lineSegments[level][line];
+    }
+
+    public int getLineCount() {
+        return lineSegments[0].length;
+    }
+
+    /**
+     * Dots drawn at a level, as x, y pairs for Canvas.drawPoints
+     */
+    public float[] getStationPoints(int level) {
+        return stationPoints[level];
+    }
+
+    /**
+     * Stations labelled at a level, most important first
+     */
+    public int[] getLabels(int level) {
+        return labels[level];
+    }
+
+    /**
+     * Map coordinates of every station, x, y by station id; do not modify
+     */
+    public float[] getStationXY() {
+        return stationXY;
+    }
+
+    public float getX(int station) {
+        return stationXY[station * 2];
+    }
+
+    public float getY(int station) {
+        return stationXY[station * 2 + 1];
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    public float toX(double longitude) {
+        return (float) ((longitude - originLongitude) * metersPerDegreeLongitude);
+    }
+
+    public float toY(double latitude) {
+        return (float) ((originLatitude - latitude) * metersPerDegreeLatitude);
+    }
+
+    public double toLatitude(float y) {
+        return originLatitude - y / metersPerDegreeLatitude;
+    }
+
+    public double toLongitude(float x) {
+        return originLongitude + x / metersPerDegreeLongitude;
+    }
+
+    /**
+     * Station nearest to a map point if it is within radiusMeters, else NONE
+     */
+    public int hitTest(float x, float y, float radiusMeters) {
+        double latitude = toLatitude(y);
+        double longitude = toLongitude(x);
+        int station = index.nearest(latitude, longitude);
+        if (station == StationSpatialIndex.NONE || index.distanceMeters(station, latitude, longitude) > radiusMeters) {
+            return NONE;
+        }
+        return station;
+    }
+
+    private float[][] buildSegments(StationGraph graph, float tolerance) {
+        float[][] segments = new float[graph.getLineCount()][];
+        for (int line = 0; line < graph.getLineCount(); line++) {
+            int length = graph.getLineLength(line);
+            float[] xs = new float[length];
+            float[] ys = new float[length];
+            for (int pos = 0; pos < length; pos++) {
+                int station = graph.getStationAt(line, pos);
+                xs[pos] = getX(station);
+                ys[pos] = getY(station);
+            }
+            boolean[] keep = new boolean[length];
+            if (length > 0) {
+                keep[0] = true;
+                keep[length - 1] = true;
+                simplify(xs, ys, 0, length - 1, tolerance * tolerance, keep);
+            }
+            int kept = 0;
+            for (boolean k : keep) {
+                if (k) kept++;
+            }
+            float[] buffer = new float[Math.max(0, kept - 1) * 4];
+            int out = 0;
+            int last = -1;
+            for (int pos = 0; pos < length; pos++) {
+                if (!keep[pos]) continue;
+                if (last >= 0) {
+                    buffer[out++] = xs[last];
+                    buffer[out++] = ys[last];
+                    buffer[out++] = xs[pos];
+                    buffer[out++] = ys[pos];
+                }
+                last = pos;
+            }
+            segments[line] = buffer;
+        }
+        return segments;
+    }
+
+    /**
+     * Douglas-Peucker: keep the point farthest from the chord while it is beyond the tolerance
+     */
+    private static void simplify(float[] xs, float[] ys, int from, int to, float toleranceSquared, boolean[] keep) {
+        if (to - from < 2) {
+            return;
+        }
+        float dx = xs[to] - xs[from];
+        float dy = ys[to] - ys[from];
+        float lengthSquared = dx * dx + dy * dy;
+        int farthest = -1;
+        float farthestSquared = toleranceSquared;
+        for (int i = from + 1; i < to; i++) {
+            float px = xs[i] - xs[from];
+            float py = ys[i] - ys[from];
+            float d;
+            if (lengthSquared == 0) {
+                d = px * px + py * py;
+            } else {
+                float cross = px * dy - py * dx;
+                d = cross * cross / lengthSquared;
+            }
+            if (d > farthestSquared) {
+                farthest = i;
+                farthestSquared = d;
+            }
+        }
+        if (farthest >= 0) {
+            keep[farthest] = true;
+            simplify(xs, ys, from, farthest, toleranceSquared, keep);
+            simplify(xs, ys, farthest, to, toleranceSquared, keep);
+        }
+    }
+
+    private float[] buildPoints(StationGraph graph, boolean majorOnly) {
+        float[] points = new float[stationCount * 2];
+        int count = 0;
+        for (int station = 0; station < stationCount; station++) {
+            if (majorOnly && !isMajor(graph, station)) continue;
+            points[count++] = getX(station);
+            points[count++] = getY(station);
+        }
+        return Arrays.copyOf(points, count);
+    }
+
+    private static boolean isMajor(StationGraph graph, int station) {
+        if (graph.isInterchange(station)) {
+            return true;
+        }
+        int line = graph.getStationLine(station, 0);
+        int position = graph.getPosition(line, station);
+        return position == 0 || position == graph.getLineLength(line) - 1;
+    }
+
+    /**
+     * Interchanges first, then terminals, then the rest, each by station id
+     */
+    private static int[] labelPriority(StationGraph graph) {
+        int n = graph.getStationCount();
+        int[] order = new int[n];
+        int count = 0;
+        for (int station = 0; station < n; station++) {
+            if (graph.isInterchange(station)) order[count++] = station;
+        }
+        for (int station = 0; station < n; station++) {
+            if (!graph.isInterchange(station) && isMajor(graph, station)) order[count++] = station;
+        }
+        for (int station = 0; station < n; station++) {
+            if (!isMajor(graph, station)) order[count++] = station;
+        }
+        return order;
+    }
+
+    /**
+     * Greedy collision culling at one scale, starting from the labels of the coarser level
+     * Only stations whose dots the level draws are candidates, so no label floats without a dot
+     */
+    private int[] placeLabels(StationGraph graph, boolean majorOnly, int[] priority, int[] previous,
+                              float[] widths, float height, float metersPerPixel) {
+        float padding = LABEL_PADDING_PX * metersPerPixel;
+        float boxHeight = height * metersPerPixel + 2 * padding;
+        float maxWidth = 0;
+        for (float width : widths) {
+            maxWidth = Math.max(maxWidth, width);
+        }
+        // Grid cells at least as large as any box, so a box only spans neighbouring cells
+        float cell = Math.max((maxWidth + LABEL_OFFSET_PX) * metersPerPixel + 2 * padding, boxHeight);
+        LabelGrid grid = new LabelGrid(cell);
+
+        boolean[] placed = new boolean[stationCount];
+        int[] result = new int[stationCount];
+        int count = 0;
+        for (int station : previous) {
+            grid.add(labelBox(station, widths[station], height, metersPerPixel, padding));
+            placed[station] = true;
+            result[count++] = station;
+        }
+        for (int station : priority) {
+            if (placed[station] || majorOnly && !isMajor(graph, station)) continue;
+            float[] box = labelBox(station, widths[station], height, metersPerPixel, padding);
+            if (!grid.overlaps(box)) {
+                grid.add(box);
+                placed[station] = true;
+                result[count++] = station;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Label to the right of the dot, vertically centred: left, top, right, bottom in meters
+     */
+    private float[] labelBox(int station, float width, float height, float metersPerPixel, float padding) {
+        float left = getX(station) + LABEL_OFFSET_PX * metersPerPixel;
+        float top = getY(station) - height * metersPerPixel / 2;
+        return new float[]{left - padding, top - padding,
+                left + width * metersPerPixel + padding, top + height * metersPerPixel + padding};
+    }
+
+    /**
+     * Uniform grid of placed label boxes
+     */
+    private static final class LabelGrid {
+        private final float cell;
+        private final Map<Long, List<float[]>> cells = new HashMap<>();
+
+        LabelGrid(float cell) {
+            this.cell = cell;
+        }
+
+        void add(float[] box) {
+            for (long key : keys(box)) {
+                List<float[]> boxes = cells.get(key);
+                if (boxes == null) {
+                    boxes = new ArrayList<>();
+                    cells.put(key, boxes);
+                }
+                boxes.add(box);
+            }
+        }
+
+        boolean overlaps(float[] box) {
+            for (long key : keys(box)) {
+                List<float[]> boxes = cells.get(key);
+                if (boxes == null) continue;
+                for (float[] other : boxes) {
+                    if (box[0] < other[2] && other[0] < box[2] && box[1] < other[3] && other[1] < box[3]) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private long[] keys(float[] box) {
+            int cx0 = (int) Math.floor(box[0] / cell);
+            int cy0 = (int) Math.floor(box[1] / cell);
+            int cx1 = (int) Math.floor(box[2] / cell);
+            int cy1 = (int) Math.floor(box[3] / cell);
+            long[] keys = new long[(cx1 - cx0 + 1) * (cy1 - cy0 + 1)];
+            int i = 0;
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    keys[i++] = ((long) cx << 32) | (cy & 0xffffffffL);
+                }
+            }
+            return keys;
+        }
+    }
+}
@@ -6,10 +6,10 @@ import android.content.SharedPreferences;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.File;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Service for managing favorite routes and search history
@@ -24,12 +24,27 @@ public class PreferencesManager {
     private static final int MAX_RECENT_SEARCHES = 10;
     private static final int MAX_FAVORITES = 20;
 
+    private static final String FAVORITES_FILE = "favorite_routes.log";
+    private static final String RECENT_SEARCHES_FILE = "recent_searches.log";
+
+    // The route logs time their own disk work in SavedRouteStore
+    private static final Metrics.Histogram OPEN_TIME = Metrics.getDefault().histogram("prefs.open");
+
     private final SharedPreferences prefs;
     private final Gson gson;
+    private final SavedRouteStore favorites;
+    private final SavedRouteStore recentSearches;
 
     public PreferencesManager(Context context) {
+        long start = System.nanoTime();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.gson = new Gson();
+        File dir = context.getFilesDir();
+        this.favorites = SavedRouteStore.open(new File(dir, FAVORITES_FILE), MAX_FAVORITES,
+                legacyList(KEY_FAVORITES));
+        this.recentSearches = SavedRouteStore.open(new File(dir, RECENT_SEARCHES_FILE), MAX_RECENT_SEARCHES,
+                legacyList(KEY_RECENT_SEARCHES));
+        OPEN_TIME.recordSince(start);
     }
 
     // Language preferences
@@ -41,6 +56,18 @@ public class PreferencesManager {
         prefs.edit().putString(KEY_LANGUAGE, languageCode).apply();
     }
 
+    /**
+     * Language without opening the route logs, for activities that need it before their first frame
+     */
+    public static String getLanguage(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getString(KEY_LANGUAGE, "en");
+    }
+
+    public static void setLanguage(Context context, String languageCode) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_LANGUAGE, languageCode).apply();
+    }
+
     // Theme preferences
     public boolean isDarkMode() {
         return prefs.getBoolean(KEY_THEME, false);
@@ -52,97 +79,49 @@ public class PreferencesManager {
 
     // Favorite routes
     public List<SavedRoute> getFavorites() {
-        String json = prefs.getString(KEY_FAVORITES, "[]");
-        Type type = new TypeToken<List<SavedRoute>>(){}.getType();
-        return gson.fromJson(json, type);
+        return favorites.getAll();
     }
 
     public void addFavorite(String startStation, String endStation, String nickname) {
-        List<SavedRoute> favorites = getFavorites();
-
-        // Check if already exists
-        for (SavedRoute route : favorites) {
-            if (route.getStartStation().equals(startStation) &&
-                route.getEndStation().equals(endStation)) {
-                return; // Already favorited
-            }
-        }
-
-        // Add new favorite
-        SavedRoute newRoute = new SavedRoute(startStation, endStation, nickname);
-        favorites.add(0, newRoute); // Add to beginning
-
-        // Limit size
-        if (favorites.size() > MAX_FAVORITES) {
-            favorites = favorites.subList(0, MAX_FAVORITES);
-        }
-
-        saveFavorites(favorites);
+        // Already favorited routes keep their place
+        favorites.addIfAbsent(new SavedRoute(startStation, endStation, nickname));
     }
 
     public void removeFavorite(SavedRoute route) {
-        List<SavedRoute> favorites = getFavorites();
-        favorites.remove(route);
-        saveFavorites(favorites);
-    }
-
-    private void saveFavorites(List<SavedRoute> favorites) {
-        String json = gson.toJson(favorites);
-        prefs.edit().putString(KEY_FAVORITES, json).apply();
+        favorites.remove(route.getStartStation(), route.getEndStation());
     }
 
     public boolean isFavorite(String startStation, String endStation) {
-        List<SavedRoute> favorites = getFavorites();
-        for (SavedRoute route : favorites) {
-            if (route.getStartStation().equals(startStation) &&
-                route.getEndStation().equals(endStation)) {
-                return true;
-            }
-        }
-        return false;
+        return favorites.contains(startStation, endStation);
     }
 
     // Recent searches
     public List<SavedRoute> getRecentSearches() {
-        String json = prefs.getString(KEY_RECENT_SEARCHES, "[]");
-        Type type = new TypeToken<List<SavedRoute>>(){}.getType();
-        return gson.fromJson(json, type);
+        return recentSearches.getAll();
     }
 
     public void addRecentSearch(String startStation, String endStation) {
-        List<SavedRoute> recent = getRecentSearches();
-
-        // Remove if already exists (to move to top)
-        SavedRoute existing = null;
-        for (SavedRoute route : recent) {
-            if (route.getStartStation().equals(startStation) &&
-                route.getEndStation().equals(endStation)) {
-                existing = route;
-                break;
-            }
-        }
-        if (existing != null) {
-            recent.remove(existing);
-        }
-
-        // Add to beginning
-        recent.add(0, new SavedRoute(startStation, endStation, ""));
-
-        // Limit size
-        if (recent.size() > MAX_RECENT_SEARCHES) {
-            recent = recent.subList(0, MAX_RECENT_SEARCHES);
-        }
-
-        saveRecentSearches(recent);
+        // Searching again moves the route to the top
+        recentSearches.addOrMoveToFront(new SavedRoute(startStation, endStation, ""));
     }
 
     public void clearRecentSearches() {
-        prefs.edit().putString(KEY_RECENT_SEARCHES, "[]").apply();
+        recentSearches.clear();
     }
 
-    private void saveRecentSearches(List<SavedRoute> searches) {
-        String json = gson.toJson(searches);
-        prefs.edit().putString(KEY_RECENT_SEARCHES, json).apply();
+    /**
+     * Read a list saved as JSON by earlier versions; the key is left in place so a
+     * failed first write can import it again
+     */
+    private Callable<List<SavedRoute>> legacyList(final String key) {
+        return () -> {
+            String json = prefs.getString(key, null);
+            if (json == null) {
+                return null;
+            }
+            Type type = new TypeToken<List<SavedRoute>>(){}.getType();
+            return gson.fromJson(json, type);
+        };
     }
 
     /**
@@ -0,0 +1,695 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Round-based (RAPTOR-style) routing engine
+ * Round k finds the best arrival at every station using at most k rides, so the
+ * search handles any number of transfers and stops after maxTransfers + 1 rounds.
+ * Each line is scanned as two patterns, one per direction of travel.
+ */
+public final class RaptorRouter {
+
+    public static final int MINUTES_PER_STATION = 2;
+    public static final int TRANSFER_MINUTES = 3;
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+    // Enough for every core to search at once; a search beyond that uses a workspace of its own
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static volatile RaptorRouter defaultRouter;
+
+    private final StationGraph graph;
+    // Pooled rather than per thread: a server runs each request on a new virtual thread
+    private final ArrayBlockingQueue<Workspace> workspaces = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public RaptorRouter(StationGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Get the router for the default StationGraph
+     */
+    public static RaptorRouter getDefault() {
+        RaptorRouter router = defaultRouter;
+        if (router == null) {
+            synchronized (RaptorRouter.class) {
+                router = defaultRouter;
+                if (router == null) {
+                    router = new RaptorRouter(StationGraph.getDefault());
+                    defaultRouter = router;
+                }
+            }
+        }
+        return router;
+    }
+
+    public StationGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Find the Pareto set over (minutes, transfers, fare) between two stations
+     * Journeys are ordered by number of transfers, then minutes; a slower journey with as many
+     * transfers stays when it is cheaper. The list is empty if the destination is unreachable.
+     */
+    public List<Journey> route(int origin, int destination, int maxTransfers) {
+        if (origin == destination) {
+            return new ArrayList<>(2);
+        }
+        Workspace ws = acquire();
+        try {
+            int rounds = Math.min(maxTransfers + 1, ws.maxRounds);
+            return paretoSearch(ws, origin, destination, rounds);
+        } finally {
+            workspaces.offer(ws);
+        }
+    }
+
+    /**
+     * Pick one journey according to the preference, or null if there is none
+     * Only CHEAPEST needs the fare-aware search; the fastest journey of each round answers the others
+     */
+    public Journey route(int origin, int destination, RouteOptions options) {
+        RouteOptions.Preference preference = options.getPreference();
+        if (preference == RouteOptions.Preference.CHEAPEST) {
+            return select(route(origin, destination, options.getMaxTransfers()), preference);
+        }
+        if (origin == destination) {
+            return null;
+        }
+
+        Workspace ws = acquire();
+        try {
+            int rounds = Math.min(options.getMaxTransfers() + 1, ws.maxRounds);
+            ws.reset(origin);
+            // Target pruning means the destination only improves when a round is strictly faster
+            int best = NONE;
+            for (int k = 1; k <= rounds; k++) {
+                if (!scanRound(ws, k, destination, INF)) {
+                    break;
+                }
+                if (ws.round[k][destination] == k) {
+                    best = k;
+                    if (preference == RouteOptions.Preference.FEWEST_TRANSFERS) break;
+                }
+            }
+            return best != NONE ? buildJourney(ws, best, destination) : null;
+        } finally {
+            workspaces.offer(ws);
+        }
+    }
+
+    static Journey select(List<Journey> journeys, RouteOptions.Preference preference) {
+        Journey best = null;
+        for (Journey journey : journeys) {
+            if (best == null) {
+                best = journey;
+                if (preference == RouteOptions.Preference.FEWEST_TRANSFERS) break;
+            } else if (preference == RouteOptions.Preference.FASTEST) {
+                if (journey.getMinutes() < best.getMinutes()) best = journey;
+            } else if (preference == RouteOptions.Preference.CHEAPEST) {
+                if (journey.getFare() < best.getFare() ||
+                    (journey.getFare() == best.getFare() && journey.getMinutes() < best.getMinutes())) {
+                    best = journey;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Every station reachable from the origin within the budgets, from a single search pass
+     * The pass keeps the Pareto set over (minutes, transfers, fare) at every station, so each
+     * station gets its minimum minutes, transfers and fare over the journeys that fit the time
+     * and fare budgets, which need not be the same journey. Budgets may be Reachability.NO_LIMIT.
+     */
+    public Reachability reach(int origin, int maxMinutes, int maxFare, int maxTransfers) {
+        int n = graph.getStationCount();
+        int[] minutes = new int[n];
+        int[] transfers = new int[n];
+        int[] fares = new int[n];
+        Arrays.fill(minutes, Reachability.UNREACHABLE);
+        Arrays.fill(transfers, Reachability.UNREACHABLE);
+        Arrays.fill(fares, Reachability.UNREACHABLE);
+
+        FareEngine.Version pricing = FareEngine.forGraph(graph).getCurrentVersion();
+        Workspace ws = acquire();
+        try {
+            int rounds = Math.min(maxTransfers + 1, ws.maxRounds);
+            int limit = maxMinutes >= INF - 1 ? INF : maxMinutes + 1;
+            Labels labels = ws.labels();
+            labels.reset(origin, pricing.startUnits());
+            ws.reset(origin);
+            for (int k = 1; k <= rounds; k++) {
+                if (!scanBags(ws, labels, pricing, k, NONE, limit, maxFare)) {
+                    break;
+                }
+            }
+
+            for (int station = 0; station < n; station++) {
+                for (int l = labels.head[station]; l != NONE; l = labels.next[l]) {
+                    // The origin's own label has not ridden and costs nothing
+                    int fare = labels.rides[l] == 0 ? 0 : pricing.fare(labels.units[l], labels.segments[l]);
+                    int legTransfers = Math.max(labels.rides[l] - 1, 0);
+                    if (fares[station] == Reachability.UNREACHABLE) {
+                        minutes[station] = labels.minutes[l];
+                        transfers[station] = legTransfers;
+                        fares[station] = fare;
+                    } else {
+                        minutes[station] = Math.min(minutes[station], labels.minutes[l]);
+                        transfers[station] = Math.min(transfers[station], legTransfers);
+                        fares[station] = Math.min(fares[station], fare);
+                    }
+                }
+            }
+        } finally {
+            workspaces.offer(ws);
+        }
+        return new Reachability(origin, maxMinutes, minutes, transfers, fares);
+    }
+
+    private Workspace acquire() {
+        Workspace ws = workspaces.poll();
+        return ws != null ? ws : new Workspace(graph);
+    }
+
+    /**
+     * Run one round; returns false when nothing improved and the search can stop
+     * Without a destination, arrivals are pruned at limit instead (exclusive)
+     */
+    private boolean scanRound(Workspace ws, int k, int destination, int limit) {
+        int n = graph.getStationCount();
+        ws.ensureRound(k);
+        int[] prevCost = ws.cost[k - 1];
+        int[] prevStops = ws.stops[k - 1];
+        int[] cost = ws.cost[k];
+        int[] stops = ws.stops[k];
+        int[] round = ws.round[k];
+        System.arraycopy(prevCost, 0, cost, 0, n);
+        System.arraycopy(prevStops, 0, stops, 0, n);
+        System.arraycopy(ws.round[k - 1], 0, round, 0, n);
+
+        int patternCount = collectPatterns(ws);
+
+        int penalty = k > 1 ? TRANSFER_MINUTES : 0;
+        for (int q = 0; q < patternCount; q++) {
+            int pattern = ws.queue[q];
+            int line = pattern >> 1;
+            boolean reverse = (pattern & 1) == 1;
+            int last = graph.getLineLength(line) - 1;
+            int from = ws.boardFrom[pattern];
+            ws.boardFrom[pattern] = NONE;
+
+            int boardStation = NONE;
+            int boardPos = 0;
+            int boardCost = 0;
+            int boardStops = 0;
+            for (int pos = from; pos <= last; pos++) {
+                int station = graph.getStationAt(line, reverse ? last - pos : pos);
+
+                if (boardStation != NONE) {
+                    int hops = pos - boardPos;
+                    int arrival = boardCost + hops * MINUTES_PER_STATION;
+                    // Local and target pruning
+                    if (arrival < cost[station] && arrival < (destination != NONE ? cost[destination] : limit)) {
+                        cost[station] = arrival;
+                        stops[station] = boardStops + hops;
+                        round[station] = k;
+                        ws.parentBoard[k][station] = boardStation;
+                        ws.parentPattern[k][station] = pattern;
+                        if (!ws.isMarked[station]) {
+                            ws.isMarked[station] = true;
+                            ws.marked[ws.markedCount++] = station;
+                        }
+                    }
+                }
+
+                // Board (or re-board) here if reaching this station in the previous round is better
+                if (prevCost[station] != INF) {
+                    int candidate = prevCost[station] + penalty;
+                    if (boardStation == NONE ||
+                        candidate < boardCost + (pos - boardPos) * MINUTES_PER_STATION) {
+                        boardStation = station;
+                        boardPos = pos;
+                        boardCost = candidate;
+                        boardStops = prevStops[station];
+                    }
+                }
+            }
+        }
+        return ws.markedCount > 0;
+    }
+
+    /**
+     * Queue the patterns serving marked stations, remembering the earliest position to board
+     * Clears the marks; returns the number of patterns queued
+     */
+    private int collectPatterns(Workspace ws) {
+        int patternCount = 0;
+        for (int m = 0; m < ws.markedCount; m++) {
+            int station = ws.marked[m];
+            ws.isMarked[station] = false;
+            for (int i = 0; i < graph.getStationLineCount(station); i++) {
+                int line = graph.getStationLine(station, i);
+                int position = graph.getStationLinePosition(station, i);
+                int last = graph.getLineLength(line) - 1;
+                for (int dir = 0; dir < 2; dir++) {
+                    int pattern = line * 2 + dir;
+                    int patternPos = dir == 0 ? position : last - position;
+                    if (patternPos == last) continue; // Cannot board at the terminal
+                    if (ws.boardFrom[pattern] == NONE) {
+                        ws.queue[patternCount++] = pattern;
+                        ws.boardFrom[pattern] = patternPos;
+                    } else if (patternPos < ws.boardFrom[pattern]) {
+                        ws.boardFrom[pattern] = patternPos;
+                    }
+                }
+            }
+        }
+        ws.markedCount = 0;
+        return patternCount;
+    }
+
+    /**
+     * Journeys at the destination from a search that keeps a bag of labels per station
+     * Labels carry minutes, fare units and the surcharged segments ridden, and one is dropped only
+     * when another with no more rides is at least as good in all of them, so a journey that is
+     * slower but avoids a surcharge or a zone survives to be priced. Fares never go down as a
+     * journey goes on, so a label the destination already beats is not extended.
+     */
+    private List<Journey> paretoSearch(Workspace ws, int origin, int destination, int rounds) {
+        FareEngine.Version pricing = FareEngine.forGraph(graph).getCurrentVersion();
+        Labels labels = ws.labels();
+        labels.reset(origin, pricing.startUnits());
+        ws.reset(origin);
+        for (int k = 1; k <= rounds; k++) {
+            if (!scanBags(ws, labels, pricing, k, destination, INF, Integer.MAX_VALUE)) {
+                break;
+            }
+        }
+
+        // Order by rides, then minutes, so each label only has to be checked against those kept before it
+        int count = 0;
+        for (int l = labels.head[destination]; l != NONE; l = labels.next[l]) {
+            count++;
+        }
+        int[] candidates = new int[count];
+        count = 0;
+        for (int l = labels.head[destination]; l != NONE; l = labels.next[l]) {
+            int i = count++;
+            while (i > 0 && compareLabels(labels, candidates[i - 1], l) > 0) {
+                candidates[i] = candidates[i - 1];
+                i--;
+            }
+            candidates[i] = l;
+        }
+
+        // Labels with different units or segments can still cost the same
+        List<Journey> journeys = new ArrayList<>(2);
+        int[] keptMinutes = new int[count];
+        int[] keptFares = new int[count];
+        int kept = 0;
+        for (int c = 0; c < count; c++) {
+            int label = candidates[c];
+            int minutes = labels.minutes[label];
+            int fare = pricing.fare(labels.units[label], labels.segments[label]);
+            boolean dominated = false;
+            for (int j = 0; j < kept && !dominated; j++) {
+                dominated = keptMinutes[j] <= minutes && keptFares[j] <= fare;
+            }
+            if (!dominated) {
+                keptMinutes[kept] = minutes;
+                keptFares[kept] = fare;
+                kept++;
+                journeys.add(buildJourney(labels, label));
+            }
+        }
+        return journeys;
+    }
+
+    private static int compareLabels(Labels labels, int a, int b) {
+        if (labels.rides[a] != labels.rides[b]) {
+            return labels.rides[a] < labels.rides[b] ? -1 : 1;
+        }
+        return Integer.compare(labels.minutes[a], labels.minutes[b]);
+    }
+
+    /**
+     * Run one round of the bag search; returns false when no label was added
+     * Without a destination, labels arriving at limit (exclusive) or costing more than maxFare are dropped
+     */
+    private boolean scanBags(Workspace ws, Labels labels, FareEngine.Version pricing, int k, int destination,
+                             int limit, int maxFare) {
+        int patternCount = collectPatterns(ws);
+        int penalty = k > 1 ? TRANSFER_MINUTES : 0;
+        for (int q = 0; q < patternCount; q++) {
+            int pattern = ws.queue[q];
+            int line = pattern >> 1;
+            boolean reverse = (pattern & 1) == 1;
+            int last = graph.getLineLength(line) - 1;
+            int from = ws.boardFrom[pattern];
+            ws.boardFrom[pattern] = NONE;
+
+            labels.tripCount = 0;
+            int previous = NONE;
+            for (int pos = from; pos <= last; pos++) {
+                int station = graph.getStationAt(line, reverse ? last - pos : pos);
+
+                if (labels.tripCount > 0) {
+                    int hopUnits = pricing.hopUnits(previous, station);
+                    long hopSegments = pricing.hopSegments(graph, previous, station);
+                    for (int t = 0; t < labels.tripCount; t++) {
+                        int minutes = labels.tripMinutes[t] += MINUTES_PER_STATION;
+                        int units = labels.tripUnits[t] += hopUnits;
+                        long segments = labels.tripSegments[t] |= hopSegments;
+                        labels.tripStops[t]++;
+                        // Target pruning, or without a destination the budgets; fares never go down
+                        if (destination != NONE ? labels.dominated(destination, minutes, units, segments)
+                                : minutes >= limit ||
+                                  maxFare != Integer.MAX_VALUE && pricing.fare(units, segments) > maxFare) {
+                            continue;
+                        }
+                        if (labels.add(station, k, minutes, units, segments, labels.tripStops[t],
+                                labels.tripParent[t], pattern, labels.tripBoard[t]) && !ws.isMarked[station]) {
+                            ws.isMarked[station] = true;
+                            ws.marked[ws.markedCount++] = station;
+                        }
+                    }
+                }
+
+                // Every label that arrived here in the previous round may board
+                if (pos < last) {
+                    for (int l = labels.head[station]; l != NONE; l = labels.next[l]) {
+                        if (labels.rides[l] == k - 1) {
+                            labels.board(l, station, penalty);
+                        }
+                    }
+                }
+                previous = station;
+            }
+        }
+        return ws.markedCount > 0;
+    }
+
+    private Journey buildJourney(Workspace ws, int k, int destination) {
+        int[] legPatterns = new int[k];
+        int[] legBoards = new int[k];
+        int[] legAlights = new int[k];
+        int legs = collectLegs(ws, k, destination, legPatterns, legBoards, legAlights);
+        return buildJourney(legPatterns, legBoards, legAlights, legs, ws.stops[k][destination], ws.cost[k][destination]);
+    }
+
+    /**
+     * Walk the round-k parents back to the origin, one leg per round, last leg first; returns the leg count
+     */
+    private static int collectLegs(Workspace ws, int k, int destination,
+                                   int[] legPatterns, int[] legBoards, int[] legAlights) {
+        int legs = 0;
+        int station = destination;
+        int r = k;
+        while (r > 0) {
+            r = ws.round[r][station];
+            if (r == 0) break;
+            legPatterns[legs] = ws.parentPattern[r][station];
+            legBoards[legs] = ws.parentBoard[r][station];
+            legAlights[legs] = station;
+            legs++;
+            station = ws.parentBoard[r][station];
+            r--;
+        }
+        return legs;
+    }
+
+    private Journey buildJourney(Labels labels, int label) {
+        int legs = labels.rides[label];
+        int[] legPatterns = new int[legs];
+        int[] legBoards = new int[legs];
+        int[] legAlights = new int[legs];
+        int leg = 0;
+        for (int l = label; labels.rides[l] > 0; l = labels.parent[l]) {
+            legPatterns[leg] = labels.pattern[l];
+            legBoards[leg] = labels.board[l];
+            legAlights[leg] = labels.station[l];
+            leg++;
+        }
+        return buildJourney(legPatterns, legBoards, legAlights, legs, labels.stops[label], labels.minutes[label]);
+    }
+
+    /**
+     * Journey riding the legs, which are given last leg first as the searches walk them back
+     */
+    private Journey buildJourney(int[] legPatterns, int[] legBoards, int[] legAlights, int legs,
+                                 int stops, int minutes) {
+        int[] path = new int[stops + 1];
+        fillPath(legPatterns, legBoards, legAlights, legs, path);
+        int[] legLines = new int[legs];
+        int[] transfers = new int[legs - 1];
+        int directionStation = NONE;
+        for (int leg = legs - 1; leg >= 0; leg--) {
+            int line = legPatterns[leg] >> 1;
+            boolean reverse = (legPatterns[leg] & 1) == 1;
+            legLines[legs - 1 - leg] = line;
+            if (leg > 0) {
+                transfers[legs - 1 - leg] = legAlights[leg];
+            }
+            directionStation = graph.getStationAt(line, reverse ? 0 : graph.getLineLength(line) - 1);
+        }
+
+        return new Journey(path, legLines, transfers, directionStation,
+                minutes, FareEngine.forGraph(graph).getPathFare(path, path.length));
+    }
+
+    /**
+     * Stations ridden by the legs, from the origin on; returns the number written
+     */
+    private int fillPath(int[] legPatterns, int[] legBoards, int[] legAlights, int legs, int[] path) {
+        int length = 0;
+        for (int leg = legs - 1; leg >= 0; leg--) {
+            int line = legPatterns[leg] >> 1;
+            int step = (legPatterns[leg] & 1) == 1 ? -1 : 1;
+            int from = graph.getPosition(line, legBoards[leg]);
+            int to = graph.getPosition(line, legAlights[leg]);
+            for (int pos = (length == 0 ? from : from + step); ; pos += step) {
+                path[length++] = graph.getStationAt(line, pos);
+                if (pos == to) break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Label arrays of one search, pooled across queries so routing does not allocate them each time
+     */
+    private static final class Workspace {
+        final int stationCount;
+        final int maxRounds;
+        final int[][] cost;
+        final int[][] stops;
+        final int[][] round;          // Round in which the label was last improved
+        final int[][] parentBoard;
+        final int[][] parentPattern;
+        final int[] marked;
+        final boolean[] isMarked;
+        int markedCount;
+        final int[] queue;
+        final int[] boardFrom;
+        private Labels labels;
+
+        Workspace(StationGraph graph) {
+            int n = graph.getStationCount();
+            int patterns = graph.getLineCount() * 2;
+            this.stationCount = n;
+            // A journey never needs more rides than there are lines. Rows are allocated on first use:
+            // on large networks lines x stations would not fit in memory, and few rounds are ever run.
+            this.maxRounds = graph.getLineCount();
+            this.cost = new int[maxRounds + 1][];
+            this.stops = new int[maxRounds + 1][];
+            this.round = new int[maxRounds + 1][];
+            this.parentBoard = new int[maxRounds + 1][];
+            this.parentPattern = new int[maxRounds + 1][];
+            ensureRound(0);
+            this.marked = new int[n];
+            this.isMarked = new boolean[n];
+            this.queue = new int[patterns];
+            this.boardFrom = new int[patterns];
+            Arrays.fill(boardFrom, NONE);
+        }
+
+        void ensureRound(int k) {
+            if (cost[k] == null) {
+                cost[k] = new int[stationCount];
+                stops[k] = new int[stationCount];
+                round[k] = new int[stationCount];
+                parentBoard[k] = new int[stationCount];
+                parentPattern[k] = new int[stationCount];
+            }
+        }
+
+        Labels labels() {
+            if (labels == null) {
+                labels = new Labels(stationCount);
+            }
+            return labels;
+        }
+
+        void reset(int origin) {
+            Arrays.fill(cost[0], INF);
+            Arrays.fill(stops[0], 0);
+            Arrays.fill(round[0], 0);
+            cost[0][origin] = 0;
+            marked[0] = origin;
+            markedCount = 1;
+            Arrays.fill(isMarked, false);
+            isMarked[origin] = true;
+        }
+    }
+
+    /**
+     * Label bags of the fare-aware search, one linked list per station over growable arrays
+     * Labels that lose their place stay in the arrays, as later ones may point back to them.
+     * The trip arrays are the bag of the pattern being scanned, carried from stop to stop.
+     */
+    private static final class Labels {
+        final int[] head;
+        int count;
+        int[] next = new int[64];
+        int[] station = new int[64];
+        int[] rides = new int[64];
+        int[] minutes = new int[64];
+        int[] units = new int[64];
+        long[] segments = new long[64];
+        int[] stops = new int[64];
+        int[] parent = new int[64];
+        int[] pattern = new int[64];
+        int[] board = new int[64];
+
+        int tripCount;
+        int[] tripParent = new int[8];
+        int[] tripBoard = new int[8];
+        int[] tripMinutes = new int[8];
+        int[] tripUnits = new int[8];
+        long[] tripSegments = new long[8];
+        int[] tripStops = new int[8];
+
+        Labels(int stationCount) {
+            head = new int[stationCount];
+        }
+
+        void reset(int origin, int startUnits) {
+            Arrays.fill(head, NONE);
+            count = 0;
+            add(origin, 0, 0, startUnits, 0, 0, NONE, NONE, NONE);
+        }
+
+        /**
+         * Whether a label at the station is at least as fast and cheap in every respect
+         */
+        boolean dominated(int at, int m, int u, long s) {
+            for (int l = head[at]; l != NONE; l = next[l]) {
+                if (minutes[l] <= m && units[l] <= u && (segments[l] & ~s) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Add a label unless one at the station dominates it; returns whether it was added
+         * Labels of the same round that the new one dominates are unlinked; those of earlier
+         * rounds stay for their fewer rides.
+         */
+        boolean add(int at, int r, int m, int u, long s, int st, int from, int p, int b) {
+            if (head[at] != NONE && dominated(at, m, u, s)) {
+                return false;
+            }
+            int previous = NONE;
+            for (int l = head[at]; l != NONE; l = next[l]) {
+                if (rides[l] == r && minutes[l] >= m && units[l] >= u && (s & ~segments[l]) == 0) {
+                    if (previous == NONE) head[at] = next[l];
+                    else next[previous] = next[l];
+                } else {
+                    previous = l;
+                }
+            }
+
+            if (count == next.length) {
+                int capacity = count * 2;
+                next = Arrays.copyOf(next, capacity);
+                station = Arrays.copyOf(station, capacity);
+                rides = Arrays.copyOf(rides, capacity);
+                minutes = Arrays.copyOf(minutes, capacity);
+                units = Arrays.copyOf(units, capacity);
+                segments = Arrays.copyOf(segments, capacity);
+                stops = Arrays.copyOf(stops, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                pattern = Arrays.copyOf(pattern, capacity);
+                board = Arrays.copyOf(board, capacity);
+            }
+            int label = count++;
+            station[label] = at;
+            rides[label] = r;
+            minutes[label] = m;
+            units[label] = u;
+            segments[label] = s;
+            stops[label] = st;
+            parent[label] = from;
+            pattern[label] = p;
+            board[label] = b;
+            next[label] = head[at];
+            head[at] = label;
+            return true;
+        }
+
+        /**
+         * Board the pattern being scanned with a label at the given station, unless a trip
+         * already on board is at least as good; trips the new one beats are dropped
+         */
+        void board(int label, int at, int penalty) {
+            int m = minutes[label] + penalty;
+            int u = units[label];
+            long s = segments[label];
+            for (int t = 0; t < tripCount; t++) {
+                if (tripMinutes[t] <= m && tripUnits[t] <= u && (tripSegments[t] & ~s) == 0) {
+                    return;
+                }
+            }
+            for (int t = 0; t < tripCount; ) {
+                if (tripMinutes[t] >= m && tripUnits[t] >= u && (s & ~tripSegments[t]) == 0) {
+                    tripCount--;
+                    tripParent[t] = tripParent[tripCount];
+                    tripBoard[t] = tripBoard[tripCount];
+                    tripMinutes[t] = tripMinutes[tripCount];
+                    tripUnits[t] = tripUnits[tripCount];
+                    tripSegments[t] = tripSegments[tripCount];
+                    tripStops[t] = tripStops[tripCount];
+                } else {
+                    t++;
+                }
+            }
+
+            if (tripCount == tripParent.length) {
+                int capacity = tripCount * 2;
+                tripParent = Arrays.copyOf(tripParent, capacity);
+                tripBoard = Arrays.copyOf(tripBoard, capacity);
+                tripMinutes = Arrays.copyOf(tripMinutes, capacity);
+                tripUnits = Arrays.copyOf(tripUnits, capacity);
+                tripSegments = Arrays.copyOf(tripSegments, capacity);
+                tripStops = Arrays.copyOf(tripStops, capacity);
+            }
+            tripParent[tripCount] = label;
+            tripBoard[tripCount] = at;
+            tripMinutes[tripCount] = m;
+            tripUnits[tripCount] = u;
+            tripSegments[tripCount] = s;
+            tripStops[tripCount] = stops[label];
+            tripCount++;
+        }
+    }
+}
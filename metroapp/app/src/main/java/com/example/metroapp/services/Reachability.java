@@ -0,0 +1,110 @@
+package com.example.metroapp.services;
+
+import java.util.Arrays;
+
+/**
+ * Stations reachable from one origin within a time or fare budget, indexed by station id
+ * For the default graph, station ids are also the order of StationData.ALL_STATIONS_WITH_COORDINATES,
+ * so the arrays line up with station coordinates for drawing a heatmap.
+ */
+public final class Reachability {
+
+    public static final int UNREACHABLE = -1;
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final int origin;
+    private final int maxMinutes;
+    private final int[] minutes;
+    private final int[] transfers;
+    private final int[] fares;
+
+    Reachability(int origin, int maxMinutes, int[] minutes, int[] transfers, int[] fares) {
+        this.origin = origin;
+        this.maxMinutes = maxMinutes;
+        this.minutes = minutes;
+        this.transfers = transfers;
+        this.fares = fares;
+    }
+
+    public int getOrigin() {
+        return origin;
+    }
+
+    public int getStationCount() {
+        return minutes.length;
+    }
+
+    public boolean isReachable(int station) {
+        return minutes[station] != UNREACHABLE;
+    }
+
+    /**
+     * Fastest travel time within the budgets, transfers included, or UNREACHABLE
+     */
+    public int getMinutes(int station) {
+        return minutes[station];
+    }
+
+    /**
+     * Fewest transfers of any journey within the budgets, or UNREACHABLE
+     */
+    public int getTransfers(int station) {
+        return transfers[station];
+    }
+
+    /**
+     * Lowest fare of any journey within the budgets, or UNREACHABLE
+     */
+    public int getFare(int station) {
+        return fares[station];
+    }
+
+    public int getReachableCount() {
+        int count = 0;
+        for (int m : minutes) {
+            if (m != UNREACHABLE) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Ids of the reachable stations, nearest first; the origin comes first
+     */
+    public int[] getReachableStations() {
+        // Sort (minutes, id) pairs packed into longs, so ties keep id order
+        long[] keys = new long[getReachableCount()];
+        int count = 0;
+        for (int station = 0; station < minutes.length; station++) {
+            if (minutes[station] != UNREACHABLE) {
+                keys[count++] = ((long) minutes[station] << 32) | station;
+            }
+        }
+        Arrays.sort(keys);
+        int[] stations = new int[count];
+        for (int i = 0; i < count; i++) {
+            stations[i] = (int) keys[i];
+        }
+        return stations;
+    }
+
+    /**
+     * Heat per station id: 1 at the origin fading towards 0 at the time budget, or at the farthest
+     * station without one; exactly 0 for unreachable stations
+     */
+    public float[] toHeatmap() {
+        int scale = maxMinutes;
+        if (scale == NO_LIMIT) {
+            scale = 0;
+            for (int m : minutes) {
+                scale = Math.max(scale, m);
+            }
+        }
+        float[] heat = new float[minutes.length];
+        for (int station = 0; station < minutes.length; station++) {
+            if (minutes[station] != UNREACHABLE) {
+                heat[station] = 1f - (float) minutes[station] / (scale + 1);
+            }
+        }
+        return heat;
+    }
+}
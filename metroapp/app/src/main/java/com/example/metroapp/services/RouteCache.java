@@ -0,0 +1,145 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteSnapshot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded, thread-safe LRU cache of computed routes
+ * Keyed by (start, end, options); values are immutable snapshots that callers may share freely
+ */
+public class RouteCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static volatile RouteCache instance;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, RouteSnapshot> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RouteCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries <= 0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        // Access order turns LinkedHashMap into an LRU list
+        this.entries = new LinkedHashMap<Key, RouteSnapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RouteSnapshot> eldest) {
+                if (size() > RouteCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the app-wide cache
+     */
+    public static RouteCache getInstance() {
+        RouteCache cache = instance;
+        if (cache == null) {
+            synchronized (RouteCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new RouteCache(DEFAULT_MAX_ENTRIES);
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Get the route from the cache, calculating and storing it on a miss
+     */
+    public RouteSnapshot getRoute(String startStation, String endStation, RouteOptions options) {
+        Key key = new Key(startStation, endStation, options != null ? options : RouteOptions.DEFAULT);
+
+        synchronized (entries) {
+            RouteSnapshot cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        // Calculate outside the lock; a concurrent miss for the same key only does duplicate work
+        misses.incrementAndGet();
+        RouteSnapshot snapshot = RouteSnapshot.of(
+                RouteCalculator.calculateRoute(startStation, endStation, key.options));
+        synchronized (entries) {
+            entries.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    public RouteSnapshot getRoute(String startStation, String endStation) {
+        return getRoute(startStation, endStation, RouteOptions.DEFAULT);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private static final class Key {
+        final String start;
+        final String end;
+        final RouteOptions options;
+
+        Key(String start, String end, RouteOptions options) {
+            this.start = start;
+            this.end = end;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return equal(start, other.start) && equal(end, other.end) && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = start != null ? start.hashCode() : 0;
+            result = 31 * result + (end != null ? end.hashCode() : 0);
+            return 31 * result + options.hashCode();
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -1,13 +1,10 @@
 package com.example.metroapp.services;
 
-import com.example.metroapp.data.MetroLine;
 import com.example.metroapp.data.RouteResult;
-import com.example.metroapp.data.StationData;
+import com.example.metroapp.data.StationGraph;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Service class for calculating routes between metro stations
@@ -15,6 +12,15 @@ import java.util.Map;
  */
 public class RouteCalculator {
 
+    // A table lookup costs about as much as reading the clock twice, so only some are timed
+    private static final Metrics.Histogram LOOKUP_TIME = Metrics.getDefault().histogram("route.lookup", 64);
+    private static final Metrics.Histogram SEARCH_TIME = Metrics.getDefault().histogram("route.search");
+    private static final Metrics.Histogram TIMETABLE_TIME = Metrics.getDefault().histogram("route.timetable");
+    private static final Metrics.Histogram OPTIONS_TIME = Metrics.getDefault().histogram("route.options");
+    private static final Metrics.Histogram ALTERNATIVES_TIME = Metrics.getDefault().histogram("route.alternatives");
+    private static final Metrics.Histogram REACH_TIME = Metrics.getDefault().histogram("route.reach");
+    private static final Metrics.Counter NOT_FOUND = Metrics.getDefault().counter("route.notFound");
+
     /**
      * Calculate the optimal route between two stations
      */
@@ -30,137 +36,169 @@ public class RouteCalculator {
             return result;
         }
 
-        Map<String, List<String>> lineMap = StationData.getLineMap();
-
-        // First, try to find a direct route on a single line
-        RouteResult directRoute = findDirectRoute(startStation, endStation, lineMap);
-        if (directRoute.isValid()) {
-            return directRoute;
+        long start = LOOKUP_TIME.startSample();
+        result = RouteTable.getInstance().lookup(startStation, endStation);
+        LOOKUP_TIME.recordSince(start);
+        if (!result.isValid()) {
+            NOT_FOUND.increment();
         }
-
-        // If no direct route, find route with one transfer
-        RouteResult transferRoute = findTransferRoute(startStation, endStation, lineMap);
-        return transferRoute;
+        return result;
     }
 
     /**
-     * Find direct route on a single line (no transfers)
+     * Get the default route between two station ids from the precomputed table, or null if there is none
+     * For callers that already work in ids and do not need station names materialized
      */
-    private static RouteResult findDirectRoute(String start, String end, Map<String, List<String>> lineMap) {
-        RouteResult result = new RouteResult();
+    public static Journey calculateJourney(int start, int end) {
+        StationGraph graph = RaptorRouter.getDefault().getGraph();
+        if (start < 0 || end < 0 || start >= graph.getStationCount() || end >= graph.getStationCount()
+                || start == end) {
+            return null;
+        }
 
-        for (List<String> line : lineMap.values()) {
-            if (line.contains(start) && line.contains(end)) {
-                int startIdx = line.indexOf(start);
-                int endIdx = line.indexOf(end);
+        long startTime = LOOKUP_TIME.startSample();
+        Journey journey = RouteTable.getInstance().getJourney(start, end);
+        LOOKUP_TIME.recordSince(startTime);
+        if (journey == null) {
+            NOT_FOUND.increment();
+        }
+        return journey;
+    }
 
-                List<String> route = getSubRoute(start, end, line);
-                result.setStations(route);
+    /**
+     * Build the routing tables ahead of the first query; call from a background thread
+     */
+    public static void warmUp() {
+        RouteTable table = RouteTable.getInstance();
+        // One lookup also loads the journey, fare and result classes the first real query needs
+        StationGraph graph = RaptorRouter.getDefault().getGraph();
+        if (graph.getStationCount() >= 2) {
+            table.lookup(graph.getName(0), graph.getName(1));
+        }
+    }
 
-                // Set direction to terminal station
-                if (startIdx < endIdx) {
-                    result.setDirection(line.get(line.size() - 1));
-                } else {
-                    result.setDirection(line.get(0));
-                }
+    /**
+     * Calculate a route with explicit search options
+     * The default options are answered from the precomputed table, anything else runs the router
+     */
+    public static RouteResult calculateRoute(String startStation, String endStation, RouteOptions options) {
+        if (options == null || options.equals(RouteOptions.DEFAULT)) {
+            return calculateRoute(startStation, endStation);
+        }
 
-                result.setStartLine(StationData.getStationLine(start));
-                result.setEndLine(StationData.getStationLine(end));
+        RouteResult result = new RouteResult();
+        if (startStation == null || endStation == null || startStation.equalsIgnoreCase(endStation)) {
+            return result;
+        }
 
-                return result;
-            }
+        RaptorRouter router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        int start = graph.indexOf(startStation);
+        int end = graph.indexOf(endStation);
+        if (start < 0 || end < 0) {
+            return result;
         }
 
-        return result;
+        long startTime = System.nanoTime();
+        Journey journey = router.route(start, end, options);
+        SEARCH_TIME.recordSince(startTime);
+        if (journey == null) {
+            NOT_FOUND.increment();
+            return result;
+        }
+        return journey.toRouteResult(graph);
     }
 
     /**
-     * Find route with one transfer at an interchange station
+     * Calculate the earliest-arriving route leaving at the given minute of the day (e.g. 8 * 60 + 30)
+     * Estimated minutes include the wait for the first train and at every transfer; the result is
+     * empty when the destination cannot be reached before the end of service
      */
-    private static RouteResult findTransferRoute(String start, String end, Map<String, List<String>> lineMap) {
+    public static RouteResult calculateRoute(String startStation, String endStation, int departureMinute) {
         RouteResult result = new RouteResult();
-
-        // Try each interchange station
-        for (String interchange : StationData.INTERCHANGE_STATIONS) {
-            // Check if we can reach interchange from start AND end from interchange
-            if (canReach(start, interchange, lineMap) && canReach(interchange, end, lineMap)) {
-
-                // Get first part of journey (start -> interchange)
-                List<String> firstPart = null;
-                List<String> startLine = null;
-                for (List<String> line : lineMap.values()) {
-                    if (line.contains(start) && line.contains(interchange)) {
-                        firstPart = getSubRoute(start, interchange, line);
-                        startLine = line;
-                        break;
-                    }
-                }
-
-                // Get second part of journey (interchange -> end)
-                List<String> secondPart = null;
-                List<String> endLine = null;
-                for (List<String> line : lineMap.values()) {
-                    if (line.contains(interchange) && line.contains(end)) {
-                        secondPart = getSubRoute(interchange, end, line);
-                        endLine = line;
-                        break;
-                    }
-                }
-
-                if (firstPart != null && secondPart != null && startLine != endLine) {
-                    // Combine routes, removing duplicate interchange station
-                    List<String> fullRoute = new ArrayList<>(firstPart);
-                    secondPart.remove(0); // Remove duplicate interchange
-                    fullRoute.addAll(secondPart);
-
-                    result.setStations(fullRoute);
-                    result.setTransferStation(interchange);
-                    result.setDirection(endLine.get(endLine.size() - 1)); // Direction toward final destination
-                    result.setStartLine(StationData.getStationLine(start));
-                    result.setEndLine(StationData.getStationLine(end));
-
-                    return result;
-                }
-            }
+        ConnectionScanRouter router = ConnectionScanRouter.getDefault();
+        StationGraph graph = router.getTimetable().getGraph();
+        int start = startStation != null ? graph.indexOf(startStation) : -1;
+        int end = endStation != null ? graph.indexOf(endStation) : -1;
+        if (start < 0 || end < 0 || start == end) {
+            return result;
         }
 
-        return result;
+        long startTime = System.nanoTime();
+        Journey journey = router.route(start, end, departureMinute);
+        TIMETABLE_TIME.recordSince(startTime);
+        if (journey == null) {
+            NOT_FOUND.increment();
+            return result;
+        }
+        return journey.toRouteResult(graph);
     }
 
     /**
-     * Check if two stations are connected on any line
+     * Get every Pareto-optimal journey over (time, transfers, fare), ordered by number of transfers
      */
-    private static boolean canReach(String start, String end, Map<String, List<String>> lineMap) {
-        for (List<String> line : lineMap.values()) {
-            if (line.contains(start) && line.contains(end)) {
-                return true;
-            }
+    public static List<RouteResult> calculateRouteOptions(String startStation, String endStation) {
+        List<RouteResult> results = new ArrayList<>();
+        RaptorRouter router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        int start = graph.indexOf(startStation);
+        int end = graph.indexOf(endStation);
+        if (start < 0 || end < 0) {
+            return results;
         }
-        return false;
+
+        long startTime = System.nanoTime();
+        List<Journey> journeys = router.route(start, end, RouteOptions.DEFAULT_MAX_TRANSFERS);
+        OPTIONS_TIME.recordSince(startTime);
+        for (Journey journey : journeys) {
+            results.add(journey.toRouteResult(graph));
+        }
+        return results;
     }
 
     /**
-     * Get ordered list of stations between start and end on a given line
+     * Get up to count distinct routes, fastest first, e.g. changing at Sadat or at Shohadaa
+     * Each result carries its own time with transfers included; the ticket price is the station
+     * pair's, as the gates charge it, whichever alternative is ridden
      */
-    private static List<String> getSubRoute(String start, String end, List<String> line) {
-        if (line == null || !line.contains(start) || !line.contains(end)) {
-            return new ArrayList<>();
+    public static List<RouteResult> calculateAlternatives(String startStation, String endStation, int count) {
+        List<RouteResult> results = new ArrayList<>();
+        AlternativeRouter router = AlternativeRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        int start = startStation != null ? graph.indexOf(startStation) : -1;
+        int end = endStation != null ? graph.indexOf(endStation) : -1;
+        if (start < 0 || end < 0) {
+            return results;
         }
 
-        int startIdx = line.indexOf(start);
-        int endIdx = line.indexOf(end);
-
-        int minIdx = Math.min(startIdx, endIdx);
-        int maxIdx = Math.max(startIdx, endIdx);
-
-        List<String> subRoute = new ArrayList<>(line.subList(minIdx, maxIdx + 1));
+        long startTime = System.nanoTime();
+        List<Journey> journeys = router.route(start, end, count);
+        ALTERNATIVES_TIME.recordSince(startTime);
+        int ticketPrice = FareEngine.forGraph(graph).getFare(start, end);
+        for (Journey journey : journeys) {
+            RouteResult result = journey.toRouteResult(graph);
+            result.setEstimatedMinutes(journey.getMinutes());
+            result.setTicketPrice(ticketPrice);
+            results.add(result);
+        }
+        return results;
+    }
 
-        // Reverse if traveling in opposite direction
-        if (startIdx > endIdx) {
-            Collections.reverse(subRoute);
+    /**
+     * Get every station reachable from one station within minutes and fare budgets, from a single search
+     * Either budget may be Reachability.NO_LIMIT; returns null if the station is unknown
+     */
+    public static Reachability calculateReachable(String station, int maxMinutes, int maxFare) {
+        RaptorRouter router = RaptorRouter.getDefault();
+        int origin = station != null ? router.getGraph().indexOf(station) : -1;
+        if (origin < 0) {
+            return null;
         }
 
-        return subRoute;
+        long startTime = System.nanoTime();
+        Reachability reachability = router.reach(origin, maxMinutes, maxFare, RouteOptions.DEFAULT_MAX_TRANSFERS);
+        REACH_TIME.recordSince(startTime);
+        return reachability;
     }
 
     /**
@@ -175,4 +213,3 @@ public class RouteCalculator {
         return route.size() - 1 - currentIndex;
     }
 }
-
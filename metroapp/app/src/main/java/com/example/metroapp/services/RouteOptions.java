@@ -0,0 +1,54 @@
+package com.example.metroapp.services;
+
+/**
+ * Search options for the routing engine
+ */
+public final class RouteOptions {
+
+    /**
+     * Which journey to pick from the Pareto set
+     */
+    public enum Preference {
+        FEWEST_TRANSFERS,
+        FASTEST,
+        CHEAPEST
+    }
+
+    public static final int DEFAULT_MAX_TRANSFERS = 4;
+
+    public static final RouteOptions DEFAULT = new RouteOptions(Preference.FEWEST_TRANSFERS, DEFAULT_MAX_TRANSFERS);
+
+    private final Preference preference;
+    private final int maxTransfers;
+
+    public RouteOptions(Preference preference, int maxTransfers) {
+        if (preference == null) {
+            throw new IllegalArgumentException("preference == null");
+        }
+        if (maxTransfers < 0) {
+            throw new IllegalArgumentException("maxTransfers < 0: " + maxTransfers);
+        }
+        this.preference = preference;
+        this.maxTransfers = maxTransfers;
+    }
+
+    public Preference getPreference() {
+        return preference;
+    }
+
+    public int getMaxTransfers() {
+        return maxTransfers;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RouteOptions)) return false;
+        RouteOptions other = (RouteOptions) obj;
+        return this.preference == other.preference && this.maxTransfers == other.maxTransfers;
+    }
+
+    @Override
+    public int hashCode() {
+        return preference.hashCode() * 31 + maxTransfers;
+    }
+}
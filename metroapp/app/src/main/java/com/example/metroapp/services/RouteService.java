@@ -0,0 +1,185 @@
+package com.example.metroapp.services;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.metroapp.data.RouteSnapshot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs route calculations off the UI thread
+ * Work goes to a small bounded pool and results come back on the callback executor (the main
+ * thread by default). A cancelled request never calls back, even if it already finished.
+ */
+public class RouteService {
+
+    // Queued requests beyond this drop the oldest one; by then it is stale anyway
+    private static final int MAX_QUEUED_REQUESTS = 16;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile RouteService instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Executor callbackExecutor;
+
+    /**
+     * Receives the result of a request on the callback executor
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        void onError(Throwable error);
+    }
+
+    public RouteService(int threads, Executor callbackExecutor) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads <= 0: " + threads);
+        }
+        this.callbackExecutor = callbackExecutor;
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUED_REQUESTS), new WorkerFactory(), new DropOldest());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the app-wide service, delivering results on the main thread
+     */
+    public static RouteService getInstance() {
+        RouteService service = instance;
+        if (service == null) {
+            synchronized (RouteService.class) {
+                service = instance;
+                if (service == null) {
+                    Handler mainHandler = new Handler(Looper.getMainLooper());
+                    int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+                    service = new RouteService(threads, mainHandler::post);
+                    instance = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Calculate a route through the shared RouteCache
+     */
+    public RouteRequest calculateRoute(final String startStation, final String endStation,
+                                      Callback<RouteSnapshot> callback) {
+        return submit(() -> RouteCache.getInstance().getRoute(startStation, endStation), callback);
+    }
+
+    /**
+     * Run any route-related work, e.g. calculation plus formatting, and deliver its result
+     */
+    public <T> RouteRequest submit(Callable<T> task, Callback<T> callback) {
+        RouteTask<T> routeTask = new RouteTask<>(task, callback);
+        executor.execute(routeTask);
+        return routeTask.request;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Handle for a submitted request
+     */
+    public static final class RouteRequest {
+        private final FutureTask<?> task;
+        private volatile boolean cancelled;
+
+        RouteRequest(FutureTask<?> task) {
+            this.task = task;
+        }
+
+        /**
+         * Cancel the request; its callback will not run
+         */
+        public void cancel() {
+            cancelled = true;
+            task.cancel(false);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return task.isDone();
+        }
+    }
+
+    private final class RouteTask<T> extends FutureTask<T> {
+        final Callback<T> callback;
+        final RouteRequest request;
+
+        RouteTask(Callable<T> task, Callback<T> callback) {
+            super(task);
+            this.callback = callback;
+            this.request = new RouteRequest(this);
+        }
+
+        @Override
+        protected void done() {
+            if (request.isCancelled() || isCancelled()) return;
+
+            T result;
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                final Throwable error = e.getCause();
+                callbackExecutor.execute(() -> {
+                    if (!request.isCancelled()) callback.onError(error);
+                });
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final T value = result;
+            // Checked again on delivery: the request may be cancelled while the callback is queued
+            callbackExecutor.execute(() -> {
+                if (!request.isCancelled()) callback.onResult(value);
+            });
+        }
+    }
+
+    private static final class DropOldest implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                ((RouteTask<?>) task).request.cancel();
+                return;
+            }
+            Runnable oldest = executor.getQueue().poll();
+            if (oldest != null) {
+                ((RouteTask<?>) oldest).request.cancel();
+            }
+            executor.execute(task);
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "route-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            // Below the UI thread so calculation never competes with drawing
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.GeneratedNetwork;
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * All-pairs route table, filled as it is queried
+ * Each origin gets a row the first time it is looked up, and each pair in it is filled on first
+ * use: from the routes in GeneratedNetwork for the compiled-in network, and by running the router
+ * for any other. Building costs one route per pair actually asked for rather than stationCount^2,
+ * and every repeated pair is answered with an O(1) lookup.
+ */
+final class RouteTable {
+
+    private static volatile RouteTable instance;
+
+    // Marks a pair that has been routed and has no journey, so it is not searched again
+    private static final Journey UNREACHABLE = new Journey(new int[] {0}, new int[0], new int[0], -1, 0, 0);
+
+    private final RaptorRouter router;
+    private final StationGraph graph;
+    private final int stationCount;
+    private final AtomicReferenceArray<Journey[]> rows;
+    private final GeneratedNetwork generated;
+
+    RouteTable(RaptorRouter router) {
+        this.router = router;
+        this.graph = router.getGraph();
+        this.stationCount = graph.getStationCount();
+        this.rows = new AtomicReferenceArray<>(stationCount);
+        this.generated = GeneratedNetwork.INSTANCE.describes(graph) ? GeneratedNetwork.INSTANCE : null;
+    }
+
+    /**
+     * Get the shared table, creating it empty on first use
+     */
+    static RouteTable getInstance() {
+        RouteTable table = instance;
+        if (table == null) {
+            synchronized (RouteTable.class) {
+                table = instance;
+                if (table == null) {
+                    table = new RouteTable(RaptorRouter.getDefault());
+                    instance = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Get the default journey between two station ids, or null if there is none
+     */
+    Journey getJourney(int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        Journey[] row = rows.get(from);
+        if (row == null) {
+            rows.compareAndSet(from, null, new Journey[stationCount]);
+            row = rows.get(from);
+        }
+        Journey journey = row[to];
+        if (journey == null) {
+            // Journey is immutable, so a racing thread at worst fills the same entry twice
+            journey = generated != null ? expand(from, to) : router.route(from, to, RouteOptions.DEFAULT);
+            if (journey == null) {
+                journey = UNREACHABLE;
+            }
+            row[to] = journey;
+        }
+        return journey != UNREACHABLE ? journey : null;
+    }
+
+    /**
+     * Look up the route between two stations, or an empty result if there is none
+     */
+    RouteResult lookup(String startStation, String endStation) {
+        int from = graph.indexOf(startStation);
+        int to = graph.indexOf(endStation);
+        if (from < 0 || to < 0) {
+            return new RouteResult();
+        }
+
+        Journey journey = getJourney(from, to);
+        return journey != null ? journey.toRouteResult(graph) : new RouteResult();
+    }
+
+    /**
+     * Rebuild the router's journey from the legs stored in the generated table
+     */
+    private Journey expand(int from, int to) {
+        int legs = generated.getRouteLegCount(from, to);
+        if (legs == 0) {
+            return null;
+        }
+
+        int[] legLines = new int[legs];
+        int[] transfers = new int[legs - 1];
+        int stops = 0;
+        int board = from;
+        for (int leg = 0; leg < legs; leg++) {
+            legLines[leg] = generated.getRouteLegLine(from, to, leg);
+            int alight = leg < legs - 1 ? generated.getRouteTransfer(from, to, leg) : to;
+            if (leg < legs - 1) {
+                transfers[leg] = alight;
+            }
+            stops += Math.abs(graph.getPosition(legLines[leg], alight) - graph.getPosition(legLines[leg], board));
+            board = alight;
+        }
+
+        int[] path = new int[stops + 1];
+        int length = 0;
+        int directionStation = -1;
+        board = from;
+        for (int leg = 0; leg < legs; leg++) {
+            int line = legLines[leg];
+            int alight = leg < legs - 1 ? transfers[leg] : to;
+            int start = graph.getPosition(line, board);
+            int end = graph.getPosition(line, alight);
+            int step = end > start ? 1 : -1;
+            for (int pos = length == 0 ? start : start + step; ; pos += step) {
+                path[length++] = graph.getStationAt(line, pos);
+                if (pos == end) break;
+            }
+            directionStation = graph.getStationAt(line, step > 0 ? graph.getLineLength(line) - 1 : 0);
+            board = alight;
+        }
+
+        int minutes = stops * RaptorRouter.MINUTES_PER_STATION + (legs - 1) * RaptorRouter.TRANSFER_MINUTES;
+        return new Journey(path, legLines, transfers, directionStation, minutes,
+                FareEngine.forGraph(graph).getPathFare(path, path.length));
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.services.PreferencesManager.SavedRoute;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bounded list of saved routes kept in memory and persisted as an append-only log
+ *
+ * Lookups go through a hash index on (start, end). Each update changes memory under one lock,
+ * so concurrent callers never lose each other's changes, and queues a single JSON line for a
+ * background writer. When the log grows well past the live entries it is compacted into a
+ * fresh file that replaces the old one atomically. Loading also runs in the background;
+ * the first access waits for it, as with SharedPreferences.
+ */
+public class SavedRouteStore {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Compact once the log holds this many records and more than twice the live entries
+    private static final int MIN_COMPACTION_RECORDS = 64;
+
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_CLEAR = "clear";
+
+    // One writer for every store keeps disk work off the caller and in order
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "saved-route-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<String, SavedRouteStore> OPEN_STORES = new HashMap<>();
+
+    // Shared by every store: the preference I/O as a whole is what shows up as jank
+    private static final Metrics.Histogram LOAD_TIME = Metrics.getDefault().histogram("prefs.load");
+    private static final Metrics.Histogram LOAD_WAIT_TIME = Metrics.getDefault().histogram("prefs.loadWait");
+    private static final Metrics.Histogram APPEND_TIME = Metrics.getDefault().histogram("prefs.append");
+    private static final Metrics.Histogram COMPACT_TIME = Metrics.getDefault().histogram("prefs.compact");
+    private static final Metrics.Counter WRITE_ERRORS = Metrics.getDefault().counter("prefs.writeErrors");
+
+    private final File file;
+    private final int maxEntries;
+    private final Gson gson = new Gson();
+
+    // Insertion order is oldest first; lists are returned newest first
+    private final LinkedHashMap<Key, SavedRoute> entries = new LinkedHashMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private int logRecords;
+    private boolean needsCompaction;
+
+    /**
+     * Get the store for a file, opening it on first use
+     * Every caller shares one instance per file, so there is only ever one writer
+     *
+     * @param legacySource entries to start from when the log file does not exist yet, or null
+     */
+    public static SavedRouteStore open(File file, int maxEntries, Callable<List<SavedRoute>> legacySource) {
+        String path = file.getAbsolutePath();
+        synchronized (OPEN_STORES) {
+            SavedRouteStore store = OPEN_STORES.get(path);
+            if (store == null) {
+                store = new SavedRouteStore(file, maxEntries, legacySource);
+                OPEN_STORES.put(path, store);
+            }
+            return store;
+        }
+    }
+
+    SavedRouteStore(File file, int maxEntries, final Callable<List<SavedRoute>> legacySource) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries <= 0: " + maxEntries);
+        }
+        this.file = file;
+        this.maxEntries = maxEntries;
+        IO_EXECUTOR.execute(() -> load(legacySource));
+    }
+
+    public boolean contains(String startStation, String endStation) {
+        awaitLoaded();
+        synchronized (entries) {
+            return entries.containsKey(new Key(startStation, endStation));
+        }
+    }
+
+    /**
+     * All saved routes, newest first
+     */
+    public List<SavedRoute> getAll() {
+        awaitLoaded();
+        synchronized (entries) {
+            List<SavedRoute> routes = new ArrayList<>(entries.values());
+            Collections.reverse(routes);
+            return routes;
+        }
+    }
+
+    public int size() {
+        awaitLoaded();
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Add the route as newest unless it is already saved; returns false if it was
+     */
+    public boolean addIfAbsent(SavedRoute route) {
+        awaitLoaded();
+        synchronized (entries) {
+            Key key = new Key(route.getStartStation(), route.getEndStation());
+            if (entries.containsKey(key)) {
+                return false;
+            }
+            putLocked(key, route);
+            return true;
+        }
+    }
+
+    /**
+     * Add the route as newest, replacing and moving up an existing entry for the same stations
+     */
+    public void addOrMoveToFront(SavedRoute route) {
+        awaitLoaded();
+        synchronized (entries) {
+            Key key = new Key(route.getStartStation(), route.getEndStation());
+            // Remove first so the entry moves to the end of the insertion order
+            entries.remove(key);
+            putLocked(key, route);
+        }
+    }
+
+    public boolean remove(String startStation, String endStation) {
+        awaitLoaded();
+        synchronized (entries) {
+            SavedRoute removed = entries.remove(new Key(startStation, endStation));
+            if (removed == null) {
+                return false;
+            }
+            appendLocked(new Record(OP_REMOVE, removed));
+            return true;
+        }
+    }
+
+    public void clear() {
+        awaitLoaded();
+        synchronized (entries) {
+            entries.clear();
+            appendLocked(new Record(OP_CLEAR, null));
+        }
+    }
+
+    /**
+     * Block until every queued write has reached the file
+     */
+    public void flush() {
+        Future<?> done = IO_EXECUTOR.submit(() -> { });
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The marker task does nothing, so this is a bug rather than a write error
+            throw new IllegalStateException("Flush marker failed", e.getCause());
+        }
+    }
+
+    private void putLocked(Key key, SavedRoute route) {
+        entries.put(key, route);
+        appendLocked(new Record(OP_PUT, route));
+
+        // Drop the oldest entries beyond the limit
+        Iterator<SavedRoute> oldest = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            SavedRoute evicted = oldest.next();
+            oldest.remove();
+            appendLocked(new Record(OP_REMOVE, evicted));
+        }
+    }
+
+    private void appendLocked(Record record) {
+        logRecords++;
+        if (needsCompaction || (logRecords >= MIN_COMPACTION_RECORDS && logRecords > 2 * entries.size())) {
+            // The snapshot is taken under the lock, so it already contains this record
+            final List<SavedRoute> snapshot = new ArrayList<>(entries.values());
+            logRecords = snapshot.size();
+            needsCompaction = false;
+            IO_EXECUTOR.execute(() -> compact(snapshot));
+        } else {
+            final String line = gson.toJson(record);
+            IO_EXECUTOR.execute(() -> append(line));
+        }
+    }
+
+    private void awaitLoaded() {
+        if (loaded.getCount() == 0) {
+            return;
+        }
+        // Only callers that actually block are timed
+        long start = System.nanoTime();
+        try {
+            loaded.await();
+            LOAD_WAIT_TIME.recordSince(start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writer thread
+
+    private void load(Callable<List<SavedRoute>> legacySource) {
+        long start = System.nanoTime();
+        try {
+            if (file.exists()) {
+                replay();
+            } else if (legacySource != null) {
+                List<SavedRoute> legacy = legacySource.call();
+                if (legacy != null) {
+                    // Legacy lists are newest first
+                    for (int i = legacy.size() - 1; i >= 0; i--) {
+                        SavedRoute route = legacy.get(i);
+                        entries.put(new Key(route.getStartStation(), route.getEndStation()), route);
+                    }
+                }
+                logRecords = entries.size();
+                compact(new ArrayList<>(entries.values()));
+            }
+        } catch (Exception e) {
+            // Keep whatever was read; the next write rewrites the file from memory
+            needsCompaction = true;
+        } finally {
+            LOAD_TIME.recordSince(start);
+            loaded.countDown();
+        }
+    }
+
+    private void replay() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Record record;
+                try {
+                    record = gson.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    // A torn last line from a crash mid-write; everything before it is intact
+                    needsCompaction = true;
+                    break;
+                }
+                if (record == null || record.op == null) continue;
+                logRecords++;
+                if (OP_CLEAR.equals(record.op)) {
+                    entries.clear();
+                } else if (record.route != null) {
+                    Key key = new Key(record.route.getStartStation(), record.route.getEndStation());
+                    entries.remove(key);
+                    if (OP_PUT.equals(record.op)) {
+                        entries.put(key, record.route);
+                    }
+                }
+            }
+        }
+        while (entries.size() > maxEntries) {
+            Iterator<SavedRoute> oldest = entries.values().iterator();
+            oldest.next();
+            oldest.remove();
+            needsCompaction = true;
+        }
+    }
+
+    private void append(String line) {
+        long start = System.nanoTime();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), UTF_8))) {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            WRITE_ERRORS.increment();
+            markNeedsCompaction();
+        }
+        APPEND_TIME.recordSince(start);
+    }
+
+    private void compact(List<SavedRoute> snapshot) {
+        long start = System.nanoTime();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+            for (SavedRoute route : snapshot) {
+                writer.write(gson.toJson(new Record(OP_PUT, route)));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            WRITE_ERRORS.increment();
+            markNeedsCompaction();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            WRITE_ERRORS.increment();
+            markNeedsCompaction();
+        }
+        COMPACT_TIME.recordSince(start);
+    }
+
+    private void markNeedsCompaction() {
+        synchronized (entries) {
+            needsCompaction = true;
+        }
+    }
+
+    /**
+     * One line of the log
+     */
+    private static final class Record {
+        final String op;
+        final SavedRoute route;
+
+        Record(String op, SavedRoute route) {
+            this.op = op;
+            this.route = route;
+        }
+    }
+
+    private static final class Key {
+        final String start;
+        final String end;
+
+        Key(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return equal(start, other.start) && equal(end, other.end);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = start != null ? start.hashCode() : 0;
+            return 31 * result + (end != null ? end.hashCode() : 0);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
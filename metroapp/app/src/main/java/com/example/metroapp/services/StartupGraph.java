@@ -0,0 +1,234 @@
+package com.example.metroapp.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs app start-up components once per process, in dependency order and in parallel
+ * Components are added after everything they depend on, so the graph cannot have cycles. start()
+ * schedules the eager components; deferred ones wait for startDeferred() (after the first frame)
+ * unless something asks for them first. Results are kept, so a recreated activity gets them
+ * back without redoing any work.
+ */
+public final class StartupGraph {
+
+    /**
+     * Creates one component; runs on a background thread
+     */
+    public interface Component<T> {
+        T create() throws Exception;
+    }
+
+    private final Executor executor;
+    private final Executor callbackExecutor;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final List<Node> order = new ArrayList<>();
+
+    public StartupGraph(Executor executor, Executor callbackExecutor) {
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Register a component that starts with start()
+     */
+    public synchronized <T> StartupGraph add(String name, Component<T> component, String... dependencies) {
+        return add(name, false, component, dependencies);
+    }
+
+    /**
+     * Register a component that waits for startDeferred() unless it is needed earlier
+     */
+    public synchronized <T> StartupGraph addDeferred(String name, Component<T> component, String... dependencies) {
+        return add(name, true, component, dependencies);
+    }
+
+    private <T> StartupGraph add(String name, boolean deferred, Component<T> component, String... dependencies) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate component " + name);
+        }
+        Node node = new Node(name, deferred, component);
+        for (String dependency : dependencies) {
+            Node parent = nodes.get(dependency);
+            if (parent == null) {
+                throw new IllegalArgumentException(name + " depends on unknown component " + dependency);
+            }
+            node.dependencies.add(parent);
+            parent.dependents.add(node);
+        }
+        nodes.put(name, node);
+        order.add(node);
+        return this;
+    }
+
+    /**
+     * Schedule every eager component; calling it again does nothing
+     */
+    public synchronized void start() {
+        for (Node node : order) {
+            if (!node.deferred) {
+                schedule(node);
+            }
+        }
+    }
+
+    /**
+     * Schedule the deferred components too, e.g. once the first frame is drawn
+     */
+    public synchronized void startDeferred() {
+        for (Node node : order) {
+            schedule(node);
+        }
+    }
+
+    /**
+     * Block until a component is ready and return it; for background threads only
+     * Schedules the component if nothing has yet. Throws IllegalStateException if it failed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T await(String name) throws InterruptedException {
+        Node node;
+        synchronized (this) {
+            node = require(name);
+            schedule(node);
+            while (node.state < Node.DONE) {
+                wait();
+            }
+        }
+        if (node.error != null) {
+            throw new IllegalStateException("Start-up component " + name + " failed", node.error);
+        }
+        return (T) node.result;
+    }
+
+    /**
+     * Deliver a component on the callback executor once it is ready, scheduling it if needed
+     */
+    public <T> void whenReady(String name, RouteService.Callback<T> callback) {
+        Node node;
+        synchronized (this) {
+            node = require(name);
+            schedule(node);
+            if (node.state < Node.DONE) {
+                node.callbacks.add(callback);
+                return;
+            }
+        }
+        deliver(node, callback);
+    }
+
+    public synchronized boolean isReady(String name) {
+        Node node = require(name);
+        return node.state == Node.DONE && node.error == null;
+    }
+
+    private Node require(String name) {
+        Node node = nodes.get(name);
+        if (node == null) {
+            throw new IllegalArgumentException("Unknown component " + name);
+        }
+        return node;
+    }
+
+    // Caller holds the lock
+    private void schedule(Node node) {
+        if (node.state != Node.IDLE) {
+            return;
+        }
+        node.state = Node.WAITING;
+        node.pending = 0;
+        for (Node dependency : node.dependencies) {
+            schedule(dependency);
+            if (dependency.state < Node.DONE) {
+                node.pending++;
+            }
+        }
+        if (node.pending == 0) {
+            submit(node);
+        }
+    }
+
+    // Caller holds the lock
+    private void submit(final Node node) {
+        Throwable failed = null;
+        for (Node dependency : node.dependencies) {
+            if (dependency.error != null) {
+                failed = dependency.error;
+                break;
+            }
+        }
+        node.state = Node.RUNNING;
+        if (failed != null) {
+            // Nothing is run on top of a failed component
+            finish(node, null, failed);
+            return;
+        }
+        executor.execute(() -> {
+            Object result = null;
+            Throwable error = null;
+            try {
+                result = node.component.create();
+            } catch (Throwable t) {
+                error = t;
+            }
+            synchronized (StartupGraph.this) {
+                finish(node, result, error);
+            }
+        });
+    }
+
+    // Caller holds the lock
+    private void finish(Node node, Object result, Throwable error) {
+        node.result = result;
+        node.error = error;
+        node.state = Node.DONE;
+        notifyAll();
+        for (final RouteService.Callback<?> callback : node.callbacks) {
+            deliver(node, callback);
+        }
+        node.callbacks.clear();
+        for (Node dependent : node.dependents) {
+            if (dependent.state == Node.WAITING && --dependent.pending == 0) {
+                submit(dependent);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(final Node node, final RouteService.Callback<?> callback) {
+        callbackExecutor.execute(() -> {
+            if (node.error != null) {
+                callback.onError(node.error);
+            } else {
+                ((RouteService.Callback<Object>) callback).onResult(node.result);
+            }
+        });
+    }
+
+    private static final class Node {
+        static final int IDLE = 0;
+        static final int WAITING = 1;
+        static final int RUNNING = 2;
+        static final int DONE = 3;
+
+        final String name;
+        final boolean deferred;
+        final Component<?> component;
+        final List<Node> dependencies = new ArrayList<>();
+        final List<Node> dependents = new ArrayList<>();
+        final List<RouteService.Callback<?>> callbacks = new ArrayList<>();
+        int state = IDLE;
+        int pending;
+        Object result;
+        Throwable error;
+
+        Node(String name, boolean deferred, Component<?> component) {
+            this.name = name;
+            this.deferred = deferred;
+            this.component = component;
+        }
+    }
+}
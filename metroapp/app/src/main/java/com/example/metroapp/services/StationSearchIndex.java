@@ -0,0 +1,402 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationAliases;
+import com.example.metroapp.data.StationGraph;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bilingual, typo-tolerant station search for the autocomplete fields
+ *
+ * Every English name, Arabic name, transliterated Arabic name and legacy spelling is
+ * normalized and inserted into a character trie once per word, so typing the start of
+ * any word finds the station. Queries walk the trie with a Levenshtein row per node and
+ * prune branches that exceed the edit budget, so each keystroke costs microseconds.
+ * Instances are immutable after construction and safe to query from any thread.
+ */
+public class StationSearchIndex {
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    private static final int ROOT = 0;
+
+    private static volatile StationSearchIndex defaultIndex;
+
+    private final StationGraph graph;
+
+    // Trie in first-child / next-sibling layout
+    private char[] labels = new char[256];
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];
+    private int[] firstTerminal = new int[256];
+    private int nodeCount;
+
+    // Terminal list: station id per key ending at a node, flagged when the key is the start of a name
+    private int[] terminalStation = new int[128];
+    private boolean[] terminalNameStart = new boolean[128];
+    private int[] terminalNext = new int[128];
+    private int terminalCount;
+
+    private int maxDepth;
+
+    public StationSearchIndex(StationGraph graph) {
+        this.graph = graph;
+        newNode('\0');
+        for (int station = 0; station < graph.getStationCount(); station++) {
+            String name = graph.getName(station);
+            addName(station, normalize(name));
+            for (String alias : StationAliases.getAliases(name)) {
+                addName(station, normalize(alias));
+                if (isArabic(alias)) {
+                    addName(station, normalize(transliterate(alias)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the index over the default StationGraph, built on first use
+     */
+    public static StationSearchIndex getDefault() {
+        StationSearchIndex index = defaultIndex;
+        if (index == null) {
+            synchronized (StationSearchIndex.class) {
+                index = defaultIndex;
+                if (index == null) {
+                    index = new StationSearchIndex(StationGraph.getDefault());
+                    defaultIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Find stations whose name (in any language or spelling) starts with the query,
+     * allowing a small number of typos that grows with query length
+     * Results are canonical station names, best matches first
+     */
+    public List<String> search(CharSequence query, int limit) {
+        String normalized = normalize(query == null ? "" : query.toString());
+        List<String> results = new ArrayList<>();
+        if (normalized.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        int n = graph.getStationCount();
+        // Best rank per station: distance * 2 + (0 if the match is at the start of the name)
+        int[] bestRank = new int[n];
+        Arrays.fill(bestRank, Integer.MAX_VALUE);
+
+        int maxEdits = maxEdits(normalized.length());
+        int columns = normalized.length() + 1;
+        int[][] rows = new int[Math.min(maxDepth, normalized.length() + maxEdits) + 1][columns];
+        for (int i = 0; i < columns; i++) {
+            rows[0][i] = i;
+        }
+        for (int child = firstChild[ROOT]; child != 0; child = nextSibling[child]) {
+            walk(child, 1, normalized, maxEdits, Integer.MAX_VALUE, rows, bestRank);
+        }
+
+        // Order by rank, then name length, then id (ids follow alphabetical station order)
+        int matched = 0;
+        int[] order = new int[Math.min(limit, n)];
+        for (int station = 0; station < n; station++) {
+            if (bestRank[station] != Integer.MAX_VALUE) {
+                matched = insertByRank(order, matched, station, bestRank);
+            }
+        }
+        for (int i = 0; i < matched; i++) {
+            results.add(graph.getName(order[i]));
+        }
+        return results;
+    }
+
+    public List<String> search(CharSequence query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Extend the Levenshtein table by one trie node
+     * pathBest is the smallest distance between the full query and any prefix on the path so far;
+     * every key passing through such a prefix is a hit at that distance
+     */
+    private void walk(int node, int depth, String query, int maxEdits, int pathBest,
+                      int[][] rows, int[] bestRank) {
+        int columns = query.length() + 1;
+        int[] previous = rows[depth - 1];
+        int[] row = rows[depth];
+        char c = labels[node];
+
+        row[0] = depth;
+        int rowMin = row[0];
+        for (int i = 1; i < columns; i++) {
+            int cost = query.charAt(i - 1) == c ? 0 : 1;
+            int value = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            row[i] = value;
+            rowMin = Math.min(rowMin, value);
+        }
+        int best = Math.min(pathBest, row[columns - 1]);
+
+        if (rowMin > maxEdits || depth + 1 >= rows.length) {
+            // Distances can only grow from here
+            if (best <= maxEdits) {
+                collect(node, best, bestRank);
+            }
+            return;
+        }
+
+        if (best <= maxEdits) {
+            rankTerminals(node, best, bestRank);
+        }
+        for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+            walk(child, depth + 1, query, maxEdits, best, rows, bestRank);
+        }
+    }
+
+    private void collect(int node, int distance, int[] bestRank) {
+        rankTerminals(node, distance, bestRank);
+        for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+            collect(child, distance, bestRank);
+        }
+    }
+
+    private void rankTerminals(int node, int distance, int[] bestRank) {
+        for (int t = firstTerminal[node]; t != 0; t = terminalNext[t]) {
+            int station = terminalStation[t];
+            int rank = distance * 2 + (terminalNameStart[t] ? 0 : 1);
+            if (rank < bestRank[station]) {
+                bestRank[station] = rank;
+            }
+        }
+    }
+
+    /**
+     * Insert into the best-first top list, dropping the worst once it is full; returns the new size
+     * Bounded by the limit, so queries matching thousands of stations stay cheap
+     */
+    private int insertByRank(int[] order, int count, int station, int[] rank) {
+        if (count == order.length && compare(order[count - 1], station, rank) <= 0) {
+            return count;
+        }
+        int j = count == order.length ? count - 2 : count - 1;
+        while (j >= 0 && compare(order[j], station, rank) > 0) {
+            order[j + 1] = order[j];
+            j--;
+        }
+        order[j + 1] = station;
+        return Math.min(count + 1, order.length);
+    }
+
+    /**
+     * Lower rank first, then shorter names (the closer fit for the same prefix), then id
+     */
+    private int compare(int a, int b, int[] rank) {
+        if (rank[a] != rank[b]) return rank[a] < rank[b] ? -1 : 1;
+        int lengthA = graph.getName(a).length();
+        int lengthB = graph.getName(b).length();
+        if (lengthA != lengthB) return lengthA < lengthB ? -1 : 1;
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+    private static int maxEdits(int queryLength) {
+        if (queryLength <= 3) return 0;
+        if (queryLength <= 6) return 1;
+        return 2;
+    }
+
+    // Index construction
+
+    private void addName(int station, String normalized) {
+        if (normalized.isEmpty()) return;
+        // Insert the full name and every word suffix so any word can start a match
+        boolean nameStart = true;
+        for (int start = 0; start < normalized.length(); start++) {
+            if (start == 0 || normalized.charAt(start - 1) == ' ') {
+                insert(normalized.substring(start), station, nameStart);
+                nameStart = false;
+                // Arabic article is written attached to the word: index the bare word as well
+                if (normalized.startsWith("ال", start) && start + 2 < normalized.length()) {
+                    insert(normalized.substring(start + 2), station, false);
+                }
+            }
+        }
+    }
+
+    private void insert(String key, int station, boolean nameStart) {
+        int node = ROOT;
+        for (int i = 0; i < key.length(); i++) {
+            node = child(node, key.charAt(i));
+        }
+        maxDepth = Math.max(maxDepth, key.length());
+
+        for (int t = firstTerminal[node]; t != 0; t = terminalNext[t]) {
+            if (terminalStation[t] == station) {
+                terminalNameStart[t] |= nameStart;
+                return;
+            }
+        }
+        if (terminalCount == 0) terminalCount = 1; // Slot 0 marks the end of a list
+        if (terminalCount == terminalStation.length) {
+            int size = terminalCount * 2;
+            terminalStation = Arrays.copyOf(terminalStation, size);
+            terminalNameStart = Arrays.copyOf(terminalNameStart, size);
+            terminalNext = Arrays.copyOf(terminalNext, size);
+        }
+        int t = terminalCount++;
+        terminalStation[t] = station;
+        terminalNameStart[t] = nameStart;
+        terminalNext[t] = firstTerminal[node];
+        firstTerminal[node] = t;
+    }
+
+    private int child(int node, char c) {
+        int last = 0;
+        for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+            if (labels[child] == c) return child;
+            last = child;
+        }
+        int created = newNode(c);
+        if (last == 0) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[last] = created;
+        }
+        return created;
+    }
+
+    private int newNode(char label) {
+        if (nodeCount == labels.length) {
+            int size = nodeCount * 2;
+            labels = Arrays.copyOf(labels, size);
+            firstChild = Arrays.copyOf(firstChild, size);
+            nextSibling = Arrays.copyOf(nextSibling, size);
+            firstTerminal = Arrays.copyOf(firstTerminal, size);
+        }
+        labels[nodeCount] = label;
+        return nodeCount++;
+    }
+
+    // Normalization
+
+    /**
+     * Fold a name or query into the search alphabet
+     * Latin: strip diacritics, lower-case, treat hyphens and apostrophes as spaces,
+     * fold "al" to "el", y to i and doubled letters to one.
+     * Arabic: strip tashkeel and tatweel, unify alef, yaa, taa marbuta and hamza carriers.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        char previous = ' ';
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = foldChar(decomposed.charAt(i));
+            if (c == 0) continue;
+            if (c == ' ' && previous == ' ') continue;
+            if (c == previous && c != ' ' && c < 0x0600) continue; // Doubled Latin letter
+            out.append(c);
+            previous = c;
+        }
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) == ' ') {
+            out.setLength(length - 1);
+        }
+
+        // Latin article: "al" and "el" are used interchangeably
+        String[] words = out.toString().split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals("al")) {
+                words[i] = "el";
+            }
+        }
+        return join(words);
+    }
+
+    private static String join(String[] words) {
+        StringBuilder out = new StringBuilder();
+        for (String word : words) {
+            if (out.length() > 0) out.append(' ');
+            out.append(word);
+        }
+        return out.toString();
+    }
+
+    private static char foldChar(char c) {
+        if (Character.getType(c) == Character.NON_SPACING_MARK) return 0; // Latin diacritics, Arabic tashkeel
+        switch (c) {
+            case '-': case '\'': case '’': case '.': case ',': case '_': case '\t':
+                return ' ';
+            case 'ـ': // Tatweel
+                return 0;
+            case 'أ': case 'إ': case 'آ': case 'ٱ':
+                return 'ا'; // Alef variants
+            case 'ى': case 'ئ':
+                return 'ي'; // Alef maksura, yaa with hamza
+            case 'ة':
+                return 'ه'; // Taa marbuta
+            case 'ؤ':
+                return 'و'; // Waw with hamza
+            case 'y': case 'Y':
+                return 'i';
+        }
+        if (c == ' ') return ' ';
+        if (Character.isLetterOrDigit(c)) return Character.toLowerCase(c);
+        return 0;
+    }
+
+    private static boolean isArabic(String text) {
+        return !text.isEmpty() && Character.UnicodeBlock.of(text.charAt(0)) == Character.UnicodeBlock.ARABIC;
+    }
+
+    /**
+     * Romanize an Arabic name the way Cairo signage usually does (Egyptian "g" for jeem,
+     * "el" for the article), so Latin queries can also hit names only known in Arabic
+     */
+    static String transliterate(String arabic) {
+        StringBuilder out = new StringBuilder(arabic.length() * 2);
+        String[] words = arabic.split(" ");
+        for (int w = 0; w < words.length; w++) {
+            String word = words[w];
+            if (w > 0) out.append(' ');
+            if (word.startsWith("ال") && word.length() > 2) { // Definite article
+                out.append("el ");
+                word = word.substring(2);
+            }
+            for (int i = 0; i < word.length(); i++) {
+                out.append(romanize(word.charAt(i)));
+            }
+        }
+        return out.toString();
+    }
+
+    private static String romanize(char c) {
+        switch (c) {
+            case 'ا': case 'أ': case 'إ': case 'آ': case 'ى': case 'ع':
+                return "a";
+            case 'ب': return "b";
+            case 'ت': case 'ط': return "t";
+            case 'ث': return "th";
+            case 'ج': return "g";
+            case 'ح': case 'ه': case 'ة': return "h";
+            case 'خ': return "kh";
+            case 'د': case 'ض': return "d";
+            case 'ذ': case 'ز': case 'ظ': return "z";
+            case 'ر': return "r";
+            case 'س': case 'ص': return "s";
+            case 'ش': return "sh";
+            case 'غ': return "gh";
+            case 'ف': return "f";
+            case 'ق': return "q";
+            case 'ك': return "k";
+            case 'ل': return "l";
+            case 'م': return "m";
+            case 'ن': return "n";
+            case 'و': case 'ؤ': return "o";
+            case 'ي': case 'ئ': return "i";
+            default: return "";
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.utils.GeoUtils;
+
+/**
+ * Static 2-d tree over station coordinates for nearest, k-nearest and radius queries
+ *
+ * Coordinates are projected once onto a local equirectangular plane in meters, which is
+ * accurate to well under 0.1% across Greater Cairo. The tree is implicit: points are
+ * reordered so the median of every range is its node, so there are no node objects and
+ * queries allocate nothing. Point ids are the indices of the input arrays; for the default
+ * index they are StationGraph station ids.
+ */
+public class StationSpatialIndex {
+
+    public static final int NONE = -1;
+
+    private static volatile StationSpatialIndex defaultIndex;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double originLatitude;
+    private final double metersPerDegreeLongitude;
+    private final double metersPerDegreeLatitude;
+
+    // Tree order: ids[i] is the point at tree position i, x/y its projected coordinates
+    private final int[] ids;
+    private final double[] xs;
+    private final double[] ys;
+
+    public StationSpatialIndex(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("latitudes and longitudes differ in length");
+        }
+        int n = latitudes.length;
+        this.latitudes = latitudes.clone();
+        this.longitudes = longitudes.clone();
+
+        double sum = 0;
+        for (double latitude : latitudes) sum += latitude;
+        this.originLatitude = n > 0 ? sum / n : 0;
+        this.metersPerDegreeLatitude = Math.toRadians(1) * GeoUtils.EARTH_RADIUS_METERS;
+        this.metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(originLatitude));
+
+        this.ids = new int[n];
+        this.xs = new double[n];
+        this.ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            xs[i] = projectX(longitudes[i]);
+            ys[i] = projectY(latitudes[i]);
+        }
+        build(0, n, 0);
+    }
+
+    /**
+     * Get the index over the default StationGraph, built on first use
+     * Stations on several lines appear once, under their graph id
+     */
+    public static StationSpatialIndex getDefault() {
+        StationSpatialIndex index = defaultIndex;
+        if (index == null) {
+            synchronized (StationSpatialIndex.class) {
+                index = defaultIndex;
+                if (index == null) {
+                    StationGraph graph = StationGraph.getDefault();
+                    int n = graph.getStationCount();
+                    double[] latitudes = new double[n];
+                    double[] longitudes = new double[n];
+                    for (int id = 0; id < n; id++) {
+                        latitudes[id] = graph.getLatitude(id);
+                        longitudes[id] = graph.getLongitude(id);
+                    }
+                    index = new StationSpatialIndex(latitudes, longitudes);
+                    defaultIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public double getLatitude(int id) {
+        return latitudes[id];
+    }
+
+    public double getLongitude(int id) {
+        return longitudes[id];
+    }
+
+    /**
+     * Great-circle distance from a point to an indexed station, meters
+     */
+    public double distanceMeters(int id, double latitude, double longitude) {
+        return GeoUtils.distanceMeters(latitude, longitude, latitudes[id], longitudes[id]);
+    }
+
+    /**
+     * Id of the nearest station, or NONE if the index is empty
+     */
+    public int nearest(double latitude, double longitude) {
+        if (ids.length == 0) return NONE;
+        long best = nearest(0, ids.length, 0, projectX(longitude), projectY(latitude), pack(Float.POSITIVE_INFINITY, NONE));
+        return unpackId(best);
+    }
+
+    /**
+     * Fill outIds with the k nearest stations, closest first, and outDistances with their
+     * great-circle distance in meters. k is capped by the array lengths; returns the count written
+     */
+    public int nearest(double latitude, double longitude, int k, int[] outIds, float[] outDistances) {
+        k = Math.min(Math.min(k, outIds.length), Math.min(outDistances.length, ids.length));
+        if (k <= 0) return 0;
+
+        // The output arrays double as a max-heap on squared planar distance while searching
+        int count = kNearest(0, ids.length, 0, projectX(longitude), projectY(latitude), k, outIds, outDistances, 0);
+
+        // Heap sort into ascending order, then report great-circle distances
+        for (int end = count - 1; end > 0; end--) {
+            swapHeap(outIds, outDistances, 0, end);
+            siftDown(outIds, outDistances, 0, end);
+        }
+        // Planar and great-circle order can disagree on near-ties; k is small, so insertion sort
+        for (int i = 0; i < count; i++) {
+            int id = outIds[i];
+            float distance = (float) distanceMeters(id, latitude, longitude);
+            int j = i;
+            for (; j > 0 && outDistances[j - 1] > distance; j--) {
+                outIds[j] = outIds[j - 1];
+                outDistances[j] = outDistances[j - 1];
+            }
+            outIds[j] = id;
+            outDistances[j] = distance;
+        }
+        return count;
+    }
+
+    /**
+     * Fill outIds with every station within radiusMeters (unordered, capped at outIds.length);
+     * returns the number of stations written
+     */
+    public int withinRadius(double latitude, double longitude, double radiusMeters, int[] outIds) {
+        if (ids.length == 0 || outIds.length == 0) return 0;
+        return radius(0, ids.length, 0, projectX(longitude), projectY(latitude),
+                radiusMeters * radiusMeters, outIds, 0);
+    }
+
+    private double projectX(double longitude) {
+        return longitude * metersPerDegreeLongitude;
+    }
+
+    private double projectY(double latitude) {
+        return latitude * metersPerDegreeLatitude;
+    }
+
+    // Construction
+
+    private void build(int from, int to, int depth) {
+        if (to - from <= 1) return;
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, (depth & 1) == 0 ? xs : ys);
+        build(from, mid, depth + 1);
+        build(mid + 1, to, depth + 1);
+    }
+
+    /**
+     * Quickselect so that position k holds the median along the given axis
+     */
+    private void select(int left, int right, int k, double[] axis) {
+        while (right > left) {
+            double pivot = axis[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (axis[i] < pivot) i++;
+                while (axis[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+        double x = xs[a]; xs[a] = xs[b]; xs[b] = x;
+        double y = ys[a]; ys[a] = ys[b]; ys[b] = y;
+    }
+
+    // Queries
+
+    /**
+     * Best candidate so far is passed down packed as (float squared distance, id) in one long,
+     * so the recursion needs no result object. Non-negative float bits sort like the floats.
+     */
+    private long nearest(int from, int to, int depth, double x, double y, long best) {
+        if (from >= to) return best;
+        int mid = (from + to) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        float distSq = (float) (dx * dx + dy * dy);
+        if (distSq < unpackDistance(best)) {
+            best = pack(distSq, ids[mid]);
+        }
+
+        double delta = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (delta < 0) {
+            best = nearest(from, mid, depth + 1, x, y, best);
+            if (delta * delta < unpackDistance(best)) {
+                best = nearest(mid + 1, to, depth + 1, x, y, best);
+            }
+        } else {
+            best = nearest(mid + 1, to, depth + 1, x, y, best);
+            if (delta * delta < unpackDistance(best)) {
+                best = nearest(from, mid, depth + 1, x, y, best);
+            }
+        }
+        return best;
+    }
+
+    private int kNearest(int from, int to, int depth, double x, double y, int k,
+                         int[] heapIds, float[] heapDist, int count) {
+        if (from >= to) return count;
+        int mid = (from + to) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        float distSq = (float) (dx * dx + dy * dy);
+        if (count < k) {
+            // Sift up into the max-heap
+            int i = count++;
+            heapIds[i] = ids[mid];
+            heapDist[i] = distSq;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapDist[parent] >= heapDist[i]) break;
+                swapHeap(heapIds, heapDist, parent, i);
+                i = parent;
+            }
+        } else if (distSq < heapDist[0]) {
+            heapIds[0] = ids[mid];
+            heapDist[0] = distSq;
+            siftDown(heapIds, heapDist, 0, count);
+        }
+
+        double delta = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        int nearFrom = delta < 0 ? from : mid + 1;
+        int nearTo = delta < 0 ? mid : to;
+        count = kNearest(nearFrom, nearTo, depth + 1, x, y, k, heapIds, heapDist, count);
+        if (count < k || delta * delta < heapDist[0]) {
+            int farFrom = delta < 0 ? mid + 1 : from;
+            int farTo = delta < 0 ? to : mid;
+            count = kNearest(farFrom, farTo, depth + 1, x, y, k, heapIds, heapDist, count);
+        }
+        return count;
+    }
+
+    private int radius(int from, int to, int depth, double x, double y, double radiusSq, int[] out, int count) {
+        if (from >= to || count == out.length) return count;
+        int mid = (from + to) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        if (dx * dx + dy * dy <= radiusSq) {
+            out[count++] = ids[mid];
+        }
+
+        double delta = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (delta < 0 || delta * delta <= radiusSq) {
+            count = radius(from, mid, depth + 1, x, y, radiusSq, out, count);
+        }
+        if (delta >= 0 || delta * delta <= radiusSq) {
+            count = radius(mid + 1, to, depth + 1, x, y, radiusSq, out, count);
+        }
+        return count;
+    }
+
+    private static void siftDown(int[] heapIds, float[] heapDist, int i, int size) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heapDist[left] > heapDist[largest]) largest = left;
+            if (right < size && heapDist[right] > heapDist[largest]) largest = right;
+            if (largest == i) return;
+            swapHeap(heapIds, heapDist, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swapHeap(int[] heapIds, float[] heapDist, int a, int b) {
+        int id = heapIds[a]; heapIds[a] = heapIds[b]; heapIds[b] = id;
+        float d = heapDist[a]; heapDist[a] = heapDist[b]; heapDist[b] = d;
+    }
+
+    private static long pack(float distanceSq, int id) {
+        return ((long) Float.floatToIntBits(distanceSq) << 32) | (id & 0xffffffffL);
+    }
+
+    private static float unpackDistance(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    private static int unpackId(long packed) {
+        return (int) packed;
+    }
+}
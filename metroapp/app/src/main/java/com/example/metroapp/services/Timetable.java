@@ -0,0 +1,169 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.LineSchedule;
+import com.example.metroapp.data.StationGraph;
+
+import java.util.Arrays;
+
+/**
+ * A full service day of train connections, generated from per-line schedules
+ * A connection is one train running between two adjacent stations. Connections are stored
+ * as parallel arrays sorted by departure time, which is the order the connection scan needs.
+ */
+public final class Timetable {
+
+    private static volatile Timetable defaultTimetable;
+
+    private final StationGraph graph;
+
+    // Connection c runs from departureStation[c] at departureTime[c] to arrivalStation[c] at arrivalTime[c]
+    private final int[] departureStation;
+    private final int[] arrivalStation;
+    private final int[] departureTime;
+    private final int[] arrivalTime;
+    private final int[] trip;
+
+    // Pattern (line * 2 + direction, as in RaptorRouter) served by each trip
+    private final int[] tripPattern;
+
+    /**
+     * @param schedules one schedule per graph line, indexed like the graph's lines
+     */
+    public Timetable(StationGraph graph, LineSchedule[] schedules) {
+        if (schedules.length != graph.getLineCount()) {
+            throw new IllegalArgumentException("Expected " + graph.getLineCount() + " schedules");
+        }
+        this.graph = graph;
+
+        int trips = 0;
+        int connections = 0;
+        for (int line = 0; line < schedules.length; line++) {
+            int lineTrips = schedules[line].getTripCount() * 2;
+            trips += lineTrips;
+            connections += lineTrips * (graph.getLineLength(line) - 1);
+        }
+
+        int[] depStation = new int[connections];
+        int[] arrStation = new int[connections];
+        int[] depTime = new int[connections];
+        int[] tripOf = new int[connections];
+        this.tripPattern = new int[trips];
+
+        int c = 0;
+        int t = 0;
+        for (int line = 0; line < schedules.length; line++) {
+            LineSchedule schedule = schedules[line];
+            int last = graph.getLineLength(line) - 1;
+            for (int start = schedule.getFirstDeparture(); start <= schedule.getLastDeparture();
+                 start += schedule.getHeadway(start)) {
+                for (int dir = 0; dir < 2; dir++) {
+                    tripPattern[t] = line * 2 + dir;
+                    for (int pos = 0; pos < last; pos++) {
+                        depStation[c] = graph.getStationAt(line, dir == 0 ? pos : last - pos);
+                        arrStation[c] = graph.getStationAt(line, dir == 0 ? pos + 1 : last - pos - 1);
+                        depTime[c] = start + pos * RaptorRouter.MINUTES_PER_STATION;
+                        tripOf[c] = t;
+                        c++;
+                    }
+                    t++;
+                }
+            }
+        }
+
+        // Sort by departure time; packing (time, index) into a long keeps the sort primitive
+        long[] order = new long[connections];
+        for (int i = 0; i < connections; i++) {
+            order[i] = ((long) depTime[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        this.departureStation = new int[connections];
+        this.arrivalStation = new int[connections];
+        this.departureTime = new int[connections];
+        this.arrivalTime = new int[connections];
+        this.trip = new int[connections];
+        for (int i = 0; i < connections; i++) {
+            int from = (int) order[i];
+            departureStation[i] = depStation[from];
+            arrivalStation[i] = arrStation[from];
+            departureTime[i] = depTime[from];
+            arrivalTime[i] = depTime[from] + RaptorRouter.MINUTES_PER_STATION;
+            trip[i] = tripOf[from];
+        }
+    }
+
+    /**
+     * Get the timetable for the default StationGraph and line schedules, built on first use
+     */
+    public static Timetable getDefault() {
+        Timetable timetable = defaultTimetable;
+        if (timetable == null) {
+            synchronized (Timetable.class) {
+                timetable = defaultTimetable;
+                if (timetable == null) {
+                    StationGraph graph = StationGraph.getDefault();
+                    LineSchedule[] schedules = new LineSchedule[graph.getLineCount()];
+                    for (int line = 0; line < schedules.length; line++) {
+                        schedules[line] = LineSchedule.forLine(graph.getMetroLine(line));
+                    }
+                    timetable = new Timetable(graph, schedules);
+                    defaultTimetable = timetable;
+                }
+            }
+        }
+        return timetable;
+    }
+
+    public StationGraph getGraph() {
+        return graph;
+    }
+
+    public int getConnectionCount() {
+        return trip.length;
+    }
+
+    public int getTripCount() {
+        return tripPattern.length;
+    }
+
+    public int getDepartureStation(int connection) {
+        return departureStation[connection];
+    }
+
+    public int getArrivalStation(int connection) {
+        return arrivalStation[connection];
+    }
+
+    public int getDepartureTime(int connection) {
+        return departureTime[connection];
+    }
+
+    public int getArrivalTime(int connection) {
+        return arrivalTime[connection];
+    }
+
+    public int getTrip(int connection) {
+        return trip[connection];
+    }
+
+    public int getTripPattern(int trip) {
+        return tripPattern[trip];
+    }
+
+    /**
+     * Index of the first connection departing at or after the given time
+     */
+    public int firstDepartingAt(int minute) {
+        int low = 0;
+        int high = departureTime.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureTime[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
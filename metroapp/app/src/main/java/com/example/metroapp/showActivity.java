@@ -1,35 +1,88 @@
 package com.example.metroapp;
 
+import android.Manifest;
+import android.annotation.SuppressLint;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.graphics.Color;
 import android.location.Location;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Looper;
+import android.text.TextUtils;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.daimajia.androidanimations.library.Techniques;
 import com.daimajia.androidanimations.library.YoYo;
 import com.example.metroapp.data.RouteResult;
-import com.example.metroapp.data.StationData;
+import com.example.metroapp.data.RouteSnapshot;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.ArrivalAlerts;
+import com.example.metroapp.services.JourneyTracker;
+import com.example.metroapp.services.Metrics;
 import com.example.metroapp.services.RouteCalculator;
+import com.example.metroapp.services.RouteCache;
+import com.example.metroapp.services.RouteService;
+import com.example.metroapp.services.StartupGraph;
 import com.example.metroapp.utils.UIUtils;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-
-import mumayank.com.airlocationlibrary.AirLocation;
-
-public class showActivity extends AppCompatActivity implements AirLocation.Callback {
-    private RouteResult currentRoute;
-    private Location loc1 = new Location("");
-    private Location loc2 = new Location("");
-    private AirLocation airLocation;
+import java.util.Locale;
+
+public class showActivity extends AppCompatActivity {
+
+    private static final Metrics.Histogram FIX_TIME = Metrics.getDefault().histogram("location.trackingFix");
+    private static final Metrics.Counter FIXES = Metrics.getDefault().counter("location.fixes");
+
+    private static final int LOCATION_PERMISSION_REQUEST_CODE = 1;
+    private static final int ALERT_PERMISSION_REQUEST_CODE = 2;
+
+    // The chosen route plus up to this many alternatives
+    private static final int MAX_ALTERNATIVES = 3;
+
+    private RouteSnapshot currentRoute;
+    private RouteService.RouteRequest pendingRequest;
+    private FusedLocationProviderClient locationClient;
+    private JourneyTracker tracker;
+    private long requestedInterval = -1;
+    private JourneyTracker.Accuracy requestedAccuracy;
+    private final LocationCallback trackingCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(LocationResult result) {
+            long start = System.nanoTime();
+            for (Location location : result.getLocations()) {
+                FIXES.increment();
+                onTrackingFix(location);
+            }
+            FIX_TIME.recordSince(start);
+        }
+    };
     private TextView routeDetailsText;
-    private String currentRouteText = "";
+    private ChipGroup alternativeChips;
+    private List<RouteOption> routeOptions = Collections.emptyList();
+    private RecyclerView stationList;
+    private RouteStationAdapter stationAdapter;
+    private PrecomputedTextCompat.Params stationTextParams;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -37,13 +90,31 @@ public class showActivity extends AppCompatActivity implements AirLocation.Callb
         setContentView(R.layout.activity_show);
 
         routeDetailsText = findViewById(R.id.routeDetailsText);
+        alternativeChips = findViewById(R.id.routeAlternatives);
+        stationList = findViewById(R.id.routeStationList);
+        stationList.setLayoutManager(new LinearLayoutManager(this));
+        // Station names are measured on the worker with the row's own text settings
+        View template = getLayoutInflater().inflate(R.layout.item_route_station, stationList, false);
+        stationTextParams = TextViewCompat.getTextMetricsParams(template.findViewById(R.id.stationName));
+
         String currentStation = getIntent().getStringExtra("start");
         String arrivalStation = getIntent().getStringExtra("end");
 
         calculateRoute(currentStation, arrivalStation);
     }
 
-    private void calculateRoute(String currentStation, String arrivalStation) {
+    @Override
+    protected void onDestroy() {
+        // Leaving the screen drops the pending calculation and its callback
+        if (pendingRequest != null) {
+            pendingRequest.cancel();
+            pendingRequest = null;
+        }
+        stopTracking();
+        super.onDestroy();
+    }
+
+    private void calculateRoute(final String currentStation, final String arrivalStation) {
         if (currentStation == null || arrivalStation == null ||
             currentStation.equalsIgnoreCase(arrivalStation)) {
             Toast.makeText(this, "Invalid route", Toast.LENGTH_SHORT).show();
@@ -51,19 +122,128 @@ public class showActivity extends AppCompatActivity implements AirLocation.Callb
             return;
         }
 
-        // Use the new RouteCalculator service
-        currentRoute = RouteCalculator.calculateRoute(currentStation, arrivalStation);
+        // A new pair of stations makes any running request stale
+        if (pendingRequest != null) {
+            pendingRequest.cancel();
+        }
+
+        // Calculation and text building run on a worker; the shared cache returns an immutable snapshot
+        final StartupGraph startup = MetroApplication.getStartup(this);
+        final PrecomputedTextCompat.Params params = stationTextParams;
+        pendingRequest = RouteService.getInstance().submit(() -> {
+            // Opened straight after process death, the network may still be loading
+            StationGraph graph = startup.await(MetroApplication.NETWORK);
+            RouteSnapshot route = RouteCache.getInstance().getRoute(currentStation, arrivalStation);
+            List<RouteOption> options = new ArrayList<>();
+            if (!route.isValid()) {
+                return options;
+            }
+            List<RouteResult> alternatives = RouteCalculator.calculateAlternatives(currentStation, arrivalStation,
+                    MAX_ALTERNATIVES + 1);
+            // The chosen route comes first; when it is also an alternative, that copy has its
+            // time counted the same way as the others, transfers included
+            RouteSnapshot chosen = route;
+            for (RouteResult alternative : alternatives) {
+                if (alternative.getStations().equals(route.getStations())) {
+                    chosen = RouteSnapshot.of(alternative);
+                    break;
+                }
+            }
+            options.add(new RouteOption(chosen, graph, params));
+            for (RouteResult alternative : alternatives) {
+                if (options.size() > MAX_ALTERNATIVES) {
+                    break;
+                }
+                if (!containsPath(options, alternative.getStations())) {
+                    options.add(new RouteOption(RouteSnapshot.of(alternative), graph, params));
+                }
+            }
+            return options;
+        }, new RouteService.Callback<List<RouteOption>>() {
+            @Override
+            public void onResult(List<RouteOption> options) {
+                pendingRequest = null;
+                showRoutes(options);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                pendingRequest = null;
+                Toast.makeText(showActivity.this, "No route found", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        });
+    }
+
+    private static boolean containsPath(List<RouteOption> options, List<String> stations) {
+        for (RouteOption option : options) {
+            if (option.route.getStations().equals(stations)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        if (!currentRoute.isValid()) {
+    private void showRoutes(List<RouteOption> options) {
+        if (options.isEmpty()) {
             Toast.makeText(this, "No route found", Toast.LENGTH_SHORT).show();
             finish();
-        } else {
-            displayRouteDetails(currentRoute);
-            YoYo.with(Techniques.FadeIn).duration(1000).playOn(routeDetailsText);
+            return;
+        }
+
+        routeOptions = options;
+        alternativeChips.removeAllViews();
+        if (options.size() > 1) {
+            for (int i = 0; i < options.size(); i++) {
+                final int index = i;
+                Chip chip = (Chip) getLayoutInflater().inflate(R.layout.item_route_alternative, alternativeChips, false);
+                chip.setId(View.generateViewId());
+                chip.setText(options.get(i).label);
+                chip.setChecked(i == 0);
+                chip.setOnClickListener(v -> selectRoute(index));
+                alternativeChips.addView(chip);
+            }
         }
+        findViewById(R.id.routeAlternativesScroll).setVisibility(options.size() > 1 ? View.VISIBLE : View.GONE);
+        selectRoute(0);
+        YoYo.with(Techniques.FadeIn).duration(1000).playOn(findViewById(R.id.routeDetailsCard));
     }
 
-    private void displayRouteDetails(RouteResult route) {
+    /**
+     * Show one of the routes; switching while the journey is tracked stops tracking the old one
+     */
+    private void selectRoute(int index) {
+        RouteOption option = routeOptions.get(index);
+        if (option.route == currentRoute) {
+            return;
+        }
+        if (tracker != null) {
+            stopTracking();
+            ArrivalAlerts.disarm(this);
+            Toast.makeText(this, "Journey tracking stopped", Toast.LENGTH_SHORT).show();
+        }
+        currentRoute = option.route;
+        routeDetailsText.setText(option.summary);
+        stationAdapter = new RouteStationAdapter(option.rows);
+        stationList.setAdapter(stationAdapter);
+    }
+
+    private static String formatSummary(RouteSnapshot route) {
+        StringBuilder result = new StringBuilder();
+        result.append("🚉 Stations: ").append(route.getStationCount()).append("\n");
+        result.append("⏱️ Time: ").append(route.getFormattedTime()).append("\n");
+        result.append("🎫 Ticket: ").append(route.getTicketPrice()).append(" EGP\n");
+        if (route.hasTransfer()) {
+            result.append("🔄 Transfer at: ").append(TextUtils.join(", ", route.getTransferStations())).append("\n");
+        }
+        result.append("➡️ Direction: ").append(route.getDirection());
+        return result.toString();
+    }
+
+    /**
+     * Full plain-text route, only built when the user shares it
+     */
+    private static String formatRouteDetails(RouteSnapshot route) {
         StringBuilder result = new StringBuilder();
 
         // Header with line info
@@ -72,16 +252,7 @@ public class showActivity extends AppCompatActivity implements AirLocation.Callb
         result.append("━━━━━━━━━━━━━━━━━━━━━━━━\n\n");
 
         // Journey info
-        result.append("🚉 Stations: ").append(route.getStationCount()).append("\n");
-        result.append("⏱️ Time: ").append(route.getFormattedTime()).append("\n");
-        result.append("🎫 Ticket: ").append(route.getTicketPrice()).append(" EGP\n");
-
-        // Transfer info
-        if (route.hasTransfer()) {
-            result.append("🔄 Transfer at: ").append(route.getTransferStation()).append("\n");
-        }
-
-        result.append("➡️ Direction: ").append(route.getDirection()).append("\n\n");
+        result.append(formatSummary(route)).append("\n\n");
 
         // Route visualization
         result.append("━━━━━━━━━━━━━━━━━━━━━━━━\n");
@@ -96,7 +267,7 @@ public class showActivity extends AppCompatActivity implements AirLocation.Callb
                 result.append("🟢 ").append(station).append(" (Start)\n");
             } else if (i == stations.size() - 1) {
                 result.append("🔴 ").append(station).append(" (Destination)\n");
-            } else if (station.equals(route.getTransferStation())) {
+            } else if (route.getTransferStations().contains(station)) {
                 result.append("🔄 ").append(station).append(" (Transfer)\n");
             } else {
                 result.append("   ⬇️\n");
@@ -104,79 +275,188 @@ public class showActivity extends AppCompatActivity implements AirLocation.Callb
             }
         }
 
-        currentRouteText = result.toString();
-        routeDetailsText.setText(currentRouteText);
+        return result.toString();
+    }
+
+    /**
+     * One route with its chip label, summary and station rows, built together off the UI thread
+     */
+    private static final class RouteOption {
+        final RouteSnapshot route;
+        final String label;
+        final String summary;
+        final List<RouteStationAdapter.Row> rows;
+
+        RouteOption(RouteSnapshot route, StationGraph graph, PrecomputedTextCompat.Params params) {
+            this.route = route;
+            int changes = route.getTransferCount();
+            String via = changes == 0 ? "direct" : changes == 1 ? "1 change" : changes + " changes";
+            this.label = String.format(Locale.US, "%d min · %s · %d EGP", route.getEstimatedMinutes(), via,
+                    route.getTicketPrice());
+            this.summary = formatSummary(route);
+            this.rows = RouteStationAdapter.buildRows(route, graph, params);
+        }
     }
 
     public void shareRoute(View view) {
-        if (currentRouteText.isEmpty()) {
+        if (currentRoute == null || !currentRoute.isValid()) {
             Toast.makeText(this, "No route to share", Toast.LENGTH_SHORT).show();
             return;
         }
-        UIUtils.shareRoute(this, currentRouteText);
+        UIUtils.shareRoute(this, formatRouteDetails(currentRoute));
     }
 
+    /**
+     * Start following the journey with location updates, or stop if it is already being tracked
+     */
     public void remainingDistance(View view) {
         if (currentRoute == null || !currentRoute.isValid()) {
             Toast.makeText(this, "No active route", Toast.LENGTH_SHORT).show();
             return;
         }
-
-        airLocation = new AirLocation(this, this, true, 0, "");
-        airLocation.start();
+        if (tracker != null) {
+            stopTracking();
+            ArrivalAlerts.disarm(this);
+            Toast.makeText(this, "Journey tracking stopped", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
+                    LOCATION_PERMISSION_REQUEST_CODE);
+            return;
+        }
+        startTracking();
     }
 
     @Override
-    public void onFailure(@NonNull AirLocation.LocationFailedEnum locationFailedEnum) {
-        Toast.makeText(this, "Location error. Please enable GPS.", Toast.LENGTH_SHORT).show();
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        boolean granted = grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED;
+        if (requestCode == LOCATION_PERMISSION_REQUEST_CODE) {
+            if (granted) {
+                startTracking();
+            } else {
+                Toast.makeText(this, "Location error. Please enable GPS.", Toast.LENGTH_SHORT).show();
+            }
+        } else if (requestCode == ALERT_PERMISSION_REQUEST_CODE) {
+            if (granted) {
+                armArrivalAlerts();
+            } else {
+                Toast.makeText(this, "Allow location all the time for arrival alerts", Toast.LENGTH_LONG).show();
+            }
+        }
     }
 
-    @Override
-    public void onSuccess(@NonNull ArrayList<Location> arrayList) {
-        if (arrayList == null || arrayList.isEmpty()) {
-            Toast.makeText(this, "Could not get location", Toast.LENGTH_SHORT).show();
-            return;
+    private void startTracking() {
+        tracker = new JourneyTracker(StationGraph.getDefault(), currentRoute.getStations(),
+                currentRoute.getTransferStations());
+        requestedInterval = -1;
+        requestedAccuracy = null;
+        requestUpdates();
+        if (stationAdapter != null) {
+            stationAdapter.setCurrentPosition(tracker.getReachedIndex());
         }
+        Toast.makeText(this, "Tracking your journey", Toast.LENGTH_SHORT).show();
+        armArrivalAlerts();
+    }
 
-        double latitude = arrayList.get(0).getLatitude();
-        double longitude = arrayList.get(0).getLongitude();
-        loc1.setLatitude(latitude);
-        loc1.setLongitude(longitude);
+    private void stopTracking() {
+        if (locationClient != null) {
+            locationClient.removeLocationUpdates(trackingCallback);
+        }
+        tracker = null;
+        if (stationAdapter != null) {
+            stationAdapter.setCurrentPosition(RouteStationAdapter.NO_POSITION);
+        }
+    }
 
-        // Find nearest station to current location
-        Station nearestStation = null;
-        float minDistance = Float.MAX_VALUE;
+    /**
+     * Arm geofence alerts for the route, asking for the permissions they need one at a time
+     * The alerts keep working after this screen is gone, until arrival or until tracking is stopped.
+     */
+    private void armArrivalAlerts() {
+        String missing = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && ContextCompat.checkSelfPermission(this,
+                Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            missing = Manifest.permission.POST_NOTIFICATIONS;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && ContextCompat.checkSelfPermission(this,
+                Manifest.permission.ACCESS_BACKGROUND_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            // Geofences only fire in the background with this; it has to be asked for on its own
+            missing = Manifest.permission.ACCESS_BACKGROUND_LOCATION;
+        }
+        if (missing != null) {
+            ActivityCompat.requestPermissions(this, new String[]{missing}, ALERT_PERMISSION_REQUEST_CODE);
+            return;
+        }
+        if (currentRoute != null) {
+            ArrivalAlerts.arm(this, currentRoute).addOnFailureListener(this, e ->
+                    Toast.makeText(this, "Arrival alerts are unavailable; is location on?", Toast.LENGTH_LONG).show());
+        }
+    }
 
-        for (Station station : StationData.ALL_STATIONS_WITH_COORDINATES) {
-            loc2.setLatitude(station.getLatitude());
-            loc2.setLongitude(station.getLongitude());
-            float distance = loc1.distanceTo(loc2);
+    /**
+     * Re-register location updates when the tracker asks for a different rate or accuracy
+     */
+    @SuppressLint("MissingPermission")
+    private void requestUpdates() {
+        long interval = tracker.getIntervalMillis();
+        JourneyTracker.Accuracy accuracy = tracker.getAccuracy();
+        if (interval == requestedInterval && accuracy == requestedAccuracy) {
+            return;
+        }
+        if (locationClient == null) {
+            locationClient = LocationServices.getFusedLocationProviderClient(this);
+        }
+        LocationRequest request = LocationRequest.create()
+                .setInterval(interval)
+                .setFastestInterval(interval / 2)
+                .setPriority(toPriority(accuracy));
+        // Registering the same callback again replaces its previous request
+        locationClient.requestLocationUpdates(request, trackingCallback, Looper.getMainLooper());
+        requestedInterval = interval;
+        requestedAccuracy = accuracy;
+    }
 
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearestStation = station;
-            }
+    private static int toPriority(JourneyTracker.Accuracy accuracy) {
+        switch (accuracy) {
+            case HIGH:
+                return LocationRequest.PRIORITY_HIGH_ACCURACY;
+            case BALANCED:
+                return LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+            default:
+                return LocationRequest.PRIORITY_LOW_POWER;
         }
+    }
 
-        if (nearestStation != null) {
-            // Calculate remaining stations
-            int remaining = RouteCalculator.calculateRemainingStations(
-                currentRoute.getStations(),
-                nearestStation.getName()
+    private void onTrackingFix(Location location) {
+        if (tracker == null) {
+            return;
+        }
+        double speed = location.hasSpeed() ? location.getSpeed() : Double.NaN;
+        boolean changed = tracker.onLocation(location.getLatitude(), location.getLongitude(),
+                location.getAccuracy(), speed, location.getTime());
+
+        if (tracker.isFinished()) {
+            stopTracking();
+            ArrivalAlerts.disarm(this);
+            Toast.makeText(this, "🔴 You have arrived", Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (changed) {
+            // Only the previous and the new position rows are rebound
+            stationAdapter.setCurrentPosition(tracker.getReachedIndex());
+            stationList.scrollToPosition(tracker.getReachedIndex());
+            String message = String.format(
+                "📍 Current: %s\n🚉 Remaining: %d stations\n⏱️ Time: %d min",
+                currentRoute.getStations().get(tracker.getReachedIndex()),
+                tracker.getRemainingStations(),
+                tracker.getRemainingMinutes()
             );
-
-            if (remaining >= 0) {
-                int remainingTime = remaining * 2;
-                String message = String.format(
-                    "📍 Current: %s\n🚉 Remaining: %d stations\n⏱️ Time: %d min",
-                    nearestStation.getName(),
-                    remaining,
-                    remainingTime
-                );
-                Toast.makeText(this, message, Toast.LENGTH_LONG).show();
-            } else {
-                Toast.makeText(this, "You are not on the current route", Toast.LENGTH_SHORT).show();
-            }
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
         }
+        requestUpdates();
     }
 }
\ No newline at end of file
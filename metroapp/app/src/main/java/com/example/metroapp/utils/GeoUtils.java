@@ -0,0 +1,23 @@
+package com.example.metroapp.utils;
+
+/**
+ * Plain-Java geodesy helpers, usable off the main thread and outside Android
+ */
+public class GeoUtils {
+
+    /** Mean Earth radius (IUGG), meters */
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    /**
+     * Great-circle (haversine) distance between two points in meters
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
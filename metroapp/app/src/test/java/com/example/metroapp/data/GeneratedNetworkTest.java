@@ -0,0 +1,83 @@
+package com.example.metroapp.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the network tables generated from network.json
+ */
+public class GeneratedNetworkTest {
+
+    private final GeneratedNetwork network = GeneratedNetwork.INSTANCE;
+
+    @Test
+    public void precomputedGraph_matchesGraphBuiltAtRuntime() throws IOException {
+        StationGraph generated = StationGraph.fromNetwork(network);
+        // A snapshot copy goes through the general constructor
+        StationGraph built = StationGraph.fromNetwork(NetworkSnapshot.wrap(ByteBuffer.wrap(NetworkSnapshot.toBytes(network))));
+
+        int n = built.getStationCount();
+        assertEquals(n, generated.getStationCount());
+        for (int i = 0; i < n; i++) {
+            assertEquals(built.getName(i), generated.getName(i));
+            assertEquals(i, generated.indexOf(built.getName(i)));
+            assertEquals(built.getStationLineCount(i), generated.getStationLineCount(i));
+            for (int j = 0; j < built.getStationLineCount(i); j++) {
+                assertEquals(built.getStationLine(i, j), generated.getStationLine(i, j));
+            }
+            assertEquals(built.getAdjacencyStart(i), generated.getAdjacencyStart(i));
+            assertEquals(built.getAdjacencyEnd(i), generated.getAdjacencyEnd(i));
+            for (int edge = built.getAdjacencyStart(i); edge < built.getAdjacencyEnd(i); edge++) {
+                assertEquals(built.getAdjacentStation(edge), generated.getAdjacentStation(edge));
+                assertEquals(built.getAdjacentLine(edge), generated.getAdjacentLine(edge));
+            }
+        }
+        assertEquals(built.getLineCount(), generated.getLineCount());
+        for (int line = 0; line < built.getLineCount(); line++) {
+            assertEquals(built.getMetroLine(line), generated.getMetroLine(line));
+            for (int i = 0; i < n; i++) {
+                assertEquals(built.getPosition(line, i), generated.getPosition(line, i));
+            }
+        }
+        assertEquals(built.getInterchangeCount(), generated.getInterchangeCount());
+        for (int i = 0; i < built.getInterchangeCount(); i++) {
+            assertEquals(built.getInterchange(i), generated.getInterchange(i));
+        }
+        assertTrue(network.describes(built));
+    }
+
+    @Test
+    public void stationData_isDerivedFromGeneratedNetwork() {
+        assertEquals(new HashSet<>(Arrays.asList("Sadat", "Attaba", "Shohadaa", "Nasser")),
+                StationData.INTERCHANGE_STATIONS);
+        assertEquals("Helwan", StationData.LINE_1_STATIONS.get(0));
+        assertEquals("Shubra El Kheima", StationData.LINE_2_STATIONS.get(StationData.LINE_2_STATIONS.size() - 1));
+        assertEquals(29, StationData.LINE_3_STATIONS.size());
+        // Interchanges appear once, not once per line
+        assertEquals(network.getStationCount(), StationData.ALL_STATIONS_WITH_COORDINATES.size());
+        assertEquals(30.044133489304492, StationData.getStationByName("Sadat").getLatitude(), 0);
+    }
+
+    @Test
+    public void describes_rejectsOtherNetwork() {
+        MetroNetwork shortened = new MetroNetwork() {
+            @Override public int getStationCount() { return network.getStationCount(); }
+            @Override public String getStationName(int station) { return network.getStationName(station); }
+            @Override public double getLatitude(int station) { return network.getLatitude(station); }
+            @Override public double getLongitude(int station) { return network.getLongitude(station); }
+            @Override public boolean isInterchange(int station) { return network.isInterchange(station); }
+            @Override public int getLineCount() { return network.getLineCount(); }
+            @Override public int getLineNumber(int line) { return network.getLineNumber(line); }
+            @Override public int getLineColor(int line) { return network.getLineColor(line); }
+            @Override public int getLineLength(int line) { return network.getLineLength(line) - (line == 0 ? 1 : 0); }
+            @Override public int getLineStation(int line, int position) { return network.getLineStation(line, position); }
+        };
+        assertFalse(network.describes(StationGraph.fromNetwork(shortened)));
+    }
+}
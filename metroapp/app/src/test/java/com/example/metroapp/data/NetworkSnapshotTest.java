@@ -0,0 +1,102 @@
+package com.example.metroapp.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the binary network snapshot format
+ */
+public class NetworkSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MetroNetwork builtIn = StationData.getNetwork();
+
+    @Test
+    public void roundTrip_matchesBuiltInNetwork() throws IOException {
+        NetworkSnapshot snapshot = NetworkSnapshot.wrap(ByteBuffer.wrap(NetworkSnapshot.toBytes(builtIn)));
+
+        assertEquals(builtIn.getStationCount(), snapshot.getStationCount());
+        for (int i = 0; i < builtIn.getStationCount(); i++) {
+            assertEquals(builtIn.getStationName(i), snapshot.getStationName(i));
+            assertEquals(builtIn.getLatitude(i), snapshot.getLatitude(i), 1e-7);
+            assertEquals(builtIn.getLongitude(i), snapshot.getLongitude(i), 1e-7);
+            assertEquals(builtIn.isInterchange(i), snapshot.isInterchange(i));
+        }
+        assertEquals(builtIn.getLineCount(), snapshot.getLineCount());
+        for (int line = 0; line < builtIn.getLineCount(); line++) {
+            assertEquals(builtIn.getLineNumber(line), snapshot.getLineNumber(line));
+            assertEquals(builtIn.getLineColor(line), snapshot.getLineColor(line));
+            assertEquals(builtIn.getLineLength(line), snapshot.getLineLength(line));
+            for (int pos = 0; pos < builtIn.getLineLength(line); pos++) {
+                assertEquals(builtIn.getLineStation(line, pos), snapshot.getLineStation(line, pos));
+            }
+        }
+    }
+
+    @Test
+    public void referenceSnapshot_isUpToDate() throws IOException {
+        // Regenerate with: ./gradlew :tools:writeSnapshot
+        byte[] reference = Files.readAllBytes(new File("src/main/network/network.bin").toPath());
+        assertArrayEquals(NetworkSnapshot.toBytes(builtIn), reference);
+    }
+
+    @Test
+    public void open_readsFile() throws IOException {
+        File file = folder.newFile("network.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            NetworkSnapshot.write(builtIn, out);
+        }
+        StationGraph graph = StationGraph.fromNetwork(NetworkSnapshot.open(file));
+        StationGraph expected = StationGraph.getDefault();
+
+        assertEquals(expected.getStationCount(), graph.getStationCount());
+        for (int i = 0; i < graph.getStationCount(); i++) {
+            assertEquals(expected.getName(i), graph.getName(i));
+            assertEquals(expected.getStationLineCount(i), graph.getStationLineCount(i));
+            assertEquals(expected.getAdjacencyEnd(i), graph.getAdjacencyEnd(i));
+        }
+        assertEquals(MetroLine.LINE_2, graph.getMetroLine(1));
+        assertEquals(4, graph.getInterchangeCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void flippedByte_failsChecksum() throws IOException {
+        byte[] bytes = NetworkSnapshot.toBytes(builtIn);
+        bytes[bytes.length - 1] ^= 1;
+        NetworkSnapshot.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void newerVersion_isRejected() throws IOException {
+        byte[] bytes = NetworkSnapshot.toBytes(builtIn);
+        bytes[5] = (byte) (NetworkSnapshot.VERSION + 1);
+        NetworkSnapshot.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFile_isRejected() throws IOException {
+        byte[] bytes = NetworkSnapshot.toBytes(builtIn);
+        NetworkSnapshot.wrap(ByteBuffer.wrap(bytes, 0, bytes.length - 4));
+    }
+
+    @Test(expected = IOException.class)
+    public void overflowingNameOffset_isRejected() throws IOException {
+        byte[] bytes = NetworkSnapshot.toBytes(builtIn);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        // nameOffset + nameLength wraps negative in int arithmetic; the checksum still matches
+        buffer.putInt(NetworkSnapshot.HEADER_BYTES, Integer.MAX_VALUE - 1);
+        buffer.putInt(24, NetworkSnapshot.checksum(buffer, NetworkSnapshot.HEADER_BYTES, bytes.length));
+        NetworkSnapshot.wrap(buffer);
+    }
+}
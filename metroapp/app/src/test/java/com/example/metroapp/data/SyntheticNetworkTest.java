@@ -0,0 +1,131 @@
+package com.example.metroapp.data;
+
+import com.example.metroapp.services.Journey;
+import com.example.metroapp.services.RaptorRouter;
+import com.example.metroapp.services.StationSpatialIndex;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the synthetic scaling network
+ */
+public class SyntheticNetworkTest {
+
+    private final SyntheticNetwork network = SyntheticNetwork.scaled(42, 10);
+
+    @Test
+    public void sameSeed_givesSameNetwork() {
+        SyntheticNetwork again = SyntheticNetwork.scaled(42, 10);
+        assertEquals(network.getStationCount(), again.getStationCount());
+        for (int i = 0; i < network.getStationCount(); i++) {
+            assertEquals(network.getLatitude(i), again.getLatitude(i), 0);
+            assertEquals(network.getLongitude(i), again.getLongitude(i), 0);
+        }
+        assertEquals(network.getLineCount(), again.getLineCount());
+        for (int line = 0; line < network.getLineCount(); line++) {
+            assertEquals(network.getLineLength(line), again.getLineLength(line));
+            for (int pos = 0; pos < network.getLineLength(line); pos++) {
+                assertEquals(network.getLineStation(line, pos), again.getLineStation(line, pos));
+            }
+        }
+
+        assertNotEquals(network.getLatitude(1), SyntheticNetwork.scaled(43, 10).getLatitude(1), 0);
+    }
+
+    @Test
+    public void scaled_looksLikeALargeMetro() {
+        int stations = GeneratedNetwork.INSTANCE.getStationCount() * 10;
+        assertEquals(stations, network.getStationCount());
+        assertTrue("lines: " + network.getLineCount(), network.getLineCount() >= 24);
+
+        int interchanges = 0;
+        for (int i = 0; i < stations; i++) {
+            if (network.isInterchange(i)) interchanges++;
+            // Inside Greater Cairo scaled up by sqrt(10)
+            assertEquals(SyntheticNetwork.CENTER_LATITUDE, network.getLatitude(i), 0.6);
+            assertEquals(SyntheticNetwork.CENTER_LONGITUDE, network.getLongitude(i), 0.7);
+        }
+        double share = interchanges / (double) stations;
+        assertTrue("interchange share " + share, share > 0.03 && share < 0.25);
+
+        for (int line = 0; line < network.getLineCount(); line++) {
+            assertTrue(network.getLineLength(line) >= 2);
+            for (int pos = 1; pos < network.getLineLength(line); pos++) {
+                int a = network.getLineStation(line, pos - 1);
+                int b = network.getLineStation(line, pos);
+                double meters = distanceMeters(network.getLatitude(a), network.getLongitude(a),
+                        network.getLatitude(b), network.getLongitude(b));
+                assertTrue("spacing " + meters, meters > 300 && meters < 2 * SyntheticNetwork.STATION_SPACING_METERS);
+            }
+        }
+    }
+
+    @Test
+    public void graph_isConnected() {
+        StationGraph graph = StationGraph.fromNetwork(network);
+        boolean[] seen = new boolean[graph.getStationCount()];
+        int[] queue = new int[graph.getStationCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        seen[0] = true;
+        while (head < tail) {
+            int station = queue[head++];
+            for (int edge = graph.getAdjacencyStart(station); edge < graph.getAdjacencyEnd(station); edge++) {
+                int next = graph.getAdjacentStation(edge);
+                if (!seen[next]) {
+                    seen[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        assertEquals(graph.getStationCount(), tail);
+    }
+
+    @Test
+    public void engines_runOnSyntheticGraph() {
+        StationGraph graph = StationGraph.fromNetwork(network);
+        RaptorRouter router = new RaptorRouter(graph);
+        Random random = new Random(7);
+        int routed = 0;
+        for (int i = 0; i < 50; i++) {
+            int from = random.nextInt(graph.getStationCount());
+            int to = random.nextInt(graph.getStationCount());
+            if (from == to) continue;
+            List<Journey> journeys = router.route(from, to, 8);
+            if (journeys.isEmpty()) continue;
+            Journey journey = journeys.get(0);
+            assertEquals(from, journey.getStation(0));
+            assertEquals(to, journey.getStation(journey.getStationCount()));
+            routed++;
+        }
+        assertTrue("routed " + routed, routed > 40);
+
+        double[] latitudes = new double[graph.getStationCount()];
+        double[] longitudes = new double[graph.getStationCount()];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = graph.getLatitude(i);
+            longitudes[i] = graph.getLongitude(i);
+        }
+        StationSpatialIndex index = new StationSpatialIndex(latitudes, longitudes);
+        for (int i = 0; i < latitudes.length; i += 37) {
+            assertEquals(i, index.nearest(latitudes[i], longitudes[i]));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewStations_throws() {
+        SyntheticNetwork.generate(1, 1);
+    }
+
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return 6371008.8 * Math.sqrt(dLat * dLat + dLon * dLon);
+    }
+}
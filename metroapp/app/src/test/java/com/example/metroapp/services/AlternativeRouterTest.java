@@ -0,0 +1,91 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for k-shortest alternative routes
+ */
+public class AlternativeRouterTest {
+
+    private final AlternativeRouter router = AlternativeRouter.getDefault();
+    private final StationGraph graph = router.getGraph();
+
+    @Test
+    public void firstAlternative_isTheFastestRoute() {
+        int from = graph.indexOf("Helwan");
+        int to = graph.indexOf("Kit Kat");
+        List<Journey> journeys = router.route(from, to, 5);
+        Journey fastest = RaptorRouter.select(RaptorRouter.getDefault().route(from, to,
+                RouteOptions.DEFAULT_MAX_TRANSFERS), RouteOptions.Preference.FASTEST);
+        assertEquals(fastest.getMinutes(), journeys.get(0).getMinutes());
+        assertEquals(graph.indexOf("Nasser"), journeys.get(0).getTransferStation(0));
+    }
+
+    @Test
+    public void alternatives_changeAtDifferentStations() {
+        List<RouteResult> routes = RouteCalculator.calculateAlternatives("Helwan", "Kit Kat", 5);
+        assertTrue(routes.size() >= 2);
+        int ticketPrice = RouteCalculator.calculateRoute("Helwan", "Kit Kat").getTicketPrice();
+
+        Set<List<String>> paths = new HashSet<>();
+        Set<List<String>> transfers = new HashSet<>();
+        int previousMinutes = 0;
+        for (RouteResult route : routes) {
+            assertTrue(paths.add(route.getStations()));
+            transfers.add(new ArrayList<>(route.getTransferStations()));
+            assertTrue(route.getEstimatedMinutes() >= previousMinutes);
+            previousMinutes = route.getEstimatedMinutes();
+            // The gates charge by station pair, not by the way ridden
+            assertEquals(ticketPrice, route.getTicketPrice());
+        }
+        // Via Nasser, and via Sadat or Attaba with a change to Line 3
+        assertTrue(transfers.size() >= 2);
+        int slack = Math.max(AlternativeRouter.MIN_SLACK_MINUTES, routes.get(0).getEstimatedMinutes() / 2);
+        assertTrue(previousMinutes <= routes.get(0).getEstimatedMinutes() + slack);
+    }
+
+    @Test
+    public void everyAlternative_isContiguousAndLoopless() {
+        int n = graph.getStationCount();
+        for (int from = 0; from < n; from += 7) {
+            for (int to = 0; to < n; to += 5) {
+                if (from == to) continue;
+                List<Journey> journeys = router.route(from, to, 5);
+                assertFalse(graph.getName(from) + " -> " + graph.getName(to), journeys.isEmpty());
+                for (Journey journey : journeys) {
+                    assertEquals(from, journey.getStation(0));
+                    assertEquals(to, journey.getStation(journey.getStationCount()));
+                    assertEquals(journey.getTransferCount() + 1, journey.getLegCount());
+                    assertTrue(journey.getTransferCount() <= RouteOptions.DEFAULT_MAX_TRANSFERS);
+                    Set<Integer> visited = new HashSet<>();
+                    for (int i = 0; i <= journey.getStationCount(); i++) {
+                        assertTrue(visited.add(journey.getStation(i)));
+                        if (i > 0) {
+                            assertTrue(graph.findCommonLine(journey.getStation(i - 1), journey.getStation(i)) >= 0);
+                        }
+                    }
+                    assertEquals(journey.getStationCount() * RaptorRouter.MINUTES_PER_STATION
+                            + journey.getTransferCount() * RaptorRouter.TRANSFER_MINUTES, journey.getMinutes());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameLineTrip_hasNoSlowerDetours() {
+        // Three stops on Line 1; any alternative would take far more than the allowed slack
+        List<Journey> journeys = router.route(graph.indexOf("Helwan"), graph.indexOf("Helwan University"), 5);
+        assertEquals(1, journeys.size());
+        assertEquals(0, journeys.get(0).getTransferCount());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for planning transfer and arrival geofences
+ */
+public class ArrivalAlertPlanTest {
+
+    private final StationGraph graph = StationGraph.getDefault();
+
+    private ArrivalAlertPlan plan(String from, String to) {
+        RouteResult route = RouteCalculator.calculateRoute(from, to);
+        return ArrivalAlertPlan.forRoute(graph, route.getStations(), route.getTransferStations());
+    }
+
+    @Test
+    public void transferRoute_fencesStopBeforeEachAlightingStation() {
+        // Helwan ... Sadat, Nasser (change to Line 3), Maspero, Zamalek, Kit Kat
+        List<ArrivalAlertPlan.Fence> fences = plan("Helwan", "Kit Kat").getFences();
+        assertEquals(4, fences.size());
+
+        assertEquals(ArrivalAlertPlan.Kind.TRANSFER_NEXT, fences.get(0).getKind());
+        assertEquals(graph.getLatitude(graph.indexOf("Sadat")), fences.get(0).getLatitude(), 0);
+        assertEquals("Get off at Nasser for Line 3 towards Rod El Farag Corridor", fences.get(0).getText());
+        assertEquals(ArrivalAlertPlan.Kind.TRANSFER, fences.get(1).getKind());
+        assertEquals(ArrivalAlertPlan.Kind.ARRIVAL_NEXT, fences.get(2).getKind());
+        assertEquals(graph.getLatitude(graph.indexOf("Zamalek")), fences.get(2).getLatitude(), 0);
+        assertTrue(fences.get(3).isFinal());
+        assertEquals(graph.getLatitude(graph.indexOf("Kit Kat")), fences.get(3).getLatitude(), 0);
+    }
+
+    @Test
+    public void noNextStopFence_whereThePassengerBoards() {
+        List<ArrivalAlertPlan.Fence> fences = plan("Helwan", "Ain Helwan").getFences();
+        assertEquals(1, fences.size());
+        assertEquals(ArrivalAlertPlan.Kind.ARRIVAL, fences.get(0).getKind());
+    }
+
+    @Test
+    public void fences_areFoundByRequestId() {
+        ArrivalAlertPlan plan = plan("Helwan", "Kit Kat");
+        for (ArrivalAlertPlan.Fence fence : plan.getFences()) {
+            assertSame(fence, plan.find(fence.getRequestId()));
+        }
+        assertNull(plan.find("metro-alert-0-ARRIVAL"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for parallel batch routing
+ */
+public class BatchRouteCalculatorTest {
+
+    private BatchRouteCalculator calculator;
+
+    @Before
+    public void setUp() {
+        calculator = new BatchRouteCalculator(4);
+    }
+
+    @After
+    public void tearDown() {
+        calculator.shutdown();
+    }
+
+    @Test
+    public void pairs_keepInputOrder() {
+        List<String> stations = StationData.getAllStationNames();
+        List<BatchRouteCalculator.StationPair> pairs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            pairs.add(new BatchRouteCalculator.StationPair(
+                    stations.get(i % stations.size()), stations.get((i * 7 + 3) % stations.size())));
+        }
+
+        List<RouteResult> results = calculator.calculateRoutes(pairs);
+        assertEquals(pairs.size(), results.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            RouteResult expected = RouteCalculator.calculateRoute(
+                    pairs.get(i).getStartStation(), pairs.get(i).getEndStation());
+            assertEquals(expected.getStations(), results.get(i).getStations());
+        }
+    }
+
+    @Test
+    public void matrix_rowsAreOriginsAndColumnsAreDestinations() {
+        List<String> origins = StationData.LINE_1_STATIONS;
+        List<String> destinations = StationData.LINE_3_STATIONS;
+
+        List<List<RouteResult>> matrix = calculator.calculateMatrix(origins, destinations);
+        assertEquals(origins.size(), matrix.size());
+        for (int i = 0; i < origins.size(); i++) {
+            assertEquals(destinations.size(), matrix.get(i).size());
+            for (int j = 0; j < destinations.size(); j++) {
+                RouteResult route = matrix.get(i).get(j);
+                if (origins.get(i).equals(destinations.get(j))) {
+                    assertFalse(route.isValid());
+                } else {
+                    assertEquals(origins.get(i), route.getStations().get(0));
+                    assertEquals(destinations.get(j), route.getStations().get(route.getStations().size() - 1));
+                }
+            }
+        }
+    }
+}
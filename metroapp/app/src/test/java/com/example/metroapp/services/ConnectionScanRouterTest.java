@@ -0,0 +1,77 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.LineSchedule;
+import com.example.metroapp.data.MetroLine;
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for timetable routing
+ */
+public class ConnectionScanRouterTest {
+
+    private final ConnectionScanRouter router = ConnectionScanRouter.getDefault();
+    private final StationGraph graph = router.getTimetable().getGraph();
+
+    @Test
+    public void directTrip_leavingFromTerminal_hasNoWait() {
+        // Line 1 trains leave Helwan every 6 minutes from 05:00
+        Journey journey = router.route(graph.indexOf("Helwan"), graph.indexOf("Maadi"), 5 * 60 + 6);
+        assertNotNull(journey);
+        assertEquals(5 * 60 + 6, journey.getDepartureTime());
+        assertEquals(10 * RaptorRouter.MINUTES_PER_STATION, journey.getMinutes());
+        assertEquals(0, journey.getTransferCount());
+    }
+
+    @Test
+    public void beforeService_waitsForFirstTrain() {
+        Journey journey = router.route(graph.indexOf("Helwan"), graph.indexOf("Maadi"), 4 * 60 + 30);
+        assertNotNull(journey);
+        assertEquals(5 * 60, journey.getDepartureTime());
+        assertEquals(30 + 20, journey.getMinutes());
+    }
+
+    @Test
+    public void afterLastTrain_hasNoJourney() {
+        assertNull(router.route(graph.indexOf("Helwan"), graph.indexOf("New El Marg"), 1 * 60 + 30));
+    }
+
+    @Test
+    public void everyPair_atNoon_isBoundedByUntimedRoute() {
+        RaptorRouter raptor = RaptorRouter.getDefault();
+        int maxHeadway = 0;
+        for (MetroLine line : MetroLine.values()) {
+            maxHeadway = Math.max(maxHeadway, LineSchedule.forLine(line).getHeadway(12 * 60));
+        }
+
+        int n = graph.getStationCount();
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                if (from == to) continue;
+                Journey timed = router.route(from, to, 12 * 60);
+                Journey fastest = raptor.route(from, to, new RouteOptions(RouteOptions.Preference.FASTEST, 4));
+                String pair = graph.getName(from) + " -> " + graph.getName(to);
+                assertNotNull(pair, timed);
+                assertEquals(from, timed.getStation(0));
+                assertEquals(to, timed.getStation(timed.getStationCount()));
+                // Waits only add time; each ride waits at most one headway
+                assertTrue(pair, timed.getMinutes() >= fastest.getMinutes());
+                assertTrue(pair, timed.getMinutes() <= fastest.getMinutes() + fastest.getLegCount() * maxHeadway);
+                assertEquals(12 * 60 + timed.getMinutes(), timed.getArrivalTime());
+            }
+        }
+    }
+
+    @Test
+    public void calculateRoute_reportsTimetableMinutes() {
+        RouteResult route = RouteCalculator.calculateRoute("Helwan", "Kit Kat", 8 * 60);
+        assertTrue(route.isValid());
+        assertTrue(route.hasTransfer());
+        assertTrue(route.getEstimatedMinutes() >= route.getStationCount() * RaptorRouter.MINUTES_PER_STATION
+                + RaptorRouter.TRANSFER_MINUTES);
+    }
+}
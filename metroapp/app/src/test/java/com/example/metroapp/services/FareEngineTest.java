@@ -0,0 +1,118 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.FareTable;
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for versioned fare tables and the fare matrix
+ */
+public class FareEngineTest {
+
+    private static final String VERSIONS = "{\"versions\": ["
+            + "{\"id\": \"new\", \"effectiveFrom\": \"2025-07-01\", \"tiers\": [{\"upTo\": 9, \"fare\": 10}, {\"fare\": 20}],"
+            + " \"concessions\": [{\"id\": \"senior\", \"percentOff\": 50}]},"
+            + "{\"id\": \"old\", \"effectiveFrom\": \"2024-01-01\", \"tiers\": [{\"upTo\": 9, \"fare\": 8}, {\"fare\": 15}]}"
+            + "]}";
+
+    private final StationGraph graph = StationGraph.getDefault();
+
+    @Test
+    public void builtInTable_pricesByStationsOnDefaultRoute() {
+        FareEngine engine = new FareEngine(graph, Collections.singletonList(FareTable.builtIn()));
+        int helwan = graph.indexOf("Helwan");
+
+        assertEquals(8, engine.getFare(graph.indexOf("Maadi"), graph.indexOf("Sadat")));    // 8 stops
+        assertEquals(10, engine.getFare(helwan, graph.indexOf("Maadi")));                   // 10 stops
+        assertEquals(15, engine.getFare(helwan, graph.indexOf("Sadat")));                   // 18 stops
+        assertEquals(0, engine.getFare(helwan, helwan));
+    }
+
+    @Test
+    public void bundledFareFile_matchesBuiltInTiers() throws IOException {
+        List<FareTable> bundled;
+        try (InputStream in = new FileInputStream("src/main/assets/fares.json")) {
+            bundled = FareEngine.read(in);
+        }
+        FareEngine engine = new FareEngine(graph, bundled);
+        FareEngine builtIn = new FareEngine(graph, Collections.singletonList(FareTable.builtIn()));
+        int n = graph.getStationCount();
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                assertEquals(builtIn.getFare(from, to), engine.getFare(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void versions_applyFromTheirEffectiveDate() throws IOException {
+        FareEngine engine = new FareEngine(graph, FareTable.parse(new StringReader(VERSIONS)));
+        int from = graph.indexOf("Helwan");
+        int to = graph.indexOf("New El Marg");
+
+        assertEquals("old", engine.getTable(20250630).getId());
+        assertEquals(15, engine.getFare(from, to, null, 20250630));
+        assertEquals(20, engine.getFare(from, to, null, 20250701));
+        assertEquals(10, engine.getFare(from, to, "senior", 20250701));
+        // Before the first version the first one still applies
+        assertEquals(15, engine.getFare(from, to, null, 20000101));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownConcession_isRejected() throws IOException {
+        FareEngine engine = new FareEngine(graph, FareTable.parse(new StringReader(VERSIONS)));
+        engine.getFare(graph.indexOf("Helwan"), graph.indexOf("Maadi"), "senior", 20240601);
+    }
+
+    @Test
+    public void zonesAndSegments_changeThePrice() throws IOException {
+        String json = "{\"versions\": [{\"id\": \"zones\", \"effectiveFrom\": \"2024-01-01\", \"unit\": \"zones\","
+                + " \"zones\": {\"Helwan\": 2, \"Ain Helwan\": 2}, \"defaultZone\": 1,"
+                + " \"tiers\": [{\"upTo\": 1, \"fare\": 5}, {\"fare\": 9}],"
+                + " \"segments\": [{\"line\": 3, \"from\": \"Attaba\", \"to\": \"Kit Kat\", \"surcharge\": 3}]}]}";
+        FareEngine engine = new FareEngine(graph, FareTable.parse(new StringReader(json)));
+
+        assertEquals(5, engine.getFare(graph.indexOf("Maadi"), graph.indexOf("Sadat")));
+        assertEquals(9, engine.getFare(graph.indexOf("Helwan"), graph.indexOf("Sadat")));
+        // Helwan to Kit Kat changes to Line 3 at Nasser and rides the surcharged stretch
+        assertEquals(12, engine.getFare(graph.indexOf("Helwan"), graph.indexOf("Kit Kat")));
+    }
+
+    @Test
+    public void invalidFiles_areRejected() {
+        String[] invalid = {
+                "{}",
+                "{\"versions\": [{\"id\": \"a\", \"effectiveFrom\": \"2024-13-01\", \"tiers\": [{\"fare\": 8}]}]}",
+                "{\"versions\": [{\"id\": \"a\", \"effectiveFrom\": \"2024-01-01\", \"tiers\": [{\"fare\": 8}, {\"upTo\": 9, \"fare\": 9}]}]}",
+                "{\"versions\": [{\"id\": \"a\", \"effectiveFrom\": \"2024-01-01\", \"unit\": \"km\", \"tiers\": [{\"fare\": 8}]}]}",
+                "{\"versions\": [{\"id\": \"a\", \"effectiveFrom\": \"2024-01-01\", \"tiers\": [{\"upTo\": 9, \"fare\": 9}, {\"fare\": 8}]}]}",
+                "{\"versions\": [{\"id\": \"a\", \"effectiveFrom\": \"2024-01-01\", \"tiers\": [{\"fare\": 8}]},"
+                        + " {\"id\": \"b\", \"effectiveFrom\": \"2024-01-01\", \"tiers\": [{\"fare\": 9}]}]}",
+        };
+        for (String json : invalid) {
+            try {
+                FareTable.parse(new StringReader(json));
+                fail("Accepted " + json);
+            } catch (IOException expected) {
+                // Rejected as it should be
+            }
+        }
+    }
+
+    @Test
+    public void routeResult_carriesStationPairFare() {
+        RouteResult route = RouteCalculator.calculateRoute("Helwan", "Maadi");
+        assertEquals(10, route.getTicketPrice());
+    }
+}
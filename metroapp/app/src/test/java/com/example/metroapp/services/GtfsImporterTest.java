@@ -0,0 +1,226 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.MetroLine;
+import com.example.metroapp.data.MetroNetwork;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming GTFS importer
+ */
+public class GtfsImporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String STOPS = "\uFEFFstop_id,stop_name,stop_lat,stop_lon,location_type,parent_station\r\n"
+            + "S_SADAT,Sadat,30.0441,31.2344,1,\r\n"
+            + "P_SADAT_1,Sadat platform 1,30.0441,31.2344,0,S_SADAT\r\n"
+            + "P_SADAT_2,Sadat platform 2,30.0441,31.2344,0,S_SADAT\r\n"
+            + "NASSER,Nasser,30.0535,31.2387,,\r\n"
+            + "OPERA,Opera,30.0419,31.2249,,\r\n"
+            + "ATTABA,Attaba,30.0523,31.2468,,\r\n"
+            + "ZAMALEK,\"Zamalek, Cairo\",30.0504,31.2152,,\r\n"
+            + "BUS_1,Bus stop,30.1,31.3,,\r\n";
+
+    private static final String ROUTES = "route_id,route_short_name,route_long_name,route_type,route_color\n"
+            + "R1,M1,First line,1,E91E63\n"
+            + "R3,M3,Third line,1,4CAF50\n"
+            + "B100,100,Bus,3,000000\n";
+
+    private static final String TRIPS = "route_id,service_id,trip_id,direction_id\n"
+            + "R1,WD,T1,0\n"
+            + "R1,WD,T1_SHORT,0\n"
+            + "R3,WD,T3_BACK,1\n"
+            + "B100,WD,BUS_TRIP,0\n";
+
+    private static final String STOP_TIMES = "trip_id,arrival_time,departure_time,stop_id,stop_sequence\n"
+            // Out of order rows and two platforms of one station in a row
+            + "T1,08:04:00,08:04:00,NASSER,3\n"
+            + "T1,08:00:00,08:00:00,P_SADAT_1,1\n"
+            + "T1,08:01:00,08:01:00,P_SADAT_2,2\n"
+            + "T1,08:06:00,08:06:00,ATTABA,4\n"
+            + "T1_SHORT,09:00:00,09:00:00,P_SADAT_1,1\n"
+            + "T1_SHORT,09:02:00,09:02:00,NASSER,2\n"
+            + "BUS_TRIP,10:00:00,10:00:00,BUS_1,1\n"
+            + "BUS_TRIP,10:05:00,10:05:00,NASSER,2\n"
+            // Direction 1 is stored reversed, so the line reads Opera -> Sadat -> Zamalek
+            + "T3_BACK,11:00:00,11:00:00,ZAMALEK,1\n"
+            + "T3_BACK,11:02:00,11:02:00,S_SADAT,2\n"
+            + "T3_BACK,11:04:00,11:04:00,OPERA,3\n";
+
+    @Test
+    public void importFeed_buildsLinesFromLongestTrips() throws IOException {
+        MetroNetwork network = GtfsImporter.importFeed(writeFeed(STOP_TIMES), GtfsImporter.ROUTE_TYPE_SUBWAY);
+        StationGraph graph = StationGraph.fromNetwork(network);
+
+        // Only stations served by subway trips, numbered in name order
+        assertEquals(5, graph.getStationCount());
+        assertEquals("Attaba", graph.getName(0));
+        assertEquals("Zamalek, Cairo", graph.getName(4));
+        assertEquals(-1, graph.indexOf("Bus stop"));
+        assertEquals(-1, graph.indexOf("Sadat platform 1"));
+
+        assertEquals(2, graph.getLineCount());
+        assertEquals(MetroLine.LINE_1, graph.getMetroLine(0));
+        assertEquals(0xFFE91E63, network.getLineColor(0));
+        assertEquals(3, network.getLineNumber(1));
+        assertLine(graph, 0, "Sadat", "Nasser", "Attaba");
+        assertLine(graph, 1, "Opera", "Sadat", "Zamalek, Cairo");
+
+        assertEquals(1, graph.getInterchangeCount());
+        assertEquals("Sadat", graph.getName(graph.getInterchange(0)));
+        assertEquals(30.0441, network.getLatitude(graph.indexOf("Sadat")), 0);
+    }
+
+    @Test
+    public void importFeed_routesAcrossImportedLines() throws IOException {
+        StationGraph graph = StationGraph.fromNetwork(GtfsImporter.importFeed(writeFeed(STOP_TIMES)));
+        Journey journey = new RaptorRouter(graph).route(graph.indexOf("Attaba"), graph.indexOf("Opera"),
+                RouteOptions.DEFAULT);
+
+        assertEquals(2, journey.getLegCount());
+        assertEquals("Sadat", graph.getName(journey.getTransferStation(0)));
+    }
+
+    @Test
+    public void importFeed_readsZip() throws IOException {
+        File directory = writeFeed(STOP_TIMES);
+        File zip = new File(folder.getRoot(), "feed.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            for (File file : directory.listFiles()) {
+                out.putNextEntry(new ZipEntry(file.getName()));
+                out.write(Files.readAllBytes(file.toPath()));
+                out.closeEntry();
+            }
+        }
+
+        assertEquals(5, GtfsImporter.importFeed(zip, GtfsImporter.ROUTE_TYPE_SUBWAY).getStationCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void interleavedTrips_areRejected() throws IOException {
+        String interleaved = "trip_id,stop_id,stop_sequence\n"
+                + "T1,P_SADAT_1,1\n"
+                + "T1_SHORT,P_SADAT_1,1\n"
+                + "T1,NASSER,2\n";
+        GtfsImporter.importFeed(writeFeed(interleaved));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownStop_isRejected() throws IOException {
+        GtfsImporter.importFeed(writeFeed("trip_id,stop_id,stop_sequence\nT1,NOWHERE,1\n"));
+    }
+
+    @Test
+    public void lineNumbers_areUniqueAndLoopsAreSplit() throws IOException {
+        String routes = "route_id,route_short_name,route_type\n"
+                + "R1,M1,1\n"
+                + "R1A,1A,1\n"      // Same digits as M1
+                + "CIRCLE,Circle,1\n"
+                + "R2,M2,1\n";
+        String trips = "route_id,service_id,trip_id\n"
+                + "R1,WD,T1\nR1A,WD,T1A\nCIRCLE,WD,TC\nR2,WD,T2\n";
+        String stopTimes = "trip_id,stop_id,stop_sequence\n"
+                + "T1,S_SADAT,1\nT1,NASSER,2\nT1,ATTABA,3\n"
+                + "T1A,OPERA,1\nT1A,S_SADAT,2\n"
+                + "TC,ZAMALEK,1\nTC,OPERA,2\nTC,S_SADAT,3\nTC,ZAMALEK,4\n"
+                + "T2,ATTABA,1\nT2,OPERA,2\n";
+        MetroNetwork network = GtfsImporter.importFeed(writeFeed(routes, trips, stopTimes));
+        StationGraph graph = StationGraph.fromNetwork(network);
+
+        // M1 and M2 keep their numbers; 1A and both halves of the loop get the free ones
+        assertEquals(5, graph.getLineCount());
+        int[] expected = {1, 3, 4, 5, 2};
+        for (int line = 0; line < expected.length; line++) {
+            assertEquals(expected[line], graph.getLineNumber(line));
+        }
+        assertLine(graph, 2, "Zamalek, Cairo", "Opera", "Sadat");
+        assertLine(graph, 3, "Sadat", "Zamalek, Cairo");
+
+        assertEquals(2, GtfsImporter.splitAtRepeats(new int[] {0, 1, 2, 1, 3}).size());
+        assertArrayEquals(new int[] {2, 1, 3}, GtfsImporter.splitAtRepeats(new int[] {0, 1, 2, 1, 3}).get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lineVisitingAStationTwice_isRejectedByGraph() throws IOException {
+        final MetroNetwork network = GtfsImporter.importFeed(writeFeed(STOP_TIMES), GtfsImporter.ROUTE_TYPE_SUBWAY);
+        // Line 0 runs back to its first station
+        StationGraph.fromNetwork(new MetroNetwork() {
+            @Override public int getStationCount() { return network.getStationCount(); }
+            @Override public String getStationName(int station) { return network.getStationName(station); }
+            @Override public double getLatitude(int station) { return network.getLatitude(station); }
+            @Override public double getLongitude(int station) { return network.getLongitude(station); }
+            @Override public boolean isInterchange(int station) { return network.isInterchange(station); }
+            @Override public int getLineCount() { return network.getLineCount(); }
+            @Override public int getLineNumber(int line) { return network.getLineNumber(line); }
+            @Override public int getLineColor(int line) { return network.getLineColor(line); }
+
+            @Override
+            public int getLineLength(int line) {
+                return network.getLineLength(line) + (line == 0 ? 1 : 0);
+            }
+
+            @Override
+            public int getLineStation(int line, int position) {
+                return position == network.getLineLength(line) ? network.getLineStation(line, 0)
+                        : network.getLineStation(line, position);
+            }
+        });
+    }
+
+    @Test
+    public void csvReader_handlesQuotesAndMissingFields() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(
+                "a,b,c\n\"x \"\"quoted\"\", y\",,\n\n\"multi\nline\"\n"));
+        assertTrue(csv.next());
+        assertEquals("x \"quoted\", y", csv.get(csv.column("a")));
+        assertTrue(csv.isEmpty(csv.column("b")));
+        assertTrue(csv.next());
+        assertEquals("multi\nline", csv.get(0));
+        assertEquals("", csv.get(2));
+        assertFalse(csv.next());
+    }
+
+    private File writeFeed(String stopTimes) throws IOException {
+        return writeFeed(ROUTES, TRIPS, stopTimes);
+    }
+
+    private File writeFeed(String routes, String trips, String stopTimes) throws IOException {
+        File directory = folder.newFolder();
+        write(new File(directory, "stops.txt"), STOPS);
+        write(new File(directory, "routes.txt"), routes);
+        write(new File(directory, "trips.txt"), trips);
+        write(new File(directory, "stop_times.txt"), stopTimes);
+        return directory;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+
+    private static void assertLine(StationGraph graph, int line, String... names) {
+        assertEquals(names.length, graph.getLineLength(line));
+        for (int pos = 0; pos < names.length; pos++) {
+            assertEquals(names[pos], graph.getName(graph.getStationAt(line, pos)));
+        }
+    }
+}
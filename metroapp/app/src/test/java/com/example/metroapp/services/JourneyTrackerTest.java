@@ -0,0 +1,115 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for journey tracking and its location sampling plan
+ */
+public class JourneyTrackerTest {
+
+    private final StationGraph graph = StationGraph.getDefault();
+    private long time;
+
+    private JourneyTracker track(String from, String to) {
+        RouteResult route = RouteCalculator.calculateRoute(from, to);
+        return new JourneyTracker(graph, route.getStations(), route.getTransferStations());
+    }
+
+    private boolean fixAt(JourneyTracker tracker, String station, double northMeters, float accuracy) {
+        int id = graph.indexOf(station);
+        time += 5_000;
+        return tracker.onLocation(graph.getLatitude(id) + northMeters / 111_320.0, graph.getLongitude(id),
+                accuracy, Double.NaN, time);
+    }
+
+    @Test
+    public void station_needsConsecutiveFixesToCount() {
+        JourneyTracker tracker = track("Helwan", "Maadi");
+        assertEquals(10, tracker.getRemainingStations());
+
+        assertFalse(fixAt(tracker, "Ain Helwan", 20, 10));
+        assertEquals(0, tracker.getReachedIndex());
+        assertTrue(fixAt(tracker, "Ain Helwan", -20, 10));
+        assertEquals(1, tracker.getReachedIndex());
+        assertEquals(9, tracker.getRemainingStations());
+        assertEquals(18, tracker.getRemainingMinutes());
+    }
+
+    @Test
+    public void jitterAroundPlatform_doesNotMoveProgress() {
+        JourneyTracker tracker = track("Helwan", "Maadi");
+        fixAt(tracker, "Ain Helwan", 0, 10);
+        fixAt(tracker, "Ain Helwan", 0, 10);
+
+        // Inside the exit radius the passenger is still at the station, whatever the fixes say
+        for (int i = 0; i < 6; i++) {
+            assertFalse(fixAt(tracker, "Ain Helwan", i % 2 == 0 ? 200 : -200, 30));
+            assertTrue(tracker.isAtStation());
+        }
+        assertEquals(1, tracker.getReachedIndex());
+    }
+
+    @Test
+    public void stationsWithoutFixes_areSkippedOver() {
+        JourneyTracker tracker = track("Helwan", "Maadi");
+        // Route: Helwan, Ain Helwan, Helwan University, Wadi Hof, ...
+        fixAt(tracker, "Wadi Hof", 0, 15);
+        fixAt(tracker, "Wadi Hof", 0, 15);
+        assertEquals(3, tracker.getReachedIndex());
+
+        // A single fix near a later station is not enough on its own
+        assertFalse(fixAt(tracker, "Maadi", 0, 15));
+        assertEquals(3, tracker.getReachedIndex());
+    }
+
+    @Test
+    public void surfacingPastTheLookAhead_stillMovesProgress() {
+        RouteResult route = RouteCalculator.calculateRoute("Helwan", "Maadi");
+        JourneyTracker tracker = new JourneyTracker(graph, route.getStations(), route.getTransferStations());
+        String fifth = route.getStations().get(5);
+
+        // Five stations underground without a usable fix
+        assertFalse(fixAt(tracker, fifth, 0, 15));
+        assertTrue(fixAt(tracker, fifth, 0, 15));
+        assertEquals(5, tracker.getReachedIndex());
+        assertEquals(graph.indexOf(fifth), tracker.getReachedStation());
+    }
+
+    @Test
+    public void remainingTime_includesTransfersAhead() {
+        JourneyTracker tracker = track("Helwan", "Kit Kat");
+        assertEquals(1, tracker.getRemainingTransfers());
+        assertEquals(22 * RaptorRouter.MINUTES_PER_STATION + RaptorRouter.TRANSFER_MINUTES,
+                tracker.getRemainingMinutes());
+    }
+
+    @Test
+    public void sampling_isPreciseOnlyNearStations() {
+        JourneyTracker tracker = track("Sadat", "Helwan");
+        // Between stations at 15 m/s: coarse and sparse
+        int id = graph.indexOf("Saad Zaghloul");
+        tracker.onLocation(graph.getLatitude(id) + 0.012, graph.getLongitude(id), 80, 15, 1_000);
+        assertEquals(JourneyTracker.Accuracy.BALANCED, tracker.getAccuracy());
+        assertTrue(tracker.getIntervalMillis() > JourneyTracker.MIN_INTERVAL_MILLIS);
+
+        // Approaching the next station: precise and frequent
+        tracker.onLocation(graph.getLatitude(id) + 0.003, graph.getLongitude(id), 20, 15, 2_000);
+        assertEquals(JourneyTracker.Accuracy.HIGH, tracker.getAccuracy());
+        assertEquals(JourneyTracker.MIN_INTERVAL_MILLIS, tracker.getIntervalMillis());
+    }
+
+    @Test
+    public void arrival_stopsUpdates() {
+        JourneyTracker tracker = track("Helwan", "Ain Helwan");
+        fixAt(tracker, "Ain Helwan", 0, 10);
+        fixAt(tracker, "Ain Helwan", 0, 10);
+        assertTrue(tracker.isFinished());
+        assertEquals(0, tracker.getIntervalMillis());
+        assertFalse(fixAt(tracker, "Ain Helwan", 0, 10));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.metroapp.services;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the metrics registry, its counters and latency histograms
+ */
+public class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    public void instruments_areSharedByName() {
+        assertSame(metrics.counter("a"), metrics.counter("a"));
+        assertSame(metrics.histogram("a"), metrics.histogram("a"));
+        assertNotSame(metrics.counter("a"), metrics.counter("b"));
+    }
+
+    @Test
+    public void buckets_coverEveryValueInOrder() {
+        long previous = -1;
+        for (int bucket = 0; bucket < Metrics.Histogram.BUCKETS - 1; bucket++) {
+            long upper = Metrics.Histogram.upperBound(bucket);
+            assertEquals(bucket, Metrics.Histogram.bucketOf(previous + 1));
+            assertEquals(bucket, Metrics.Histogram.bucketOf(upper));
+            // At most 25% wider than the values it holds, so percentiles stay meaningful
+            assertTrue(upper - previous <= Math.max(1, (previous + 1) / 4));
+            previous = upper;
+        }
+        assertEquals(Metrics.Histogram.BUCKETS - 1, Metrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_fallInTheRightBucket() {
+        Metrics.Histogram histogram = metrics.histogram("route.lookup");
+        // 1..1000 us
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getMeanMicros());
+        assertEquals(1000, histogram.getMaxMicros());
+        assertWithinBucket(500, histogram.getPercentileMicros(0.50));
+        assertWithinBucket(950, histogram.getPercentileMicros(0.95));
+        assertWithinBucket(990, histogram.getPercentileMicros(0.99));
+        assertEquals(1000, histogram.getPercentileMicros(1.0));
+    }
+
+    @Test
+    public void subMicrosecondDurations_keepTheirOwnBuckets() {
+        Metrics.Histogram histogram = metrics.histogram("route.lookup");
+        for (int i = 0; i < 100; i++) {
+            histogram.record(150);
+        }
+        histogram.record(900);
+        assertEquals(0, histogram.getMeanMicros());
+        assertWithinBucket(150, histogram.getPercentileNanos(0.50));
+        assertEquals(900, histogram.getPercentileNanos(1.0));
+        assertTrue(histogram.toString(), histogram.toString().contains(" p50=1"));
+        assertTrue(histogram.toString(), histogram.toString().endsWith("max=900ns"));
+    }
+
+    @Test
+    public void sampledHistogram_timesOneCallInEvery() {
+        Metrics.Histogram histogram = metrics.histogram("sampled", 50);
+        assertEquals(64, histogram.getSampleEvery());
+        int timed = 0;
+        for (int i = 0; i < 640; i++) {
+            long start = histogram.startSample();
+            if (start != Metrics.Histogram.NOT_SAMPLED) timed++;
+            histogram.recordSince(start);
+        }
+        assertEquals(10, timed);
+        assertEquals(10, histogram.getCount());
+        assertTrue(histogram.toString(), histogram.toString().endsWith(" sampled=1/64"));
+    }
+
+    @Test
+    public void concurrentRecording_losesNothing() throws InterruptedException {
+        final Metrics.Histogram histogram = metrics.histogram("h");
+        final Metrics.Counter counter = metrics.counter("c");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 1000L);
+                    counter.increment();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(40_000, counter.get());
+        assertEquals(9_999, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void dump_listsEveryInstrumentSorted() throws IOException {
+        metrics.counter("route.notFound").add(3);
+        metrics.histogram("prefs.load").record(2_000_000);
+        StringWriter out = new StringWriter();
+        metrics.dump(out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("route.notFound count=3", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("prefs.load count=1 mean=2000us p50=2000us"));
+
+        metrics.reset();
+        assertEquals(0, metrics.counter("route.notFound").get());
+        assertEquals(0, metrics.histogram("prefs.load").getPercentileMicros(0.5));
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 4);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the offline network map geometry
+ */
+public class NetworkMapGeometryTest {
+
+    private static final float LABEL_HEIGHT = 14f;
+
+    private final StationGraph graph = StationGraph.getDefault();
+    private final float[] widths = labelWidths(graph);
+    private final NetworkMapGeometry map = new NetworkMapGeometry(graph, widths, LABEL_HEIGHT);
+
+    private static float[] labelWidths(StationGraph graph) {
+        float[] widths = new float[graph.getStationCount()];
+        for (int station = 0; station < widths.length; station++) {
+            widths[station] = graph.getName(station).length() * 7f;
+        }
+        return widths;
+    }
+
+    @Test
+    public void projection_roundTripsAndPointsSouthDown() {
+        int station = graph.indexOf("Sadat");
+        float x = map.getX(station);
+        float y = map.getY(station);
+        assertEquals(graph.getLatitude(station), map.toLatitude(y), 1e-6);
+        assertEquals(graph.getLongitude(station), map.toLongitude(x), 1e-6);
+        // Helwan is south of Shubra El Kheima
+        assertTrue(map.getY(graph.indexOf("Helwan")) > map.getY(graph.indexOf("Shubra El Kheima")));
+        assertTrue(map.getMinX() <= x && x <= map.getMaxX());
+        assertTrue(map.getMinY() <= y && y <= map.getMaxY());
+    }
+
+    @Test
+    public void lineSegments_areContinuousAndKeepTerminals() {
+        for (int level = 0; level < map.getLevelCount(); level++) {
+            for (int line = 0; line < graph.getLineCount(); line++) {
+                float[] segments = map.getLineSegments(level, line);
+                assertTrue(segments.length > 0);
+                assertTrue(segments.length / 4 <= graph.getLineLength(line) - 1);
+                int first = graph.getStationAt(line, 0);
+                int last = graph.getStationAt(line, graph.getLineLength(line) - 1);
+                assertEquals(map.getX(first), segments[0], 0f);
+                assertEquals(map.getY(first), segments[1], 0f);
+                assertEquals(map.getX(last), segments[segments.length - 2], 0f);
+                assertEquals(map.getY(last), segments[segments.length - 1], 0f);
+                for (int i = 4; i < segments.length; i += 4) {
+                    assertEquals(segments[i - 2], segments[i], 0f);
+                    assertEquals(segments[i - 1], segments[i + 1], 0f);
+                }
+            }
+        }
+        // The finest level draws no fewer segments than the coarsest
+        int line = 0;
+        assertTrue(map.getLineSegments(map.getLevelCount() - 1, line).length
+                >= map.getLineSegments(0, line).length);
+    }
+
+    @Test
+    public void labels_growWithZoomAndNeverOverlap() {
+        Set<Integer> previous = new HashSet<>();
+        for (int level = 0; level < map.getLevelCount(); level++) {
+            int[] labels = map.getLabels(level);
+            Set<Integer> current = new HashSet<>();
+            for (int station : labels) {
+                assertTrue(current.add(station));
+            }
+            assertTrue(current.containsAll(previous));
+            previous = current;
+
+            float mpp = NetworkMapGeometry.LEVEL_METERS_PER_PIXEL[level];
+            for (int i = 0; i < labels.length; i++) {
+                for (int j = i + 1; j < labels.length; j++) {
+                    assertFalse(graph.getName(labels[i]) + " / " + graph.getName(labels[j]),
+                            overlaps(box(labels[i], mpp), box(labels[j], mpp)));
+                }
+            }
+        }
+        // Every interchange is labelled at the coarsest level that can fit it, and all are by the finest
+        assertTrue(previous.size() > map.getLabels(0).length);
+        for (int i = 0; i < graph.getInterchangeCount(); i++) {
+            assertTrue(previous.contains(graph.getInterchange(i)));
+        }
+    }
+
+    @Test
+    public void labels_onlyGoToStationsWithADotAtTheirLevel() {
+        for (int level = 0; level < map.getLevelCount(); level++) {
+            float[] points = map.getStationPoints(level);
+            for (int station : map.getLabels(level)) {
+                boolean drawn = false;
+                for (int i = 0; i < points.length && !drawn; i += 2) {
+                    drawn = points[i] == map.getX(station) && points[i + 1] == map.getY(station);
+                }
+                assertTrue(graph.getName(station) + " at level " + level, drawn);
+            }
+        }
+    }
+
+    @Test
+    public void levels_andHitTesting() {
+        assertEquals(0, map.levelFor(500f));
+        assertEquals(0, map.levelFor(30f));
+        assertEquals(1, map.levelFor(20f));
+        assertEquals(map.getLevelCount() - 1, map.levelFor(0.5f));
+
+        int station = graph.indexOf("Attaba");
+        assertEquals(station, map.hitTest(map.getX(station) + 20, map.getY(station) - 10, 100));
+        assertEquals(NetworkMapGeometry.NONE, map.hitTest(map.getMaxX() + 5000, map.getMaxY() + 5000, 100));
+
+        // Coarsest level only marks interchanges and terminals
+        assertTrue(map.getStationPoints(0).length < map.getStationPoints(map.getLevelCount() - 1).length);
+        assertEquals(graph.getStationCount() * 2, map.getStationPoints(map.getLevelCount() - 1).length);
+        assertTrue(Arrays.equals(map.getStationPoints(1), map.getStationPoints(2)));
+    }
+
+    private float[] box(int station, float mpp) {
+        float left = map.getX(station) + NetworkMapGeometry.LABEL_OFFSET_PX * mpp;
+        float top = map.getY(station) - LABEL_HEIGHT * mpp / 2;
+        return new float[]{left, top, left + widths[station] * mpp, top + LABEL_HEIGHT * mpp};
+    }
+
+    private static boolean overlaps(float[] a, float[] b) {
+        return a[0] < b[2] && b[0] < a[2] && a[1] < b[3] && b[1] < a[3];
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.FareTable;
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the round-based routing engine
+ */
+public class RaptorRouterTest {
+
+    @Test
+    public void directRoute_hasNoTransfer() {
+        RouteResult route = RouteCalculator.calculateRoute("Helwan", "Maadi");
+        assertTrue(route.isValid());
+        assertFalse(route.hasTransfer());
+        assertEquals(10, route.getStationCount());
+        assertEquals("New El Marg", route.getDirection());
+    }
+
+    @Test
+    public void transferRoute_picksShortestInterchange() {
+        // Via Nasser is shorter than via Sadat + Line 2 or Attaba
+        RouteResult route = RouteCalculator.calculateRoute("Helwan", "Kit Kat");
+        assertEquals(Arrays.asList("Nasser"), route.getTransferStations());
+        assertEquals("Rod El Farag Corridor", route.getDirection());
+        assertEquals("Kit Kat", route.getStations().get(route.getStations().size() - 1));
+    }
+
+    @Test
+    public void everyPair_isReachableAndContiguous() {
+        RaptorRouter router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        int n = graph.getStationCount();
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                if (from == to) continue;
+                List<Journey> journeys = router.route(from, to, RouteOptions.DEFAULT_MAX_TRANSFERS);
+                assertFalse(graph.getName(from) + " -> " + graph.getName(to), journeys.isEmpty());
+                for (Journey journey : journeys) {
+                    assertEquals(from, journey.getStation(0));
+                    assertEquals(to, journey.getStation(journey.getStationCount()));
+                    for (int i = 0; i < journey.getStationCount(); i++) {
+                        assertTrue(isAdjacent(graph, journey.getStation(i), journey.getStation(i + 1)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void paretoSet_improvesWithEveryExtraTransfer() {
+        RaptorRouter router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        List<Journey> journeys = router.route(graph.indexOf("Helwan"), graph.indexOf("Adly Mansour"), 4);
+        for (int i = 1; i < journeys.size(); i++) {
+            Journey previous = journeys.get(i - 1);
+            Journey current = journeys.get(i);
+            assertTrue(current.getTransferCount() >= previous.getTransferCount());
+            // Nothing earlier in the list is as good in every respect
+            for (int j = 0; j < i; j++) {
+                Journey other = journeys.get(j);
+                assertTrue(current.getMinutes() < other.getMinutes() || current.getFare() < other.getFare());
+            }
+        }
+    }
+
+    @Test
+    public void surcharge_makesTheSlowerRouteTheCheapest() throws IOException {
+        // Line 2 from Sadat to Attaba is two stops, but dearer than changing at Nasser
+        String json = "{\"versions\": [{\"id\": \"surcharge\", \"effectiveFrom\": \"2024-01-01\","
+                + " \"tiers\": [{\"upTo\": 9, \"fare\": 8}, {\"fare\": 15}],"
+                + " \"segments\": [{\"line\": 2, \"from\": \"Sadat\", \"to\": \"Attaba\", \"surcharge\": 5}]}]}";
+        List<FareTable> installed = FareEngine.getInstalledTables();
+        FareEngine.setInstalledTables(FareTable.parse(new StringReader(json)));
+        try {
+            RaptorRouter router = RaptorRouter.getDefault();
+            StationGraph graph = router.getGraph();
+            int sadat = graph.indexOf("Sadat");
+            int attaba = graph.indexOf("Attaba");
+
+            List<Journey> journeys = router.route(sadat, attaba, 4);
+            assertEquals(2, journeys.size());
+            assertEquals(0, journeys.get(0).getTransferCount());
+            assertEquals(4, journeys.get(0).getMinutes());
+            assertEquals(13, journeys.get(0).getFare());
+            assertEquals(7, journeys.get(1).getMinutes());
+            assertEquals(8, journeys.get(1).getFare());
+
+            Journey cheapest = router.route(sadat, attaba,
+                    new RouteOptions(RouteOptions.Preference.CHEAPEST, 4));
+            assertEquals(Collections.singletonList(graph.indexOf("Nasser")), transfers(cheapest));
+            assertEquals(8, cheapest.getFare());
+            Journey fastest = router.route(sadat, attaba,
+                    new RouteOptions(RouteOptions.Preference.FASTEST, 4));
+            assertEquals(13, fastest.getFare());
+        } finally {
+            FareEngine.setInstalledTables(installed);
+        }
+    }
+
+    @Test
+    public void zeroTransfers_onlyReturnsDirectRoutes() {
+        RaptorRouter router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        assertTrue(router.route(graph.indexOf("Helwan"), graph.indexOf("Kit Kat"), 0).isEmpty());
+    }
+
+    @Test
+    public void unknownStation_returnsEmptyResult() {
+        assertFalse(RouteCalculator.calculateRoute("Helwan", "Atlantis").isValid());
+    }
+
+    private static List<Integer> transfers(Journey journey) {
+        Integer[] stations = new Integer[journey.getTransferCount()];
+        for (int i = 0; i < stations.length; i++) {
+            stations[i] = journey.getTransferStation(i);
+        }
+        return Arrays.asList(stations);
+    }
+
+    private static boolean isAdjacent(StationGraph graph, int a, int b) {
+        for (int edge = graph.getAdjacencyStart(a); edge < graph.getAdjacencyEnd(a); edge++) {
+            if (graph.getAdjacentStation(edge) == b) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationData;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.data.SyntheticNetwork;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for single-source reachability queries
+ */
+public class ReachabilityTest {
+
+    private final RaptorRouter router = RaptorRouter.getDefault();
+    private final StationGraph graph = router.getGraph();
+
+    @Test
+    public void unlimitedBudget_matchesRoutingEveryPair() {
+        int max = RouteOptions.DEFAULT_MAX_TRANSFERS;
+        for (int origin = 0; origin < graph.getStationCount(); origin += 9) {
+            Reachability reach = router.reach(origin, Reachability.NO_LIMIT, Reachability.NO_LIMIT, max);
+            assertEquals(graph.getStationCount(), reach.getReachableCount());
+            assertEquals(0, reach.getMinutes(origin));
+
+            for (int to = 0; to < graph.getStationCount(); to++) {
+                if (to == origin) continue;
+                List<Journey> journeys = router.route(origin, to, max);
+                // Pareto journeys come in order of transfers
+                int fastest = Integer.MAX_VALUE;
+                int cheapest = Integer.MAX_VALUE;
+                for (Journey journey : journeys) {
+                    fastest = Math.min(fastest, journey.getMinutes());
+                    cheapest = Math.min(cheapest, journey.getFare());
+                }
+                assertEquals(journeys.get(0).getTransferCount(), reach.getTransfers(to));
+                assertEquals(fastest, reach.getMinutes(to));
+                assertEquals(cheapest, reach.getFare(to));
+            }
+        }
+    }
+
+    @Test
+    public void otherGraph_pricesEveryStationFromTheSameSearch() {
+        // Graphs other than the default have no route table behind their fares
+        StationGraph synthetic = StationGraph.fromNetwork(SyntheticNetwork.scaled(42, 3));
+        RaptorRouter other = new RaptorRouter(synthetic);
+        FareEngine fares = FareEngine.forGraph(synthetic);
+        int max = RouteOptions.DEFAULT_MAX_TRANSFERS;
+        for (int origin = 0; origin < synthetic.getStationCount(); origin += 41) {
+            Reachability reach = other.reach(origin, Reachability.NO_LIMIT, Reachability.NO_LIMIT, max);
+            Reachability cheap = other.reach(origin, Reachability.NO_LIMIT, 8, max);
+            for (int to = 0; to < synthetic.getStationCount(); to++) {
+                int fare = fares.getFare(origin, to);
+                if (fare == FareEngine.NO_FARE) {
+                    assertFalse(reach.isReachable(to));
+                    continue;
+                }
+                assertTrue(reach.getFare(to) <= fare);
+                assertEquals(reach.getFare(to) <= 8, cheap.isReachable(to));
+            }
+        }
+    }
+
+    @Test
+    public void timeBudget_keepsOnlyStationsWithinIt() {
+        Reachability all = RouteCalculator.calculateReachable("Sadat", Reachability.NO_LIMIT, Reachability.NO_LIMIT);
+        Reachability near = RouteCalculator.calculateReachable("Sadat", 20, Reachability.NO_LIMIT);
+        for (int station = 0; station < graph.getStationCount(); station++) {
+            boolean within = all.getMinutes(station) <= 20;
+            assertEquals(graph.getName(station), within, near.isReachable(station));
+            if (within) {
+                assertEquals(all.getMinutes(station), near.getMinutes(station));
+            }
+        }
+
+        int[] nearest = near.getReachableStations();
+        assertEquals(graph.indexOf("Sadat"), nearest[0]);
+        for (int i = 1; i < nearest.length; i++) {
+            assertTrue(near.getMinutes(nearest[i - 1]) <= near.getMinutes(nearest[i]));
+        }
+    }
+
+    @Test
+    public void fareBudget_dropsDearerStations() {
+        Reachability reach = RouteCalculator.calculateReachable("Helwan", Reachability.NO_LIMIT, 8);
+        // Up to 9 stops cost 8 EGP
+        assertTrue(reach.isReachable(graph.indexOf("Ain Helwan")));
+        assertFalse(reach.isReachable(graph.indexOf("Maadi")));
+        for (int station = 0; station < graph.getStationCount(); station++) {
+            assertTrue(reach.getFare(station) <= 8);
+        }
+    }
+
+    @Test
+    public void fareBudget_keepsStationsACheaperJourneyWithMoreTransfersReaches() {
+        int kobri = graph.indexOf("Kobri El Qobba");
+        // One transfer at Nasser costs 10 EGP, two at Attaba and Shohadaa cost 8
+        Reachability all = RouteCalculator.calculateReachable("Abbassia", Reachability.NO_LIMIT, Reachability.NO_LIMIT);
+        assertEquals(1, all.getTransfers(kobri));
+        assertEquals(8, all.getFare(kobri));
+        assertEquals(10, FareEngine.forGraph(graph).getFare(graph.indexOf("Abbassia"), kobri));
+
+        Reachability cheap = RouteCalculator.calculateReachable("Abbassia", Reachability.NO_LIMIT, 8);
+        assertTrue(cheap.isReachable(kobri));
+        assertEquals(8, cheap.getFare(kobri));
+        assertEquals(2, cheap.getTransfers(kobri));
+    }
+
+    @Test
+    public void heatmap_linesUpWithStationCoordinates() {
+        Reachability reach = RouteCalculator.calculateReachable("Attaba", 30, Reachability.NO_LIMIT);
+        float[] heat = reach.toHeatmap();
+        assertEquals(StationData.ALL_STATIONS_WITH_COORDINATES.size(), heat.length);
+        assertEquals(1f, heat[graph.indexOf("Attaba")], 0f);
+        for (int station = 0; station < heat.length; station++) {
+            assertEquals(graph.getName(station), StationData.ALL_STATIONS_WITH_COORDINATES.get(station).getName());
+            assertEquals(reach.isReachable(station), heat[station] > 0);
+        }
+        assertNull(RouteCalculator.calculateReachable("Atlantis", 30, Reachability.NO_LIMIT));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteSnapshot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the LRU route cache
+ */
+public class RouteCacheTest {
+
+    @Test
+    public void repeatedQuery_isHit() {
+        RouteCache cache = new RouteCache(4);
+        RouteSnapshot first = cache.getRoute("Helwan", "Sadat");
+        RouteSnapshot second = cache.getRoute("Helwan", "Sadat");
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void options_arePartOfTheKey() {
+        RouteCache cache = new RouteCache(4);
+        cache.getRoute("Helwan", "Adly Mansour");
+        cache.getRoute("Helwan", "Adly Mansour",
+                new RouteOptions(RouteOptions.Preference.FASTEST, RouteOptions.DEFAULT_MAX_TRANSFERS));
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsed_isEvicted() {
+        RouteCache cache = new RouteCache(2);
+        RouteSnapshot a = cache.getRoute("Helwan", "Maadi");
+        cache.getRoute("Helwan", "Giza");
+        cache.getRoute("Helwan", "Maadi");       // touch A, B is now eldest
+        cache.getRoute("Helwan", "Attaba");      // evicts B
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, cache.getRoute("Helwan", "Maadi"));
+        cache.getRoute("Helwan", "Giza");
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshot_isImmutable() {
+        RouteSnapshot snapshot = new RouteCache(1).getRoute("Helwan", "Maadi");
+        snapshot.getStations().clear();
+    }
+}
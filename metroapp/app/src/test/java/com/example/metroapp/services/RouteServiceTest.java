@@ -0,0 +1,124 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.RouteSnapshot;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for background route calculation and cancellation
+ */
+public class RouteServiceTest {
+
+    // Stands in for the main thread: callbacks are queued until the test runs them
+    private final LinkedBlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+    private final Executor mainExecutor = mainThread::add;
+    private final RouteService service = new RouteService(1, mainExecutor);
+
+    @After
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void result_isDeliveredOnCallbackExecutor() throws Exception {
+        final AtomicReference<RouteSnapshot> delivered = new AtomicReference<>();
+        service.calculateRoute("Helwan", "Maadi", new RecordingCallback<RouteSnapshot>() {
+            @Override
+            public void onResult(RouteSnapshot result) {
+                delivered.set(result);
+            }
+        });
+
+        Runnable callback = mainThread.poll(5, TimeUnit.SECONDS);
+        assertNotNull(callback);
+        assertNull(delivered.get());
+        callback.run();
+        assertEquals(10, delivered.get().getStationCount());
+    }
+
+    @Test
+    public void cancelledRequest_neverCallsBack() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        RecordingCallback<String> callback = new RecordingCallback<String>() {
+            @Override
+            public void onResult(String result) {
+                calls.incrementAndGet();
+            }
+        };
+
+        // Cancel while running, and after finishing but before delivery
+        RouteService.RouteRequest running = service.submit(() -> {
+            release.await();
+            return "running";
+        }, callback);
+        running.cancel();
+        release.countDown();
+
+        RouteService.RouteRequest finished = service.submit(() -> "finished", callback);
+        Runnable delivery = mainThread.poll(5, TimeUnit.SECONDS);
+        finished.cancel();
+        delivery.run();
+
+        assertTrue(running.isCancelled());
+        assertEquals(0, calls.get());
+        assertNull(mainThread.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void error_isDelivered() throws Exception {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        service.submit(() -> {
+            throw new IllegalStateException("boom");
+        }, new RecordingCallback<Object>() {
+            @Override
+            public void onError(Throwable e) {
+                error.set(e);
+            }
+        });
+
+        mainThread.poll(5, TimeUnit.SECONDS).run();
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void fullQueue_dropsOldestRequest() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        service.submit(() -> {
+            release.await();
+            return null;
+        }, new RecordingCallback<Object>());
+
+        RouteService.RouteRequest[] queued = new RouteService.RouteRequest[17];
+        for (int i = 0; i < queued.length; i++) {
+            queued[i] = service.submit(() -> null, new RecordingCallback<Object>());
+        }
+        release.countDown();
+
+        assertTrue(queued[0].isCancelled());
+        for (int i = 1; i < queued.length; i++) {
+            assertFalse(queued[i].isCancelled());
+        }
+    }
+
+    private static class RecordingCallback<T> implements RouteService.Callback<T> {
+        @Override
+        public void onResult(T result) {
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail("Unexpected error: " + error);
+        }
+    }
+}
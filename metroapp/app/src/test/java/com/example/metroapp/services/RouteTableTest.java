@@ -0,0 +1,63 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.data.SyntheticNetwork;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the precomputed route table
+ */
+public class RouteTableTest {
+
+    @Test
+    public void generatedRoutes_matchRouterForEveryPair() {
+        RaptorRouter router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        RouteTable table = RouteTable.getInstance();
+
+        for (int from = 0; from < graph.getStationCount(); from++) {
+            for (int to = 0; to < graph.getStationCount(); to++) {
+                if (from == to) continue;
+                String pair = graph.getName(from) + " -> " + graph.getName(to);
+                Journey expected = router.route(from, to, RouteOptions.DEFAULT);
+                Journey actual = table.getJourney(from, to);
+
+                assertEquals(pair, expected.getStationCount(), actual.getStationCount());
+                for (int i = 0; i <= expected.getStationCount(); i++) {
+                    assertEquals(pair, expected.getStation(i), actual.getStation(i));
+                }
+                assertEquals(pair, expected.getLegCount(), actual.getLegCount());
+                for (int leg = 0; leg < expected.getLegCount(); leg++) {
+                    assertEquals(pair, expected.getLegLine(leg), actual.getLegLine(leg));
+                }
+                for (int i = 0; i < expected.getTransferCount(); i++) {
+                    assertEquals(pair, expected.getTransferStation(i), actual.getTransferStation(i));
+                }
+                assertEquals(pair, expected.getDirectionStation(), actual.getDirectionStation());
+                assertEquals(pair, expected.getMinutes(), actual.getMinutes());
+                assertEquals(pair, expected.getFare(), actual.getFare());
+            }
+        }
+        assertSame(table.getJourney(0, 1), table.getJourney(0, 1));
+    }
+
+    @Test
+    public void otherGraph_fillsOnlyThePairsAskedFor() {
+        StationGraph graph = StationGraph.fromNetwork(SyntheticNetwork.scaled(42, 3));
+        RaptorRouter router = new RaptorRouter(graph);
+        RouteTable table = new RouteTable(router);
+
+        int last = graph.getStationCount() - 1;
+        Journey expected = router.route(0, last, RouteOptions.DEFAULT);
+        Journey actual = table.getJourney(0, last);
+
+        assertEquals(expected.getStationCount(), actual.getStationCount());
+        assertEquals(expected.getMinutes(), actual.getMinutes());
+        assertEquals(expected.getFare(), actual.getFare());
+        assertSame(actual, table.getJourney(0, last));
+        assertNull(table.getJourney(last, last));
+    }
+}
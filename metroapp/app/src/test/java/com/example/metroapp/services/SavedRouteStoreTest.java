@@ -0,0 +1,136 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.services.PreferencesManager.SavedRoute;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the append-log saved route store
+ */
+public class SavedRouteStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void addIfAbsent_keepsExistingEntryAndOrder() throws Exception {
+        SavedRouteStore store = new SavedRouteStore(folder.newFile(), 20, null);
+        assertTrue(store.addIfAbsent(new SavedRoute("Helwan", "Maadi", "Work")));
+        assertTrue(store.addIfAbsent(new SavedRoute("Sadat", "Attaba", "")));
+        assertFalse(store.addIfAbsent(new SavedRoute("Helwan", "Maadi", "Other")));
+
+        List<SavedRoute> all = store.getAll();
+        assertEquals("Sadat", all.get(0).getStartStation());
+        assertEquals("Work", all.get(1).getNickname());
+        assertTrue(store.contains("Helwan", "Maadi"));
+        assertFalse(store.contains("Maadi", "Helwan"));
+    }
+
+    @Test
+    public void addOrMoveToFront_movesAndEvictsOldest() throws Exception {
+        SavedRouteStore store = new SavedRouteStore(folder.newFile(), 3, null);
+        store.addOrMoveToFront(new SavedRoute("A", "B", ""));
+        store.addOrMoveToFront(new SavedRoute("C", "D", ""));
+        store.addOrMoveToFront(new SavedRoute("E", "F", ""));
+        store.addOrMoveToFront(new SavedRoute("A", "B", ""));
+        store.addOrMoveToFront(new SavedRoute("G", "H", ""));
+
+        assertEquals(Arrays.asList("G", "A", "E"), starts(store.getAll()));
+    }
+
+    @Test
+    public void reopen_replaysLog() throws Exception {
+        File file = new File(folder.getRoot(), "routes.log");
+        SavedRouteStore store = new SavedRouteStore(file, 20, null);
+        store.addIfAbsent(new SavedRoute("A", "B", "first"));
+        store.addIfAbsent(new SavedRoute("C", "D", ""));
+        store.addIfAbsent(new SavedRoute("E", "F", ""));
+        store.remove("C", "D");
+        store.flush();
+
+        SavedRouteStore reopened = new SavedRouteStore(file, 20, null);
+        assertEquals(Arrays.asList("E", "A"), starts(reopened.getAll()));
+        assertEquals("first", reopened.getAll().get(1).getNickname());
+
+        reopened.clear();
+        reopened.flush();
+        assertEquals(0, new SavedRouteStore(file, 20, null).size());
+    }
+
+    @Test
+    public void compaction_boundsLogSize() throws Exception {
+        File file = new File(folder.getRoot(), "routes.log");
+        SavedRouteStore store = new SavedRouteStore(file, 10, null);
+        for (int i = 0; i < 1000; i++) {
+            store.addOrMoveToFront(new SavedRoute("S" + i, "E" + i, ""));
+        }
+        store.flush();
+
+        // 10 live entries; without compaction the log would hold ~2000 records
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertTrue("log has " + lines.size() + " lines", lines.size() < 200);
+        assertEquals(store.getAll().size(), new SavedRouteStore(file, 10, null).getAll().size());
+        assertEquals("S999", new SavedRouteStore(file, 10, null).getAll().get(0).getStartStation());
+    }
+
+    @Test
+    public void tornLastLine_isIgnored() throws Exception {
+        File file = new File(folder.getRoot(), "routes.log");
+        SavedRouteStore store = new SavedRouteStore(file, 20, null);
+        store.addIfAbsent(new SavedRoute("A", "B", ""));
+        store.flush();
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write("{\"op\":\"put\",\"route\":{\"startStat");
+        }
+
+        assertEquals(Arrays.asList("A"), starts(new SavedRouteStore(file, 20, null).getAll()));
+    }
+
+    @Test
+    public void missingFile_importsLegacyList() throws Exception {
+        File file = new File(folder.getRoot(), "routes.log");
+        final List<SavedRoute> legacy = Arrays.asList(new SavedRoute("New", "X", ""), new SavedRoute("Old", "Y", ""));
+        SavedRouteStore store = new SavedRouteStore(file, 20, () -> legacy);
+        assertEquals(Arrays.asList("New", "Old"), starts(store.getAll()));
+
+        store.flush();
+        assertEquals(Arrays.asList("New", "Old"), starts(new SavedRouteStore(file, 20, null).getAll()));
+    }
+
+    @Test
+    public void concurrentAdds_loseNothing() throws Exception {
+        final SavedRouteStore store = new SavedRouteStore(folder.newFile(), 10000, null);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    store.addIfAbsent(new SavedRoute("S" + (offset + i), "E", ""));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, store.size());
+    }
+
+    private static List<String> starts(List<SavedRoute> routes) {
+        String[] starts = new String[routes.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = routes.get(i).getStartStation();
+        }
+        return Arrays.asList(starts);
+    }
+}
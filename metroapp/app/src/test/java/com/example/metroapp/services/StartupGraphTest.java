@@ -0,0 +1,108 @@
+package com.example.metroapp.services;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the dependency-ordered start-up graph
+ */
+public class StartupGraphTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final StartupGraph graph = new StartupGraph(executor, Runnable::run);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void components_runAfterTheirDependencies() throws InterruptedException {
+        final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        graph.add("a", () -> log.add("a"))
+                .add("b", () -> log.add("b"), "a")
+                .add("c", () -> log.add("c"), "a", "b");
+        graph.start();
+
+        graph.await("c");
+        assertEquals(3, log.size());
+        assertTrue(log.indexOf("a") < log.indexOf("b"));
+        assertTrue(log.indexOf("b") < log.indexOf("c"));
+    }
+
+    @Test
+    public void independentComponents_runInParallel() throws InterruptedException {
+        // Each component only finishes once both are running, so a serial run would time out
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        StartupGraph.Component<Boolean> component = () -> {
+            bothRunning.countDown();
+            return bothRunning.await(5, TimeUnit.SECONDS);
+        };
+        graph.add("left", component).add("right", component);
+        graph.start();
+
+        assertTrue(graph.<Boolean>await("left"));
+        assertTrue(graph.<Boolean>await("right"));
+    }
+
+    @Test
+    public void deferredComponents_waitUntilAskedFor() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        graph.add("eager", () -> "eager")
+                .addDeferred("late", runs::incrementAndGet, "eager");
+        graph.start();
+        graph.await("eager");
+        assertFalse(graph.isReady("late"));
+        assertEquals(0, runs.get());
+
+        graph.startDeferred();
+        graph.startDeferred();
+        assertEquals(Integer.valueOf(1), graph.<Integer>await("late"));
+        // Results are kept: asking again, as a recreated activity would, runs nothing
+        graph.start();
+        assertEquals(Integer.valueOf(1), graph.<Integer>await("late"));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void failure_propagatesToDependents() throws InterruptedException {
+        graph.add("broken", () -> {
+            throw new IllegalStateException("disk full");
+        }).add("user", () -> "never", "broken");
+        graph.start();
+
+        final AtomicReference<Throwable> delivered = new AtomicReference<>();
+        final CountDownLatch called = new CountDownLatch(1);
+        graph.whenReady("user", new RouteService.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                called.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                delivered.set(error);
+                called.countDown();
+            }
+        });
+        assertTrue(called.await(5, TimeUnit.SECONDS));
+        assertEquals("disk full", delivered.get().getMessage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDependency_isRejected() {
+        graph.add("a", () -> "a", "missing");
+    }
+}
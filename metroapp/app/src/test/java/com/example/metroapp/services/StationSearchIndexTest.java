@@ -0,0 +1,57 @@
+package com.example.metroapp.services;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the bilingual station search index
+ */
+public class StationSearchIndexTest {
+
+    private final StationSearchIndex index = StationSearchIndex.getDefault();
+
+    @Test
+    public void prefix_matchesNameStart() {
+        List<String> results = index.search("Sad");
+        assertTrue(results.contains("Sadat"));
+        assertEquals("Sadat", results.get(0));
+    }
+
+    @Test
+    public void prefix_matchesAnyWord() {
+        assertTrue(index.search("zaghl").contains("Saad Zaghloul"));
+    }
+
+    @Test
+    public void legacySpellings_resolveToCanonicalNames() {
+        assertEquals("El Maasara", index.search("El-Maasara").get(0));
+        assertEquals("Orabi", index.search("Ahmed Orabi").get(0));
+        assertEquals("Saray El Qobba", index.search("Saraya El-Qobba").get(0));
+    }
+
+    @Test
+    public void arabicNames_matchWithAndWithoutHamza() {
+        assertEquals("Opera", index.search("الأوبرا").get(0));
+        assertEquals("Opera", index.search("الاوبرا").get(0));
+        assertTrue(index.search("عتبة").contains("Attaba"));
+    }
+
+    @Test
+    public void typos_areTolerated() {
+        assertEquals("Helwan University", index.search("Helwan Univrsity").get(0));
+        assertTrue(index.search("Shubra El Khaima").contains("Shubra El Kheima"));
+    }
+
+    @Test
+    public void shortQueries_areExact() {
+        assertTrue(index.search("xyz").isEmpty());
+    }
+
+    @Test
+    public void limit_isRespected() {
+        assertEquals(3, index.search("el", 3).size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.metroapp.services;
+
+import com.example.metroapp.utils.GeoUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the station k-d tree, checked against a brute-force scan
+ */
+public class StationSpatialIndexTest {
+
+    private final StationSpatialIndex index = StationSpatialIndex.getDefault();
+    private final Random random = new Random(7);
+
+    @Test
+    public void nearest_matchesLinearScan() {
+        for (int q = 0; q < 2000; q++) {
+            double lat = 29.8 + random.nextDouble() * 0.4;
+            double lon = 31.1 + random.nextDouble() * 0.35;
+            int expected = bruteForce(lat, lon)[0];
+            int actual = index.nearest(lat, lon);
+            // Planar and great-circle distances may order near-ties differently (< 0.1%)
+            double distance = index.distanceMeters(expected, lat, lon);
+            assertEquals(distance, index.distanceMeters(actual, lat, lon), distance * 1e-3);
+        }
+    }
+
+    @Test
+    public void kNearest_isSortedAndMatchesLinearScan() {
+        int[] ids = new int[5];
+        float[] distances = new float[5];
+        for (int q = 0; q < 500; q++) {
+            double lat = 29.8 + random.nextDouble() * 0.4;
+            double lon = 31.1 + random.nextDouble() * 0.35;
+            assertEquals(5, index.nearest(lat, lon, 5, ids, distances));
+            int[] expected = bruteForce(lat, lon);
+            for (int i = 0; i < 5; i++) {
+                double distance = index.distanceMeters(expected[i], lat, lon);
+                assertEquals(distance, distances[i], distance * 1e-3 + 0.01);
+                if (i > 0) assertTrue(distances[i] >= distances[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void radius_returnsEveryStationInRange() {
+        double lat = 30.0444, lon = 31.2357; // Tahrir Square
+        int[] out = new int[index.size()];
+        int count = index.withinRadius(lat, lon, 1500, out);
+        int expected = 0;
+        for (int id = 0; id < index.size(); id++) {
+            if (index.distanceMeters(id, lat, lon) <= 1500) expected++;
+        }
+        assertEquals(expected, count);
+        assertTrue(count > 0);
+    }
+
+    @Test
+    public void interchanges_areIndexedOnce() {
+        assertEquals(com.example.metroapp.data.StationGraph.getDefault().getStationCount(), index.size());
+    }
+
+    private int[] bruteForce(double lat, double lon) {
+        Integer[] order = new Integer[index.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(
+                GeoUtils.distanceMeters(lat, lon, index.getLatitude(a), index.getLongitude(a)),
+                GeoUtils.distanceMeters(lat, lon, index.getLatitude(b), index.getLongitude(b))));
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) result[i] = order[i];
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationData;
+import com.example.metroapp.services.BatchRouteCalculator;
+import com.example.metroapp.services.RouteOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full origin x destination sheet through BatchRouteCalculator at several pool sizes
+ * Uses the FASTEST preference so every cell runs the router instead of a table lookup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BatchRoutingBenchmark {
+
+    private static final RouteOptions FASTEST =
+            new RouteOptions(RouteOptions.Preference.FASTEST, RouteOptions.DEFAULT_MAX_TRANSFERS);
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private BatchRouteCalculator calculator;
+    private List<String> stations;
+
+    @Setup
+    public void setUp() {
+        calculator = new BatchRouteCalculator(parallelism);
+        stations = StationData.getAllStationNames();
+    }
+
+    @TearDown
+    public void tearDown() {
+        calculator.shutdown();
+    }
+
+    // 80 x 80 cells, including the empty diagonal
+    @Benchmark
+    @OperationsPerInvocation(6400)
+    public List<List<RouteResult>> matrix() {
+        return calculator.calculateMatrix(stations, stations, FASTEST);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.data.GeneratedNetwork;
+import com.example.metroapp.data.NetworkSnapshot;
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.RouteCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First route query in a fresh JVM: class init of the network tables, graph and route table
+ * This is what the first tap on "Calculate" pays on a freshly started app.
+ * The graph variants compare the tables generated at build time with reading the reference
+ * snapshot, passed in as -Dmetro.snapshot by the build
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(10)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class ColdStartBenchmark {
+
+    @Benchmark
+    public RouteResult firstCalculateRoute() {
+        return RouteCalculator.calculateRoute("Helwan", "Kit Kat");
+    }
+
+    @Benchmark
+    public StationGraph firstGraphFromGeneratedNetwork() {
+        return StationGraph.fromNetwork(GeneratedNetwork.INSTANCE);
+    }
+
+    @Benchmark
+    public StationGraph firstGraphFromSnapshot() throws IOException {
+        return StationGraph.fromNetwork(NetworkSnapshot.open(new File(System.getProperty("metro.snapshot"))));
+    }
+}
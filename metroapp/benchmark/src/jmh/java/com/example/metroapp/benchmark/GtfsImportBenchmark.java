@@ -0,0 +1,115 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.data.MetroNetwork;
+import com.example.metroapp.data.StationData;
+import com.example.metroapp.services.GtfsImporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importing a GTFS feed with millions of stop_times rows
+ * The feed is synthetic: every built-in line run end to end by many trips, calling at one of
+ * two platforms per station. The heap is capped well below the size of stop_times.txt to show
+ * the import streams it rather than loading it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class GtfsImportBenchmark {
+
+    @Param({"1000000", "5000000"})
+    public int stopTimes;
+
+    private File feed;
+
+    @Setup
+    public void setUp() throws IOException {
+        feed = Files.createTempDirectory("gtfs").toFile();
+        MetroNetwork network = StationData.getNetwork();
+
+        try (Writer out = writer("stops.txt")) {
+            out.write("stop_id,stop_name,stop_lat,stop_lon,location_type,parent_station\n");
+            for (int i = 0; i < network.getStationCount(); i++) {
+                String name = network.getStationName(i);
+                String position = network.getLatitude(i) + "," + network.getLongitude(i);
+                out.write("S" + i + ",\"" + name + "\"," + position + ",1,\n");
+                for (int platform = 1; platform <= 2; platform++) {
+                    out.write("S" + i + "_" + platform + ",\"" + name + " platform " + platform + "\"," + position
+                            + ",0,S" + i + "\n");
+                }
+            }
+        }
+        try (Writer out = writer("routes.txt")) {
+            out.write("route_id,route_short_name,route_long_name,route_type,route_color\n");
+            for (int line = 0; line < network.getLineCount(); line++) {
+                out.write("R" + line + "," + network.getLineNumber(line) + ",Line " + network.getLineNumber(line)
+                        + ",1," + String.format("%06X", network.getLineColor(line) & 0xFFFFFF) + "\n");
+            }
+        }
+
+        int rowsPerRound = 0;
+        for (int line = 0; line < network.getLineCount(); line++) {
+            rowsPerRound += 2 * network.getLineLength(line);
+        }
+        int rounds = stopTimes / rowsPerRound + 1;
+        try (Writer trips = writer("trips.txt"); Writer times = writer("stop_times.txt")) {
+            trips.write("route_id,service_id,trip_id,direction_id\n");
+            times.write("trip_id,arrival_time,departure_time,stop_id,stop_sequence\n");
+            int trip = 0;
+            for (int round = 0; round < rounds; round++) {
+                for (int line = 0; line < network.getLineCount(); line++) {
+                    int length = network.getLineLength(line);
+                    for (int direction = 0; direction < 2; direction++, trip++) {
+                        trips.write("R" + line + ",WD,T" + trip + "," + direction + "\n");
+                        int minute = 5 * 60 + round % (19 * 60);
+                        for (int pos = 0; pos < length; pos++, minute += 2) {
+                            int station = network.getLineStation(line, direction == 0 ? pos : length - 1 - pos);
+                            String time = String.format("%02d:%02d:00", minute / 60, minute % 60);
+                            times.write("T" + trip + "," + time + "," + time + ",S" + station + "_"
+                                    + (direction + 1) + "," + (pos + 1) + "\n");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : feed.listFiles()) {
+            file.delete();
+        }
+        feed.delete();
+    }
+
+    @Benchmark
+    public MetroNetwork importFeed() throws IOException {
+        return GtfsImporter.importFeed(feed, GtfsImporter.ROUTE_TYPE_SUBWAY);
+    }
+
+    private Writer writer(String name) throws IOException {
+        return new BufferedWriter(new FileWriter(new File(feed, name)), 1 << 16);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.Station;
+import com.example.metroapp.data.StationData;
+import com.example.metroapp.services.StationSpatialIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-station lookups as done in NearestStationActivity and showActivity.onSuccess
+ * android.location.Location is a stub on the JVM, so the scans are reproduced with a
+ * haversine distance; the loop shape and per-station allocations match the app code.
+ * The index variants are what the app runs now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NearestStationBenchmark {
+
+    static final int QUERIES = 1024;
+
+    private final double[] latitudes = new double[QUERIES];
+    private final double[] longitudes = new double[QUERIES];
+    private final int[] kIds = new int[5];
+    private final float[] kDistances = new float[5];
+    private StationSpatialIndex index;
+
+    @Setup
+    public void setUp() {
+        // Fixed seed so every run queries the same points across Greater Cairo
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            latitudes[i] = 29.84 + random.nextDouble() * 0.34;
+            longitudes[i] = 31.16 + random.nextDouble() * 0.27;
+        }
+        index = StationSpatialIndex.getDefault();
+    }
+
+    /**
+     * NearestStationActivity.findNearestStation: new float[1] per station
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void linearScanWithResultArrays(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++) {
+            Station nearest = null;
+            float minDistance = Float.MAX_VALUE;
+            for (Station station : StationData.ALL_STATIONS_WITH_COORDINATES) {
+                float[] results = new float[1];
+                results[0] = (float) haversine(latitudes[q], longitudes[q], station.getLatitude(), station.getLongitude());
+                if (results[0] < minDistance) {
+                    minDistance = results[0];
+                    nearest = station;
+                }
+            }
+            bh.consume(nearest);
+        }
+    }
+
+    /**
+     * NearestStationActivity.findNearestToDestination: a new Location object per station
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void linearScanWithPointObjects(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++) {
+            Station nearest = null;
+            float minDistance = Float.MAX_VALUE;
+            double[] destination = {latitudes[q], longitudes[q]};
+            for (Station station : StationData.ALL_STATIONS_WITH_COORDINATES) {
+                double[] stationLocation = {station.getLatitude(), station.getLongitude()};
+                float distance = (float) haversine(destination[0], destination[1], stationLocation[0], stationLocation[1]);
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearest = station;
+                }
+            }
+            bh.consume(nearest);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void spatialIndexNearest(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++) {
+            bh.consume(index.nearest(latitudes[q], longitudes[q]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void spatialIndexFiveNearest(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++) {
+            bh.consume(index.nearest(latitudes[q], longitudes[q], 5, kIds, kDistances));
+        }
+    }
+
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371008.8 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.services.PreferencesManager.SavedRoute;
+import com.example.metroapp.services.SavedRouteStore;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round trips behind the old PreferencesManager favorites and recent searches, and the
+ * SavedRouteStore that replaced them. SharedPreferences itself is Android-only, so the
+ * stored JSON string stands in for it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreferencesBenchmark {
+
+    private static final Type LIST_TYPE = new TypeToken<List<SavedRoute>>(){}.getType();
+
+    // 10 = recent search limit, 20 = favorites limit, larger sizes show the scaling
+    @Param({"10", "20", "1000"})
+    public int size;
+
+    private Gson gson;
+    private String json;
+    private String missingStart;
+    private SavedRouteStore store;
+
+    @Setup
+    public void setUp() throws IOException {
+        gson = new Gson();
+        final List<SavedRoute> routes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            routes.add(new SavedRoute("Station " + i, "Station " + (i + 1), ""));
+        }
+        json = gson.toJson(routes);
+        missingStart = "Station " + size;
+
+        // Fresh log per trial, seeded through the legacy import path
+        File file = File.createTempFile("saved-routes", ".log");
+        file.delete();
+        file.deleteOnExit();
+        store = SavedRouteStore.open(file, size + 1, () -> routes);
+        store.flush();
+    }
+
+    /**
+     * getFavorites / getRecentSearches
+     */
+    @Benchmark
+    public List<SavedRoute> load() {
+        return gson.fromJson(json, LIST_TYPE);
+    }
+
+    /**
+     * isFavorite for a route that is not saved: full deserialize plus linear scan
+     */
+    @Benchmark
+    public boolean isFavoriteMiss() {
+        List<SavedRoute> favorites = gson.fromJson(json, LIST_TYPE);
+        for (SavedRoute route : favorites) {
+            if (route.getStartStation().equals(missingStart) && route.getEndStation().equals(missingStart)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * addFavorite / addRecentSearch: deserialize, scan, prepend and serialize everything again
+     */
+    @Benchmark
+    public String addRoundTrip() {
+        List<SavedRoute> favorites = gson.fromJson(json, LIST_TYPE);
+        for (SavedRoute route : favorites) {
+            if (route.getStartStation().equals(missingStart)) {
+                return json;
+            }
+        }
+        favorites.add(0, new SavedRoute(missingStart, missingStart, ""));
+        return gson.toJson(favorites);
+    }
+
+    @Benchmark
+    public boolean storeIsFavoriteMiss() {
+        return store.contains(missingStart, missingStart);
+    }
+
+    @Benchmark
+    public List<SavedRoute> storeLoad() {
+        return store.getAll();
+    }
+
+    /**
+     * Add and remove one route, waiting until both log records are on disk
+     */
+    @Benchmark
+    public void storeAddRemoveFlushed() {
+        store.addIfAbsent(new SavedRoute(missingStart, missingStart, ""));
+        store.remove(missingStart, missingStart);
+        store.flush();
+    }
+}
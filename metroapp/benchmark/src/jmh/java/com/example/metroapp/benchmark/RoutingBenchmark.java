@@ -0,0 +1,99 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.data.StationData;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.ConnectionScanRouter;
+import com.example.metroapp.services.RaptorRouter;
+import com.example.metroapp.services.RouteCalculator;
+import com.example.metroapp.services.RouteOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm routing throughput over every origin x destination pair
+ * Each invocation runs the whole O x D matrix, reported per single query
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoutingBenchmark {
+
+    // 80 stations -> 80 * 79 ordered pairs
+    static final int PAIRS = 6320;
+
+    private String[] origins;
+    private String[] destinations;
+    private int[] originIds;
+    private int[] destinationIds;
+    private RaptorRouter router;
+    private ConnectionScanRouter timetableRouter;
+
+    @Setup
+    public void setUp() {
+        List<String> names = StationData.getAllStationNames();
+        int pairs = names.size() * (names.size() - 1);
+        if (pairs != PAIRS) {
+            throw new IllegalStateException("Station count changed, update PAIRS to " + pairs);
+        }
+
+        router = RaptorRouter.getDefault();
+        StationGraph graph = router.getGraph();
+        origins = new String[pairs];
+        destinations = new String[pairs];
+        originIds = new int[pairs];
+        destinationIds = new int[pairs];
+        int i = 0;
+        for (String from : names) {
+            for (String to : names) {
+                if (from.equals(to)) continue;
+                origins[i] = from;
+                destinations[i] = to;
+                originIds[i] = graph.indexOf(from);
+                destinationIds[i] = graph.indexOf(to);
+                i++;
+            }
+        }
+
+        // Build the route table and timetable outside the measurement
+        RouteCalculator.calculateRoute(origins[0], destinations[0]);
+        timetableRouter = ConnectionScanRouter.getDefault();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void calculateRoute(Blackhole bh) {
+        for (int i = 0; i < origins.length; i++) {
+            bh.consume(RouteCalculator.calculateRoute(origins[i], destinations[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void raptorParetoSet(Blackhole bh) {
+        for (int i = 0; i < originIds.length; i++) {
+            bh.consume(router.route(originIds[i], destinationIds[i], RouteOptions.DEFAULT_MAX_TRANSFERS));
+        }
+    }
+
+    /**
+     * Morning-peak departures; the scan length depends on the time of day, not the network
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void connectionScan(Blackhole bh) {
+        for (int i = 0; i < originIds.length; i++) {
+            bh.consume(timetableRouter.route(originIds[i], destinationIds[i], 8 * 60));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.data.SyntheticNetwork;
+import com.example.metroapp.services.Journey;
+import com.example.metroapp.services.RaptorRouter;
+import com.example.metroapp.services.StationSearchIndex;
+import com.example.metroapp.services.StationSpatialIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine hot paths on seeded synthetic networks 1 to 1000 times the size of Cairo's
+ * Scores that grow faster than the station count show where the engine will not scale.
+ * RouteCalculator and ticket prices go through the default graph, so ScalingCalculatorBenchmark
+ * runs them at the same scales with the synthetic graph installed as the default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScalingBenchmark {
+
+    static final long SEED = 42;
+    static final int ROUTES = 64;
+    static final int QUERIES = 1024;
+    // Random pairs on a large network are often many lines apart
+    static final int MAX_TRANSFERS = 16;
+
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    private SyntheticNetwork network;
+    private RaptorRouter router;
+    private StationSpatialIndex spatialIndex;
+    private StationSearchIndex searchIndex;
+    private final int[] origins = new int[ROUTES];
+    private final int[] destinations = new int[ROUTES];
+    private final double[] latitudes = new double[QUERIES];
+    private final double[] longitudes = new double[QUERIES];
+    private final String[] prefixes = new String[QUERIES];
+    private final int[] kIds = new int[5];
+    private final float[] kDistances = new float[5];
+
+    @Setup
+    public void setUp() {
+        network = SyntheticNetwork.scaled(SEED, scale);
+        StationGraph graph = StationGraph.fromNetwork(network);
+        router = new RaptorRouter(graph);
+        searchIndex = new StationSearchIndex(graph);
+
+        int n = graph.getStationCount();
+        double[] stationLatitudes = new double[n];
+        double[] stationLongitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            stationLatitudes[i] = graph.getLatitude(i);
+            stationLongitudes[i] = graph.getLongitude(i);
+        }
+        spatialIndex = new StationSpatialIndex(stationLatitudes, stationLongitudes);
+
+        // Same queries on every run; points are near stations, as real users are
+        Random random = new Random(SEED);
+        for (int i = 0; i < ROUTES; i++) {
+            origins[i] = random.nextInt(n);
+            destinations[i] = (origins[i] + 1 + random.nextInt(n - 1)) % n;
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            int station = random.nextInt(n);
+            latitudes[i] = graph.getLatitude(station) + (random.nextDouble() * 2 - 1) * 0.01;
+            longitudes[i] = graph.getLongitude(station) + (random.nextDouble() * 2 - 1) * 0.01;
+            String name = graph.getName(random.nextInt(n));
+            prefixes[i] = name.substring(0, Math.min(name.length(), 11 + random.nextInt(3)));
+        }
+    }
+
+    /**
+     * Adjacency, interchange and per-station line tables, as at startup or after a snapshot load
+     */
+    @Benchmark
+    public StationGraph buildGraph() {
+        return StationGraph.fromNetwork(network);
+    }
+
+    /**
+     * Full Pareto set per pair, as calculateRouteOptions and the CHEAPEST preference search it
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROUTES)
+    public void routePareto(Blackhole bh) {
+        for (int i = 0; i < ROUTES; i++) {
+            List<Journey> journeys = router.route(origins[i], destinations[i], MAX_TRANSFERS);
+            bh.consume(journeys);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void nearestFive(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++) {
+            bh.consume(spatialIndex.nearest(latitudes[q], longitudes[q], 5, kIds, kDistances));
+        }
+    }
+
+    /**
+     * Prefixes like "Synthetic 47", which match up to a few hundred stations
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void stationSearch(Blackhole bh) {
+        for (int q = 0; q < QUERIES; q++) {
+            bh.consume(searchIndex.search(prefixes[q]));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.metroapp.benchmark;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.data.SyntheticNetwork;
+import com.example.metroapp.services.FareEngine;
+import com.example.metroapp.services.RouteCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RouteCalculator and ticket prices on the synthetic networks 1 to 1000 times the size of Cairo's
+ * The synthetic graph is installed as the default before anything routes, so queries go through
+ * the route table and the fare matrix as in the app; JMH runs each scale in fresh forks. A pair's
+ * first query runs one search and prices it, a repeated one is a table lookup. Uniformly random
+ * pairs on the large networks are mostly more transfers apart than the default search allows, so
+ * pairs are drawn as a trip of up to RIDES rides instead.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScalingCalculatorBenchmark {
+
+    static final int RIDES = 3;
+
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    private StationGraph graph;
+    private final String[] starts = new String[ScalingBenchmark.ROUTES];
+    private final String[] ends = new String[ScalingBenchmark.ROUTES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = StationGraph.fromNetwork(SyntheticNetwork.scaled(ScalingBenchmark.SEED, scale));
+        if (!StationGraph.setDefault(graph)) {
+            throw new IllegalStateException("Default graph already in use; run with forks > 0");
+        }
+
+        Random random = new Random(ScalingBenchmark.SEED);
+        for (int i = 0; i < starts.length; i++) {
+            int from;
+            int to;
+            do {
+                from = random.nextInt(graph.getStationCount());
+                to = ride(graph, random, from);
+            } while (to == from);
+            starts[i] = graph.getName(from);
+            ends[i] = graph.getName(to);
+        }
+    }
+
+    /**
+     * Where RIDES rides on random lines from the station end up; may be the station itself
+     */
+    static int ride(StationGraph graph, Random random, int from) {
+        int station = from;
+        for (int r = 0; r < RIDES; r++) {
+            int line = graph.getStationLine(station, random.nextInt(graph.getStationLineCount(station)));
+            station = graph.getStationAt(line, random.nextInt(graph.getLineLength(line)));
+        }
+        return station;
+    }
+
+    /**
+     * A station pair nobody has asked about yet, drawn before every shot
+     */
+    @State(Scope.Thread)
+    public static class FreshPair {
+        private final Random random = new Random(ScalingBenchmark.SEED + 1);
+        int from;
+        int to;
+
+        @Setup(Level.Invocation)
+        public void next(ScalingCalculatorBenchmark benchmark) {
+            StationGraph graph = benchmark.graph;
+            do {
+                from = random.nextInt(graph.getStationCount());
+                to = ride(graph, random, from);
+            } while (to == from);
+        }
+    }
+
+    /**
+     * First query for a pair: one search, plus naming the stations and pricing the ticket
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public RouteResult firstCalculateRoute(FreshPair pair) {
+        return RouteCalculator.calculateRoute(graph.getName(pair.from), graph.getName(pair.to));
+    }
+
+    /**
+     * Ticket price of a pair nobody has asked about yet, which routes it once
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public int firstFare(FreshPair pair) {
+        return FareEngine.forGraph(graph).getFare(pair.from, pair.to);
+    }
+
+    /**
+     * The same pairs over and over, as the table answers them once filled
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OperationsPerInvocation(ScalingBenchmark.ROUTES)
+    public void repeatedCalculateRoute(Blackhole bh) {
+        for (int i = 0; i < starts.length; i++) {
+            bh.consume(RouteCalculator.calculateRoute(starts[i], ends[i]));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.metroapp.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Compiles the network source file into GeneratedNetwork.java
+ * Fails the build listing every inconsistency found in the source
+ */
+@CacheableTask
+public abstract class GenerateNetworkTask extends DefaultTask {
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSourceFile();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    @TaskAction
+    public void generate() throws IOException {
+        File source = getSourceFile().get().getAsFile();
+        NetworkCodegen codegen;
+        try (Reader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+            codegen = NetworkCodegen.parse(reader);
+        } catch (IllegalArgumentException e) {
+            throw new GradleException(source.getName() + ": " + e.getMessage(), e);
+        }
+
+        NetworkCodegen.Report report = codegen.validate();
+        for (String warning : report.getWarnings()) {
+            getLogger().warn("{}: {}", source.getName(), warning);
+        }
+        if (!report.getErrors().isEmpty()) {
+            StringBuilder message = new StringBuilder(source.getName())
+                    .append(" is inconsistent:");
+            for (String error : report.getErrors()) {
+                message.append("\n  - ").append(error);
+            }
+            throw new GradleException(message.toString());
+        }
+
+        File outputDir = getOutputDir().get().getAsFile();
+        File packageDir = new File(outputDir, NetworkCodegen.PACKAGE_NAME.replace('.', '/'));
+        if (!packageDir.isDirectory() && !packageDir.mkdirs()) {
+            throw new IOException("Cannot create " + packageDir);
+        }
+        File output = new File(packageDir, NetworkCodegen.CLASS_NAME + ".java");
+        try (Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(codegen.generate());
+        }
+    }
+}
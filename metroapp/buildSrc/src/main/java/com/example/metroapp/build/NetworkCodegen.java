@@ -0,0 +1,866 @@
+package com.example.metroapp.build;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns the network source file into a Java class of precomputed tables
+ *
+ * The source lists every line once, as a sequence of station names, and every station once,
+ * with its coordinates:
+ *
+ *   {"lines": [{"number": 1, "color": "#E91E63", "stations": ["Helwan", ...]}, ...],
+ *    "stations": [{"name": "Helwan", "lat": 29.84, "lon": 31.33}, ...]}
+ *
+ * A station may add "approximate": true while its position is unconfirmed. The generated class
+ * holds the StationGraph arrays (ids, line positions, station-to-line membership, adjacency) and
+ * the default route for every station pair, so nothing is derived at runtime.
+ */
+public final class NetworkCodegen {
+
+    public static final String PACKAGE_NAME = "com.example.metroapp.data";
+    public static final String CLASS_NAME = "GeneratedNetwork";
+
+    // Consecutive stations further apart than this almost always mean a typo in the coordinates
+    static final double MAX_HOP_METERS = 5000;
+
+    // Routing constants, as in RaptorRouter and RouteOptions.DEFAULT
+    private static final int MINUTES_PER_STATION = 2;
+    private static final int TRANSFER_MINUTES = 3;
+    private static final int DEFAULT_MAX_RIDES = 5;
+
+    // Route table entries are stored as chars shifted into the printable range
+    private static final int ROUTE_CHAR_OFFSET = 0x20;
+    // Modified UTF-8 bytes per string literal; the class file limit is 65535
+    private static final int MAX_LITERAL_BYTES = 60000;
+
+    private static final double EARTH_RADIUS_METERS = 6371000;
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+
+    private final List<LineSpec> lines;
+    private final List<StationSpec> stations;
+
+    private NetworkCodegen(List<LineSpec> lines, List<StationSpec> stations) {
+        this.lines = lines;
+        this.stations = stations;
+    }
+
+    /**
+     * Read the source file; throws IllegalArgumentException if it is not structurally valid
+     */
+    public static NetworkCodegen parse(Reader reader) {
+        JsonObject root;
+        try {
+            JsonElement element = JsonParser.parseReader(reader);
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            root = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("malformed JSON: " + e.getMessage(), e);
+        }
+
+        List<LineSpec> lines = new ArrayList<>();
+        JsonArray lineArray = array(root, "lines", "network");
+        for (int i = 0; i < lineArray.size(); i++) {
+            String where = "lines[" + i + "]";
+            JsonObject line = object(lineArray.get(i), where);
+            List<String> sequence = new ArrayList<>();
+            JsonArray names = array(line, "stations", where);
+            for (int j = 0; j < names.size(); j++) {
+                sequence.add(string(names.get(j), where + ".stations[" + j + "]"));
+            }
+            lines.add(new LineSpec(integer(line, "number", where),
+                    string(member(line, "color", where), where + ".color"), sequence));
+        }
+
+        List<StationSpec> stations = new ArrayList<>();
+        JsonArray stationArray = array(root, "stations", "network");
+        for (int i = 0; i < stationArray.size(); i++) {
+            String where = "stations[" + i + "]";
+            JsonObject station = object(stationArray.get(i), where);
+            JsonElement approximate = station.get("approximate");
+            stations.add(new StationSpec(string(member(station, "name", where), where + ".name"),
+                    number(station, "lat", where), number(station, "lon", where),
+                    approximate != null && approximate.getAsBoolean()));
+        }
+        return new NetworkCodegen(lines, stations);
+    }
+
+    /**
+     * Check the source for inconsistencies; any error fails the build
+     */
+    public Report validate() {
+        Report report = new Report();
+
+        Map<String, StationSpec> byName = new HashMap<>();
+        for (StationSpec station : stations) {
+            if (station.name.trim().isEmpty() || !station.name.equals(station.name.trim())) {
+                report.error("station name \"" + station.name + "\" is blank or has surrounding spaces");
+            }
+            if (byName.put(station.name, station) != null) {
+                report.error("station \"" + station.name + "\" is defined more than once");
+            }
+            if (Double.isNaN(station.lat) || Math.abs(station.lat) > 90
+                    || Double.isNaN(station.lon) || Math.abs(station.lon) > 180) {
+                report.error("station \"" + station.name + "\" has invalid coordinates " + station.lat + ", "
+                        + station.lon);
+            }
+            if (station.approximate) {
+                report.warning("station \"" + station.name + "\" has approximate coordinates");
+            }
+        }
+
+        Map<String, String> byPosition = new HashMap<>();
+        for (StationSpec station : stations) {
+            String other = byPosition.put(station.lat + "," + station.lon, station.name);
+            if (other != null && !other.equals(station.name)) {
+                report.error("stations \"" + other + "\" and \"" + station.name + "\" have the same coordinates");
+            }
+        }
+
+        if (lines.isEmpty()) {
+            report.error("no lines defined");
+        }
+        Set<Integer> numbers = new HashSet<>();
+        Set<String> served = new HashSet<>();
+        for (LineSpec line : lines) {
+            String label = "line " + line.number;
+            if (line.number <= 0 || !numbers.add(line.number)) {
+                report.error(label + " has a duplicate or non-positive number");
+            }
+            if (parseColor(line.color) == null) {
+                report.error(label + " has invalid color \"" + line.color + "\", expected #RRGGBB or #AARRGGBB");
+            }
+            if (line.stations.size() < 2) {
+                report.error(label + " has fewer than two stations");
+            }
+            Set<String> onLine = new HashSet<>();
+            StationSpec previous = null;
+            for (String name : line.stations) {
+                if (!onLine.add(name)) {
+                    report.error(label + " visits \"" + name + "\" more than once");
+                }
+                served.add(name);
+                StationSpec station = byName.get(name);
+                if (station == null) {
+                    report.error(label + " references undefined station \"" + name + "\"");
+                } else if (previous != null) {
+                    double meters = distanceMeters(previous, station);
+                    if (meters > MAX_HOP_METERS) {
+                        report.error(String.format(Locale.ROOT, "%s: \"%s\" and \"%s\" are %.1f km apart,"
+                                + " check their coordinates", label, previous.name, name, meters / 1000));
+                    }
+                }
+                previous = station;
+            }
+        }
+        for (StationSpec station : stations) {
+            if (!served.contains(station.name)) {
+                report.error("station \"" + station.name + "\" is not on any line");
+            }
+        }
+
+        if (report.errors.isEmpty()) {
+            Tables tables = new Tables(this);
+            List<String> unreachable = new ArrayList<>();
+            for (int to = 1; to < tables.n; to++) {
+                if (tables.routeLegs(0, to)[0] == 0) {
+                    unreachable.add(tables.names[to]);
+                }
+            }
+            if (!unreachable.isEmpty()) {
+                report.error("network is not connected, no route from \"" + tables.names[0] + "\" to "
+                        + unreachable);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Generate the Java source; the network must have passed validate()
+     */
+    public String generate() {
+        Tables t = new Tables(this);
+        int n = t.n;
+
+        int maxLegs = 1;
+        int[][] routes = new int[n * n][];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                int[] legs = from == to ? new int[] {0} : t.routeLegs(from, to);
+                routes[from * n + to] = legs;
+                maxLegs = Math.max(maxLegs, legs[0]);
+            }
+        }
+        // Fixed-width entries: leg count, one line per leg, one transfer station between legs
+        int width = 2 * maxLegs;
+        StringBuilder table = new StringBuilder(n * n * width);
+        for (int[] legs : routes) {
+            int count = legs[0];
+            table.append((char) (count + ROUTE_CHAR_OFFSET));
+            for (int leg = 0; leg < maxLegs; leg++) {
+                table.append((char) ((leg < count ? legs[1 + leg] : 0) + ROUTE_CHAR_OFFSET));
+            }
+            for (int i = 0; i < maxLegs - 1; i++) {
+                table.append((char) ((i < count - 1 ? legs[1 + count + i] : 0) + ROUTE_CHAR_OFFSET));
+            }
+        }
+
+        StringBuilder out = new StringBuilder(64 * 1024);
+        out.append("// Generated by :app:generateNetwork from src/main/network/network.json. Do not edit.\n");
+        out.append("package ").append(PACKAGE_NAME).append(";\n\n");
+        out.append("/**\n");
+        out.append(" * Metro network compiled from src/main/network/network.json at build time\n");
+        out.append(" * Station ids are the names in sorted order. Besides the MetroNetwork data this holds the\n");
+        out.append(" * StationGraph tables and the default (fewest transfers) route for every station pair.\n");
+        out.append(" */\n");
+        out.append("public final class ").append(CLASS_NAME).append(" implements MetroNetwork {\n\n");
+        out.append("    public static final ").append(CLASS_NAME).append(" INSTANCE = new ")
+                .append(CLASS_NAME).append("();\n\n");
+
+        out.append("    static final String[] NAMES = ");
+        appendArray(out, t.names);
+        out.append("    static final double[] LATITUDES = ");
+        appendArray(out, t.latitudes);
+        out.append("    static final double[] LONGITUDES = ");
+        appendArray(out, t.longitudes);
+        out.append("    static final int[] LINE_NUMBERS = ");
+        appendArray(out, t.lineNumbers);
+        out.append("    static final int[] LINE_COLORS = ");
+        appendHexArray(out, t.lineColors);
+        out.append("    static final int[][] LINE_STATIONS = {\n");
+        for (int[] sequence : t.lineStations) {
+            out.append("            ");
+            appendArray(out, sequence, "            ", "");
+            out.append(",\n");
+        }
+        out.append("    };\n");
+        out.append("    static final int[] STATION_LINE_OFFSETS = ");
+        appendArray(out, t.stationLineOffsets);
+        out.append("    static final int[] STATION_LINES = ");
+        appendArray(out, t.stationLines);
+        out.append("    // Position of the station on each of its STATION_LINES\n");
+        out.append("    static final int[] STATION_LINE_POSITIONS = ");
+        appendArray(out, t.stationLinePositions);
+        out.append("    static final int[] ADJACENCY_OFFSETS = ");
+        appendArray(out, t.adjacencyOffsets);
+        out.append("    static final int[] ADJACENCY_TARGETS = ");
+        appendArray(out, t.adjacencyTargets);
+        out.append("    static final int[] ADJACENCY_LINES = ");
+        appendArray(out, t.adjacencyLines);
+        out.append("    static final int[] INTERCHANGES = ");
+        appendArray(out, t.interchanges);
+        out.append("\n");
+
+        out.append("    private static final int MAX_ROUTE_LEGS = ").append(maxLegs).append(";\n");
+        out.append("    private static final int ROUTE_WIDTH = ").append(width).append(";\n");
+        out.append("    private static final int ROUTE_CHAR_OFFSET = ").append(ROUTE_CHAR_OFFSET).append(";\n");
+        out.append("    // [from * stationCount + to] -> leg count, leg lines, transfer stations\n");
+        List<String> chunks = splitLiterals(table.toString());
+        if (chunks.size() == 1) {
+            out.append("    private static final String ROUTES =");
+            appendWrappedLiteral(out, chunks.get(0));
+            out.append(";\n\n");
+        } else {
+            // Too long for one constant, so joined once at class init
+            out.append("    private static final String ROUTES = concat(");
+            for (int i = 0; i < chunks.size(); i++) {
+                appendWrappedLiteral(out, chunks.get(i));
+                out.append(i < chunks.size() - 1 ? "," : ");\n\n");
+            }
+        }
+
+        out.append(TEMPLATE_METHODS.replace("$CLASS", CLASS_NAME));
+        if (chunks.size() > 1) {
+            out.append("\n    private static String concat(String... parts) {\n");
+            out.append("        StringBuilder result = new StringBuilder();\n");
+            out.append("        for (String part : parts) {\n");
+            out.append("            result.append(part);\n");
+            out.append("        }\n");
+            out.append("        return result.toString();\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static final String TEMPLATE_METHODS = ""
+            + "    private $CLASS() {\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int getStationCount() {\n"
+            + "        return NAMES.length;\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public String getStationName(int station) {\n"
+            + "        return NAMES[station];\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public double getLatitude(int station) {\n"
+            + "        return LATITUDES[station];\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public double getLongitude(int station) {\n"
+            + "        return LONGITUDES[station];\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public boolean isInterchange(int station) {\n"
+            + "        return STATION_LINE_OFFSETS[station + 1] - STATION_LINE_OFFSETS[station] > 1;\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int getLineCount() {\n"
+            + "        return LINE_NUMBERS.length;\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int getLineNumber(int line) {\n"
+            + "        return LINE_NUMBERS[line];\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int getLineColor(int line) {\n"
+            + "        return LINE_COLORS[line];\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int getLineLength(int line) {\n"
+            + "        return LINE_STATIONS[line].length;\n"
+            + "    }\n"
+            + "\n"
+            + "    @Override\n"
+            + "    public int getLineStation(int line, int position) {\n"
+            + "        return LINE_STATIONS[line][position];\n"
+            + "    }\n"
+            + "\n"
+            + "    /**\n"
+            + "     * Check that a graph has exactly this network's stations and lines, so ids and the\n"
+            + "     * route table apply to it, e.g. when it was loaded from a snapshot of the same data\n"
+            + "     */\n"
+            + "    public boolean describes(StationGraph graph) {\n"
+            + "        if (graph.getStationCount() != NAMES.length || graph.getLineCount() != LINE_NUMBERS.length) {\n"
+            + "            return false;\n"
+            + "        }\n"
+            + "        for (int i = 0; i < NAMES.length; i++) {\n"
+            + "            if (!NAMES[i].equals(graph.getName(i))) return false;\n"
+            + "        }\n"
+            + "        for (int line = 0; line < LINE_STATIONS.length; line++) {\n"
+            + "            if (graph.getLineLength(line) != LINE_STATIONS[line].length) return false;\n"
+            + "            for (int pos = 0; pos < LINE_STATIONS[line].length; pos++) {\n"
+            + "                if (graph.getStationAt(line, pos) != LINE_STATIONS[line][pos]) return false;\n"
+            + "            }\n"
+            + "        }\n"
+            + "        return true;\n"
+            + "    }\n"
+            + "\n"
+            + "    // Precomputed routes\n"
+            + "\n"
+            + "    /**\n"
+            + "     * Number of rides on the default route between two stations, 0 if there is none\n"
+            + "     */\n"
+            + "    public int getRouteLegCount(int from, int to) {\n"
+            + "        return ROUTES.charAt((from * NAMES.length + to) * ROUTE_WIDTH) - ROUTE_CHAR_OFFSET;\n"
+            + "    }\n"
+            + "\n"
+            + "    /**\n"
+            + "     * Line index ridden on a leg of the default route\n"
+            + "     */\n"
+            + "    public int getRouteLegLine(int from, int to, int leg) {\n"
+            + "        return ROUTES.charAt((from * NAMES.length + to) * ROUTE_WIDTH + 1 + leg) - ROUTE_CHAR_OFFSET;\n"
+            + "    }\n"
+            + "\n"
+            + "    /**\n"
+            + "     * Station where leg i of the default route ends and leg i + 1 starts\n"
+            + "     */\n"
+            + "    public int getRouteTransfer(int from, int to, int i) {\n"
+            + "        return ROUTES.charAt((from * NAMES.length + to) * ROUTE_WIDTH + 1 + MAX_ROUTE_LEGS + i)\n"
+            + "                - ROUTE_CHAR_OFFSET;\n"
+            + "    }\n";
+
+    // Source model
+
+    static final class LineSpec {
+        final int number;
+        final String color;
+        final List<String> stations;
+
+        LineSpec(int number, String color, List<String> stations) {
+            this.number = number;
+            this.color = color;
+            this.stations = stations;
+        }
+    }
+
+    static final class StationSpec {
+        final String name;
+        final double lat;
+        final double lon;
+        final boolean approximate;
+
+        StationSpec(String name, double lat, double lon, boolean approximate) {
+            this.name = name;
+            this.lat = lat;
+            this.lon = lon;
+            this.approximate = approximate;
+        }
+    }
+
+    /**
+     * Validation result: errors fail the build, warnings are only logged
+     */
+    public static final class Report {
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+
+        void error(String message) {
+            errors.add(message);
+        }
+
+        void warning(String message) {
+            warnings.add(message);
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public List<String> getWarnings() {
+            return warnings;
+        }
+    }
+
+    /**
+     * Id-indexed tables laid out exactly as StationGraph builds them at runtime
+     */
+    private static final class Tables {
+        final int n;
+        final String[] names;
+        final double[] latitudes;
+        final double[] longitudes;
+        final int[] lineNumbers;
+        final int[] lineColors;
+        final int[][] lineStations;
+        final int[] linePositions;
+        final int[] stationLineOffsets;
+        final int[] stationLines;
+        final int[] stationLinePositions;
+        final int[] adjacencyOffsets;
+        final int[] adjacencyTargets;
+        final int[] adjacencyLines;
+        final int[] interchanges;
+
+        Tables(NetworkCodegen source) {
+            Map<String, StationSpec> byName = new HashMap<>();
+            for (StationSpec station : source.stations) {
+                byName.put(station.name, station);
+            }
+            List<String> sorted = new ArrayList<>(byName.keySet());
+            Collections.sort(sorted);
+            this.n = sorted.size();
+            this.names = sorted.toArray(new String[0]);
+            Map<String, Integer> ids = new HashMap<>();
+            this.latitudes = new double[n];
+            this.longitudes = new double[n];
+            for (int i = 0; i < n; i++) {
+                ids.put(names[i], i);
+                latitudes[i] = byName.get(names[i]).lat;
+                longitudes[i] = byName.get(names[i]).lon;
+            }
+
+            int lineCount = source.lines.size();
+            this.lineNumbers = new int[lineCount];
+            this.lineColors = new int[lineCount];
+            this.lineStations = new int[lineCount][];
+            this.linePositions = new int[lineCount * n];
+            Arrays.fill(linePositions, NONE);
+            int[] lineDegree = new int[n];
+            int[] adjacencyDegree = new int[n];
+            for (int line = 0; line < lineCount; line++) {
+                LineSpec spec = source.lines.get(line);
+                lineNumbers[line] = spec.number;
+                lineColors[line] = parseColor(spec.color);
+                int[] sequence = new int[spec.stations.size()];
+                for (int pos = 0; pos < sequence.length; pos++) {
+                    int id = ids.get(spec.stations.get(pos));
+                    sequence[pos] = id;
+                    linePositions[line * n + id] = pos;
+                    lineDegree[id]++;
+                    if (pos > 0) {
+                        adjacencyDegree[id]++;
+                        adjacencyDegree[sequence[pos - 1]]++;
+                    }
+                }
+                lineStations[line] = sequence;
+            }
+
+            this.stationLineOffsets = prefixSums(lineDegree);
+            this.stationLines = new int[stationLineOffsets[n]];
+            this.stationLinePositions = new int[stationLineOffsets[n]];
+            int[] fill = Arrays.copyOf(stationLineOffsets, n);
+            for (int line = 0; line < lineCount; line++) {
+                int[] sequence = lineStations[line];
+                for (int pos = 0; pos < sequence.length; pos++) {
+                    stationLinePositions[fill[sequence[pos]]] = pos;
+                    stationLines[fill[sequence[pos]]++] = line;
+                }
+            }
+
+            this.adjacencyOffsets = prefixSums(adjacencyDegree);
+            this.adjacencyTargets = new int[adjacencyOffsets[n]];
+            this.adjacencyLines = new int[adjacencyOffsets[n]];
+            fill = Arrays.copyOf(adjacencyOffsets, n);
+            for (int line = 0; line < lineCount; line++) {
+                int[] sequence = lineStations[line];
+                for (int pos = 1; pos < sequence.length; pos++) {
+                    int a = sequence[pos - 1];
+                    int b = sequence[pos];
+                    adjacencyTargets[fill[a]] = b;
+                    adjacencyLines[fill[a]++] = line;
+                    adjacencyTargets[fill[b]] = a;
+                    adjacencyLines[fill[b]++] = line;
+                }
+            }
+
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (lineDegree[i] > 1) count++;
+            }
+            this.interchanges = new int[count];
+            count = 0;
+            for (int i = 0; i < n; i++) {
+                if (lineDegree[i] > 1) interchanges[count++] = i;
+            }
+        }
+
+        /**
+         * Fewest-rides route, ties broken by time, found the way RaptorRouter does so the table
+         * gives the same answers: {legCount, line per leg..., transfer station per leg boundary...}
+         */
+        int[] routeLegs(int origin, int destination) {
+            int rounds = Math.min(DEFAULT_MAX_RIDES, lineStations.length);
+            int[][] cost = new int[rounds + 1][n];
+            int[][] round = new int[rounds + 1][n];
+            int[][] parentBoard = new int[rounds + 1][n];
+            int[][] parentPattern = new int[rounds + 1][n];
+            int[] boardFrom = new int[lineStations.length * 2];
+            int[] queue = new int[boardFrom.length];
+            int[] marked = new int[n];
+            boolean[] isMarked = new boolean[n];
+            Arrays.fill(boardFrom, NONE);
+            Arrays.fill(cost[0], INF);
+            cost[0][origin] = 0;
+            marked[0] = origin;
+            int markedCount = 1;
+            isMarked[origin] = true;
+
+            for (int k = 1; k <= rounds; k++) {
+                int[] prevCost = cost[k - 1];
+                System.arraycopy(prevCost, 0, cost[k], 0, n);
+                System.arraycopy(round[k - 1], 0, round[k], 0, n);
+
+                int patternCount = 0;
+                for (int m = 0; m < markedCount; m++) {
+                    int station = marked[m];
+                    isMarked[station] = false;
+                    for (int i = stationLineOffsets[station]; i < stationLineOffsets[station + 1]; i++) {
+                        int line = stationLines[i];
+                        int position = linePositions[line * n + station];
+                        int last = lineStations[line].length - 1;
+                        for (int dir = 0; dir < 2; dir++) {
+                            int pattern = line * 2 + dir;
+                            int patternPos = dir == 0 ? position : last - position;
+                            if (patternPos == last) continue;
+                            if (boardFrom[pattern] == NONE) {
+                                queue[patternCount++] = pattern;
+                                boardFrom[pattern] = patternPos;
+                            } else if (patternPos < boardFrom[pattern]) {
+                                boardFrom[pattern] = patternPos;
+                            }
+                        }
+                    }
+                }
+                markedCount = 0;
+
+                int penalty = k > 1 ? TRANSFER_MINUTES : 0;
+                for (int q = 0; q < patternCount; q++) {
+                    int pattern = queue[q];
+                    int line = pattern >> 1;
+                    boolean reverse = (pattern & 1) == 1;
+                    int last = lineStations[line].length - 1;
+                    int from = boardFrom[pattern];
+                    boardFrom[pattern] = NONE;
+
+                    int boardStation = NONE;
+                    int boardPos = 0;
+                    int boardCost = 0;
+                    for (int pos = from; pos <= last; pos++) {
+                        int station = lineStations[line][reverse ? last - pos : pos];
+                        if (boardStation != NONE) {
+                            int arrival = boardCost + (pos - boardPos) * MINUTES_PER_STATION;
+                            if (arrival < cost[k][station] && arrival < cost[k][destination]) {
+                                cost[k][station] = arrival;
+                                round[k][station] = k;
+                                parentBoard[k][station] = boardStation;
+                                parentPattern[k][station] = pattern;
+                                if (!isMarked[station]) {
+                                    isMarked[station] = true;
+                                    marked[markedCount++] = station;
+                                }
+                            }
+                        }
+                        if (prevCost[station] != INF) {
+                            int candidate = prevCost[station] + penalty;
+                            if (boardStation == NONE
+                                    || candidate < boardCost + (pos - boardPos) * MINUTES_PER_STATION) {
+                                boardStation = station;
+                                boardPos = pos;
+                                boardCost = candidate;
+                            }
+                        }
+                    }
+                }
+                if (markedCount == 0) {
+                    break;
+                }
+                if (round[k][destination] == k) {
+                    return legsOf(k, destination, round, parentBoard, parentPattern);
+                }
+            }
+            return new int[] {0};
+        }
+
+        private int[] legsOf(int k, int destination, int[][] round, int[][] parentBoard, int[][] parentPattern) {
+            int[] lines = new int[k];
+            int[] alights = new int[k];
+            int legs = 0;
+            int station = destination;
+            int r = k;
+            while (r > 0) {
+                r = round[r][station];
+                if (r == 0) break;
+                lines[legs] = parentPattern[r][station] >> 1;
+                alights[legs] = station;
+                legs++;
+                station = parentBoard[r][station];
+                r--;
+            }
+            // Parents run backwards from the destination; entries are stored first leg first
+            int[] result = new int[1 + legs + legs - 1];
+            result[0] = legs;
+            for (int leg = 0; leg < legs; leg++) {
+                result[1 + leg] = lines[legs - 1 - leg];
+            }
+            for (int i = 0; i < legs - 1; i++) {
+                result[1 + legs + i] = alights[legs - 1 - i];
+            }
+            return result;
+        }
+    }
+
+    // Helpers
+
+    private static Integer parseColor(String color) {
+        if (color == null || !color.startsWith("#") || (color.length() != 7 && color.length() != 9)) {
+            return null;
+        }
+        try {
+            long value = Long.parseLong(color.substring(1), 16);
+            return (int) (color.length() == 7 ? value | 0xFF000000L : value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double distanceMeters(StationSpec a, StationSpec b) {
+        double dLat = Math.toRadians(b.lat - a.lat);
+        double dLon = Math.toRadians(b.lon - a.lon);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a.lat)) * Math.cos(Math.toRadians(b.lat))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static int[] prefixSums(int[] counts) {
+        int[] offsets = new int[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+        return offsets;
+    }
+
+    private static JsonElement member(JsonObject object, String name, String where) {
+        JsonElement value = object.get(name);
+        if (value == null || value.isJsonNull()) {
+            throw new IllegalArgumentException(where + ": missing \"" + name + "\"");
+        }
+        return value;
+    }
+
+    private static JsonArray array(JsonObject object, String name, String where) {
+        JsonElement value = member(object, name, where);
+        if (!value.isJsonArray()) {
+            throw new IllegalArgumentException(where + "." + name + ": expected an array");
+        }
+        return value.getAsJsonArray();
+    }
+
+    private static JsonObject object(JsonElement element, String where) {
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException(where + ": expected an object");
+        }
+        return element.getAsJsonObject();
+    }
+
+    private static String string(JsonElement element, String where) {
+        if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isString()) {
+            throw new IllegalArgumentException(where + ": expected a string");
+        }
+        return element.getAsString();
+    }
+
+    private static double number(JsonObject object, String name, String where) {
+        JsonElement value = member(object, name, where);
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            throw new IllegalArgumentException(where + "." + name + ": expected a number");
+        }
+        return value.getAsDouble();
+    }
+
+    private static int integer(JsonObject object, String name, String where) {
+        double value = number(object, name, where);
+        if (value != Math.rint(value) || Math.abs(value) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(where + "." + name + ": expected an integer, got " + value);
+        }
+        return (int) value;
+    }
+
+    // Source output
+
+    private static void appendArray(StringBuilder out, String[] values) {
+        String[] literals = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            StringBuilder literal = new StringBuilder();
+            appendLiteral(literal, values[i]);
+            literals[i] = literal.toString();
+        }
+        appendItems(out, literals, "    ", ";\n");
+    }
+
+    private static void appendArray(StringBuilder out, double[] values) {
+        String[] items = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            items[i] = Double.toString(values[i]);
+        }
+        appendItems(out, items, "    ", ";\n");
+    }
+
+    private static void appendArray(StringBuilder out, int[] values) {
+        appendArray(out, values, "    ", ";\n");
+    }
+
+    private static void appendArray(StringBuilder out, int[] values, String indent, String terminator) {
+        String[] items = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            items[i] = Integer.toString(values[i]);
+        }
+        appendItems(out, items, indent, terminator);
+    }
+
+    private static void appendHexArray(StringBuilder out, int[] values) {
+        String[] items = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            items[i] = String.format(Locale.ROOT, "0x%08X", values[i]);
+        }
+        appendItems(out, items, "    ", ";\n");
+    }
+
+    /**
+     * Brace-enclosed list wrapped at 100 columns, continuation lines indented 8 past the given indent
+     */
+    private static void appendItems(StringBuilder out, String[] items, String indent, String terminator) {
+        String continuation = indent + "        ";
+        out.append('{');
+        int column = 0;
+        for (int i = 0; i < items.length; i++) {
+            String item = items[i] + (i < items.length - 1 ? "," : "");
+            if (i == 0 || column + item.length() + 1 > 100) {
+                out.append('\n').append(continuation);
+                column = continuation.length();
+            } else {
+                out.append(' ');
+                column++;
+            }
+            out.append(item);
+            column += item.length();
+        }
+        out.append('\n').append(indent).append('}').append(terminator);
+    }
+
+    private static List<String> splitLiterals(String value) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            int size = c != 0 && c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if (bytes + size > MAX_LITERAL_BYTES) {
+                chunks.add(value.substring(start, i));
+                start = i;
+                bytes = 0;
+            }
+            bytes += size;
+        }
+        chunks.add(value.substring(start));
+        return chunks;
+    }
+
+    /**
+     * One string constant written as a concatenation of short literals, one per line
+     */
+    private static void appendWrappedLiteral(StringBuilder out, String value) {
+        for (int start = 0; start < value.length(); start += 64) {
+            out.append(start == 0 ? "\n            " : " +\n            ");
+            appendLiteral(out, value.substring(start, Math.min(value.length(), start + 64)));
+        }
+    }
+
+    private static void appendLiteral(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c >= 0x20 && c < 0x7F) {
+                out.append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else {
+                out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            }
+        }
+        out.append('"');
+    }
+}
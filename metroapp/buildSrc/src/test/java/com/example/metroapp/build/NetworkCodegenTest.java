@@ -0,0 +1,109 @@
+package com.example.metroapp.build;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for network.json validation
+ */
+public class NetworkCodegenTest {
+
+    // Three stations about 1 km apart on one line; single quotes stand in for double quotes
+    private static final String STATIONS = "{'name': 'Alpha', 'lat': 30.00, 'lon': 31.20},"
+            + "{'name': 'Beta', 'lat': 30.01, 'lon': 31.20},"
+            + "{'name': 'Gamma', 'lat': 30.02, 'lon': 31.20}";
+    private static final String LINE = "{'number': 1, 'color': '#FF0000', 'stations': ['Alpha', 'Beta', 'Gamma']}";
+
+    private static NetworkCodegen parse(String lines, String stations) {
+        String json = "{'lines': [" + lines + "], 'stations': [" + stations + "]}";
+        return NetworkCodegen.parse(new StringReader(json.replace('\'', '"')));
+    }
+
+    private static List<String> errors(String lines, String stations) {
+        return parse(lines, stations).validate().getErrors();
+    }
+
+    private static void assertError(List<String> errors, String fragment) {
+        for (String error : errors) {
+            if (error.contains(fragment)) return;
+        }
+        fail("expected an error containing \"" + fragment + "\", got " + errors);
+    }
+
+    @Test
+    public void validNetwork_passesAndGenerates() {
+        NetworkCodegen codegen = parse(LINE, STATIONS);
+        assertEquals(0, codegen.validate().getErrors().size());
+        String source = codegen.generate();
+        assertTrue(source.contains("class " + NetworkCodegen.CLASS_NAME));
+        assertTrue(source.contains("\"Alpha\", \"Beta\", \"Gamma\""));
+    }
+
+    @Test
+    public void duplicateStation_fails() {
+        assertError(errors(LINE, STATIONS + ",{'name': 'Beta', 'lat': 30.03, 'lon': 31.20}"),
+                "\"Beta\" is defined more than once");
+    }
+
+    @Test
+    public void badCoordinates_fail() {
+        assertError(errors(LINE, STATIONS.replace("'lat': 30.00", "'lat': 91")), "invalid coordinates");
+        assertError(errors(LINE, STATIONS.replace("'lat': 30.02", "'lat': 30.01")), "have the same coordinates");
+    }
+
+    @Test
+    public void longHop_fails() {
+        // Gamma moved about 11 km north of Beta
+        assertError(errors(LINE, STATIONS.replace("'lat': 30.02", "'lat': 30.11")),
+                "\"Beta\" and \"Gamma\" are 11.1 km apart");
+    }
+
+    @Test
+    public void badColor_fails() {
+        assertError(errors(LINE.replace("#FF0000", "red"), STATIONS), "invalid color \"red\"");
+        assertError(errors(LINE.replace("#FF0000", "#FF00"), STATIONS), "invalid color");
+    }
+
+    @Test
+    public void lineProblems_fail() {
+        assertError(errors(LINE + "," + LINE.replace("#FF0000", "#00FF00"), STATIONS),
+                "duplicate or non-positive number");
+        assertError(errors(LINE.replace("'Gamma']", "'Gamma', 'Alpha']"), STATIONS), "visits \"Alpha\" more than once");
+        assertError(errors(LINE.replace("'Gamma']", "'Gamma', 'Delta']"), STATIONS), "undefined station \"Delta\"");
+        assertError(errors("{'number': 2, 'color': '#00FF00', 'stations': ['Alpha']}", STATIONS),
+                "fewer than two stations");
+    }
+
+    @Test
+    public void unservedStation_fails() {
+        assertError(errors(LINE, STATIONS + ",{'name': 'Delta', 'lat': 30.03, 'lon': 31.20}"),
+                "\"Delta\" is not on any line");
+    }
+
+    @Test
+    public void disconnectedNetwork_fails() {
+        String stations = STATIONS + ",{'name': 'Delta', 'lat': 30.10, 'lon': 31.30},"
+                + "{'name': 'Epsilon', 'lat': 30.11, 'lon': 31.30}";
+        String lines = LINE + ",{'number': 2, 'color': '#00FF00', 'stations': ['Delta', 'Epsilon']}";
+        assertError(errors(lines, stations), "network is not connected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fractionalLineNumber_isRejected() {
+        parse(LINE.replace("'number': 1", "'number': 1.5"), STATIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingField_isRejected() {
+        parse(LINE.replace("'color': '#FF0000', ", ""), STATIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedJson_isRejected() {
+        NetworkCodegen.parse(new StringReader("{\"lines\": ["));
+    }
+}
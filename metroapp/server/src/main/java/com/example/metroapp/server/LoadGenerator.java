@@ -0,0 +1,246 @@
+package com.example.metroapp.server;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.Metrics;
+import com.example.metroapp.services.RaptorRouter;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a RouteServer with a seeded mix of route, nearest and fare requests and reports
+ * throughput and tail latency per endpoint
+ *
+ * Each of --concurrency workers is a virtual thread sending one request at a time. Without --rate
+ * the load is closed-loop: a worker sends as soon as its last response arrives, which finds peak
+ * throughput but hides queueing. With --rate (requests per second across all workers) requests go
+ * out on a fixed schedule and latency is measured from when each was due, so a stalled server
+ * shows up in the tail instead of silently lowering the offered load.
+ *
+ * Options: --url (default: start a server in this JVM), --concurrency 64, --seconds 10,
+ * --warmup 3, --rate 0 (closed-loop), --format json|bin, --seed 42
+ */
+public final class LoadGenerator {
+
+    // Share of requests per endpoint, out of 100
+    private static final int ROUTE_PERCENT = 70;
+    private static final int NEAREST_PERCENT = 20;
+    // Up to about 1 km from a station
+    private static final double NEAREST_JITTER_DEGREES = 0.01;
+
+    private final URI base;
+    private final int concurrency;
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final long rate;
+    private final boolean binary;
+    private final long seed;
+    private final StationGraph graph;
+    private final HttpClient client;
+
+    private final Metrics.Histogram routeTime = Metrics.getDefault().histogram("load.route");
+    private final Metrics.Histogram nearestTime = Metrics.getDefault().histogram("load.nearest");
+    private final Metrics.Histogram fareTime = Metrics.getDefault().histogram("load.fare");
+    private final Metrics.Histogram allTime = Metrics.getDefault().histogram("load.all");
+    private final AtomicLong errors = new AtomicLong();
+
+    LoadGenerator(URI base, int concurrency, int warmupSeconds, int seconds, long rate, boolean binary, long seed) {
+        this.base = base;
+        this.concurrency = concurrency;
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.measureNanos = TimeUnit.SECONDS.toNanos(seconds);
+        this.rate = rate;
+        this.binary = binary;
+        this.seed = seed;
+        // The client needs the same station ids as the server, which shares this network
+        this.graph = RaptorRouter.getDefault().getGraph();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Run warm-up and measurement; returns the report
+     */
+    String run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + measureNanos;
+        // Each worker's share of the target rate, as the gap between its requests
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * concurrency / rate : 0;
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                final SplittableRandom random = new SplittableRandom(seed + i);
+                // Stagger scheduled workers so they do not all fire together
+                final long first = start + (interval > 0 ? interval * i / concurrency : 0);
+                workers.execute(() -> work(random, first, interval, measureFrom, end));
+            }
+        }
+        return report();
+    }
+
+    private void work(SplittableRandom random, long first, long interval, long measureFrom, long end) {
+        long due = first;
+        while (true) {
+            long now = System.nanoTime();
+            if (interval > 0) {
+                if (due >= end) break;
+                if (due > now) {
+                    LockSupport.parkNanos(due - now);
+                }
+            } else {
+                if (now >= end) break;
+                due = now;
+            }
+
+            int kind = random.nextInt(100);
+            Metrics.Histogram time;
+            URI uri;
+            if (kind < ROUTE_PERCENT) {
+                time = routeTime;
+                uri = routeUri(random);
+            } else if (kind < ROUTE_PERCENT + NEAREST_PERCENT) {
+                time = nearestTime;
+                uri = nearestUri(random);
+            } else {
+                time = fareTime;
+                uri = fareUri(random);
+            }
+            boolean ok = send(uri);
+            long latency = System.nanoTime() - due;
+            if (due >= measureFrom) {
+                if (ok) {
+                    time.record(latency);
+                    allTime.record(latency);
+                } else {
+                    errors.incrementAndGet();
+                }
+            }
+            due += interval;
+        }
+    }
+
+    private boolean send(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return response.statusCode() == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private URI routeUri(SplittableRandom random) {
+        return uri("/route?" + stationPair(random));
+    }
+
+    private URI nearestUri(SplittableRandom random) {
+        int station = random.nextInt(graph.getStationCount());
+        double latitude = graph.getLatitude(station) + (random.nextDouble() * 2 - 1) * NEAREST_JITTER_DEGREES;
+        double longitude = graph.getLongitude(station) + (random.nextDouble() * 2 - 1) * NEAREST_JITTER_DEGREES;
+        return uri(String.format(Locale.US, "/nearest?lat=%.6f&lon=%.6f&k=3", latitude, longitude));
+    }
+
+    private URI fareUri(SplittableRandom random) {
+        return uri("/fare?" + stationPair(random));
+    }
+
+    /**
+     * Two different stations by id, as from and to parameters
+     */
+    private String stationPair(SplittableRandom random) {
+        int from = random.nextInt(graph.getStationCount());
+        int to = (from + 1 + random.nextInt(graph.getStationCount() - 1)) % graph.getStationCount();
+        return "from=" + from + "&to=" + to;
+    }
+
+    private URI uri(String pathAndQuery) {
+        return base.resolve(binary ? pathAndQuery + "&format=bin" : pathAndQuery);
+    }
+
+    private String report() {
+        double seconds = measureNanos / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%s, %d workers, %s, %.0f s%n", base, concurrency,
+                rate > 0 ? rate + " req/s scheduled" : "closed-loop", seconds));
+        out.append(String.format(Locale.US, "%-8s %10s %10s %8s %8s %8s %8s %8s%n",
+                "", "requests", "req/s", "p50", "p90", "p99", "p99.9", "max"));
+        List<Metrics.Histogram> rows = new ArrayList<>();
+        rows.add(routeTime);
+        rows.add(nearestTime);
+        rows.add(fareTime);
+        rows.add(allTime);
+        for (Metrics.Histogram histogram : rows) {
+            out.append(String.format(Locale.US, "%-8s %10d %10.0f %8s %8s %8s %8s %8s%n",
+                    histogram.getName().substring("load.".length()), histogram.getCount(),
+                    histogram.getCount() / seconds,
+                    millis(histogram.getPercentileMicros(0.50)), millis(histogram.getPercentileMicros(0.90)),
+                    millis(histogram.getPercentileMicros(0.99)), millis(histogram.getPercentileMicros(0.999)),
+                    millis(histogram.getMaxMicros())));
+        }
+        out.append("errors ").append(errors.get()).append(System.lineSeparator());
+        return out.toString();
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.US, "%.2fms", micros / 1000.0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an --option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        long rate = Long.parseLong(options.getOrDefault("rate", "0"));
+        boolean binary = "bin".equals(options.getOrDefault("format", "json"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        RouteServer server = null;
+        String url = options.get("url");
+        if (url == null) {
+            server = new RouteServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(URI.create(url + "/"), concurrency, warmup, seconds,
+                    rate, binary, seed);
+            System.out.print(generator.run());
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+}
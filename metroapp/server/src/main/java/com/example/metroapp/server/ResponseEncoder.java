@@ -0,0 +1,210 @@
+package com.example.metroapp.server;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.Journey;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes route server responses as compact JSON or as a binary form for kiosks
+ *
+ * The binary form names stations by the ids listed in /stations, so a kiosk holding the station
+ * table never receives a name over the wire. Every body starts with a version byte; every field
+ * after it is an unsigned varint (LEB128: seven bits per byte, low bits first, the top bit set on
+ * all but the last byte), so ids, line numbers and counts of any network size fit. Then:
+ * - route: minutes, fare, legs, line number per leg, transfers, station per transfer,
+ *   stations, station per stop from origin to destination
+ * - nearest: count, then station and meters per result, closest first
+ * - fare: fare
+ */
+final class ResponseEncoder {
+
+    static final String JSON = "application/json; charset=utf-8";
+    static final String BINARY = "application/octet-stream";
+    static final int BINARY_VERSION = 1;
+
+    private final StationGraph graph;
+
+    ResponseEncoder(StationGraph graph) {
+        this.graph = graph;
+    }
+
+    byte[] route(Journey journey, int fare, boolean binary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(binary ? 64 : 512);
+        try {
+            if (binary) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(BINARY_VERSION);
+                writeVarint(out, journey.getMinutes());
+                writeVarint(out, fare);
+                writeVarint(out, journey.getLegCount());
+                for (int leg = 0; leg < journey.getLegCount(); leg++) {
+                    writeVarint(out, lineNumber(journey.getLegLine(leg)));
+                }
+                writeVarint(out, journey.getTransferCount());
+                for (int i = 0; i < journey.getTransferCount(); i++) {
+                    writeVarint(out, journey.getTransferStation(i));
+                }
+                writeVarint(out, journey.getStationCount() + 1);
+                for (int i = 0; i <= journey.getStationCount(); i++) {
+                    writeVarint(out, journey.getStation(i));
+                }
+                out.flush();
+            } else {
+                JsonWriter json = json(bytes);
+                json.beginObject();
+                json.name("from").value(graph.getName(journey.getStation(0)));
+                json.name("to").value(graph.getName(journey.getStation(journey.getStationCount())));
+                json.name("minutes").value(journey.getMinutes());
+                json.name("fare").value(fare);
+                json.name("direction").value(graph.getName(journey.getDirectionStation()));
+                json.name("lines").beginArray();
+                for (int leg = 0; leg < journey.getLegCount(); leg++) {
+                    json.value(lineNumber(journey.getLegLine(leg)));
+                }
+                json.endArray();
+                json.name("transfers").beginArray();
+                for (int i = 0; i < journey.getTransferCount(); i++) {
+                    json.value(graph.getName(journey.getTransferStation(i)));
+                }
+                json.endArray();
+                json.name("stations").beginArray();
+                for (int i = 0; i <= journey.getStationCount(); i++) {
+                    json.value(graph.getName(journey.getStation(i)));
+                }
+                json.endArray();
+                json.endObject();
+                json.flush();
+            }
+        } catch (IOException e) {
+            // In-memory streams do not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    byte[] nearest(int[] ids, float[] meters, int count, boolean binary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(binary ? 8 + count * 6 : 64 + count * 64);
+        try {
+            if (binary) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(BINARY_VERSION);
+                writeVarint(out, count);
+                for (int i = 0; i < count; i++) {
+                    writeVarint(out, ids[i]);
+                    writeVarint(out, Math.round(meters[i]));
+                }
+                out.flush();
+            } else {
+                JsonWriter json = json(bytes);
+                json.beginArray();
+                for (int i = 0; i < count; i++) {
+                    json.beginObject();
+                    json.name("id").value(ids[i]);
+                    json.name("station").value(graph.getName(ids[i]));
+                    json.name("meters").value(Math.round(meters[i]));
+                    json.endObject();
+                }
+                json.endArray();
+                json.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    byte[] fare(int from, int to, int fare, boolean binary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(binary ? 8 : 128);
+        try {
+            if (binary) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(BINARY_VERSION);
+                writeVarint(out, fare);
+                out.flush();
+                return bytes.toByteArray();
+            }
+            JsonWriter json = json(bytes);
+            json.beginObject();
+            json.name("from").value(graph.getName(from));
+            json.name("to").value(graph.getName(to));
+            json.name("fare").value(fare);
+            json.endObject();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The station table binary clients resolve ids against; JSON only, fetched once per client
+     */
+    byte[] stations() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(graph.getStationCount() * 96);
+        try {
+            JsonWriter json = json(bytes);
+            json.beginArray();
+            for (int station = 0; station < graph.getStationCount(); station++) {
+                json.beginObject();
+                json.name("id").value(station);
+                json.name("name").value(graph.getName(station));
+                json.name("lat").value(graph.getLatitude(station));
+                json.name("lon").value(graph.getLongitude(station));
+                json.name("lines").beginArray();
+                for (int i = 0; i < graph.getStationLineCount(station); i++) {
+                    json.value(lineNumber(graph.getStationLine(station, i)));
+                }
+                json.endArray();
+                json.endObject();
+            }
+            json.endArray();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    byte[] error(String message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + message.length());
+        try {
+            JsonWriter json = json(bytes);
+            json.beginObject();
+            json.name("error").value(message);
+            json.endObject();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write an unsigned LEB128 varint; negative values have no binary form and are refused
+     */
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value in a binary response: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private int lineNumber(int line) {
+        return graph.getLineNumber(line);
+    }
+
+    private static JsonWriter json(ByteArrayOutputStream bytes) {
+        return new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.metroapp.server;
+
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.FareEngine;
+import com.example.metroapp.services.Journey;
+import com.example.metroapp.services.Metrics;
+import com.example.metroapp.services.RaptorRouter;
+import com.example.metroapp.services.RouteCalculator;
+import com.example.metroapp.services.RouteOptions;
+import com.example.metroapp.services.StationSpatialIndex;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless HTTP front end to the routing engine, for station kiosks and internal tools
+ *
+ * Each request runs on its own virtual thread. All endpoints are GET:
+ * - /route?from=&to=[&prefer=fastest|cheapest] the default route comes from the precomputed table
+ * - /nearest?lat=&lon=[&k=] up to MAX_NEAREST stations, closest first
+ * - /fare?from=&to=
+ * - /stations the id, name, position and lines of every station
+ * - /metrics engine and server latency histograms as text
+ * Stations are given by name or by id. Responses are compact JSON, or the binary form described in
+ * ResponseEncoder with ?format=bin or Accept: application/octet-stream.
+ */
+public final class RouteServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    static final int MAX_NEAREST = 10;
+
+    private static final Metrics.Histogram ROUTE_TIME = Metrics.getDefault().histogram("server.route");
+    private static final Metrics.Histogram NEAREST_TIME = Metrics.getDefault().histogram("server.nearest");
+    private static final Metrics.Histogram FARE_TIME = Metrics.getDefault().histogram("server.fare");
+    private static final Metrics.Counter CLIENT_ERRORS = Metrics.getDefault().counter("server.clientErrors");
+    private static final Metrics.Counter SERVER_ERRORS = Metrics.getDefault().counter("server.serverErrors");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final StationGraph graph;
+    private final FareEngine fares;
+    private final StationSpatialIndex index;
+    private final ResponseEncoder encoder;
+    private final byte[] stations;
+
+    /**
+     * Bind to an address (port 0 picks a free one) and build the engine tables; call start() to serve
+     */
+    public RouteServer(InetSocketAddress address) throws IOException {
+        graph = RaptorRouter.getDefault().getGraph();
+        fares = FareEngine.forGraph(graph);
+        index = StationSpatialIndex.getDefault();
+        encoder = new ResponseEncoder(graph);
+        stations = encoder.stations();
+        // First requests should not pay for building the route table
+        RouteCalculator.warmUp();
+
+        // Headers and body go out as separate writes; without TCP_NODELAY every keep-alive response
+        // waits out the client's delayed ACK (~40 ms). Read once when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/route", new Endpoint(ROUTE_TIME) {
+            @Override
+            Response respond(Map<String, String> query, boolean binary) {
+                return route(query, binary);
+            }
+        });
+        server.createContext("/nearest", new Endpoint(NEAREST_TIME) {
+            @Override
+            Response respond(Map<String, String> query, boolean binary) {
+                return nearest(query, binary);
+            }
+        });
+        server.createContext("/fare", new Endpoint(FARE_TIME) {
+            @Override
+            Response respond(Map<String, String> query, boolean binary) {
+                return fare(query, binary);
+            }
+        });
+        server.createContext("/stations", new Endpoint(null) {
+            @Override
+            Response respond(Map<String, String> query, boolean binary) {
+                return new Response(200, ResponseEncoder.JSON, stations);
+            }
+        });
+        server.createContext("/metrics", new Endpoint(null) {
+            @Override
+            Response respond(Map<String, String> query, boolean binary) throws IOException {
+                StringWriter out = new StringWriter();
+                Metrics.getDefault().dump(out);
+                return new Response(200, "text/plain; charset=utf-8", out.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, give in-flight ones up to a second, then release the threads
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private Response route(Map<String, String> query, boolean binary) {
+        int from = station(query, "from");
+        int to = station(query, "to");
+        if (from == to) {
+            throw new IllegalArgumentException("from and to are the same station");
+        }
+        String prefer = query.get("prefer");
+        Journey journey;
+        if (prefer == null) {
+            journey = RouteCalculator.calculateJourney(from, to);
+        } else {
+            RouteOptions.Preference preference = preference(prefer);
+            journey = RaptorRouter.getDefault().route(from, to,
+                    new RouteOptions(preference, RouteOptions.DEFAULT_MAX_TRANSFERS));
+        }
+        if (journey == null) {
+            return error(404, "No route from " + graph.getName(from) + " to " + graph.getName(to));
+        }
+        return new Response(200, contentType(binary), encoder.route(journey, fares.getFare(from, to), binary));
+    }
+
+    private Response nearest(Map<String, String> query, boolean binary) {
+        double latitude = number(query, "lat", -90, 90);
+        double longitude = number(query, "lon", -180, 180);
+        String k = query.get("k");
+        int count = k != null ? (int) number(query, "k", 1, MAX_NEAREST) : 1;
+        int[] ids = new int[count];
+        float[] meters = new float[count];
+        count = index.nearest(latitude, longitude, count, ids, meters);
+        return new Response(200, contentType(binary), encoder.nearest(ids, meters, count, binary));
+    }
+
+    private Response fare(Map<String, String> query, boolean binary) {
+        int from = station(query, "from");
+        int to = station(query, "to");
+        int fare = fares.getFare(from, to);
+        if (fare == FareEngine.NO_FARE) {
+            return error(404, "No fare from " + graph.getName(from) + " to " + graph.getName(to));
+        }
+        return new Response(200, contentType(binary), encoder.fare(from, to, fare, binary));
+    }
+
+    /**
+     * A station parameter, by name or by id
+     */
+    private int station(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        int station = graph.indexOf(value);
+        if (station < 0 && isDigits(value) && value.length() < 10) {
+            station = Integer.parseInt(value);
+            if (station >= graph.getStationCount()) {
+                station = -1;
+            }
+        }
+        if (station < 0) {
+            throw new IllegalArgumentException("Unknown station " + value);
+        }
+        return station;
+    }
+
+    private static double number(Map<String, String> query, String name, double min, double max) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad " + name + ": " + value);
+        }
+        if (!(number >= min && number <= max)) {
+            throw new IllegalArgumentException(name + " out of range: " + value);
+        }
+        return number;
+    }
+
+    private static RouteOptions.Preference preference(String value) {
+        switch (value) {
+            case "fastest":
+                return RouteOptions.Preference.FASTEST;
+            case "cheapest":
+                return RouteOptions.Preference.CHEAPEST;
+            case "fewest_transfers":
+                return RouteOptions.Preference.FEWEST_TRANSFERS;
+            default:
+                throw new IllegalArgumentException("Bad prefer: " + value);
+        }
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    private static String contentType(boolean binary) {
+        return binary ? ResponseEncoder.BINARY : ResponseEncoder.JSON;
+    }
+
+    private Response error(int status, String message) {
+        return new Response(status, ResponseEncoder.JSON, encoder.error(message));
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        int start = 0;
+        while (start <= rawQuery.length()) {
+            int end = rawQuery.indexOf('&', start);
+            if (end < 0) end = rawQuery.length();
+            int equals = rawQuery.indexOf('=', start);
+            if (end > start) {
+                if (equals < 0 || equals > end) {
+                    query.put(decode(rawQuery.substring(start, end)), "");
+                } else {
+                    query.put(decode(rawQuery.substring(start, equals)), decode(rawQuery.substring(equals + 1, end)));
+                }
+            }
+            start = end + 1;
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static final class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Response(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Common request handling: method check, query parsing, format negotiation, errors and timing
+     */
+    private abstract class Endpoint implements HttpHandler {
+        private final Metrics.Histogram time;
+
+        Endpoint(Metrics.Histogram time) {
+            this.time = time;
+        }
+
+        abstract Response respond(Map<String, String> query, boolean binary) throws IOException;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            Response response;
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    response = error(405, "Only GET is supported");
+                } else if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                    response = error(404, "Not found");
+                } else {
+                    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                    boolean binary = "bin".equals(query.get("format"))
+                            || ResponseEncoder.BINARY.equals(exchange.getRequestHeaders().getFirst("Accept"));
+                    response = respond(query, binary);
+                }
+            } catch (IllegalArgumentException e) {
+                response = error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                SERVER_ERRORS.increment();
+                response = error(500, "Internal error");
+            }
+            if (response.status >= 400 && response.status < 500) {
+                CLIENT_ERRORS.increment();
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            exchange.sendResponseHeaders(response.status, response.body.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response.body);
+            }
+            if (time != null) {
+                time.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * Serve on the port given as the only argument, DEFAULT_PORT by default, until the process is stopped
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RouteServer server = new RouteServer(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Route server listening on port " + server.getPort()
+                + " with " + server.graph.getStationCount() + " stations");
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.metroapp.server;
+
+import com.example.metroapp.data.RouteResult;
+import com.example.metroapp.data.StationGraph;
+import com.example.metroapp.services.RaptorRouter;
+import com.example.metroapp.services.RouteCalculator;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the route server endpoints
+ */
+public class RouteServerTest {
+
+    private static RouteServer server;
+    private static HttpClient client;
+    private final StationGraph graph = RaptorRouter.getDefault().getGraph();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new RouteServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop();
+    }
+
+    private static HttpResponse<byte[]> get(String pathAndQuery) throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery);
+        return client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static JsonObject json(HttpResponse<byte[]> response) {
+        return JsonParser.parseString(new String(response.body(), java.nio.charset.StandardCharsets.UTF_8))
+                .getAsJsonObject();
+    }
+
+    @Test
+    public void route_matchesTheApp() throws Exception {
+        HttpResponse<byte[]> response = get("/route?from=Helwan&to=Kit%20Kat");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").get().startsWith("application/json"));
+
+        RouteResult expected = RouteCalculator.calculateRoute("Helwan", "Kit Kat");
+        JsonObject route = json(response);
+        assertEquals(expected.getTicketPrice(), route.get("fare").getAsInt());
+        JsonArray stations = route.getAsJsonArray("stations");
+        assertEquals(expected.getStations().size(), stations.size());
+        for (int i = 0; i < stations.size(); i++) {
+            assertEquals(expected.getStations().get(i), stations.get(i).getAsString());
+        }
+        assertEquals(expected.getTransferStations().size(), route.getAsJsonArray("transfers").size());
+    }
+
+    @Test
+    public void binaryRoute_usesStationIds() throws Exception {
+        int from = graph.indexOf("Helwan");
+        int to = graph.indexOf("Kit Kat");
+        HttpResponse<byte[]> response = get("/route?from=" + from + "&to=" + to + "&format=bin");
+        assertEquals(200, response.statusCode());
+
+        RouteResult expected = RouteCalculator.calculateRoute("Helwan", "Kit Kat");
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.body()));
+        assertEquals(ResponseEncoder.BINARY_VERSION, in.readUnsignedByte());
+        readVarint(in);
+        assertEquals(expected.getTicketPrice(), readVarint(in));
+        int legs = readVarint(in);
+        for (int leg = 0; leg < legs; leg++) {
+            readVarint(in);
+        }
+        int transfers = readVarint(in);
+        assertEquals(legs - 1, transfers);
+        for (int i = 0; i < transfers; i++) {
+            readVarint(in);
+        }
+        int stops = readVarint(in);
+        assertEquals(expected.getStations().size(), stops);
+        for (int i = 0; i < stops; i++) {
+            assertEquals(expected.getStations().get(i), graph.getName(readVarint(in)));
+        }
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void varints_carryIdsPastSixteenBits() throws IOException {
+        int[] values = {0, 127, 128, 65535, 65536, 80_000, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            ResponseEncoder.writeVarint(out, value);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : values) {
+            assertEquals(value, readVarint(in));
+        }
+        assertEquals(0, in.available());
+
+        try {
+            ResponseEncoder.writeVarint(out, -1);
+            fail("Wrote a negative varint");
+        } catch (IllegalArgumentException expected) {
+            // No binary form
+        }
+    }
+
+    @Test
+    public void nearestAndFare() throws Exception {
+        int sadat = graph.indexOf("Sadat");
+        HttpResponse<byte[]> response = get("/nearest?lat=" + graph.getLatitude(sadat)
+                + "&lon=" + graph.getLongitude(sadat) + "&k=3");
+        assertEquals(200, response.statusCode());
+        JsonArray nearest = JsonParser.parseString(new String(response.body(), "UTF-8")).getAsJsonArray();
+        assertEquals(3, nearest.size());
+        assertEquals("Sadat", nearest.get(0).getAsJsonObject().get("station").getAsString());
+        assertEquals(0, nearest.get(0).getAsJsonObject().get("meters").getAsInt());
+
+        JsonObject fare = json(get("/fare?from=Helwan&to=Maadi"));
+        assertEquals(RouteCalculator.calculateRoute("Helwan", "Maadi").getTicketPrice(), fare.get("fare").getAsInt());
+    }
+
+    @Test
+    public void badRequests_getErrors() throws Exception {
+        assertEquals(400, get("/route?from=Helwan").statusCode());
+        assertEquals(400, get("/route?from=Helwan&to=Atlantis").statusCode());
+        assertEquals(400, get("/route?from=Helwan&to=Helwan").statusCode());
+        assertEquals(400, get("/nearest?lat=91&lon=31").statusCode());
+        assertEquals(400, get("/route?from=Helwan&to=Maadi&prefer=scenic").statusCode());
+        assertEquals(404, get("/route/extra").statusCode());
+        assertTrue(json(get("/fare?from=Helwan")).has("error"));
+
+        Map<String, String> query = RouteServer.parseQuery("from=Kit%20Kat&to=Sadat&flag");
+        assertEquals("Kit Kat", query.get("from"));
+        assertEquals("Sadat", query.get("to"));
+        assertEquals("", query.get("flag"));
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.metroapp.tools;
+
+import com.example.metroapp.data.MetroNetwork;
+import com.example.metroapp.data.NetworkSnapshot;
+import com.example.metroapp.services.GtfsImporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Convert a GTFS feed into a network snapshot for NetworkLoader
+ * Usage: GtfsImportTool <feed directory or .zip> <output .bin> [route_type ...]
+ */
+public final class GtfsImportTool {
+
+    private GtfsImportTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: GtfsImportTool <feed directory or .zip> <output file> [route_type ...]");
+            System.exit(2);
+        }
+        int[] types = new int[args.length - 2];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = Integer.parseInt(args[i + 2]);
+        }
+        long start = System.nanoTime();
+        MetroNetwork network = GtfsImporter.importFeed(new File(args[0]),
+                types.length > 0 ? types : new int[] {GtfsImporter.ROUTE_TYPE_SUBWAY});
+        try (OutputStream out = new FileOutputStream(args[1])) {
+            NetworkSnapshot.write(network, out);
+        }
+        System.out.println(network.getStationCount() + " stations, " + network.getLineCount() + " lines in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
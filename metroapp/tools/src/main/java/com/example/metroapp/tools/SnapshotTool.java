@@ -0,0 +1,27 @@
+package com.example.metroapp.tools;
+
+import com.example.metroapp.data.NetworkSnapshot;
+import com.example.metroapp.data.StationData;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Write the compiled-in network as a binary snapshot, e.g. to refresh src/main/network/network.bin
+ */
+public final class SnapshotTool {
+
+    private SnapshotTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: SnapshotTool <output file>");
+            System.exit(2);
+        }
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            NetworkSnapshot.write(StationData.getNetwork(), out);
+        }
+    }
+}